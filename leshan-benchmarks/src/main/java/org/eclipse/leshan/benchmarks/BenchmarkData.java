@@ -0,0 +1,152 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.benchmarks;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.eclipse.leshan.Link;
+import org.eclipse.leshan.core.model.LwM2mModel;
+import org.eclipse.leshan.core.model.ObjectLoader;
+import org.eclipse.leshan.core.node.LwM2mMultipleResource;
+import org.eclipse.leshan.core.node.LwM2mNode;
+import org.eclipse.leshan.core.node.LwM2mObject;
+import org.eclipse.leshan.core.node.LwM2mObjectInstance;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.LwM2mResource;
+import org.eclipse.leshan.core.node.LwM2mSingleResource;
+import org.eclipse.leshan.core.request.BindingMode;
+import org.eclipse.leshan.server.registration.Registration;
+
+/**
+ * Realistic LWM2M data shared by the benchmarks.
+ */
+public class BenchmarkData {
+
+    /** The model of the OMA standard objects */
+    public static final LwM2mModel MODEL = new LwM2mModel(ObjectLoader.loadDefault());
+
+    /** The object links of a client with a few standard and vendor objects */
+    public static final String OBJECT_LINKS = "</>;rt=\"oma.lwm2m\",</1/0>,</2/0>,</2/1>,</2/2>,</2/3>,</3/0>,"
+            + "</4/0>,</5/0>,</6/0>,</7/0>,</3303/0>,</3303/1>,</3304/0>,</3311/0>,</3311/1>,</3341/0>,"
+            + "</10241/0>;ver=\"1.1\",</10242/0>";
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * The kinds of node used to benchmark the codecs.
+     */
+    public enum Node {
+        /** Instance 0 of the Device object (/3/0) */
+        DEVICE,
+        /** Instance 0 of the Firmware Update object (/5/0) with a 4 KB package */
+        FIRMWARE,
+        /** The Access Control object (/2) with 20 instances */
+        ACCESS_CONTROL;
+
+        public LwM2mPath path() {
+            switch (this) {
+            case DEVICE:
+                return new LwM2mPath(3, 0);
+            case FIRMWARE:
+                return new LwM2mPath(5, 0);
+            default:
+                return new LwM2mPath(2);
+            }
+        }
+
+        public LwM2mNode node() {
+            switch (this) {
+            case DEVICE:
+                return device();
+            case FIRMWARE:
+                return firmware();
+            default:
+                return accessControl(20);
+            }
+        }
+    }
+
+    public static LwM2mObjectInstance device() {
+        Map<Integer, Long> powerSources = new HashMap<>();
+        powerSources.put(0, 1L);
+        powerSources.put(1, 5L);
+        Map<Integer, Long> voltages = new HashMap<>();
+        voltages.put(0, 3800L);
+        voltages.put(1, 5000L);
+        Map<Integer, Long> currents = new HashMap<>();
+        currents.put(0, 125L);
+        currents.put(1, 900L);
+        Map<Integer, Long> errorCodes = new HashMap<>();
+        errorCodes.put(0, 0L);
+
+        return new LwM2mObjectInstance(0, LwM2mSingleResource.newStringResource(0, "Leshan Demo Device"),
+                LwM2mSingleResource.newStringResource(1, "Model 500"),
+                LwM2mSingleResource.newStringResource(2, "LT-500-000-0001"),
+                LwM2mSingleResource.newStringResource(3, "1.0.0"),
+                LwM2mMultipleResource.newIntegerResource(6, powerSources),
+                LwM2mMultipleResource.newIntegerResource(7, voltages),
+                LwM2mMultipleResource.newIntegerResource(8, currents),
+                LwM2mSingleResource.newIntegerResource(9, 92), LwM2mSingleResource.newIntegerResource(10, 15),
+                LwM2mMultipleResource.newIntegerResource(11, errorCodes),
+                LwM2mSingleResource.newDateResource(13, new Date(1500000000000L)),
+                LwM2mSingleResource.newStringResource(14, "+02"),
+                LwM2mSingleResource.newStringResource(15, "Europe/Paris"),
+                LwM2mSingleResource.newStringResource(16, "U"));
+    }
+
+    public static LwM2mObjectInstance firmware() {
+        byte[] firmware = new byte[4096];
+        new Random(42).nextBytes(firmware);
+        return new LwM2mObjectInstance(0, LwM2mSingleResource.newBinaryResource(0, firmware),
+                LwM2mSingleResource.newStringResource(1, "coap://firmware.example.org/leshan/1.0.1"),
+                LwM2mSingleResource.newIntegerResource(3, 1), LwM2mSingleResource.newIntegerResource(5, 0),
+                LwM2mSingleResource.newStringResource(6, "leshan-firmware"),
+                LwM2mSingleResource.newStringResource(7, "1.0.1"));
+    }
+
+    public static LwM2mObject accessControl(int instances) {
+        List<LwM2mObjectInstance> objectInstances = new ArrayList<>(instances);
+        for (int i = 0; i < instances; i++) {
+            Map<Integer, Long> acl = new HashMap<>();
+            acl.put(0, 1L);
+            acl.put(101, 15L);
+            List<LwM2mResource> resources = new ArrayList<>();
+            resources.add(LwM2mSingleResource.newIntegerResource(0, 3303));
+            resources.add(LwM2mSingleResource.newIntegerResource(1, i));
+            resources.add(LwM2mMultipleResource.newIntegerResource(2, acl));
+            resources.add(LwM2mSingleResource.newIntegerResource(3, 101));
+            objectInstances.add(new LwM2mObjectInstance(i, resources));
+        }
+        return new LwM2mObject(2, objectInstances);
+    }
+
+    public static Registration registration(int index) {
+        String endpoint = String.format("urn:imei:%015d", index);
+        InetAddress address = InetAddress.getLoopbackAddress();
+        return new Registration.Builder("reg-" + index, endpoint, address, 10000 + index % 50000,
+                new InetSocketAddress(address, 5683)).lifeTimeInSec(86400L).bindingMode(BindingMode.U)
+                        .objectLinks(Link.parse(OBJECT_LINKS.getBytes(StandardCharsets.UTF_8))).build();
+    }
+}
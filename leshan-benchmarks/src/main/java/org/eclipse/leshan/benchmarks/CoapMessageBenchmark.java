@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.benchmarks;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.californium.core.coap.CoAP.ResponseCode;
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.coap.Response;
+import org.eclipse.leshan.core.node.LwM2mObjectInstance;
+import org.eclipse.leshan.core.node.codec.DefaultLwM2mNodeDecoder;
+import org.eclipse.leshan.core.node.codec.DefaultLwM2mNodeEncoder;
+import org.eclipse.leshan.core.node.codec.LwM2mNodeDecoder;
+import org.eclipse.leshan.core.node.codec.LwM2mNodeEncoder;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.core.request.DownlinkRequest;
+import org.eclipse.leshan.core.request.ObserveRequest;
+import org.eclipse.leshan.core.request.ReadRequest;
+import org.eclipse.leshan.core.request.WriteRequest;
+import org.eclipse.leshan.core.request.WriteRequest.Mode;
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.core.response.ReadResponse;
+import org.eclipse.leshan.server.californium.impl.CoapRequestBuilder;
+import org.eclipse.leshan.server.californium.impl.LwM2mResponseBuilder;
+import org.eclipse.leshan.server.registration.Registration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the translation of LWM2M requests to CoAP requests and of CoAP responses to LWM2M responses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(org.openjdk.jmh.annotations.Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CoapMessageBenchmark {
+
+    private final LwM2mNodeEncoder encoder = new DefaultLwM2mNodeEncoder();
+    private final LwM2mNodeDecoder decoder = new DefaultLwM2mNodeDecoder();
+
+    private Registration registration;
+    private ReadRequest readRequest;
+    private WriteRequest writeRequest;
+    private ObserveRequest observeRequest;
+
+    private Request coapReadRequest;
+    private Response coapReadResponse;
+
+    @Setup
+    public void setup() throws Exception {
+        registration = BenchmarkData.registration(0);
+
+        readRequest = new ReadRequest(ContentFormat.TLV, 3, 0);
+        LwM2mObjectInstance device = BenchmarkData.device();
+        writeRequest = new WriteRequest(Mode.REPLACE, ContentFormat.TLV, 3, 0, device.getResources().values());
+        observeRequest = new ObserveRequest(3, 0, 9);
+
+        coapReadRequest = build(readRequest);
+        coapReadResponse = new Response(ResponseCode.CONTENT);
+        coapReadResponse.getOptions().setContentFormat(ContentFormat.TLV.getCode());
+        coapReadResponse.setPayload(encoder.encode(device, ContentFormat.TLV, readRequest.getPath(),
+                BenchmarkData.MODEL));
+    }
+
+    private Request build(DownlinkRequest<?> request) {
+        CoapRequestBuilder builder = new CoapRequestBuilder(
+                new InetSocketAddress(registration.getAddress(), registration.getPort()), registration.getRootPath(),
+                registration.getId(), registration.getEndpoint(), BenchmarkData.MODEL, encoder);
+        request.accept(builder);
+        return builder.getRequest();
+    }
+
+    @Benchmark
+    public Request buildRead() {
+        return build(readRequest);
+    }
+
+    @Benchmark
+    public Request buildWrite() {
+        return build(writeRequest);
+    }
+
+    @Benchmark
+    public Request buildObserve() {
+        return build(observeRequest);
+    }
+
+    @Benchmark
+    public LwM2mResponse buildReadResponse() {
+        LwM2mResponseBuilder<ReadResponse> builder = new LwM2mResponseBuilder<>(coapReadRequest, coapReadResponse,
+                registration, BenchmarkData.MODEL, null, decoder);
+        readRequest.accept(builder);
+        return builder.getResponse();
+    }
+}
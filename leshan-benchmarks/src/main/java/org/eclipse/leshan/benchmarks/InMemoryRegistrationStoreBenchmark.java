@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.benchmarks;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.server.californium.impl.InMemoryRegistrationStore;
+import org.eclipse.leshan.server.registration.Deregistration;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationUpdate;
+import org.eclipse.leshan.server.registration.UpdatedRegistration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the operations of the {@link InMemoryRegistrationStore} on a store filled with registrations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InMemoryRegistrationStoreBenchmark {
+
+    @Param({ "1000", "100000" })
+    public int size;
+
+    private InMemoryRegistrationStore store;
+    private Registration[] registrations;
+
+    @Setup
+    public void setup() {
+        store = new InMemoryRegistrationStore();
+        registrations = new Registration[size];
+        for (int i = 0; i < size; i++) {
+            registrations[i] = BenchmarkData.registration(i);
+            store.addRegistration(registrations[i]);
+        }
+    }
+
+    private Registration any() {
+        return registrations[ThreadLocalRandom.current().nextInt(size)];
+    }
+
+    @Benchmark
+    public Registration getRegistration() {
+        return store.getRegistration(any().getId());
+    }
+
+    @Benchmark
+    public Registration getRegistrationByEndpoint() {
+        return store.getRegistrationByEndpoint(any().getEndpoint());
+    }
+
+    @Benchmark
+    public Registration getRegistrationByAdress() {
+        Registration r = any();
+        return store.getRegistrationByAdress(new InetSocketAddress(r.getAddress(), r.getPort()));
+    }
+
+    @Benchmark
+    public UpdatedRegistration updateRegistration() {
+        Registration r = any();
+        return store.updateRegistration(
+                new RegistrationUpdate(r.getId(), r.getAddress(), r.getPort(), null, null, null, null));
+    }
+
+    @Benchmark
+    public Deregistration addRegistration() {
+        // a registration with the same endpoint replaces the previous one
+        return store.addRegistration(any());
+    }
+}
@@ -0,0 +1,156 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.benchmarks.BenchmarkData.Node;
+import org.eclipse.leshan.core.node.LwM2mNode;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.LwM2mSingleResource;
+import org.eclipse.leshan.core.node.TimestampedLwM2mNode;
+import org.eclipse.leshan.core.node.codec.CodecException;
+import org.eclipse.leshan.core.node.codec.DefaultLwM2mNodeDecoder;
+import org.eclipse.leshan.core.node.codec.DefaultLwM2mNodeEncoder;
+import org.eclipse.leshan.core.node.codec.LwM2mNodeDecoder;
+import org.eclipse.leshan.core.node.codec.LwM2mNodeEncoder;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the LWM2M node encoders and decoders (TLV, JSON, SenML JSON and CBOR) on objects and object instances, the
+ * text codec on single resources, and the JSON based codecs on timestamped notifications.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NodeCodecBenchmark {
+
+    private static final LwM2mNodeEncoder ENCODER = new DefaultLwM2mNodeEncoder();
+    private static final LwM2mNodeDecoder DECODER = new DefaultLwM2mNodeDecoder();
+
+    @State(Scope.Benchmark)
+    public static class NodeState {
+
+        @Param({ "TLV", "JSON", "SENML_JSON", "SENML_CBOR" })
+        public String format;
+
+        @Param({ "DEVICE", "FIRMWARE", "ACCESS_CONTROL" })
+        public Node node;
+
+        private ContentFormat contentFormat;
+        private LwM2mPath path;
+        private LwM2mNode value;
+        private byte[] encoded;
+
+        @Setup
+        public void setup() throws CodecException {
+            contentFormat = ContentFormat.fromName(format);
+            path = node.path();
+            value = node.node();
+            encoded = ENCODER.encode(value, contentFormat, path, BenchmarkData.MODEL);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class TextState {
+
+        @Param({ "/3/0/0", "/3/0/9", "/3/0/13" })
+        public String path;
+
+        private LwM2mPath lwm2mPath;
+        private LwM2mNode value;
+        private byte[] encoded;
+
+        @Setup
+        public void setup() throws CodecException {
+            lwm2mPath = new LwM2mPath(path);
+            value = BenchmarkData.device().getResource(lwm2mPath.getResourceId());
+            encoded = ENCODER.encode(value, ContentFormat.TEXT, lwm2mPath, BenchmarkData.MODEL);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class TimestampedState {
+
+        @Param({ "JSON", "SENML_JSON", "SENML_CBOR" })
+        public String format;
+
+        @Param({ "10", "500" })
+        public int samples;
+
+        private final LwM2mPath path = new LwM2mPath(3, 0, 9);
+        private ContentFormat contentFormat;
+        private List<TimestampedLwM2mNode> values;
+        private byte[] encoded;
+
+        @Setup
+        public void setup() throws CodecException {
+            contentFormat = ContentFormat.fromName(format);
+            // battery level samples batched by a device
+            values = new ArrayList<>(samples);
+            for (int i = 0; i < samples; i++) {
+                values.add(new TimestampedLwM2mNode(1500000000L + i * 60,
+                        LwM2mSingleResource.newIntegerResource(9, i % 100)));
+            }
+            encoded = ENCODER.encodeTimestampedData(values, contentFormat, path, BenchmarkData.MODEL);
+        }
+    }
+
+    @Benchmark
+    public byte[] encode(NodeState state) throws CodecException {
+        return ENCODER.encode(state.value, state.contentFormat, state.path, BenchmarkData.MODEL);
+    }
+
+    @Benchmark
+    public LwM2mNode decode(NodeState state) throws CodecException {
+        return DECODER.decode(state.encoded, state.contentFormat, state.path, BenchmarkData.MODEL);
+    }
+
+    @Benchmark
+    public byte[] encodeText(TextState state) throws CodecException {
+        return ENCODER.encode(state.value, ContentFormat.TEXT, state.lwm2mPath, BenchmarkData.MODEL);
+    }
+
+    @Benchmark
+    public LwM2mNode decodeText(TextState state) throws CodecException {
+        return DECODER.decode(state.encoded, ContentFormat.TEXT, state.lwm2mPath, BenchmarkData.MODEL);
+    }
+
+    @Benchmark
+    public byte[] encodeTimestamped(TimestampedState state) throws CodecException {
+        return ENCODER.encodeTimestampedData(state.values, state.contentFormat, state.path, BenchmarkData.MODEL);
+    }
+
+    @Benchmark
+    public List<TimestampedLwM2mNode> decodeTimestamped(TimestampedState state) throws CodecException {
+        return DECODER.decodeTimestampedData(state.encoded, state.contentFormat, state.path, BenchmarkData.MODEL);
+    }
+}
@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.Link;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the parsing of LWM2M paths and of CoRE Link Format payloads (object links sent at registration).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathAndLinkBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class PathState {
+
+        @Param({ "/3", "/3/0", "/3/0/13", "/3303/12/5700/0" })
+        public String path;
+
+        private LwM2mPath lwm2mPath;
+
+        @Setup
+        public void setup() {
+            lwm2mPath = new LwM2mPath(path);
+        }
+    }
+
+    private byte[] objectLinks;
+    private Link[] links;
+
+    @Setup
+    public void setup() {
+        objectLinks = BenchmarkData.OBJECT_LINKS.getBytes(StandardCharsets.UTF_8);
+        links = Link.parse(objectLinks);
+    }
+
+    @Benchmark
+    public LwM2mPath parsePath(PathState state) {
+        return new LwM2mPath(state.path);
+    }
+
+    @Benchmark
+    public String pathToString(PathState state) {
+        return state.lwm2mPath.toString();
+    }
+
+    @Benchmark
+    public Link[] parseLinks() {
+        return Link.parse(objectLinks);
+    }
+
+    @Benchmark
+    public String serializeLinks() {
+        return Link.serialize(links);
+    }
+
+    @Benchmark
+    public byte[] serializeLinksToBytes() {
+        return Link.serializeToBytes(links);
+    }
+}
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.benchmarks;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.benchmarks.BenchmarkData.Node;
+import org.eclipse.leshan.core.node.codec.DefaultLwM2mValueConverter;
+import org.eclipse.leshan.core.node.codec.tlv.LwM2mNodeTlvEncoder;
+import org.eclipse.leshan.tlv.Tlv;
+import org.eclipse.leshan.tlv.TlvDecoder;
+import org.eclipse.leshan.tlv.TlvEncoder;
+import org.eclipse.leshan.tlv.TlvException;
+import org.eclipse.leshan.tlv.TlvReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks the low level TLV encoding and decoding.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TlvBenchmark {
+
+    @Param({ "DEVICE", "FIRMWARE", "ACCESS_CONTROL" })
+    public Node node;
+
+    private Tlv[] tlvs;
+    private byte[] encoded;
+
+    @Setup
+    public void setup() throws Exception {
+        encoded = LwM2mNodeTlvEncoder.encode(node.node(), node.path(), BenchmarkData.MODEL,
+                new DefaultLwM2mValueConverter());
+        tlvs = TlvDecoder.decode(ByteBuffer.wrap(encoded));
+    }
+
+    @Benchmark
+    public ByteBuffer encode() {
+        return TlvEncoder.encode(tlvs);
+    }
+
+    @Benchmark
+    public Tlv[] decode() throws TlvException {
+        return TlvDecoder.decode(ByteBuffer.wrap(encoded));
+    }
+
+    @Benchmark
+    public int readHeaders() throws TlvException {
+        // walks the top level TLVs without reading their values
+        TlvReader reader = new TlvReader(ByteBuffer.wrap(encoded));
+        int count = 0;
+        while (reader.next()) {
+            count++;
+        }
+        return count;
+    }
+}
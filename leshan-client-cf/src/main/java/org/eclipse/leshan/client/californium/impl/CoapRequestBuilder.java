@@ -80,7 +80,7 @@ public class CoapRequestBuilder implements UplinkRequestVisitor {
 
         Link[] objectLinks = request.getObjectLinks();
         if (objectLinks != null)
-            coapRequest.setPayload(Link.serialize(objectLinks));
+            coapRequest.setPayload(Link.serializeToBytes(objectLinks));
 
     }
 
@@ -105,7 +105,7 @@ public class CoapRequestBuilder implements UplinkRequestVisitor {
         Link[] linkObjects = request.getObjectLinks();
         if (linkObjects != null) {
             coapRequest.getOptions().setContentFormat(ContentFormat.LINK.getCode());
-            coapRequest.setPayload(Link.serialize(linkObjects));
+            coapRequest.setPayload(Link.serializeToBytes(linkObjects));
         }
     }
 
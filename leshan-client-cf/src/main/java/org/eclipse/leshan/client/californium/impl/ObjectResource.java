@@ -121,7 +121,7 @@ public class ObjectResource extends CoapResource implements NotifySender {
             if (response.getCode().isError()) {
                 exchange.respond(fromLwM2mCode(response.getCode()), response.getErrorMessage());
             } else {
-                exchange.respond(fromLwM2mCode(response.getCode()), Link.serialize(response.getObjectLinks()),
+                exchange.respond(fromLwM2mCode(response.getCode()), Link.serializeToBytes(response.getObjectLinks()),
                         MediaTypeRegistry.APPLICATION_LINK_FORMAT);
             }
         } else {
@@ -15,6 +15,7 @@
  *******************************************************************************/
 package org.eclipse.leshan;
 
+import java.io.ByteArrayOutputStream;
 import java.io.Serializable;
 import java.nio.charset.StandardCharsets;
 import java.util.Collections;
@@ -22,8 +23,6 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 
-import org.eclipse.leshan.util.StringUtils;
-
 /**
  * A Link as defined in http://tools.ietf.org/html/rfc6690.
  */
@@ -60,6 +59,19 @@ public class Link implements Serializable {
         }
     }
 
+    // keeps the given attributes as is (parameters in reverse order to differ from the public constructor)
+    private Link(Map<String, Object> attributes, String url) {
+        this.url = url;
+        this.attributes = attributes;
+    }
+
+    /**
+     * Creates a new link using the given attributes map as is: the map must be unmodifiable.
+     */
+    static Link trusted(String url, Map<String, Object> attributes) {
+        return new Link(attributes, url);
+    }
+
     public String getUrl() {
         return url;
     }
@@ -76,6 +88,11 @@ public class Link implements Serializable {
     @Override
     public String toString() {
         StringBuilder builder = new StringBuilder();
+        appendTo(builder);
+        return builder.toString();
+    }
+
+    private void appendTo(StringBuilder builder) {
         builder.append('<');
         builder.append(getUrl());
         builder.append('>');
@@ -83,80 +100,151 @@ public class Link implements Serializable {
         Map<String, Object> attributes = getAttributes();
         if (attributes != null && !attributes.isEmpty()) {
             for (Entry<String, Object> entry : attributes.entrySet()) {
-                builder.append(";");
+                builder.append(';');
                 builder.append(entry.getKey());
                 if (entry.getValue() != null) {
-                    builder.append("=");
+                    builder.append('=');
                     if (entry.getValue() instanceof String) {
-                        builder.append("\"").append(entry.getValue()).append("\"");
+                        builder.append('"').append(entry.getValue()).append('"');
                     } else {
                         builder.append(entry.getValue());
                     }
                 }
             }
         }
-        return builder.toString();
     }
 
+    /**
+     * Parses a CoRE Link Format payload.
+     * <p>
+     * Empty links are ignored. Attribute values are {@link Integer} when they are a decimal number, {@link String}
+     * otherwise, surrounding quotes are removed.
+     *
+     * @param content the UTF-8 encoded payload
+     * @return the links of the payload, an empty array if the content is <code>null</code>
+     */
     public static Link[] parse(byte[] content) {
-        if (content == null) {
-            return new Link[] {};
-        }
-        String s = new String(content, StandardCharsets.UTF_8);
-        String[] links = s.split(",");
-        Link[] linksResult = new Link[links.length];
-        int index = 0;
-        for (String link : links) {
-            String[] linkParts = link.split(";");
-
-            // clean URL
-            String url = StringUtils.trim(linkParts[0]);
-            url = StringUtils.removeStart(StringUtils.removeEnd(url, ">"), "<");
-
-            // parse attributes
-            Map<String, Object> attributes = new HashMap<>();
-
-            if (linkParts.length > 1) {
-                for (int i = 1; i < linkParts.length; i++) {
-                    String[] attParts = linkParts[i].split("=");
-                    if (attParts.length > 0) {
-                        String key = attParts[0];
-                        Object value = null;
-                        if (attParts.length > 1) {
-                            String rawvalue = attParts[1];
-                            try {
-                                value = Integer.valueOf(rawvalue);
-                            } catch (NumberFormatException e) {
-
-                                value = rawvalue.replaceFirst("^\"(.*)\"$", "$1");
-                            }
-                        }
-                        attributes.put(key, value);
-                    }
-                }
-            }
-            linksResult[index] = new Link(url, attributes);
-            index++;
-        }
-        return linksResult;
+        return LinkParser.parse(content);
     }
 
     public static final String INVALID_LINK_PAYLOAD = "<>";
     private static final String TRAILER = ", ";
 
+    // buffers reused by the serialization, dropped when they grew too much
+    private static final int MAX_BUILDER_CAPACITY = 8192;
+    private static final ThreadLocal<StringBuilder> BUILDER = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder(256);
+        }
+    };
+    private static final ThreadLocal<ByteArrayOutputStream> BYTES = new ThreadLocal<ByteArrayOutputStream>() {
+        @Override
+        protected ByteArrayOutputStream initialValue() {
+            return new ByteArrayOutputStream(256);
+        }
+    };
+
+    /**
+     * Serializes links in the CoRE Link Format.
+     *
+     * @return the payload or <code>null</code> if there is no link to serialize or a link is <code>null</code>
+     */
     public static String serialize(Link... linkObjects) {
-        try {
-            StringBuilder builder = new StringBuilder();
-            for (Link link : linkObjects) {
-                builder.append(link.toString()).append(TRAILER);
+        StringBuilder builder = serializeToBuilder(linkObjects);
+        if (builder == null) {
+            return null;
+        }
+        String result = builder.toString();
+        releaseBuilder(builder);
+        return result;
+    }
+
+    /**
+     * Serializes links in the CoRE Link Format as UTF-8 bytes, ready to be used as a CoAP payload.
+     *
+     * @return the payload or <code>null</code> if there is no link to serialize or a link is <code>null</code>
+     */
+    public static byte[] serializeToBytes(Link... linkObjects) {
+        if (linkObjects == null || linkObjects.length == 0) {
+            return null;
+        }
+        ByteArrayOutputStream out = BYTES.get();
+        out.reset();
+        for (int i = 0; i < linkObjects.length; i++) {
+            if (linkObjects[i] == null) {
+                return null;
+            }
+            if (i > 0) {
+                writeTo(out, TRAILER);
             }
+            linkObjects[i].writeTo(out);
+        }
+        byte[] result = out.toByteArray();
+        if (result.length > MAX_BUILDER_CAPACITY) {
+            BYTES.remove();
+        }
+        return result;
+    }
 
-            builder.delete(builder.length() - TRAILER.length(), builder.length());
+    private void writeTo(ByteArrayOutputStream out) {
+        out.write('<');
+        writeTo(out, String.valueOf(url));
+        out.write('>');
 
-            return builder.toString();
-        } catch (Exception e) {
+        for (Entry<String, Object> entry : attributes.entrySet()) {
+            out.write(';');
+            writeTo(out, entry.getKey());
+            if (entry.getValue() != null) {
+                out.write('=');
+                if (entry.getValue() instanceof String) {
+                    out.write('"');
+                    writeTo(out, (String) entry.getValue());
+                    out.write('"');
+                } else {
+                    writeTo(out, entry.getValue().toString());
+                }
+            }
+        }
+    }
+
+    private static void writeTo(ByteArrayOutputStream out, String value) {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) >= 0x80) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                out.write(bytes, 0, bytes.length);
+                return;
+            }
+        }
+        // fast path for ASCII content, which is the usual case
+        for (int i = 0; i < length; i++) {
+            out.write(value.charAt(i));
+        }
+    }
+
+    private static StringBuilder serializeToBuilder(Link... linkObjects) {
+        if (linkObjects == null || linkObjects.length == 0) {
             return null;
         }
+        StringBuilder builder = BUILDER.get();
+        builder.setLength(0);
+        for (int i = 0; i < linkObjects.length; i++) {
+            if (linkObjects[i] == null) {
+                return null;
+            }
+            if (i > 0) {
+                builder.append(TRAILER);
+            }
+            linkObjects[i].appendTo(builder);
+        }
+        return builder;
+    }
+
+    private static void releaseBuilder(StringBuilder builder) {
+        if (builder.capacity() > MAX_BUILDER_CAPACITY) {
+            BUILDER.remove();
+        }
     }
 
     @Override
@@ -0,0 +1,249 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A single-pass parser of the CoRE Link Format (RFC 6690) working directly on the bytes of the payload.
+ * <p>
+ * Attribute values are {@link Integer} when they are a decimal number, {@link String} otherwise. A quoted value ends
+ * at the first quote followed by a <code>;</code>, a <code>,</code> or the end of the payload, so it can contain
+ * separators. Identical attribute maps are shared between links, within a payload and between payloads.
+ */
+class LinkParser {
+
+    // canonical attribute maps, the least recently used are evicted when the maximum size is reached
+    private static final int MAX_SHARED_ATTRIBUTES = 1024;
+    private static final SharedAttributes SHARED_ATTRIBUTES = new SharedAttributes();
+
+    private static class SharedAttributes extends LinkedHashMap<Map<String, Object>, Map<String, Object>> {
+        private static final long serialVersionUID = 1L;
+
+        private SharedAttributes() {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Map<String, Object>, Map<String, Object>> eldest) {
+            return size() > MAX_SHARED_ATTRIBUTES;
+        }
+    }
+
+    private final byte[] data;
+    private final int end;
+    private int pos;
+
+    private LinkParser(byte[] data) {
+        this.data = data;
+        this.end = data.length;
+        this.pos = 0;
+    }
+
+    static Link[] parse(byte[] content) {
+        if (content == null) {
+            return new Link[] {};
+        }
+        return new LinkParser(content).parseLinks();
+    }
+
+    private Link[] parseLinks() {
+        List<Link> links = new ArrayList<>();
+        while (pos < end) {
+            skipWhitespace();
+            if (pos < end && data[pos] == ',') {
+                // empty link
+                pos++;
+                continue;
+            }
+            if (pos >= end) {
+                break;
+            }
+            links.add(parseLink());
+            // skip the separator
+            if (pos < end && data[pos] == ',') {
+                pos++;
+            }
+        }
+        return links.toArray(new Link[links.size()]);
+    }
+
+    private Link parseLink() {
+        // URL
+        String url;
+        if (data[pos] == '<') {
+            int start = ++pos;
+            while (pos < end && data[pos] != '>' && data[pos] != ',' && data[pos] != ';') {
+                pos++;
+            }
+            url = string(start, pos);
+            if (pos < end && data[pos] == '>') {
+                pos++;
+            }
+        } else {
+            int start = pos;
+            while (pos < end && data[pos] != ',' && data[pos] != ';') {
+                pos++;
+            }
+            url = string(start, trimEnd(start, pos));
+        }
+        // ignore anything up to the attributes or the next link
+        while (pos < end && data[pos] != ',' && data[pos] != ';') {
+            pos++;
+        }
+
+        // attributes
+        Map<String, Object> attributes = null;
+        while (pos < end && data[pos] == ';') {
+            pos++;
+            skipWhitespace();
+            int keyStart = pos;
+            while (pos < end && data[pos] != '=' && data[pos] != ';' && data[pos] != ',') {
+                pos++;
+            }
+            String key = string(keyStart, trimEnd(keyStart, pos));
+            Object value = null;
+            if (pos < end && data[pos] == '=') {
+                pos++;
+                value = parseValue();
+            }
+            if (key.isEmpty()) {
+                continue;
+            }
+            if (attributes == null) {
+                attributes = new HashMap<>();
+            }
+            attributes.put(key, value);
+        }
+        return Link.trusted(url, share(attributes));
+    }
+
+    private Object parseValue() {
+        skipWhitespace();
+        int start = pos;
+        if (pos < end && data[pos] == '"') {
+            // look for the closing quote: the last quote before the next separator
+            for (int i = pos + 1; i < end; i++) {
+                if (data[i] == '"') {
+                    int next = skipWhitespace(i + 1);
+                    if (next == end || data[next] == ';' || data[next] == ',') {
+                        pos = next;
+                        return string(start + 1, i);
+                    }
+                }
+            }
+            // no closing quote, the quote is part of the value
+        }
+        while (pos < end && data[pos] != ';' && data[pos] != ',') {
+            pos++;
+        }
+        int valueEnd = trimEnd(start, pos);
+        Integer number = parseInteger(start, valueEnd);
+        return number != null ? number : string(start, valueEnd);
+    }
+
+    /**
+     * @return the integer value of the given bytes or <code>null</code> if it is not a decimal integer which fits in
+     *         an int
+     */
+    private Integer parseInteger(int start, int stop) {
+        int i = start;
+        boolean negative = false;
+        if (i < stop && (data[i] == '-' || data[i] == '+')) {
+            negative = data[i] == '-';
+            i++;
+        }
+        if (i == stop || stop - i > 10) {
+            return null;
+        }
+        long value = 0;
+        for (; i < stop; i++) {
+            byte b = data[i];
+            if (b < '0' || b > '9') {
+                return null;
+            }
+            value = value * 10 + (b - '0');
+        }
+        if (negative) {
+            value = -value;
+        }
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            return null;
+        }
+        return (int) value;
+    }
+
+    private static Map<String, Object> share(Map<String, Object> attributes) {
+        if (attributes == null) {
+            return Collections.emptyMap();
+        }
+        Map<String, Object> shared;
+        synchronized (SHARED_ATTRIBUTES) {
+            shared = SHARED_ATTRIBUTES.get(attributes);
+        }
+        if (shared != null) {
+            return shared;
+        }
+        if (attributes.size() == 1) {
+            Map.Entry<String, Object> attribute = attributes.entrySet().iterator().next();
+            shared = Collections.singletonMap(attribute.getKey(), attribute.getValue());
+        } else {
+            shared = Collections.unmodifiableMap(attributes);
+        }
+        synchronized (SHARED_ATTRIBUTES) {
+            SHARED_ATTRIBUTES.put(shared, shared);
+        }
+        return shared;
+    }
+
+    private String string(int start, int stop) {
+        // fast path for ASCII content, which is the usual case
+        for (int i = start; i < stop; i++) {
+            if (data[i] < 0) {
+                return new String(data, start, stop - start, StandardCharsets.UTF_8);
+            }
+        }
+        return new String(data, start, stop - start, StandardCharsets.ISO_8859_1);
+    }
+
+    private int trimEnd(int start, int stop) {
+        while (stop > start && isWhitespace(data[stop - 1])) {
+            stop--;
+        }
+        return stop;
+    }
+
+    private void skipWhitespace() {
+        pos = skipWhitespace(pos);
+    }
+
+    private int skipWhitespace(int from) {
+        while (from < end && isWhitespace(data[from])) {
+            from++;
+        }
+        return from;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+}
@@ -19,21 +19,44 @@ import org.eclipse.leshan.util.Validate;
 
 /**
  * A path pointing to a LwM2M node (root, object, object instance, resource or resource instance).
+ * <p>
+ * Paths are immutable. The paths of the most common objects, object instances and resources are interned: prefer the
+ * {@link #of(int)}, {@link #of(int, int)}, {@link #of(int, int, int)} and {@link #parse(String)} factories and the
+ * <code>append</code> methods to the constructors to reuse them.
  */
 public class LwM2mPath {
 
-    private final Integer objectId;
-    private final Integer objectInstanceId;
-    private final Integer resourceId;
-    private final Integer resourceInstanceId;
+    private static final int MAX_LENGTH = 4;
 
-    public final static LwM2mPath ROOTPATH = new LwM2mPath();
+    // ranges of ids for which paths are interned
+    private static final int CACHED_OBJECTS = 32;
+    private static final int CACHED_INSTANCES = 8;
+    private static final int CACHED_RESOURCES = 32;
 
-    private LwM2mPath() {
-        this.objectId = null;
-        this.objectInstanceId = null;
-        this.resourceId = null;
-        this.resourceInstanceId = null;
+    // interned paths, lazily created (paths are immutable so a race only creates a duplicate)
+    private static final LwM2mPath[] OBJECT_PATHS = new LwM2mPath[CACHED_OBJECTS];
+    private static final LwM2mPath[] INSTANCE_PATHS = new LwM2mPath[CACHED_OBJECTS * CACHED_INSTANCES];
+    private static final LwM2mPath[] RESOURCE_PATHS = new LwM2mPath[CACHED_OBJECTS * CACHED_INSTANCES
+            * CACHED_RESOURCES];
+
+    // number of ids in the path, 0 for the root path
+    private final int length;
+    private final int objectId;
+    private final int objectInstanceId;
+    private final int resourceId;
+    private final int resourceInstanceId;
+
+    // computed on first use
+    private String string;
+
+    public final static LwM2mPath ROOTPATH = new LwM2mPath(0, 0, 0, 0, 0);
+
+    private LwM2mPath(int length, int objectId, int objectInstanceId, int resourceId, int resourceInstanceId) {
+        this.length = length;
+        this.objectId = objectId;
+        this.objectInstanceId = objectInstanceId;
+        this.resourceId = resourceId;
+        this.resourceInstanceId = resourceInstanceId;
     }
 
     /**
@@ -42,10 +65,7 @@ public class LwM2mPath {
      * @param objectId the object identifier
      */
     public LwM2mPath(int objectId) {
-        this.objectId = objectId;
-        this.objectInstanceId = null;
-        this.resourceId = null;
-        this.resourceInstanceId = null;
+        this(1, objectId, 0, 0, 0);
     }
 
     /**
@@ -55,10 +75,7 @@ public class LwM2mPath {
      * @param objectInstanceId the instance identifier
      */
     public LwM2mPath(int objectId, int objectInstanceId) {
-        this.objectId = objectId;
-        this.objectInstanceId = objectInstanceId;
-        this.resourceId = null;
-        this.resourceInstanceId = null;
+        this(2, objectId, objectInstanceId, 0, 0);
     }
 
     /**
@@ -69,10 +86,7 @@ public class LwM2mPath {
      * @param resourceId the resource identifier
      */
     public LwM2mPath(int objectId, int objectInstanceId, int resourceId) {
-        this.objectId = objectId;
-        this.objectInstanceId = objectInstanceId;
-        this.resourceId = resourceId;
-        this.resourceInstanceId = null;
+        this(3, objectId, objectInstanceId, resourceId, 0);
     }
 
     /**
@@ -84,10 +98,7 @@ public class LwM2mPath {
      * @param resourceInstanceId the resource instance identifier
      */
     public LwM2mPath(int objectId, int objectInstanceId, int resourceId, int resourceInstanceId) {
-        this.objectId = objectId;
-        this.objectInstanceId = objectInstanceId;
-        this.resourceId = resourceId;
-        this.resourceInstanceId = resourceInstanceId;
+        this(4, objectId, objectInstanceId, resourceId, resourceInstanceId);
     }
 
     /**
@@ -97,23 +108,152 @@ public class LwM2mPath {
      */
     public LwM2mPath(String path) {
         Validate.notNull(path);
-        if (path.startsWith("/")) {
-            path = path.substring(1);
+        int[] ids = new int[MAX_LENGTH];
+        this.length = parseIds(path, ids, 0);
+        this.objectId = ids[0];
+        this.objectInstanceId = ids[1];
+        this.resourceId = ids[2];
+        this.resourceInstanceId = ids[3];
+    }
+
+    /**
+     * @return the path to an object
+     */
+    public static LwM2mPath of(int objectId) {
+        if (objectId < 0 || objectId >= CACHED_OBJECTS) {
+            return new LwM2mPath(objectId);
+        }
+        LwM2mPath path = OBJECT_PATHS[objectId];
+        if (path == null) {
+            path = new LwM2mPath(objectId);
+            OBJECT_PATHS[objectId] = path;
+        }
+        return path;
+    }
+
+    /**
+     * @return the path to an object instance
+     */
+    public static LwM2mPath of(int objectId, int objectInstanceId) {
+        if (objectId < 0 || objectId >= CACHED_OBJECTS || objectInstanceId < 0
+                || objectInstanceId >= CACHED_INSTANCES) {
+            return new LwM2mPath(objectId, objectInstanceId);
         }
-        if (path.endsWith("/")) {
-            path = path.substring(0, path.length() - 1);
+        int index = objectId * CACHED_INSTANCES + objectInstanceId;
+        LwM2mPath path = INSTANCE_PATHS[index];
+        if (path == null) {
+            path = new LwM2mPath(objectId, objectInstanceId);
+            INSTANCE_PATHS[index] = path;
         }
-        String[] p = path.split("/");
-        if (0 > p.length || p.length > 4) {
-            throw new IllegalArgumentException("Invalid length for path: " + path);
+        return path;
+    }
+
+    /**
+     * @return the path to a resource
+     */
+    public static LwM2mPath of(int objectId, int objectInstanceId, int resourceId) {
+        if (objectId < 0 || objectId >= CACHED_OBJECTS || objectInstanceId < 0 || objectInstanceId >= CACHED_INSTANCES
+                || resourceId < 0 || resourceId >= CACHED_RESOURCES) {
+            return new LwM2mPath(objectId, objectInstanceId, resourceId);
         }
-        try {
-            this.objectId = (p.length >= 1 && !p[0].isEmpty()) ? Integer.valueOf(p[0]) : null;
-            this.objectInstanceId = (p.length >= 2) ? Integer.valueOf(p[1]) : null;
-            this.resourceId = (p.length >= 3) ? Integer.valueOf(p[2]) : null;
-            this.resourceInstanceId = (p.length == 4) ? Integer.valueOf(p[3]) : null;
-        } catch (NumberFormatException e) {
-            throw new IllegalArgumentException("Invalid elements in path: " + path, e);
+        int index = (objectId * CACHED_INSTANCES + objectInstanceId) * CACHED_RESOURCES + resourceId;
+        LwM2mPath path = RESOURCE_PATHS[index];
+        if (path == null) {
+            path = new LwM2mPath(objectId, objectInstanceId, resourceId);
+            RESOURCE_PATHS[index] = path;
+        }
+        return path;
+    }
+
+    /**
+     * @return the path to a resource instance
+     */
+    public static LwM2mPath of(int objectId, int objectInstanceId, int resourceId, int resourceInstanceId) {
+        return new LwM2mPath(objectId, objectInstanceId, resourceId, resourceInstanceId);
+    }
+
+    /**
+     * Parses the string representation of a path.
+     *
+     * @param path the path (e.g. "/3/0/1" or "/3")
+     * @return the path, an interned one if possible
+     */
+    public static LwM2mPath parse(String path) {
+        Validate.notNull(path);
+        int[] ids = new int[MAX_LENGTH];
+        return of(parseIds(path, ids, 0), ids);
+    }
+
+    private static LwM2mPath of(int length, int[] ids) {
+        switch (length) {
+        case 0:
+            return ROOTPATH;
+        case 1:
+            return of(ids[0]);
+        case 2:
+            return of(ids[0], ids[1]);
+        case 3:
+            return of(ids[0], ids[1], ids[2]);
+        default:
+            return of(ids[0], ids[1], ids[2], ids[3]);
+        }
+    }
+
+    /**
+     * Parses the ids of a path and stores them in <code>ids</code> after the <code>count</code> first ones.
+     *
+     * @return the total number of ids
+     */
+    private static int parseIds(String path, int[] ids, int count) {
+        int start = 0;
+        int end = path.length();
+        if (start < end && path.charAt(start) == '/') {
+            start++;
+        }
+        if (end > start && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        if (start == end) {
+            return count;
+        }
+
+        int i = start;
+        while (true) {
+            if (count == MAX_LENGTH) {
+                throw new IllegalArgumentException("Invalid length for path: " + path);
+            }
+
+            boolean negative = false;
+            if (path.charAt(i) == '-' || path.charAt(i) == '+') {
+                negative = path.charAt(i) == '-';
+                i++;
+            }
+            int digitsStart = i;
+            long value = 0;
+            while (i < end && path.charAt(i) != '/') {
+                int digit = path.charAt(i) - '0';
+                if (digit < 0 || digit > 9 || i - digitsStart >= 10) {
+                    throw new IllegalArgumentException("Invalid elements in path: " + path);
+                }
+                value = value * 10 + digit;
+                i++;
+            }
+            if (negative) {
+                value = -value;
+            }
+            if (i == digitsStart || value > Integer.MAX_VALUE || value < Integer.MIN_VALUE) {
+                throw new IllegalArgumentException("Invalid elements in path: " + path);
+            }
+            ids[count++] = (int) value;
+
+            if (i == end) {
+                return count;
+            }
+            // skip the separator
+            i++;
+            if (i == end) {
+                throw new IllegalArgumentException("Invalid elements in path: " + path);
+            }
         }
     }
 
@@ -122,12 +262,9 @@ public class LwM2mPath {
      * @return a new path which is the concatenation of this path and the given one in parameter.
      */
     public LwM2mPath append(String path) {
-        LwM2mPath pathToAdd = new LwM2mPath(path);
-        if (isRoot()) {
-            return pathToAdd;
-        } else {
-            return new LwM2mPath(this.toString() + pathToAdd.toString());
-        }
+        Validate.notNull(path);
+        int[] ids = new int[] { objectId, objectInstanceId, resourceId, resourceInstanceId };
+        return of(parseIds(path, ids, length), ids);
     }
 
     /**
@@ -135,7 +272,18 @@ public class LwM2mPath {
      * @return a new path which is the concatenation of this path and the given one in parameter.
      */
     public LwM2mPath append(int end) {
-        return append(String.valueOf(end));
+        switch (length) {
+        case 0:
+            return of(end);
+        case 1:
+            return of(objectId, end);
+        case 2:
+            return of(objectId, objectInstanceId, end);
+        case 3:
+            return of(objectId, objectInstanceId, resourceId, end);
+        default:
+            throw new IllegalArgumentException("Invalid length for path: " + this + "/" + end);
+        }
     }
 
     /**
@@ -144,7 +292,7 @@ public class LwM2mPath {
      * @return the object ID. Can be <code>null</code> when this is an root path.
      */
     public Integer getObjectId() {
-        return objectId;
+        return length >= 1 ? objectId : null;
     }
 
     /**
@@ -153,7 +301,7 @@ public class LwM2mPath {
      * @return the object instance ID. Can be <code>null</code> when this is an root/object path.
      */
     public Integer getObjectInstanceId() {
-        return objectInstanceId;
+        return length >= 2 ? objectInstanceId : null;
     }
 
     /**
@@ -162,7 +310,7 @@ public class LwM2mPath {
      * @return the resource ID. Can be <code>null</code> when this is a root/object/object instance path.
      */
     public Integer getResourceId() {
-        return resourceId;
+        return length >= 3 ? resourceId : null;
     }
 
     /**
@@ -172,42 +320,42 @@ public class LwM2mPath {
      *         path.
      */
     public Integer getResourceInstanceId() {
-        return resourceInstanceId;
+        return length >= 4 ? resourceInstanceId : null;
     }
 
     /**
      * @return <code>true</code> if this is the root path ("/").
      */
     public boolean isRoot() {
-        return objectId == null && objectInstanceId == null && resourceId == null && resourceInstanceId == null;
+        return length == 0;
     }
 
     /**
      * @return <code>true</code> if this is an Object path.
      */
     public boolean isObject() {
-        return objectId != null && objectInstanceId == null && resourceId == null && resourceInstanceId == null;
+        return length == 1;
     }
 
     /**
      * @return <code>true</code> if this is an ObjectInstance path.
      */
     public boolean isObjectInstance() {
-        return objectId != null && objectInstanceId != null && resourceId == null && resourceInstanceId == null;
+        return length == 2;
     }
 
     /**
      * @return <code>true</code> if this is a Resource path.
      */
     public boolean isResource() {
-        return objectId != null && objectInstanceId != null && resourceId != null && resourceInstanceId == null;
+        return length == 3;
     }
 
     /**
      * @return <code>true</code> if this is a Resource instance path.
      */
     public boolean isResourceInstance() {
-        return objectId != null && objectInstanceId != null && resourceId != null && resourceInstanceId != null;
+        return length == 4;
     }
 
     /**
@@ -215,31 +363,37 @@ public class LwM2mPath {
      */
     @Override
     public String toString() {
-        StringBuilder b = new StringBuilder();
-        b.append("/");
-        if (getObjectId() != null) {
-            b.append(getObjectId());
-            if (getObjectInstanceId() != null) {
-                b.append("/").append(getObjectInstanceId());
-                if (getResourceId() != null) {
-                    b.append("/").append(getResourceId());
-                    if (getResourceInstanceId() != null) {
-                        b.append("/").append(getResourceInstanceId());
+        String s = string;
+        if (s == null) {
+            StringBuilder b = new StringBuilder(length * 6 + 1);
+            b.append("/");
+            if (length >= 1) {
+                b.append(objectId);
+                if (length >= 2) {
+                    b.append("/").append(objectInstanceId);
+                    if (length >= 3) {
+                        b.append("/").append(resourceId);
+                        if (length >= 4) {
+                            b.append("/").append(resourceInstanceId);
+                        }
                     }
                 }
             }
+            s = b.toString();
+            string = s;
         }
-        return b.toString();
+        return s;
     }
 
     @Override
     public int hashCode() {
         final int prime = 31;
         int result = 1;
+        result = prime * result + length;
         result = prime * result + objectId;
-        result = prime * result + ((objectInstanceId == null) ? 0 : objectInstanceId.hashCode());
-        result = prime * result + ((resourceId == null) ? 0 : resourceId.hashCode());
-        result = prime * result + ((resourceInstanceId == null) ? 0 : resourceInstanceId.hashCode());
+        result = prime * result + objectInstanceId;
+        result = prime * result + resourceId;
+        result = prime * result + resourceInstanceId;
         return result;
     }
 
@@ -255,35 +409,8 @@ public class LwM2mPath {
             return false;
         }
         LwM2mPath other = (LwM2mPath) obj;
-        if (objectId == null) {
-            if (other.objectId != null) {
-                return false;
-            }
-        } else if (!objectId.equals(other.objectId)) {
-            return false;
-        }
-        if (objectInstanceId == null) {
-            if (other.objectInstanceId != null) {
-                return false;
-            }
-        } else if (!objectInstanceId.equals(other.objectInstanceId)) {
-            return false;
-        }
-        if (resourceId == null) {
-            if (other.resourceId != null) {
-                return false;
-            }
-        } else if (!resourceId.equals(other.resourceId)) {
-            return false;
-        }
-        if (resourceInstanceId == null) {
-            if (other.resourceInstanceId != null) {
-                return false;
-            }
-        } else if (!resourceInstanceId.equals(other.resourceInstanceId)) {
-            return false;
-        }
-        return true;
+        return length == other.length && objectId == other.objectId && objectInstanceId == other.objectInstanceId
+                && resourceId == other.resourceId && resourceInstanceId == other.resourceInstanceId;
     }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,115 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.node.codec;
+
+import java.util.List;
+
+import org.eclipse.leshan.core.model.LwM2mModel;
+import org.eclipse.leshan.core.node.LwM2mNode;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.TimestampedLwM2mNode;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.util.Validate;
+
+/**
+ * A {@link LwM2mNodeEncoder} which keeps the last payloads it encoded.
+ * <p>
+ * When the same request is sent to many clients, the same node is encoded again and again with the same path, format
+ * and model (models are shared between clients with the same objects). This encoder returns the previous payload in
+ * this case, so the node is encoded once per distinct model. Nodes and models are compared by identity: they are
+ * immutable, an equal node in another instance is simply encoded again.
+ * <p>
+ * The returned payloads are shared and must not be modified.
+ */
+public class CachingLwM2mNodeEncoder implements LwM2mNodeEncoder {
+
+    private static final int DEFAULT_SIZE = 16;
+
+    private final LwM2mNodeEncoder encoder;
+
+    // the last encoded payloads, replaced in round robin, guarded by itself
+    private final Entry[] entries;
+    private int next;
+
+    private static class Entry {
+        private final LwM2mNode node;
+        private final ContentFormat format;
+        private final LwM2mPath path;
+        private final LwM2mModel model;
+        private final byte[] payload;
+
+        private Entry(LwM2mNode node, ContentFormat format, LwM2mPath path, LwM2mModel model, byte[] payload) {
+            this.node = node;
+            this.format = format;
+            this.path = path;
+            this.model = model;
+            this.payload = payload;
+        }
+
+        private boolean matches(LwM2mNode node, ContentFormat format, LwM2mPath path, LwM2mModel model) {
+            return this.node == node && this.model == model && this.path.equals(path)
+                    && (this.format == null ? format == null : this.format.equals(format));
+        }
+    }
+
+    public CachingLwM2mNodeEncoder(LwM2mNodeEncoder encoder) {
+        this(encoder, DEFAULT_SIZE);
+    }
+
+    /**
+     * @param encoder the encoder of the payloads which are not in the cache
+     * @param size the number of payloads kept
+     */
+    public CachingLwM2mNodeEncoder(LwM2mNodeEncoder encoder, int size) {
+        Validate.notNull(encoder);
+        Validate.isTrue(size > 0, "size must be positive");
+        this.encoder = encoder;
+        this.entries = new Entry[size];
+    }
+
+    @Override
+    public byte[] encode(LwM2mNode node, ContentFormat format, LwM2mPath path, LwM2mModel model)
+            throws CodecException {
+        if (node == null || path == null) {
+            return encoder.encode(node, format, path, model);
+        }
+        synchronized (entries) {
+            for (Entry entry : entries) {
+                if (entry != null && entry.matches(node, format, path, model)) {
+                    return entry.payload;
+                }
+            }
+        }
+
+        byte[] payload = encoder.encode(node, format, path, model);
+        synchronized (entries) {
+            entries[next] = new Entry(node, format, path, model, payload);
+            next = (next + 1) % entries.length;
+        }
+        return payload;
+    }
+
+    @Override
+    public byte[] encodeTimestampedData(List<TimestampedLwM2mNode> timestampedNodes, ContentFormat format,
+            LwM2mPath path, LwM2mModel model) throws CodecException {
+        return encoder.encodeTimestampedData(timestampedNodes, format, path, model);
+    }
+
+    @Override
+    public boolean isSupported(ContentFormat format) {
+        return encoder.isSupported(format);
+    }
+}
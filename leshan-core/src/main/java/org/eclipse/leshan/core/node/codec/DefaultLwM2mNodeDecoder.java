@@ -29,9 +29,13 @@ import org.eclipse.leshan.core.node.LwM2mResource;
 import org.eclipse.leshan.core.node.TimestampedLwM2mNode;
 import org.eclipse.leshan.core.node.codec.json.LwM2mNodeJsonDecoder;
 import org.eclipse.leshan.core.node.codec.opaque.LwM2mNodeOpaqueDecoder;
+import org.eclipse.leshan.core.node.codec.senml.LwM2mNodeSenMLDecoder;
 import org.eclipse.leshan.core.node.codec.text.LwM2mNodeTextDecoder;
 import org.eclipse.leshan.core.node.codec.tlv.LwM2mNodeTlvDecoder;
 import org.eclipse.leshan.core.request.ContentFormat;
+import org.eclipse.leshan.senml.SenMLCborReader;
+import org.eclipse.leshan.senml.SenMLJsonReader;
+import org.eclipse.leshan.senml.SenMLReader;
 import org.eclipse.leshan.util.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,6 +44,9 @@ public class DefaultLwM2mNodeDecoder implements LwM2mNodeDecoder {
 
     private static final Logger LOG = LoggerFactory.getLogger(DefaultLwM2mNodeDecoder.class);
 
+    private static final SenMLReader SENML_JSON_READER = new SenMLJsonReader();
+    private static final SenMLReader SENML_CBOR_READER = new SenMLCborReader();
+
     @Override
     public LwM2mNode decode(byte[] content, ContentFormat format, LwM2mPath path, LwM2mModel model)
             throws CodecException {
@@ -70,6 +77,10 @@ public class DefaultLwM2mNodeDecoder implements LwM2mNodeDecoder {
         case ContentFormat.JSON_CODE:
         case ContentFormat.OLD_JSON_CODE:
             return LwM2mNodeJsonDecoder.decode(content, path, model, nodeClass);
+        case ContentFormat.SENML_JSON_CODE:
+            return LwM2mNodeSenMLDecoder.decode(content, path, model, nodeClass, SENML_JSON_READER);
+        case ContentFormat.SENML_CBOR_CODE:
+            return LwM2mNodeSenMLDecoder.decode(content, path, model, nodeClass, SENML_CBOR_READER);
         case ContentFormat.LINK_CODE:
             throw new CodecException("Content format %s not yet implemented [%s]", format, path);
         default:
@@ -99,6 +110,12 @@ public class DefaultLwM2mNodeDecoder implements LwM2mNodeDecoder {
         case ContentFormat.JSON_CODE:
         case ContentFormat.OLD_JSON_CODE:
             return LwM2mNodeJsonDecoder.decodeTimestamped(content, path, model, nodeClassFromPath(path));
+        case ContentFormat.SENML_JSON_CODE:
+            return LwM2mNodeSenMLDecoder.decodeTimestamped(content, path, model, nodeClassFromPath(path),
+                    SENML_JSON_READER);
+        case ContentFormat.SENML_CBOR_CODE:
+            return LwM2mNodeSenMLDecoder.decodeTimestamped(content, path, model, nodeClassFromPath(path),
+                    SENML_CBOR_READER);
         case ContentFormat.LINK_CODE:
             throw new CodecException("Content format %s not yet implemented [%s]", format, path);
         default:
@@ -135,6 +152,8 @@ public class DefaultLwM2mNodeDecoder implements LwM2mNodeDecoder {
         case ContentFormat.OPAQUE_CODE:
         case ContentFormat.JSON_CODE:
         case ContentFormat.OLD_JSON_CODE:
+        case ContentFormat.SENML_JSON_CODE:
+        case ContentFormat.SENML_CBOR_CODE:
             return true;
         default:
             return false;
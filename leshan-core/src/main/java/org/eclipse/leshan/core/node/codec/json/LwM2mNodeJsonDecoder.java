@@ -17,14 +17,12 @@ package org.eclipse.leshan.core.node.codec.json;
 
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
-import java.util.SortedMap;
 import java.util.TreeMap;
 
 import org.eclipse.leshan.core.model.LwM2mModel;
@@ -40,13 +38,18 @@ import org.eclipse.leshan.core.node.LwM2mSingleResource;
 import org.eclipse.leshan.core.node.TimestampedLwM2mNode;
 import org.eclipse.leshan.core.node.codec.CodecException;
 import org.eclipse.leshan.json.JsonArrayEntry;
-import org.eclipse.leshan.json.JsonRootObject;
-import org.eclipse.leshan.json.LwM2mJson;
 import org.eclipse.leshan.json.LwM2mJsonException;
+import org.eclipse.leshan.json.LwM2mJsonReader;
 import org.eclipse.leshan.util.Base64;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Decoder for the LWM2M JSON format.
+ * <p>
+ * The content is read by a {@link LwM2mJsonReader} and each entry is converted to a resource value as soon as it is
+ * read.
+ */
 public class LwM2mNodeJsonDecoder {
 
     private static final Logger LOG = LoggerFactory.getLogger(LwM2mNodeJsonDecoder.class);
@@ -54,132 +57,56 @@ public class LwM2mNodeJsonDecoder {
     @SuppressWarnings("unchecked")
     public static <T extends LwM2mNode> T decode(byte[] content, LwM2mPath path, LwM2mModel model, Class<T> nodeClass)
             throws CodecException {
-        try {
-            String jsonStrValue = content != null ? new String(content) : "";
-            JsonRootObject json = LwM2mJson.fromJsonLwM2m(jsonStrValue);
-            List<TimestampedLwM2mNode> timestampedNodes = parseJSON(json, path, model, nodeClass);
-            if (timestampedNodes.size() == 0) {
-                return null;
-            } else {
-                // return the most recent value
-                return (T) timestampedNodes.get(0).getNode();
-            }
-        } catch (LwM2mJsonException e) {
-            throw new CodecException(e, "Unable to deserialize json [path:%s]", path);
+        List<TimestampedLwM2mNode> timestampedNodes = decodeTimestamped(content, path, model, nodeClass);
+        if (timestampedNodes.size() == 0) {
+            return null;
+        } else {
+            // return the most recent value
+            return (T) timestampedNodes.get(0).getNode();
         }
     }
 
     public static List<TimestampedLwM2mNode> decodeTimestamped(byte[] content, LwM2mPath path, LwM2mModel model,
             Class<? extends LwM2mNode> nodeClass) throws CodecException {
-        try {
-            String jsonStrValue = new String(content);
-            JsonRootObject json = LwM2mJson.fromJsonLwM2m(jsonStrValue);
-            return parseJSON(json, path, model, nodeClass);
-        } catch (LwM2mJsonException e) {
-            throw new CodecException(e, "Unable to deserialize json [path:%s]", path);
+        LOG.trace("Parsing JSON content for path {}", path);
+
+        NodeBuilder builder = new NodeBuilder(path, model, null);
+        read(content, path, builder);
+        if (builder.lateBaseName != null) {
+            // the base name was after entries which were resolved with another base path, read them again
+            builder = new NodeBuilder(path, model, builder.lateBaseName);
+            read(content, path, builder);
         }
+        return builder.build(nodeClass);
     }
 
-    private static List<TimestampedLwM2mNode> parseJSON(JsonRootObject jsonObject, LwM2mPath path, LwM2mModel model,
-            Class<? extends LwM2mNode> nodeClass) throws CodecException {
-
-        LOG.trace("Parsing JSON content for path {}: {}", path, jsonObject);
-
-        // Group JSON entry by time-stamp
-        Map<Long, Collection<JsonArrayEntry>> jsonEntryByTimestamp = groupJsonEntryByTimestamp(jsonObject);
-
-        // Extract baseName
-        LwM2mPath baseName = extractAndValidateBaseName(jsonObject, path);
-        if (baseName == null)
-            baseName = path; // if no base name, use request path as base name
-
-        // fill time-stamped nodes collection
-        List<TimestampedLwM2mNode> timestampedNodes = new ArrayList<>();
-        for (Entry<Long, Collection<JsonArrayEntry>> entryByTimestamp : jsonEntryByTimestamp.entrySet()) {
-
-            // Group JSON entry by instance
-            Map<Integer, Collection<JsonArrayEntry>> jsonEntryByInstanceId = groupJsonEntryByInstanceId(
-                    entryByTimestamp.getValue(), baseName);
-
-            // Create lwm2m node
-            LwM2mNode node;
-            if (nodeClass == LwM2mObject.class) {
-                Collection<LwM2mObjectInstance> instances = new ArrayList<>();
-                for (Entry<Integer, Collection<JsonArrayEntry>> entryByInstanceId : jsonEntryByInstanceId.entrySet()) {
-                    Map<Integer, LwM2mResource> resourcesMap = extractLwM2mResources(entryByInstanceId.getValue(),
-                            baseName, model);
-
-                    instances.add(new LwM2mObjectInstance(entryByInstanceId.getKey(), resourcesMap.values()));
-                }
-
-                node = new LwM2mObject(baseName.getObjectId(), instances);
-            } else if (nodeClass == LwM2mObjectInstance.class) {
-                // validate we have resources for only 1 instance
-                if (jsonEntryByInstanceId.size() != 1)
-                    throw new CodecException("One instance expected in the payload [path:%s]", path);
-
-                // Extract resources
-                Entry<Integer, Collection<JsonArrayEntry>> instanceEntry = jsonEntryByInstanceId.entrySet().iterator()
-                        .next();
-                Map<Integer, LwM2mResource> resourcesMap = extractLwM2mResources(instanceEntry.getValue(), baseName,
-                        model);
-
-                // Create instance
-                node = new LwM2mObjectInstance(instanceEntry.getKey(), resourcesMap.values());
-            } else if (nodeClass == LwM2mResource.class) {
-                // validate we have resources for only 1 instance
-                if (jsonEntryByInstanceId.size() > 1)
-                    throw new CodecException("Only one instance expected in the payload [path:%s]", path);
-
-                // Extract resources
-                Map<Integer, LwM2mResource> resourcesMap = extractLwM2mResources(
-                        jsonEntryByInstanceId.values().iterator().next(), baseName, model);
-
-                // validate there is only 1 resource
-                if (resourcesMap.size() != 1)
-                    throw new CodecException("One resource should be present in the payload [path:%s]", path);
-
-                node = resourcesMap.values().iterator().next();
-            } else {
-                throw new IllegalArgumentException("invalid node class: " + nodeClass);
-            }
-
-            // compute time-stamp
-            Long timestamp = computeTimestamp(jsonObject.getBaseTime(), entryByTimestamp.getKey());
-
-            // add time-stamped node
-            timestampedNodes.add(new TimestampedLwM2mNode(timestamp, node));
-        }
-
-        return timestampedNodes;
-
-    }
-
-    private static Long computeTimestamp(Long baseTime, Long time) {
-        Long timestamp;
-        if (baseTime != null) {
-            if (time != null) {
-                timestamp = baseTime + time;
-            } else {
-                timestamp = baseTime;
-            }
-        } else {
-            if (time != null) {
-                timestamp = time;
-            } else {
-                timestamp = null;
-            }
+    private static void read(byte[] content, LwM2mPath path, NodeBuilder builder) throws CodecException {
+        try {
+            LwM2mJsonReader.read(content != null ? content : new byte[0], builder);
+        } catch (LwM2mJsonException e) {
+            throw new CodecException(e, "Unable to deserialize json [path:%s]", path);
         }
-        return timestamp;
     }
 
     /**
-     * Group all JsonArrayEntry by time-stamp
-     * 
-     * @return a map (relativeTimestamp => collection of JsonArrayEntry)
+     * Builds the nodes from the JSON content, as it is read.
      */
-    private static SortedMap<Long, Collection<JsonArrayEntry>> groupJsonEntryByTimestamp(JsonRootObject jsonObject) {
-        SortedMap<Long, Collection<JsonArrayEntry>> result = new TreeMap<>(new Comparator<Long>() {
+    private static class NodeBuilder implements LwM2mJsonReader.Handler {
+
+        private final LwM2mPath requestPath;
+        private final LwM2mModel model;
+        // base name given before reading the content
+        private final boolean fixedBasePath;
+
+        // path used to resolve the entry names
+        private LwM2mPath basePath;
+        private Long baseTime;
+        private boolean hasEntries = false;
+        // base name read after entries which were resolved with another base path
+        private LwM2mPath lateBaseName;
+
+        // entries by time-stamp, most recent first
+        private final TreeMap<Long, TimeGroup> groups = new TreeMap<>(new Comparator<Long>() {
             @Override
             public int compare(Long o1, Long o2) {
                 // comparator which
@@ -189,44 +116,50 @@ public class LwM2mNodeJsonDecoder {
             }
         });
 
-        for (JsonArrayEntry e : jsonObject.getResourceList()) {
-            // Get time for this entry
-            Long time = e.getTime();
+        private NodeBuilder(LwM2mPath requestPath, LwM2mModel model, LwM2mPath basePath) {
+            this.requestPath = requestPath;
+            this.model = model;
+            this.fixedBasePath = basePath != null;
+            this.basePath = basePath;
+        }
 
-            // Get jsonArray for this time-stamp
-            Collection<JsonArrayEntry> jsonArray = result.get(time);
-            if (jsonArray == null) {
-                jsonArray = new ArrayList<>();
-                result.put(time, jsonArray);
+        @Override
+        public void onBaseName(String baseName) {
+            if (fixedBasePath || baseName.isEmpty()) {
+                return;
+            }
+            LwM2mPath bnPath = validateBaseName(baseName, requestPath);
+            if (!hasEntries) {
+                basePath = bnPath;
+            } else if (!bnPath.equals(basePath)) {
+                lateBaseName = bnPath;
             }
-
-            // Add it to the list
-            jsonArray.add(e);
         }
 
-        // Ensure there is at least one entry for null timestamp
-        if (result.isEmpty()) {
-            result.put((Long) null, new ArrayList<JsonArrayEntry>());
+        @Override
+        public void onBaseTime(long baseTime) {
+            this.baseTime = baseTime;
         }
 
-        return result;
-    }
-
-    /**
-     * Group all JsonArrayEntry by instanceId
-     * 
-     * @param jsonEntries
-     * @param baseName
-     *
-     * @return a map (instanceId => collection of JsonArrayEntry)
-     */
-    private static Map<Integer, Collection<JsonArrayEntry>> groupJsonEntryByInstanceId(
-            Collection<JsonArrayEntry> jsonEntries, LwM2mPath baseName) throws CodecException {
-        Map<Integer, Collection<JsonArrayEntry>> result = new HashMap<>();
+        @Override
+        public void onEntry(String name, Object value, Type type, Long time) {
+            if (lateBaseName != null) {
+                // the content will be read again
+                return;
+            }
+            hasEntries = true;
+            if (basePath == null) {
+                // if no base name, use request path as base name
+                basePath = requestPath;
+            }
 
-        for (JsonArrayEntry e : jsonEntries) {
             // Build resource path
-            LwM2mPath nodePath = baseName.append(e.getName());
+            LwM2mPath nodePath;
+            try {
+                nodePath = basePath.append(name != null ? name : "");
+            } catch (IllegalArgumentException e) {
+                throw new CodecException(e, "Invalid name [%s] for resource with base name [%s]", name, basePath);
+            }
 
             // Validate path
             if (!nodePath.isResourceInstance() && !nodePath.isResource()) {
@@ -235,125 +168,207 @@ public class LwM2mNodeJsonDecoder {
                         nodePath);
             }
 
-            // Get jsonArray for this instance
-            Collection<JsonArrayEntry> jsonArray = result.get(nodePath.getObjectInstanceId());
-            if (jsonArray == null) {
-                jsonArray = new ArrayList<>();
-                result.put(nodePath.getObjectInstanceId(), jsonArray);
+            TimeGroup group = groups.get(time);
+            if (group == null) {
+                group = new TimeGroup(time);
+                groups.put(time, group);
             }
-
-            // Add it to the list
-            jsonArray.add(e);
+            group.add(nodePath, value, type, model);
         }
 
-        // Create an entry for an empty instance if possible
-        if (result.isEmpty() && baseName.getObjectInstanceId() != null) {
-            result.put(baseName.getObjectInstanceId(), new ArrayList<JsonArrayEntry>());
-        }
-        return result;
-    }
+        private List<TimestampedLwM2mNode> build(Class<? extends LwM2mNode> nodeClass) throws CodecException {
+            LwM2mPath baseName = basePath != null ? basePath : requestPath;
 
-    private static LwM2mPath extractAndValidateBaseName(JsonRootObject jsonObject, LwM2mPath requestPath)
-            throws CodecException {
-        // Check baseName is valid
-        if (jsonObject.getBaseName() != null && !jsonObject.getBaseName().isEmpty()) {
-            LwM2mPath bnPath = new LwM2mPath(jsonObject.getBaseName());
+            // Ensure there is at least one entry for null timestamp
+            if (groups.isEmpty()) {
+                groups.put(null, new TimeGroup(null));
+            }
 
-            // check returned base name path is under requested path
-            if (requestPath.getObjectId() != null && bnPath.getObjectId() != null) {
-                if (!bnPath.getObjectId().equals(requestPath.getObjectId())) {
-                    throw new CodecException("Basename path [%s] does not match requested path [%s].", bnPath,
-                            requestPath);
+            // fill time-stamped nodes collection
+            List<TimestampedLwM2mNode> timestampedNodes = new ArrayList<>(groups.size());
+            for (TimeGroup group : groups.values()) {
+                Map<Integer, Map<Integer, ResourceBuilder>> resourcesByInstanceId = group.resourcesByInstanceId;
+
+                // Create an entry for an empty instance if possible
+                if (resourcesByInstanceId.isEmpty() && baseName.getObjectInstanceId() != null) {
+                    resourcesByInstanceId.put(baseName.getObjectInstanceId(), new HashMap<Integer, ResourceBuilder>());
                 }
-                if (requestPath.getObjectInstanceId() != null && bnPath.getObjectInstanceId() != null) {
-                    if (!bnPath.getObjectInstanceId().equals(requestPath.getObjectInstanceId())) {
-                        throw new CodecException("Basename path [%s] does not match requested path [%s].", bnPath,
-                                requestPath);
-                    }
-                    if (requestPath.getResourceId() != null && bnPath.getResourceId() != null) {
-                        if (!bnPath.getResourceId().equals(requestPath.getResourceId())) {
-                            throw new CodecException("Basename path [%s] does not match requested path [%s].", bnPath,
-                                    requestPath);
-                        }
+
+                // Create lwm2m node
+                LwM2mNode node;
+                if (nodeClass == LwM2mObject.class) {
+                    Collection<LwM2mObjectInstance> instances = new ArrayList<>();
+                    for (Entry<Integer, Map<Integer, ResourceBuilder>> entryByInstanceId : resourcesByInstanceId
+                            .entrySet()) {
+                        instances.add(new LwM2mObjectInstance(entryByInstanceId.getKey(),
+                                buildResources(entryByInstanceId.getValue(), baseName)));
                     }
+
+                    node = new LwM2mObject(baseName.getObjectId(), instances);
+                } else if (nodeClass == LwM2mObjectInstance.class) {
+                    // validate we have resources for only 1 instance
+                    if (resourcesByInstanceId.size() != 1)
+                        throw new CodecException("One instance expected in the payload [path:%s]", requestPath);
+
+                    // Create instance
+                    Entry<Integer, Map<Integer, ResourceBuilder>> instanceEntry = resourcesByInstanceId.entrySet()
+                            .iterator().next();
+                    node = new LwM2mObjectInstance(instanceEntry.getKey(),
+                            buildResources(instanceEntry.getValue(), baseName));
+                } else if (nodeClass == LwM2mResource.class) {
+                    // validate we have resources for only 1 instance
+                    if (resourcesByInstanceId.size() > 1)
+                        throw new CodecException("Only one instance expected in the payload [path:%s]", requestPath);
+
+                    // Extract resources
+                    List<LwM2mResource> resources = buildResources(resourcesByInstanceId.values().iterator().next(),
+                            baseName);
+
+                    // validate there is only 1 resource
+                    if (resources.size() != 1)
+                        throw new CodecException("One resource should be present in the payload [path:%s]",
+                                requestPath);
+
+                    node = resources.get(0);
+                } else {
+                    throw new IllegalArgumentException("invalid node class: " + nodeClass);
                 }
+
+                // add time-stamped node
+                timestampedNodes.add(new TimestampedLwM2mNode(computeTimestamp(baseTime, group.time), node));
             }
-            return bnPath;
+            return timestampedNodes;
         }
-        return null;
 
+        private List<LwM2mResource> buildResources(Map<Integer, ResourceBuilder> builders, LwM2mPath baseName) {
+            List<LwM2mResource> resources = new ArrayList<>(builders.size());
+            for (ResourceBuilder builder : builders.values()) {
+                resources.add(builder.build());
+            }
+
+            // If we found nothing, we try to create an empty multi-instance resource
+            if (resources.isEmpty() && baseName.isResource()) {
+                ResourceModel resourceModel = model.getResourceModel(baseName.getObjectId(), baseName.getResourceId());
+                // We create it only if this respect the model
+                if (resourceModel == null || resourceModel.multiple) {
+                    Type resourceType = getResourceType(baseName, model, (Type) null);
+                    resources.add(LwM2mMultipleResource.newResource(baseName.getResourceId(),
+                            new HashMap<Integer, Object>(), resourceType));
+                }
+            }
+            return resources;
+        }
     }
 
-    private static Map<Integer, LwM2mResource> extractLwM2mResources(Collection<JsonArrayEntry> jsonArrayEntries,
-            LwM2mPath baseName, LwM2mModel model) throws CodecException {
-        if (jsonArrayEntries == null)
-            return Collections.emptyMap();
+    /**
+     * The resources of the entries with the same time-stamp, by instance id and resource id.
+     */
+    private static class TimeGroup {
+        private final Long time;
+        private final Map<Integer, Map<Integer, ResourceBuilder>> resourcesByInstanceId = new HashMap<>();
 
-        // Extract LWM2M resources from JSON resource list
-        Map<Integer, LwM2mResource> lwM2mResourceMap = new HashMap<>();
-        Map<LwM2mPath, Map<Integer, JsonArrayEntry>> multiResourceMap = new HashMap<>();
-        for (JsonArrayEntry resourceElt : jsonArrayEntries) {
+        private TimeGroup(Long time) {
+            this.time = time;
+        }
 
-            // Build resource path
-            LwM2mPath nodePath = baseName.append(resourceElt.getName());
+        private void add(LwM2mPath nodePath, Object value, Type jsonType, LwM2mModel model) {
+            Map<Integer, ResourceBuilder> resources = resourcesByInstanceId.get(nodePath.getObjectInstanceId());
+            if (resources == null) {
+                resources = new HashMap<>();
+                resourcesByInstanceId.put(nodePath.getObjectInstanceId(), resources);
+            }
+            ResourceBuilder resource = resources.get(nodePath.getResourceId());
+            if (resource == null) {
+                resource = new ResourceBuilder(nodePath.getResourceId());
+                resources.put(nodePath.getResourceId(), resource);
+            }
 
-            // handle LWM2M resources
             if (nodePath.isResourceInstance()) {
                 // Multi-instance resource
-                // Store multi-instance resource values in a map
-                // we will deal with it later
-                LwM2mPath resourcePath = new LwM2mPath(nodePath.getObjectId(), nodePath.getObjectInstanceId(),
+                LwM2mPath resourcePath = LwM2mPath.of(nodePath.getObjectId(), nodePath.getObjectInstanceId(),
                         nodePath.getResourceId());
-                Map<Integer, JsonArrayEntry> multiResource = multiResourceMap.get(resourcePath);
-                if (multiResource == null) {
-                    multiResource = new HashMap<>();
-                    multiResourceMap.put(resourcePath, multiResource);
+                if (resource.values == null) {
+                    resource.values = new HashMap<>();
+                    resource.multipleType = getResourceType(resourcePath, model, jsonType);
                 }
-                multiResource.put(nodePath.getResourceInstanceId(), resourceElt);
-            } else if (nodePath.isResource()) {
-                // Single resource
-                Type expectedType = getResourceType(nodePath, model, resourceElt);
-                LwM2mResource res = LwM2mSingleResource.newResource(nodePath.getResourceId(),
-                        parseJsonValue(resourceElt.getResourceValue(), expectedType, nodePath), expectedType);
-                lwM2mResourceMap.put(nodePath.getResourceId(), res);
+                resource.values.put(nodePath.getResourceInstanceId(),
+                        parseJsonValue(value, resource.multipleType, resourcePath));
             } else {
-                throw new CodecException(
-                        "Invalid path [%s] for resource, it should be a resource or a resource instance path",
-                        nodePath);
+                // Single resource
+                resource.singleType = getResourceType(nodePath, model, jsonType);
+                resource.singleValue = parseJsonValue(value, resource.singleType, nodePath);
             }
         }
+    }
+
+    private static class ResourceBuilder {
+        private final int id;
+
+        private Type singleType;
+        private Object singleValue;
+
+        private Type multipleType;
+        private Map<Integer, Object> values;
+
+        private ResourceBuilder(int id) {
+            this.id = id;
+        }
 
-        // Handle multi-instance resource.
-        for (Map.Entry<LwM2mPath, Map<Integer, JsonArrayEntry>> entry : multiResourceMap.entrySet()) {
-            LwM2mPath resourcePath = entry.getKey();
-            Map<Integer, JsonArrayEntry> jsonEntries = entry.getValue();
-
-            if (jsonEntries != null && !jsonEntries.isEmpty()) {
-                Type expectedType = getResourceType(resourcePath, model, jsonEntries.values().iterator().next());
-                Map<Integer, Object> values = new HashMap<>();
-                for (Entry<Integer, JsonArrayEntry> e : jsonEntries.entrySet()) {
-                    Integer resourceInstanceId = e.getKey();
-                    values.put(resourceInstanceId,
-                            parseJsonValue(e.getValue().getResourceValue(), expectedType, resourcePath));
-                }
-                LwM2mResource resource = LwM2mMultipleResource.newResource(resourcePath.getResourceId(), values,
-                        expectedType);
-                lwM2mResourceMap.put(resourcePath.getResourceId(), resource);
+        private LwM2mResource build() {
+            // resource instances have priority over a single value
+            if (values != null) {
+                return LwM2mMultipleResource.newResource(id, values, multipleType);
             }
+            return LwM2mSingleResource.newResource(id, singleValue, singleType);
         }
+    }
 
-        // If we found nothing, we try to create an empty multi-instance resource
-        if (lwM2mResourceMap.isEmpty() && baseName.isResource()) {
-            ResourceModel resourceModel = model.getResourceModel(baseName.getObjectId(), baseName.getResourceId());
-            // We create it only if this respect the model
-            if (resourceModel == null || resourceModel.multiple) {
-                Type resourceType = getResourceType(baseName, model, null);
-                lwM2mResourceMap.put(baseName.getResourceId(), LwM2mMultipleResource
-                        .newResource(baseName.getResourceId(), new HashMap<Integer, Object>(), resourceType));
+    private static Long computeTimestamp(Long baseTime, Long time) {
+        Long timestamp;
+        if (baseTime != null) {
+            if (time != null) {
+                timestamp = baseTime + time;
+            } else {
+                timestamp = baseTime;
+            }
+        } else {
+            if (time != null) {
+                timestamp = time;
+            } else {
+                timestamp = null;
             }
         }
+        return timestamp;
+    }
+
+    private static LwM2mPath validateBaseName(String baseName, LwM2mPath requestPath) throws CodecException {
+        LwM2mPath bnPath;
+        try {
+            bnPath = LwM2mPath.parse(baseName);
+        } catch (IllegalArgumentException e) {
+            throw new CodecException(e, "Invalid basename [%s]", baseName);
+        }
 
-        return lwM2mResourceMap;
+        // check returned base name path is under requested path
+        if (requestPath.getObjectId() != null && bnPath.getObjectId() != null) {
+            if (!bnPath.getObjectId().equals(requestPath.getObjectId())) {
+                throw new CodecException("Basename path [%s] does not match requested path [%s].", bnPath,
+                        requestPath);
+            }
+            if (requestPath.getObjectInstanceId() != null && bnPath.getObjectInstanceId() != null) {
+                if (!bnPath.getObjectInstanceId().equals(requestPath.getObjectInstanceId())) {
+                    throw new CodecException("Basename path [%s] does not match requested path [%s].", bnPath,
+                            requestPath);
+                }
+                if (requestPath.getResourceId() != null && bnPath.getResourceId() != null) {
+                    if (!bnPath.getResourceId().equals(requestPath.getResourceId())) {
+                        throw new CodecException("Basename path [%s] does not match requested path [%s].", bnPath,
+                                requestPath);
+                    }
+                }
+            }
+        }
+        return bnPath;
     }
 
     private static Object parseJsonValue(Object value, Type expectedType, LwM2mPath path) throws CodecException {
@@ -387,20 +402,24 @@ public class LwM2mNodeJsonDecoder {
     }
 
     public static Type getResourceType(LwM2mPath rscPath, LwM2mModel model, JsonArrayEntry resourceElt) {
+        return getResourceType(rscPath, model, resourceElt != null ? resourceElt.getType() : null);
+    }
+
+    /**
+     * @param jsonType the type given by the JSON value, may be <code>null</code>
+     */
+    public static Type getResourceType(LwM2mPath rscPath, LwM2mModel model, Type jsonType) {
         // Use model type in priority
         ResourceModel rscDesc = model.getResourceModel(rscPath.getObjectId(), rscPath.getResourceId());
         if (rscDesc != null && rscDesc.type != null)
             return rscDesc.type;
 
         // Then json type
-        if (resourceElt != null) {
-            Type type = resourceElt.getType();
-            if (type != null)
-                return type;
-        }
+        if (jsonType != null)
+            return jsonType;
 
         // Else use String as default
         LOG.trace("unknown type for resource use string as default: {}", rscPath);
         return Type.STRING;
     }
-}
\ No newline at end of file
+}
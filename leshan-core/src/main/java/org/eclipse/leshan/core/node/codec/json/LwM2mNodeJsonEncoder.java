@@ -15,7 +15,6 @@
  *******************************************************************************/
 package org.eclipse.leshan.core.node.codec.json;
 
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Map.Entry;
@@ -32,14 +31,17 @@ import org.eclipse.leshan.core.node.LwM2mResource;
 import org.eclipse.leshan.core.node.TimestampedLwM2mNode;
 import org.eclipse.leshan.core.node.codec.CodecException;
 import org.eclipse.leshan.core.node.codec.LwM2mValueConverter;
-import org.eclipse.leshan.json.JsonArrayEntry;
-import org.eclipse.leshan.json.JsonRootObject;
-import org.eclipse.leshan.json.LwM2mJson;
+import org.eclipse.leshan.json.LwM2mJsonWriter;
 import org.eclipse.leshan.util.Base64;
 import org.eclipse.leshan.util.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+/**
+ * Encoder for the LWM2M JSON format.
+ * <p>
+ * Resources are written directly by a {@link LwM2mJsonWriter} while the node is visited.
+ */
 public class LwM2mNodeJsonEncoder {
 
     private static final Logger LOG = LoggerFactory.getLogger(LwM2mNodeJsonEncoder.class);
@@ -50,14 +52,9 @@ public class LwM2mNodeJsonEncoder {
         Validate.notNull(path);
         Validate.notNull(model);
 
-        InternalEncoder internalEncoder = new InternalEncoder();
-        internalEncoder.objectId = path.getObjectId();
-        internalEncoder.model = model;
-        internalEncoder.requestPath = path;
-        internalEncoder.converter = converter;
+        InternalEncoder internalEncoder = new InternalEncoder(new LwM2mJsonWriter(), path, model, converter);
         node.accept(internalEncoder);
-        JsonRootObject jsonObject = new JsonRootObject(internalEncoder.resourceList);
-        return LwM2mJson.toJsonLwM2m(jsonObject).getBytes();
+        return internalEncoder.writer.toByteArray();
     }
 
     public static byte[] encodeTimestampedData(List<TimestampedLwM2mNode> timestampedNodes, LwM2mPath path,
@@ -66,33 +63,36 @@ public class LwM2mNodeJsonEncoder {
         Validate.notNull(path);
         Validate.notNull(model);
 
-        InternalEncoder internalEncoder = new InternalEncoder();
-        ArrayList<JsonArrayEntry> entries = new ArrayList<>();
+        InternalEncoder internalEncoder = new InternalEncoder(new LwM2mJsonWriter(), path, model, converter);
         for (TimestampedLwM2mNode timestampedLwM2mNode : timestampedNodes) {
-            internalEncoder.objectId = path.getObjectId();
-            internalEncoder.model = model;
-            internalEncoder.requestPath = path;
-            internalEncoder.converter = converter;
-            internalEncoder.resourceList = null;
             internalEncoder.timestamp = timestampedLwM2mNode.getTimestamp();
             timestampedLwM2mNode.getNode().accept(internalEncoder);
-            entries.addAll(internalEncoder.resourceList);
         }
-        JsonRootObject jsonObject = new JsonRootObject(entries);
-
-        return LwM2mJson.toJsonLwM2m(jsonObject).getBytes();
+        return internalEncoder.writer.toByteArray();
     }
 
     private static class InternalEncoder implements LwM2mNodeVisitor {
         // visitor inputs
-        private int objectId;
-        private LwM2mModel model;
-        private LwM2mPath requestPath;
+        private final int objectId;
+        private final LwM2mModel model;
+        private final LwM2mPath requestPath;
+        private final LwM2mValueConverter converter;
         private Long timestamp;
-        private LwM2mValueConverter converter;
 
         // visitor output
-        private ArrayList<JsonArrayEntry> resourceList = null;
+        private final LwM2mJsonWriter writer;
+
+        // reused to build the entry names
+        private final StringBuilder name = new StringBuilder();
+
+        private InternalEncoder(LwM2mJsonWriter writer, LwM2mPath requestPath, LwM2mModel model,
+                LwM2mValueConverter converter) {
+            this.writer = writer;
+            this.objectId = requestPath.getObjectId();
+            this.requestPath = requestPath;
+            this.model = model;
+            this.converter = converter;
+        }
 
         @Override
         public void visit(LwM2mObject object) {
@@ -103,11 +103,11 @@ public class LwM2mNodeJsonEncoder {
             }
 
             // Create resources
-            resourceList = new ArrayList<>();
             for (LwM2mObjectInstance instance : object.getInstances().values()) {
                 for (LwM2mResource resource : instance.getResources().values()) {
-                    String prefixPath = Integer.toString(instance.getId()) + "/" + Integer.toString(resource.getId());
-                    resourceList.addAll(lwM2mResourceToJsonArrayEntry(prefixPath, timestamp, resource));
+                    name.setLength(0);
+                    name.append(instance.getId()).append('/').append(resource.getId());
+                    writeResource(LwM2mPath.of(objectId, instance.getId(), resource.getId()), resource);
                 }
             }
         }
@@ -115,19 +115,18 @@ public class LwM2mNodeJsonEncoder {
         @Override
         public void visit(LwM2mObjectInstance instance) {
             LOG.trace("Encoding object instance {} into JSON", instance);
-            resourceList = new ArrayList<>();
             for (LwM2mResource resource : instance.getResources().values()) {
-                // Validate request path & compute resource path
-                String prefixPath;
+                // Validate request path & compute resource name
+                name.setLength(0);
                 if (requestPath.isObject()) {
-                    prefixPath = instance.getId() + "/" + resource.getId();
+                    name.append(instance.getId()).append('/').append(resource.getId());
                 } else if (requestPath.isObjectInstance()) {
-                    prefixPath = Integer.toString(resource.getId());
+                    name.append(resource.getId());
                 } else {
                     throw new CodecException("Invalid request path %s for JSON instance encoding", requestPath);
                 }
                 // Create resources
-                resourceList.addAll(lwM2mResourceToJsonArrayEntry(prefixPath, timestamp, resource));
+                writeResource(LwM2mPath.of(objectId, instance.getId(), resource.getId()), resource);
             }
         }
 
@@ -138,83 +137,78 @@ public class LwM2mNodeJsonEncoder {
                 throw new CodecException("Invalid request path %s for JSON resource encoding", requestPath);
             }
 
-            resourceList = lwM2mResourceToJsonArrayEntry("", timestamp, resource);
+            name.setLength(0);
+            writeResource(requestPath, resource);
         }
 
-        private ArrayList<JsonArrayEntry> lwM2mResourceToJsonArrayEntry(String resourcePath, Long timestamp,
-                LwM2mResource resource) {
+        /**
+         * Writes the entries of a resource, {@link #name} must contain the name of the resource.
+         */
+        private void writeResource(LwM2mPath resourcePath, LwM2mResource resource) {
             // get type for this resource
             ResourceModel rSpec = model.getResourceModel(objectId, resource.getId());
             Type expectedType = rSpec != null ? rSpec.type : resource.getType();
-            ArrayList<JsonArrayEntry> resourcesList = new ArrayList<>();
 
             // create JSON resource element
             if (resource.isMultiInstances()) {
+                int nameLength = name.length();
                 for (Entry<Integer, ?> entry : resource.getValues().entrySet()) {
-                    // compute resource instance path
-                    String resourceInstancePath;
-                    if (resourcePath == null || resourcePath.isEmpty()) {
-                        resourceInstancePath = Integer.toString(entry.getKey());
-                    } else {
-                        resourceInstancePath = resourcePath + "/" + entry.getKey();
+                    // compute resource instance name
+                    name.setLength(nameLength);
+                    if (nameLength > 0) {
+                        name.append('/');
                     }
-
-                    // Create resource element
-                    JsonArrayEntry jsonResourceElt = new JsonArrayEntry();
-                    jsonResourceElt.setName(resourceInstancePath);
-                    jsonResourceElt.setTime(timestamp);
+                    name.append(entry.getKey());
 
                     // Convert value using expected type
-                    LwM2mPath lwM2mResourceInstancePath = new LwM2mPath(resourceInstancePath);
+                    LwM2mPath resourceInstancePath = resourcePath.append(entry.getKey());
                     Object convertedValue = converter.convertValue(entry.getValue(), resource.getType(), expectedType,
-                            lwM2mResourceInstancePath);
-                    this.setResourceValue(convertedValue, expectedType, jsonResourceElt, lwM2mResourceInstancePath);
+                            resourceInstancePath);
 
-                    // Add it to the List
-                    resourcesList.add(jsonResourceElt);
+                    writer.beginEntry(name);
+                    writeValue(convertedValue, expectedType, resourceInstancePath);
+                    writer.endEntry(timestamp);
                 }
             } else {
-                // Create resource element
-                JsonArrayEntry jsonResourceElt = new JsonArrayEntry();
-                jsonResourceElt.setName(resourcePath);
-                jsonResourceElt.setTime(timestamp);
-
                 // Convert value using expected type
-                LwM2mPath lwM2mResourcePath = new LwM2mPath(resourcePath);
-                this.setResourceValue(converter.convertValue(resource.getValue(), resource.getType(), expectedType,
-                        lwM2mResourcePath), expectedType, jsonResourceElt, lwM2mResourcePath);
+                Object convertedValue = converter.convertValue(resource.getValue(), resource.getType(), expectedType,
+                        resourcePath);
 
-                // Add it to the List
-                resourcesList.add(jsonResourceElt);
+                writer.beginEntry(name);
+                writeValue(convertedValue, expectedType, resourcePath);
+                writer.endEntry(timestamp);
             }
-            return resourcesList;
         }
 
-        private void setResourceValue(Object value, Type type, JsonArrayEntry jsonResource, LwM2mPath resourcePath) {
+        private void writeValue(Object value, Type type, LwM2mPath resourcePath) {
             LOG.trace("Encoding value {} in JSON", value);
+            if (value == null) {
+                // no value member, as before with the JSON object binding
+                return;
+            }
             // Following table 20 in the Specs
             switch (type) {
             case STRING:
-                jsonResource.setStringValue((String) value);
+                writer.stringValue((String) value);
                 break;
             case INTEGER:
             case FLOAT:
-                jsonResource.setFloatValue((Number) value);
+                writer.numberValue((Number) value);
                 break;
             case BOOLEAN:
-                jsonResource.setBooleanValue((Boolean) value);
+                writer.booleanValue((Boolean) value);
                 break;
             case TIME:
                 // Specs device object example page 44, rec 13 is Time
                 // represented as float?
-                jsonResource.setFloatValue((((Date) value).getTime() / 1000L));
+                writer.numberValue(((Date) value).getTime() / 1000L);
                 break;
             case OPAQUE:
-                jsonResource.setStringValue(Base64.encodeBase64String((byte[]) value));
+                writer.stringValue(Base64.encodeBase64String((byte[]) value));
                 break;
             default:
                 throw new CodecException("Invalid value type %s for %s", type, resourcePath);
             }
         }
     }
-}
\ No newline at end of file
+}
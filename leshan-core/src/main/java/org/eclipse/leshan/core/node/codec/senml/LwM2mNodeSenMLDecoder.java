@@ -0,0 +1,322 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.node.codec.senml;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.eclipse.leshan.core.model.LwM2mModel;
+import org.eclipse.leshan.core.model.ResourceModel;
+import org.eclipse.leshan.core.model.ResourceModel.Type;
+import org.eclipse.leshan.core.node.LwM2mMultipleResource;
+import org.eclipse.leshan.core.node.LwM2mNode;
+import org.eclipse.leshan.core.node.LwM2mObject;
+import org.eclipse.leshan.core.node.LwM2mObjectInstance;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.LwM2mResource;
+import org.eclipse.leshan.core.node.LwM2mSingleResource;
+import org.eclipse.leshan.core.node.ObjectLink;
+import org.eclipse.leshan.core.node.TimestampedLwM2mNode;
+import org.eclipse.leshan.core.node.codec.CodecException;
+import org.eclipse.leshan.senml.SenMLException;
+import org.eclipse.leshan.senml.SenMLReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Decoder for the SenML representations (JSON or CBOR, depending on the given {@link SenMLReader}).
+ * <p>
+ * The records are converted to resource values as soon as they are read. The resolved name of each record must be the
+ * absolute path of a resource or a resource instance under the request path.
+ */
+public class LwM2mNodeSenMLDecoder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LwM2mNodeSenMLDecoder.class);
+
+    @SuppressWarnings("unchecked")
+    public static <T extends LwM2mNode> T decode(byte[] content, LwM2mPath path, LwM2mModel model, Class<T> nodeClass,
+            SenMLReader reader) throws CodecException {
+        List<TimestampedLwM2mNode> timestampedNodes = decodeTimestamped(content, path, model, nodeClass, reader);
+        if (timestampedNodes.size() == 0) {
+            return null;
+        } else {
+            // return the most recent value
+            return (T) timestampedNodes.get(0).getNode();
+        }
+    }
+
+    public static List<TimestampedLwM2mNode> decodeTimestamped(byte[] content, LwM2mPath path, LwM2mModel model,
+            Class<? extends LwM2mNode> nodeClass, SenMLReader reader) throws CodecException {
+        LOG.trace("Parsing SenML content for path {}", path);
+
+        NodeBuilder builder = new NodeBuilder(path, model);
+        try {
+            reader.read(content != null ? content : new byte[0], builder);
+        } catch (SenMLException e) {
+            throw new CodecException(e, "Unable to deserialize SenML [path:%s]", path);
+        }
+        return builder.build(nodeClass);
+    }
+
+    /**
+     * Builds the nodes from the SenML records, as they are read.
+     */
+    private static class NodeBuilder implements SenMLReader.Handler {
+
+        private final LwM2mPath requestPath;
+        private final LwM2mModel model;
+
+        // records by time-stamp, most recent first
+        private final TreeMap<Long, Map<Integer, Map<Integer, ResourceBuilder>>> groups = new TreeMap<>(
+                new Comparator<Long>() {
+                    @Override
+                    public int compare(Long o1, Long o2) {
+                        // comparator which
+                        // - supports null (time null means 0 if there is a base time)
+                        // - reverses natural order (most recent value in first)
+                        return Long.compare(o2 == null ? 0 : o2, o1 == null ? 0 : o1);
+                    }
+                });
+
+        private NodeBuilder(LwM2mPath requestPath, LwM2mModel model) {
+            this.requestPath = requestPath;
+            this.model = model;
+        }
+
+        @Override
+        public void onRecord(String name, Object value, Type type, Long time) {
+            // Build resource path
+            LwM2mPath nodePath;
+            try {
+                nodePath = LwM2mPath.parse(name);
+            } catch (IllegalArgumentException e) {
+                throw new CodecException(e, "Invalid name [%s] for resource", name);
+            }
+
+            // Validate path
+            if (!nodePath.isResourceInstance() && !nodePath.isResource()) {
+                throw new CodecException(
+                        "Invalid path [%s] for resource, it should be a resource or a resource instance path",
+                        nodePath);
+            }
+            if (!isUnderRequestPath(nodePath)) {
+                throw new CodecException("Path [%s] does not match requested path [%s].", nodePath, requestPath);
+            }
+
+            Map<Integer, Map<Integer, ResourceBuilder>> resourcesByInstanceId = groups.get(time);
+            if (resourcesByInstanceId == null) {
+                resourcesByInstanceId = new HashMap<>();
+                groups.put(time, resourcesByInstanceId);
+            }
+            Map<Integer, ResourceBuilder> resources = resourcesByInstanceId.get(nodePath.getObjectInstanceId());
+            if (resources == null) {
+                resources = new HashMap<>();
+                resourcesByInstanceId.put(nodePath.getObjectInstanceId(), resources);
+            }
+            ResourceBuilder resource = resources.get(nodePath.getResourceId());
+            if (resource == null) {
+                resource = new ResourceBuilder(nodePath.getResourceId());
+                resources.put(nodePath.getResourceId(), resource);
+            }
+
+            if (nodePath.isResourceInstance()) {
+                // Multi-instance resource
+                if (resource.values == null) {
+                    resource.values = new HashMap<>();
+                    resource.multipleType = getResourceType(nodePath, model, type);
+                }
+                resource.values.put(nodePath.getResourceInstanceId(),
+                        parseValue(value, resource.multipleType, nodePath));
+            } else {
+                // Single resource
+                resource.singleType = getResourceType(nodePath, model, type);
+                resource.singleValue = parseValue(value, resource.singleType, nodePath);
+            }
+        }
+
+        private boolean isUnderRequestPath(LwM2mPath nodePath) {
+            if (!nodePath.getObjectId().equals(requestPath.getObjectId())) {
+                return false;
+            }
+            if (requestPath.getObjectInstanceId() != null
+                    && !requestPath.getObjectInstanceId().equals(nodePath.getObjectInstanceId())) {
+                return false;
+            }
+            if (requestPath.getResourceId() != null
+                    && !requestPath.getResourceId().equals(nodePath.getResourceId())) {
+                return false;
+            }
+            return true;
+        }
+
+        private List<TimestampedLwM2mNode> build(Class<? extends LwM2mNode> nodeClass) throws CodecException {
+            // Ensure there is at least one entry for null timestamp
+            if (groups.isEmpty()) {
+                groups.put(null, new HashMap<Integer, Map<Integer, ResourceBuilder>>());
+            }
+
+            // fill time-stamped nodes collection
+            List<TimestampedLwM2mNode> timestampedNodes = new ArrayList<>(groups.size());
+            for (Entry<Long, Map<Integer, Map<Integer, ResourceBuilder>>> group : groups.entrySet()) {
+                Map<Integer, Map<Integer, ResourceBuilder>> resourcesByInstanceId = group.getValue();
+
+                // Create an entry for an empty instance if possible
+                if (resourcesByInstanceId.isEmpty() && requestPath.getObjectInstanceId() != null) {
+                    resourcesByInstanceId.put(requestPath.getObjectInstanceId(),
+                            new HashMap<Integer, ResourceBuilder>());
+                }
+
+                // Create lwm2m node
+                LwM2mNode node;
+                if (nodeClass == LwM2mObject.class) {
+                    Collection<LwM2mObjectInstance> instances = new ArrayList<>();
+                    for (Entry<Integer, Map<Integer, ResourceBuilder>> entryByInstanceId : resourcesByInstanceId
+                            .entrySet()) {
+                        instances.add(new LwM2mObjectInstance(entryByInstanceId.getKey(),
+                                buildResources(entryByInstanceId.getValue())));
+                    }
+
+                    node = new LwM2mObject(requestPath.getObjectId(), instances);
+                } else if (nodeClass == LwM2mObjectInstance.class) {
+                    // validate we have resources for only 1 instance
+                    if (resourcesByInstanceId.size() != 1)
+                        throw new CodecException("One instance expected in the payload [path:%s]", requestPath);
+
+                    // Create instance
+                    Entry<Integer, Map<Integer, ResourceBuilder>> instanceEntry = resourcesByInstanceId.entrySet()
+                            .iterator().next();
+                    node = new LwM2mObjectInstance(instanceEntry.getKey(), buildResources(instanceEntry.getValue()));
+                } else if (nodeClass == LwM2mResource.class) {
+                    // validate we have resources for only 1 instance
+                    if (resourcesByInstanceId.size() > 1)
+                        throw new CodecException("Only one instance expected in the payload [path:%s]", requestPath);
+
+                    // Extract resources
+                    List<LwM2mResource> resources = buildResources(resourcesByInstanceId.values().iterator().next());
+
+                    // validate there is only 1 resource
+                    if (resources.size() != 1)
+                        throw new CodecException("One resource should be present in the payload [path:%s]",
+                                requestPath);
+
+                    node = resources.get(0);
+                } else {
+                    throw new IllegalArgumentException("invalid node class: " + nodeClass);
+                }
+
+                // add time-stamped node
+                timestampedNodes.add(new TimestampedLwM2mNode(group.getKey(), node));
+            }
+            return timestampedNodes;
+        }
+
+        private List<LwM2mResource> buildResources(Map<Integer, ResourceBuilder> builders) {
+            List<LwM2mResource> resources = new ArrayList<>(builders.size());
+            for (ResourceBuilder builder : builders.values()) {
+                resources.add(builder.build());
+            }
+
+            // If we found nothing, we try to create an empty multi-instance resource
+            if (resources.isEmpty() && requestPath.isResource()) {
+                ResourceModel resourceModel = model.getResourceModel(requestPath.getObjectId(),
+                        requestPath.getResourceId());
+                // We create it only if this respect the model
+                if (resourceModel == null || resourceModel.multiple) {
+                    Type resourceType = getResourceType(requestPath, model, null);
+                    resources.add(LwM2mMultipleResource.newResource(requestPath.getResourceId(),
+                            new HashMap<Integer, Object>(), resourceType));
+                }
+            }
+            return resources;
+        }
+    }
+
+    private static class ResourceBuilder {
+        private final int id;
+
+        private Type singleType;
+        private Object singleValue;
+
+        private Type multipleType;
+        private Map<Integer, Object> values;
+
+        private ResourceBuilder(int id) {
+            this.id = id;
+        }
+
+        private LwM2mResource build() {
+            // resource instances have priority over a single value
+            if (values != null) {
+                return LwM2mMultipleResource.newResource(id, values, multipleType);
+            }
+            return LwM2mSingleResource.newResource(id, singleValue, singleType);
+        }
+    }
+
+    private static Object parseValue(Object value, Type expectedType, LwM2mPath path) throws CodecException {
+
+        LOG.trace("SenML value for path {} and expected type {}: {}", path, expectedType, value);
+
+        try {
+            switch (expectedType) {
+            case INTEGER:
+                return ((Number) value).longValue();
+            case BOOLEAN:
+                return (Boolean) value;
+            case FLOAT:
+                return ((Number) value).doubleValue();
+            case TIME:
+                return new Date(((Number) value).longValue() * 1000L);
+            case OPAQUE:
+                return (byte[]) value;
+            case STRING:
+                return (String) value;
+            case OBJLNK:
+                String[] ids = ((String) value).split(":");
+                if (ids.length != 2) {
+                    throw new IllegalArgumentException("objlnk value should be objectId:instanceId");
+                }
+                return new ObjectLink(Integer.parseInt(ids[0]), Integer.parseInt(ids[1]));
+            default:
+                throw new CodecException("Unsupported type %s for path %s", expectedType, path);
+            }
+        } catch (Exception e) {
+            throw new CodecException(e, "Invalid content [%s] for type %s for path %s", value, expectedType, path);
+        }
+    }
+
+    private static Type getResourceType(LwM2mPath rscPath, LwM2mModel model, Type senmlType) {
+        // Use model type in priority
+        ResourceModel rscDesc = model.getResourceModel(rscPath.getObjectId(), rscPath.getResourceId());
+        if (rscDesc != null && rscDesc.type != null)
+            return rscDesc.type;
+
+        // Then SenML type
+        if (senmlType != null)
+            return senmlType;
+
+        // Else use String as default
+        LOG.trace("unknown type for resource use string as default: {}", rscPath);
+        return Type.STRING;
+    }
+}
@@ -0,0 +1,245 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.node.codec.senml;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map.Entry;
+
+import org.eclipse.leshan.core.model.LwM2mModel;
+import org.eclipse.leshan.core.model.ResourceModel;
+import org.eclipse.leshan.core.model.ResourceModel.Type;
+import org.eclipse.leshan.core.node.LwM2mNode;
+import org.eclipse.leshan.core.node.LwM2mNodeVisitor;
+import org.eclipse.leshan.core.node.LwM2mObject;
+import org.eclipse.leshan.core.node.LwM2mObjectInstance;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.LwM2mResource;
+import org.eclipse.leshan.core.node.ObjectLink;
+import org.eclipse.leshan.core.node.TimestampedLwM2mNode;
+import org.eclipse.leshan.core.node.codec.CodecException;
+import org.eclipse.leshan.core.node.codec.LwM2mValueConverter;
+import org.eclipse.leshan.senml.SenMLWriter;
+import org.eclipse.leshan.util.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Encoder for the SenML representations (JSON or CBOR, depending on the given {@link SenMLWriter}).
+ * <p>
+ * The base name of the first record is the request path, the names of the records are relative to it. The time-stamp
+ * of a node is written as the base time of its first record.
+ */
+public class LwM2mNodeSenMLEncoder {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LwM2mNodeSenMLEncoder.class);
+
+    public static byte[] encode(LwM2mNode node, LwM2mPath path, LwM2mModel model, LwM2mValueConverter converter,
+            SenMLWriter writer) throws CodecException {
+        Validate.notNull(node);
+        Validate.notNull(path);
+        Validate.notNull(model);
+
+        InternalEncoder internalEncoder = new InternalEncoder(writer, path, model, converter);
+        node.accept(internalEncoder);
+        return writer.toByteArray();
+    }
+
+    public static byte[] encodeTimestampedData(List<TimestampedLwM2mNode> timestampedNodes, LwM2mPath path,
+            LwM2mModel model, LwM2mValueConverter converter, SenMLWriter writer) throws CodecException {
+        Validate.notNull(timestampedNodes);
+        Validate.notNull(path);
+        Validate.notNull(model);
+
+        InternalEncoder internalEncoder = new InternalEncoder(writer, path, model, converter);
+        for (TimestampedLwM2mNode timestampedLwM2mNode : timestampedNodes) {
+            internalEncoder.setTimestamp(timestampedLwM2mNode.getTimestamp());
+            timestampedLwM2mNode.getNode().accept(internalEncoder);
+        }
+        return writer.toByteArray();
+    }
+
+    private static class InternalEncoder implements LwM2mNodeVisitor {
+        // visitor inputs
+        private final int objectId;
+        private final LwM2mModel model;
+        private final LwM2mPath requestPath;
+        private final LwM2mValueConverter converter;
+
+        // visitor output
+        private final SenMLWriter writer;
+
+        // base fields still to write in the next record
+        private String baseName;
+        private Long baseTime;
+        // base time of the previous records
+        private Long currentBaseTime;
+
+        // reused to build the record names
+        private final StringBuilder name = new StringBuilder();
+
+        private InternalEncoder(SenMLWriter writer, LwM2mPath requestPath, LwM2mModel model,
+                LwM2mValueConverter converter) {
+            this.writer = writer;
+            this.objectId = requestPath.getObjectId();
+            this.requestPath = requestPath;
+            this.model = model;
+            this.converter = converter;
+            this.baseName = requestPath.toString();
+        }
+
+        private void setTimestamp(Long timestamp) {
+            if (timestamp != null) {
+                baseTime = timestamp;
+            } else if (currentBaseTime != null) {
+                // no way to remove a base time, use 0 which is the default time
+                baseTime = 0L;
+            } else {
+                baseTime = null;
+            }
+        }
+
+        @Override
+        public void visit(LwM2mObject object) {
+            LOG.trace("Encoding Object {} into SenML", object);
+            // Validate request path
+            if (!requestPath.isObject()) {
+                throw new CodecException("Invalid request path %s for SenML object encoding", requestPath);
+            }
+
+            // Create resources
+            for (LwM2mObjectInstance instance : object.getInstances().values()) {
+                for (LwM2mResource resource : instance.getResources().values()) {
+                    name.setLength(0);
+                    name.append(instance.getId()).append('/').append(resource.getId());
+                    writeResource(LwM2mPath.of(objectId, instance.getId(), resource.getId()), resource);
+                }
+            }
+        }
+
+        @Override
+        public void visit(LwM2mObjectInstance instance) {
+            LOG.trace("Encoding object instance {} into SenML", instance);
+            for (LwM2mResource resource : instance.getResources().values()) {
+                // Validate request path & compute resource name
+                name.setLength(0);
+                if (requestPath.isObject()) {
+                    name.append(instance.getId()).append('/').append(resource.getId());
+                } else if (requestPath.isObjectInstance()) {
+                    name.append(resource.getId());
+                } else {
+                    throw new CodecException("Invalid request path %s for SenML instance encoding", requestPath);
+                }
+                // Create resources
+                writeResource(LwM2mPath.of(objectId, instance.getId(), resource.getId()), resource);
+            }
+        }
+
+        @Override
+        public void visit(LwM2mResource resource) {
+            LOG.trace("Encoding resource {} into SenML", resource);
+            if (!requestPath.isResource()) {
+                throw new CodecException("Invalid request path %s for SenML resource encoding", requestPath);
+            }
+
+            name.setLength(0);
+            writeResource(requestPath, resource);
+        }
+
+        /**
+         * Writes the records of a resource, {@link #name} must contain the name of the resource relative to the
+         * request path.
+         */
+        private void writeResource(LwM2mPath resourcePath, LwM2mResource resource) {
+            // get type for this resource
+            ResourceModel rSpec = model.getResourceModel(objectId, resource.getId());
+            Type expectedType = rSpec != null ? rSpec.type : resource.getType();
+
+            if (resource.isMultiInstances()) {
+                int nameLength = name.length();
+                for (Entry<Integer, ?> entry : resource.getValues().entrySet()) {
+                    // compute resource instance name
+                    name.setLength(nameLength);
+                    if (nameLength > 0) {
+                        name.append('/');
+                    }
+                    name.append(entry.getKey());
+
+                    // Convert value using expected type
+                    LwM2mPath resourceInstancePath = resourcePath.append(entry.getKey());
+                    Object convertedValue = converter.convertValue(entry.getValue(), resource.getType(), expectedType,
+                            resourceInstancePath);
+                    writeRecord(convertedValue, expectedType, resourceInstancePath);
+                }
+            } else {
+                // Convert value using expected type
+                Object convertedValue = converter.convertValue(resource.getValue(), resource.getType(), expectedType,
+                        resourcePath);
+                writeRecord(convertedValue, expectedType, resourcePath);
+            }
+        }
+
+        private void writeRecord(Object value, Type type, LwM2mPath path) {
+            writer.beginRecord();
+            if (baseName != null) {
+                // names are relative to the request path
+                writer.baseName(name.length() > 0 ? baseName + "/" : baseName);
+                baseName = null;
+            }
+            if (baseTime != null) {
+                writer.baseTime(baseTime);
+                currentBaseTime = baseTime;
+                baseTime = null;
+            }
+            if (name.length() > 0) {
+                writer.name(name);
+            }
+            writeValue(value, type, path);
+            writer.endRecord();
+        }
+
+        private void writeValue(Object value, Type type, LwM2mPath resourcePath) {
+            LOG.trace("Encoding value {} in SenML", value);
+            if (value == null) {
+                return;
+            }
+            switch (type) {
+            case STRING:
+                writer.stringValue((String) value);
+                break;
+            case INTEGER:
+            case FLOAT:
+                writer.numberValue((Number) value);
+                break;
+            case BOOLEAN:
+                writer.booleanValue((Boolean) value);
+                break;
+            case TIME:
+                writer.numberValue(((Date) value).getTime() / 1000L);
+                break;
+            case OPAQUE:
+                writer.opaqueValue((byte[]) value);
+                break;
+            case OBJLNK:
+                ObjectLink objlnk = (ObjectLink) value;
+                writer.objlnkValue(objlnk.getObjectId() + ":" + objlnk.getObjectInstanceId());
+                break;
+            default:
+                throw new CodecException("Invalid value type %s for %s", type, resourcePath);
+            }
+        }
+    }
+}
@@ -20,6 +20,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.eclipse.leshan.core.model.LwM2mModel;
 import org.eclipse.leshan.core.model.ObjectModel;
@@ -33,10 +34,9 @@ import org.eclipse.leshan.core.node.LwM2mPath;
 import org.eclipse.leshan.core.node.LwM2mResource;
 import org.eclipse.leshan.core.node.LwM2mSingleResource;
 import org.eclipse.leshan.core.node.codec.CodecException;
-import org.eclipse.leshan.tlv.Tlv;
 import org.eclipse.leshan.tlv.Tlv.TlvType;
-import org.eclipse.leshan.tlv.TlvDecoder;
 import org.eclipse.leshan.tlv.TlvException;
+import org.eclipse.leshan.tlv.TlvReader;
 import org.eclipse.leshan.util.Hex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -47,48 +47,67 @@ public class LwM2mNodeTlvDecoder {
 
     public static <T extends LwM2mNode> T decode(byte[] content, LwM2mPath path, LwM2mModel model, Class<T> nodeClass)
             throws CodecException {
+        return decode(content, path, model, nodeClass, null);
+    }
+
+    /**
+     * Decodes a TLV content, keeping only some of the resources of the object instances.
+     * <p>
+     * The TLVs of the other resources are skipped without being decoded. This is useful when only a few resources of a
+     * large object instance are needed.
+     *
+     * @param resourceIds the ids of the resources to keep in the object instances, <code>null</code> to keep all the
+     *        resources
+     */
+    public static <T extends LwM2mNode> T decode(byte[] content, LwM2mPath path, LwM2mModel model, Class<T> nodeClass,
+            Set<Integer> resourceIds) throws CodecException {
         try {
-            Tlv[] tlvs = TlvDecoder.decode(ByteBuffer.wrap(content != null ? content : new byte[0]));
-            return parseTlv(tlvs, path, model, nodeClass);
+            TlvReader reader = new TlvReader(ByteBuffer.wrap(content != null ? content : new byte[0]));
+            return parseTlv(reader, path, model, nodeClass, resourceIds);
         } catch (TlvException e) {
             throw new CodecException(String.format("Unable to decode tlv for path [%s]", path), e);
         }
     }
 
     @SuppressWarnings("unchecked")
-    private static <T extends LwM2mNode> T parseTlv(Tlv[] tlvs, LwM2mPath path, LwM2mModel model, Class<T> nodeClass)
-            throws CodecException {
-        LOG.trace("Parsing TLV content for path {}: {}", path, tlvs);
+    private static <T extends LwM2mNode> T parseTlv(TlvReader reader, LwM2mPath path, LwM2mModel model,
+            Class<T> nodeClass, Set<Integer> resourceIds) throws CodecException, TlvException {
+        LOG.trace("Parsing TLV content for path {}", path);
+
+        // look at the first TLV
+        boolean empty = !reader.next();
+        TlvType firstType = reader.getType();
+        boolean single = !empty && !reader.hasNext();
 
         // Object
         if (nodeClass == LwM2mObject.class) {
             List<LwM2mObjectInstance> instances = new ArrayList<>();
 
             // is it an array of TLV resources?
-            if (tlvs.length > 0 && //
-                    (tlvs[0].getType() == TlvType.MULTIPLE_RESOURCE || tlvs[0].getType() == TlvType.RESOURCE_VALUE)) {
+            if (firstType == TlvType.MULTIPLE_RESOURCE || firstType == TlvType.RESOURCE_VALUE) {
+                reader.rewind();
 
                 ObjectModel oModel = model.getObjectModel(path.getObjectId());
                 if (oModel == null) {
                     LOG.warn("No model for object {}. The tlv is decoded assuming this is a single instance object",
                             path.getObjectId());
-                    instances.add(parseObjectInstanceTlv(tlvs, path.getObjectId(), 0, model));
+                    instances.add(parseObjectInstanceTlv(reader, path.getObjectId(), 0, model, resourceIds));
                 } else if (!oModel.multiple) {
-                    instances.add(parseObjectInstanceTlv(tlvs, path.getObjectId(), 0, model));
+                    instances.add(parseObjectInstanceTlv(reader, path.getObjectId(), 0, model, resourceIds));
                 } else {
                     throw new CodecException("Object instance TLV is mandatory for multiple instances object [path:%s]",
                             path);
                 }
 
-            } else {
-                for (Tlv tlv : tlvs) {
-                    if (tlv.getType() != TlvType.OBJECT_INSTANCE)
+            } else if (!empty) {
+                do {
+                    if (reader.getType() != TlvType.OBJECT_INSTANCE)
                         throw new CodecException("Expected TLV of type OBJECT_INSTANCE but was %s  [path:%s]",
-                                tlv.getType().name(), path);
+                                reader.getType().name(), path);
 
-                    instances.add(
-                            parseObjectInstanceTlv(tlv.getChildren(), path.getObjectId(), tlv.getIdentifier(), model));
-                }
+                    instances.add(parseObjectInstanceTlv(reader.getChildren(), path.getObjectId(),
+                            reader.getIdentifier(), model, resourceIds));
+                } while (reader.next());
             }
             return (T) new LwM2mObject(path.getObjectId(), instances);
         }
@@ -96,14 +115,14 @@ public class LwM2mNodeTlvDecoder {
         // Object instance
         else if (nodeClass == LwM2mObjectInstance.class) {
 
-            if (tlvs.length == 1 && tlvs[0].getType() == TlvType.OBJECT_INSTANCE) {
-                if (path.isObjectInstance() && tlvs[0].getIdentifier() != path.getObjectInstanceId()) {
+            if (single && firstType == TlvType.OBJECT_INSTANCE) {
+                if (path.isObjectInstance() && reader.getIdentifier() != path.getObjectInstanceId()) {
                     throw new CodecException("Id conflict between path [%s] and instance TLV [%d]", path,
-                            tlvs[0].getIdentifier());
+                            reader.getIdentifier());
                 }
                 // object instance TLV
-                return (T) parseObjectInstanceTlv(tlvs[0].getChildren(), path.getObjectId(), tlvs[0].getIdentifier(),
-                        model);
+                return (T) parseObjectInstanceTlv(reader.getChildren(), path.getObjectId(), reader.getIdentifier(),
+                        model, resourceIds);
             } else {
                 // array of TLV resources
                 // try to retrieve the instanceId from the path or the model
@@ -117,28 +136,30 @@ public class LwM2mNodeTlvDecoder {
                         instanceId = LwM2mObjectInstance.UNDEFINED;
                     }
                 }
-                return (T) parseObjectInstanceTlv(tlvs, path.getObjectId(), instanceId, model);
+                reader.rewind();
+                return (T) parseObjectInstanceTlv(reader, path.getObjectId(), instanceId, model, resourceIds);
             }
         }
 
         // Resource
         else if (nodeClass == LwM2mResource.class) {
             ResourceModel resourceModel = model.getResourceModel(path.getObjectId(), path.getResourceId());
-            if (tlvs.length == 0 && resourceModel != null && !resourceModel.multiple) {
+            if (empty && resourceModel != null && !resourceModel.multiple) {
                 // If there is no TlV value and we know that this resource is a single resource we raise an exception
                 // else we consider this is a multi-instance resource
                 throw new CodecException("TLV payload is mandatory for single resource %s", path);
 
-            } else if (tlvs.length == 1 && tlvs[0].getType() != TlvType.RESOURCE_INSTANCE) {
-                if (path.isResource() && path.getResourceId() != tlvs[0].getIdentifier()) {
+            } else if (single && firstType != TlvType.RESOURCE_INSTANCE) {
+                if (path.isResource() && path.getResourceId() != reader.getIdentifier()) {
                     throw new CodecException("Id conflict between path [%s] and resource TLV [%s]", path,
-                            tlvs[0].getIdentifier());
+                            reader.getIdentifier());
                 }
-                return (T) parseResourceTlv(tlvs[0], path.getObjectId(), path.getObjectInstanceId(), model);
+                return (T) parseResourceTlv(reader, path.getObjectId(), path.getObjectInstanceId(), model);
             } else {
                 Type expectedRscType = getResourceType(path, model);
+                reader.rewind();
                 return (T) LwM2mMultipleResource.newResource(path.getResourceId(),
-                        parseTlvValues(tlvs, expectedRscType, path), expectedRscType);
+                        parseTlvValues(reader, expectedRscType, path), expectedRscType);
             }
         } else {
             throw new IllegalArgumentException("invalid node class: " + nodeClass);
@@ -146,70 +167,72 @@ public class LwM2mNodeTlvDecoder {
 
     }
 
-    private static LwM2mObjectInstance parseObjectInstanceTlv(Tlv[] rscTlvs, int objectId, int instanceId,
-            LwM2mModel model) throws CodecException {
+    private static LwM2mObjectInstance parseObjectInstanceTlv(TlvReader rscReader, int objectId, int instanceId,
+            LwM2mModel model, Set<Integer> resourceIds) throws CodecException, TlvException {
         // read resources
-        List<LwM2mResource> resources = new ArrayList<>(rscTlvs.length);
-        for (Tlv rscTlv : rscTlvs) {
-            resources.add(parseResourceTlv(rscTlv, objectId, instanceId, model));
+        List<LwM2mResource> resources = new ArrayList<>();
+        while (rscReader.next()) {
+            if (resourceIds == null || resourceIds.contains(rscReader.getIdentifier())) {
+                resources.add(parseResourceTlv(rscReader, objectId, instanceId, model));
+            }
         }
         return new LwM2mObjectInstance(instanceId, resources);
     }
 
-    private static LwM2mResource parseResourceTlv(Tlv tlv, int objectId, int objectInstanceId, LwM2mModel model)
-            throws CodecException {
-        LwM2mPath resourcePath = new LwM2mPath(objectId, objectInstanceId, tlv.getIdentifier());
+    private static LwM2mResource parseResourceTlv(TlvReader reader, int objectId, int objectInstanceId,
+            LwM2mModel model) throws CodecException, TlvException {
+        LwM2mPath resourcePath = LwM2mPath.of(objectId, objectInstanceId, reader.getIdentifier());
         Type expectedType = getResourceType(resourcePath, model);
-        Integer resourceId = tlv.getIdentifier();
-        switch (tlv.getType()) {
+        Integer resourceId = reader.getIdentifier();
+        switch (reader.getType()) {
         case MULTIPLE_RESOURCE:
             return LwM2mMultipleResource.newResource(resourceId,
-                    parseTlvValues(tlv.getChildren(), expectedType, resourcePath), expectedType);
+                    parseTlvValues(reader.getChildren(), expectedType, resourcePath), expectedType);
         case RESOURCE_VALUE:
-            return LwM2mSingleResource.newResource(resourceId,
-                    parseTlvValue(tlv.getValue(), expectedType, resourcePath), expectedType);
+            return LwM2mSingleResource.newResource(resourceId, parseTlvValue(reader, expectedType, resourcePath),
+                    expectedType);
         default:
-            throw new CodecException("Invalid TLV type %s for resource %s", tlv.getType(), resourcePath);
+            throw new CodecException("Invalid TLV type %s for resource %s", reader.getType(), resourcePath);
         }
     }
 
-    private static Map<Integer, Object> parseTlvValues(Tlv[] tlvs, Type expectedType, LwM2mPath path)
-            throws CodecException {
+    private static Map<Integer, Object> parseTlvValues(TlvReader reader, Type expectedType, LwM2mPath path)
+            throws CodecException, TlvException {
         Map<Integer, Object> values = new HashMap<>();
-        for (Tlv tlvChild : tlvs) {
-            if (tlvChild.getType() != TlvType.RESOURCE_INSTANCE)
+        while (reader.next()) {
+            if (reader.getType() != TlvType.RESOURCE_INSTANCE)
                 throw new CodecException("Expected TLV of type RESOURCE_INSTANCE but was %s for path %s",
-                        tlvChild.getType().name(), path);
+                        reader.getType().name(), path);
 
-            values.put(tlvChild.getIdentifier(), parseTlvValue(tlvChild.getValue(), expectedType, path));
+            values.put(reader.getIdentifier(), parseTlvValue(reader, expectedType, path));
         }
         return values;
     }
 
-    private static Object parseTlvValue(byte[] value, Type expectedType, LwM2mPath path) throws CodecException {
+    private static Object parseTlvValue(TlvReader reader, Type expectedType, LwM2mPath path) throws CodecException {
         try {
-            LOG.trace("TLV value for path {} and expected type {}: {}", path, expectedType, value);
+            LOG.trace("TLV value for path {} and expected type {}", path, expectedType);
             switch (expectedType) {
             case STRING:
-                return TlvDecoder.decodeString(value);
+                return reader.readString();
             case INTEGER:
-                return TlvDecoder.decodeInteger(value).longValue();
+                return reader.readInteger().longValue();
             case FLOAT:
-                return TlvDecoder.decodeFloat(value).doubleValue();
+                return reader.readFloat().doubleValue();
             case BOOLEAN:
-                return TlvDecoder.decodeBoolean(value);
+                return reader.readBoolean();
             case TIME:
-                return TlvDecoder.decodeDate(value);
+                return reader.readDate();
             case OPAQUE:
-                return value;
+                return reader.readOpaque();
             case OBJLNK:
-                return TlvDecoder.decodeObjlnk(value);
+                return reader.readObjlnk();
             default:
                 throw new CodecException("Unsupported type %s for path %s", expectedType, path);
             }
         } catch (TlvException e) {
-            throw new CodecException(e, "Invalid content [%s] for type %s for path %s", Hex.encodeHexString(value),
-                    expectedType, path);
+            throw new CodecException(e, "Invalid content [%s] for type %s for path %s",
+                    Hex.encodeHexString(reader.readOpaque()), expectedType, path);
         }
     }
 
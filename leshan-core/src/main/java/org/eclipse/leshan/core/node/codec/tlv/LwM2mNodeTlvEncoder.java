@@ -15,8 +15,8 @@
  *******************************************************************************/
 package org.eclipse.leshan.core.node.codec.tlv;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
 import java.util.Map.Entry;
@@ -34,32 +34,66 @@ import org.eclipse.leshan.core.node.LwM2mResource;
 import org.eclipse.leshan.core.node.ObjectLink;
 import org.eclipse.leshan.core.node.codec.CodecException;
 import org.eclipse.leshan.core.node.codec.LwM2mValueConverter;
-import org.eclipse.leshan.tlv.Tlv;
 import org.eclipse.leshan.tlv.Tlv.TlvType;
-import org.eclipse.leshan.tlv.TlvEncoder;
+import org.eclipse.leshan.tlv.TlvWriter;
 import org.eclipse.leshan.util.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * TLV encoder for {@link LwM2mNode}.
+ * <p>
+ * The node is written in a single pass into a {@link ByteBuffer} by a {@link TlvWriter}, no intermediate tree of
+ * {@link org.eclipse.leshan.tlv.Tlv} is built.
  */
 public class LwM2mNodeTlvEncoder {
 
     private static final Logger LOG = LoggerFactory.getLogger(LwM2mNodeTlvEncoder.class);
 
+    // per thread scratch buffer used to encode a node before copying it in a byte array
+    private static final int SCRATCH_BUFFER_SIZE = 1024;
+    // larger buffers are not kept, so a big payload does not stay in memory
+    private static final int MAX_SCRATCH_BUFFER_SIZE = 64 * 1024;
+    private static final ThreadLocal<ByteBuffer> SCRATCH_BUFFER = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocate(SCRATCH_BUFFER_SIZE);
+        }
+    };
+
     public static byte[] encode(LwM2mNode node, LwM2mPath path, LwM2mModel model, LwM2mValueConverter converter)
             throws CodecException {
+        ByteBuffer scratch = SCRATCH_BUFFER.get();
+        scratch.clear();
+        ByteBuffer encoded = encode(node, path, model, converter, scratch);
+        if (encoded != scratch && encoded.capacity() <= MAX_SCRATCH_BUFFER_SIZE) {
+            SCRATCH_BUFFER.set(encoded);
+        }
+        return Arrays.copyOf(encoded.array(), encoded.position());
+    }
+
+    /**
+     * Encodes a node at the current position of the given buffer.
+     * <p>
+     * If the buffer is too small, a larger buffer is allocated and the content of the given buffer is copied into it.
+     *
+     * @return the buffer holding the encoded node (the given buffer or a larger one), its position is just after the
+     *         encoded node
+     */
+    public static ByteBuffer encode(LwM2mNode node, LwM2mPath path, LwM2mModel model, LwM2mValueConverter converter,
+            ByteBuffer buffer) throws CodecException {
         Validate.notNull(node);
         Validate.notNull(path);
         Validate.notNull(model);
+        Validate.notNull(buffer);
 
         InternalEncoder internalEncoder = new InternalEncoder();
         internalEncoder.path = path;
         internalEncoder.model = model;
         internalEncoder.converter = converter;
+        internalEncoder.writer = new TlvWriter(buffer);
         node.accept(internalEncoder);
-        return internalEncoder.out.toByteArray();
+        return internalEncoder.writer.getBuffer();
     }
 
     private static class InternalEncoder implements LwM2mNodeVisitor {
@@ -70,59 +104,41 @@ public class LwM2mNodeTlvEncoder {
         private LwM2mValueConverter converter;
 
         // visitor output
-        private ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private TlvWriter writer;
 
         @Override
         public void visit(LwM2mObject object) {
             LOG.trace("Encoding object {} into TLV", object);
 
-            Tlv[] tlvs;
-
             ObjectModel objectModel = model.getObjectModel(object.getId());
             if (objectModel != null && !objectModel.multiple) {
                 // single instance object, the instance is level is not needed
-                tlvs = encodeResources(object.getInstance(0).getResources().values(), new LwM2mPath(object.getId(), 0));
+                encodeResources(object.getInstance(0).getResources().values(), LwM2mPath.of(object.getId(), 0));
             } else {
                 // encoded as an array of instances
-                tlvs = new Tlv[object.getInstances().size()];
-                int i = 0;
                 for (Entry<Integer, LwM2mObjectInstance> instance : object.getInstances().entrySet()) {
-                    Tlv[] resources = encodeResources(instance.getValue().getResources().values(),
-                            new LwM2mPath(object.getId(), instance.getKey()));
-                    tlvs[i] = new Tlv(TlvType.OBJECT_INSTANCE, resources, null, instance.getKey());
-                    i++;
+                    writer.beginContainer(TlvType.OBJECT_INSTANCE, instance.getKey());
+                    encodeResources(instance.getValue().getResources().values(),
+                            LwM2mPath.of(object.getId(), instance.getKey()));
+                    writer.endContainer();
                 }
             }
-
-            try {
-                out.write(TlvEncoder.encode(tlvs).array());
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
         }
 
         @Override
         public void visit(LwM2mObjectInstance instance) {
             LOG.trace("Encoding object instance {} into TLV", instance);
 
-            Tlv[] tlvs;
             if (path.isObjectInstance() || instance.getId() == LwM2mObjectInstance.UNDEFINED) {
                 // the instanceId is part of the request path or is undefined
                 // so the instance TLV layer is not needed.
                 // encoded as an array of resource TLVs
-                tlvs = encodeResources(instance.getResources().values(),
-                        new LwM2mPath(path.getObjectId(), instance.getId()));
+                encodeResources(instance.getResources().values(), LwM2mPath.of(path.getObjectId(), instance.getId()));
             } else {
                 // encoded as an instance TLV
-                Tlv[] resources = encodeResources(instance.getResources().values(),
-                        new LwM2mPath(path.getObjectId(), instance.getId()));
-                tlvs = new Tlv[] { new Tlv(TlvType.OBJECT_INSTANCE, resources, null, instance.getId()) };
-            }
-
-            try {
-                out.write(TlvEncoder.encode(tlvs).array());
-            } catch (IOException e) {
-                throw new RuntimeException(e);
+                writer.beginContainer(TlvType.OBJECT_INSTANCE, instance.getId());
+                encodeResources(instance.getResources().values(), LwM2mPath.of(path.getObjectId(), instance.getId()));
+                writer.endContainer();
             }
         }
 
@@ -130,69 +146,61 @@ public class LwM2mNodeTlvEncoder {
         public void visit(LwM2mResource resource) {
             LOG.trace("Encoding resource {} into TLV", resource);
 
-            Tlv rTlv = encodeResource(resource, path);
-
-            try {
-                out.write(TlvEncoder.encode(new Tlv[] { rTlv }).array());
-            } catch (IOException e) {
-                throw new RuntimeException(e);
-            }
+            encodeResource(resource, path);
         }
 
-        private Tlv[] encodeResources(Collection<LwM2mResource> resources, LwM2mPath instancePath) {
-            Tlv[] rTlvs = new Tlv[resources.size()];
-            int i = 0;
+        private void encodeResources(Collection<LwM2mResource> resources, LwM2mPath instancePath) {
             for (LwM2mResource resource : resources) {
-                rTlvs[i] = encodeResource(resource, instancePath.append(resource.getId()));
-                i++;
+                encodeResource(resource, instancePath.append(resource.getId()));
             }
-            return rTlvs;
         }
 
-        private Tlv encodeResource(LwM2mResource resource, LwM2mPath resourcePath) {
+        private void encodeResource(LwM2mResource resource, LwM2mPath resourcePath) {
             ResourceModel rSpec = model.getResourceModel(path.getObjectId(), resource.getId());
             Type expectedType = rSpec != null ? rSpec.type : resource.getType();
 
-            Tlv rTlv;
             if (resource.isMultiInstances()) {
-                Tlv[] instances = new Tlv[resource.getValues().size()];
-                int i = 0;
+                writer.beginContainer(TlvType.MULTIPLE_RESOURCE, resource.getId());
                 for (Entry<Integer, ?> entry : resource.getValues().entrySet()) {
                     LwM2mPath resourceInstancePath = resourcePath.append(entry.getKey());
                     Object convertedValue = converter.convertValue(entry.getValue(), resource.getType(), expectedType,
                             resourceInstancePath);
-                    instances[i] = new Tlv(TlvType.RESOURCE_INSTANCE, null,
-                            this.encodeTlvValue(convertedValue, expectedType, resourceInstancePath), entry.getKey());
-                    i++;
+                    writeTlvValue(TlvType.RESOURCE_INSTANCE, entry.getKey(), convertedValue, expectedType,
+                            resourceInstancePath);
                 }
-                rTlv = new Tlv(TlvType.MULTIPLE_RESOURCE, instances, null, resource.getId());
+                writer.endContainer();
             } else {
                 Object convertedValue = converter.convertValue(resource.getValue(), resource.getType(), expectedType,
                         resourcePath);
-                rTlv = new Tlv(TlvType.RESOURCE_VALUE, null,
-                        this.encodeTlvValue(convertedValue, expectedType, resourcePath), resource.getId());
+                writeTlvValue(TlvType.RESOURCE_VALUE, resource.getId(), convertedValue, expectedType, resourcePath);
             }
-            return rTlv;
         }
 
-        private byte[] encodeTlvValue(Object value, Type type, LwM2mPath path) {
+        private void writeTlvValue(TlvType tlvType, int id, Object value, Type type, LwM2mPath path) {
             LOG.trace("Encoding value {} in TLV", value);
             try {
                 switch (type) {
                 case STRING:
-                    return TlvEncoder.encodeString((String) value);
+                    writer.writeString(tlvType, id, (String) value);
+                    break;
                 case INTEGER:
-                    return TlvEncoder.encodeInteger((Number) value);
+                    writer.writeInteger(tlvType, id, ((Number) value).longValue());
+                    break;
                 case FLOAT:
-                    return TlvEncoder.encodeFloat((Number) value);
+                    writer.writeFloat(tlvType, id, (Number) value);
+                    break;
                 case BOOLEAN:
-                    return TlvEncoder.encodeBoolean((Boolean) value);
+                    writer.writeBoolean(tlvType, id, (Boolean) value);
+                    break;
                 case TIME:
-                    return TlvEncoder.encodeDate((Date) value);
+                    writer.writeDate(tlvType, id, (Date) value);
+                    break;
                 case OPAQUE:
-                    return (byte[]) value;
+                    writer.writeOpaque(tlvType, id, (byte[]) value);
+                    break;
                 case OBJLNK:
-                    return TlvEncoder.encodeObjlnk((ObjectLink) value);
+                    writer.writeObjlnk(tlvType, id, (ObjectLink) value);
+                    break;
                 default:
                     throw new CodecException("Invalid value %s for type %s of %s", value, type, path);
                 }
@@ -201,4 +209,4 @@ public class LwM2mNodeTlvEncoder {
             }
         }
     }
-}
\ No newline at end of file
+}
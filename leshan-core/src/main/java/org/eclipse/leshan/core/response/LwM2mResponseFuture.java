@@ -0,0 +1,237 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.response;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.core.request.exception.RequestCanceledException;
+import org.eclipse.leshan.core.request.exception.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The pending response of a LWM2M request sent asynchronously.
+ * <p>
+ * The future is completed with the response, or with an exception as described for {@link ErrorCallback}. Callbacks
+ * can be added at any time with {@link #addCallback(ResponseCallback, ErrorCallback)}, they are called by the thread
+ * which completes the future (or immediately if the future is already done), so they must not block.
+ * <p>
+ * A timeout can be set with {@link #setTimeout(ScheduledExecutorService, long)}: no thread waits for the response,
+ * the future is completed with a {@link TimeoutException} by the scheduler if it is not done in time.
+ *
+ * @param <T> the type of response
+ */
+public class LwM2mResponseFuture<T extends LwM2mResponse> implements Future<T>, ResponseCallback<T>, ErrorCallback {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LwM2mResponseFuture.class);
+
+    // state, guarded by this
+    private boolean done;
+    private boolean cancelled;
+    private T response;
+    private Exception error;
+    private List<Callback<T>> callbacks;
+    private ScheduledFuture<?> timeoutTask;
+
+    private static class Callback<T extends LwM2mResponse> {
+        private final ResponseCallback<T> responseCallback;
+        private final ErrorCallback errorCallback;
+
+        private Callback(ResponseCallback<T> responseCallback, ErrorCallback errorCallback) {
+            this.responseCallback = responseCallback;
+            this.errorCallback = errorCallback;
+        }
+    }
+
+    /**
+     * Completes the future with a response.
+     *
+     * @return <code>false</code> if the future was already done
+     */
+    public boolean complete(T response) {
+        return finish(response, null, false);
+    }
+
+    /**
+     * Completes the future with an exception.
+     *
+     * @return <code>false</code> if the future was already done
+     */
+    public boolean completeExceptionally(Exception error) {
+        return finish(null, error, false);
+    }
+
+    @Override
+    public void onResponse(T response) {
+        complete(response);
+    }
+
+    @Override
+    public void onError(Exception e) {
+        completeExceptionally(e);
+    }
+
+    /**
+     * Cancels the request: the future is completed with a {@link RequestCanceledException}.
+     */
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (finish(null, new RequestCanceledException("Request cancelled"), true)) {
+            onAbort();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Completes the future with a {@link TimeoutException} if it is not done after the given delay.
+     *
+     * @param scheduler the scheduler in charge of the timeout, shared between requests
+     * @param timeout the timeout in milliseconds
+     */
+    public void setTimeout(ScheduledExecutorService scheduler, final long timeout) {
+        ScheduledFuture<?> task = scheduler.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (completeExceptionally(new TimeoutException("Request timed out after %d ms", timeout))) {
+                    onAbort();
+                }
+            }
+        }, timeout, TimeUnit.MILLISECONDS);
+
+        synchronized (this) {
+            if (!done) {
+                timeoutTask = task;
+                return;
+            }
+        }
+        task.cancel(false);
+    }
+
+    /**
+     * Adds callbacks called when the future is done. If the future is already done, the callback is called
+     * immediately.
+     */
+    public void addCallback(ResponseCallback<T> responseCallback, ErrorCallback errorCallback) {
+        Callback<T> callback = new Callback<>(responseCallback, errorCallback);
+        synchronized (this) {
+            if (!done) {
+                if (callbacks == null) {
+                    callbacks = new ArrayList<>(1);
+                }
+                callbacks.add(callback);
+                return;
+            }
+        }
+        call(callback);
+    }
+
+    /**
+     * Called when the request is abandoned, because of a cancellation or a timeout. Does nothing by default, senders
+     * override it to release the resources of the request.
+     */
+    protected void onAbort() {
+    }
+
+    private boolean finish(T response, Exception error, boolean cancelled) {
+        List<Callback<T>> callbacks;
+        ScheduledFuture<?> timeoutTask;
+        synchronized (this) {
+            if (done) {
+                return false;
+            }
+            this.done = true;
+            this.cancelled = cancelled;
+            this.response = response;
+            this.error = error;
+            callbacks = this.callbacks;
+            timeoutTask = this.timeoutTask;
+            this.callbacks = null;
+            this.timeoutTask = null;
+            notifyAll();
+        }
+        if (timeoutTask != null) {
+            timeoutTask.cancel(false);
+        }
+        if (callbacks != null) {
+            for (Callback<T> callback : callbacks) {
+                call(callback);
+            }
+        }
+        return true;
+    }
+
+    private void call(Callback<T> callback) {
+        try {
+            if (error == null) {
+                callback.responseCallback.onResponse(response);
+            } else {
+                callback.errorCallback.onError(error);
+            }
+        } catch (RuntimeException e) {
+            LOG.warn("Unexpected exception in response callback", e);
+        }
+    }
+
+    @Override
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return done;
+    }
+
+    @Override
+    public synchronized T get() throws InterruptedException, ExecutionException {
+        while (!done) {
+            wait();
+        }
+        return getResult();
+    }
+
+    @Override
+    public synchronized T get(long timeout, TimeUnit unit)
+            throws InterruptedException, ExecutionException, java.util.concurrent.TimeoutException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!done) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new java.util.concurrent.TimeoutException();
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return getResult();
+    }
+
+    private T getResult() throws ExecutionException {
+        if (cancelled) {
+            throw new CancellationException();
+        }
+        if (error != null) {
+            throw new ExecutionException(error);
+        }
+        return response;
+    }
+}
@@ -0,0 +1,385 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.json;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Low-level reader of the JSON tokens of an UTF-8 encoded document, used by the streaming readers of the JSON based
+ * formats.
+ * <p>
+ * Values are read directly from the bytes of the document, without creating intermediate objects. Whitespaces before
+ * a token are skipped.
+ */
+public class JsonByteReader {
+
+    private final String format;
+    private final byte[] data;
+    private final int end;
+    private int pos;
+
+    /**
+     * @param format the name of the format, used in error messages
+     * @param data the UTF-8 encoded document
+     */
+    public JsonByteReader(String format, byte[] data) {
+        this.format = format;
+        this.data = data;
+        this.end = data.length;
+        this.pos = 0;
+    }
+
+    /**
+     * Reads a member name and the following colon.
+     *
+     * @param keys the known member names, in ASCII
+     * @return the index of the member name in <code>keys</code> or -1 if it is unknown
+     */
+    public int readKey(String[] keys) throws LwM2mJsonException {
+        skipWhitespace();
+        if (pos >= end || data[pos] != '"') {
+            throw error("member name expected");
+        }
+        int start = pos + 1;
+        int i = start;
+        while (i < end && data[i] != '"' && data[i] != '\\') {
+            i++;
+        }
+        int key;
+        if (i < end && data[i] == '"') {
+            key = indexOf(keys, start, i - start);
+            pos = i + 1;
+        } else {
+            String name = readString();
+            key = -1;
+            for (int k = 0; k < keys.length; k++) {
+                if (keys[k].equals(name)) {
+                    key = k;
+                    break;
+                }
+            }
+        }
+        expect(':');
+        return key;
+    }
+
+    private int indexOf(String[] keys, int start, int length) {
+        for (int k = 0; k < keys.length; k++) {
+            String key = keys[k];
+            if (key.length() == length) {
+                int j = 0;
+                while (j < length && data[start + j] == key.charAt(j)) {
+                    j++;
+                }
+                if (j == length) {
+                    return k;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks that there is nothing but whitespaces after the current position.
+     */
+    public void expectEnd() throws LwM2mJsonException {
+        skipWhitespace();
+        if (pos != end) {
+            throw error("unexpected content after the root value");
+        }
+    }
+
+    public String readStringOrNull() throws LwM2mJsonException {
+        return consumeNull() ? null : readString();
+    }
+
+    public String readString() throws LwM2mJsonException {
+        expect('"');
+        int start = pos;
+        while (pos < end && data[pos] != '"' && data[pos] != '\\') {
+            pos++;
+        }
+        if (pos >= end) {
+            throw error("unterminated string");
+        }
+        if (data[pos] == '"') {
+            // no escape sequence
+            pos++;
+            return new String(data, start, pos - start - 1, StandardCharsets.UTF_8);
+        }
+
+        StringBuilder b = new StringBuilder(pos - start + 16);
+        b.append(new String(data, start, pos - start, StandardCharsets.UTF_8));
+        while (true) {
+            if (pos >= end) {
+                throw error("unterminated string");
+            }
+            byte c = data[pos];
+            if (c == '"') {
+                pos++;
+                return b.toString();
+            } else if (c == '\\') {
+                if (pos + 1 >= end) {
+                    throw error("unterminated string");
+                }
+                byte escaped = data[pos + 1];
+                pos += 2;
+                switch (escaped) {
+                case '"':
+                case '\\':
+                case '/':
+                    b.append((char) escaped);
+                    break;
+                case 'b':
+                    b.append('\b');
+                    break;
+                case 'f':
+                    b.append('\f');
+                    break;
+                case 'n':
+                    b.append('\n');
+                    break;
+                case 'r':
+                    b.append('\r');
+                    break;
+                case 't':
+                    b.append('\t');
+                    break;
+                case 'u':
+                    if (pos + 4 > end) {
+                        throw error("invalid unicode escape sequence");
+                    }
+                    int unicode = 0;
+                    for (int i = 0; i < 4; i++) {
+                        int digit = Character.digit(data[pos + i], 16);
+                        if (digit < 0) {
+                            throw error("invalid unicode escape sequence");
+                        }
+                        unicode = unicode << 4 | digit;
+                    }
+                    pos += 4;
+                    b.append((char) unicode);
+                    break;
+                default:
+                    throw error("invalid escape sequence");
+                }
+            } else {
+                // copy the bytes until the next quote or escape sequence
+                int segment = pos;
+                while (pos < end && data[pos] != '"' && data[pos] != '\\') {
+                    pos++;
+                }
+                b.append(new String(data, segment, pos - segment, StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    public Long readLongOrNull() throws LwM2mJsonException {
+        if (consumeNull()) {
+            return null;
+        }
+        Number number = readNumber();
+        if (number instanceof Long) {
+            return (Long) number;
+        }
+        double value = number.doubleValue();
+        if (value != Math.rint(value) || Math.abs(value) > Long.MAX_VALUE) {
+            throw error("integer expected");
+        }
+        return (long) value;
+    }
+
+    /**
+     * Reads a number.
+     *
+     * @return a {@link Long} for integers, a {@link Double} for the other numbers
+     */
+    public Number readNumber() throws LwM2mJsonException {
+        skipWhitespace();
+        int start = pos;
+        boolean negative = pos < end && data[pos] == '-';
+        if (negative) {
+            pos++;
+        }
+        int digitsStart = pos;
+        long value = 0;
+        while (pos < end && data[pos] >= '0' && data[pos] <= '9') {
+            value = value * 10 + (data[pos] - '0');
+            pos++;
+        }
+        int digits = pos - digitsStart;
+        if (digits == 0) {
+            throw error("number expected");
+        }
+        boolean integer = true;
+        if (pos < end && data[pos] == '.') {
+            integer = false;
+            pos++;
+            int fractionStart = pos;
+            while (pos < end && data[pos] >= '0' && data[pos] <= '9') {
+                pos++;
+            }
+            if (pos == fractionStart) {
+                throw error("invalid number");
+            }
+        }
+        if (pos < end && (data[pos] == 'e' || data[pos] == 'E')) {
+            integer = false;
+            pos++;
+            if (pos < end && (data[pos] == '+' || data[pos] == '-')) {
+                pos++;
+            }
+            int exponentStart = pos;
+            while (pos < end && data[pos] >= '0' && data[pos] <= '9') {
+                pos++;
+            }
+            if (pos == exponentStart) {
+                throw error("invalid number");
+            }
+        }
+
+        String text = null;
+        if (integer) {
+            // up to 18 digits always fit in a long
+            if (digits <= 18) {
+                return negative ? -value : value;
+            }
+            text = new String(data, start, pos - start, StandardCharsets.US_ASCII);
+            try {
+                return Long.parseLong(text);
+            } catch (NumberFormatException e) {
+                // too large for a long
+            }
+        }
+        if (text == null) {
+            text = new String(data, start, pos - start, StandardCharsets.US_ASCII);
+        }
+        return Double.parseDouble(text);
+    }
+
+    public boolean readBoolean() throws LwM2mJsonException {
+        if (consumeLiteral("true")) {
+            return true;
+        } else if (consumeLiteral("false")) {
+            return false;
+        }
+        throw error("boolean expected");
+    }
+
+    public boolean consumeNull() {
+        return consumeLiteral("null");
+    }
+
+    private boolean consumeLiteral(String literal) {
+        skipWhitespace();
+        int length = literal.length();
+        if (pos + length > end) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (data[pos + i] != literal.charAt(i)) {
+                return false;
+            }
+        }
+        pos += length;
+        return true;
+    }
+
+    /**
+     * Skips the value of an unknown member.
+     */
+    public void skipValue() throws LwM2mJsonException {
+        skipWhitespace();
+        if (pos >= end) {
+            throw error("value expected");
+        }
+        byte c = data[pos];
+        if (c == '"') {
+            readString();
+        } else if (c == '{' || c == '[') {
+            // skip the whole object or array, without recursion
+            int depth = 0;
+            do {
+                if (pos >= end) {
+                    throw error("unterminated " + (c == '{' ? "object" : "array"));
+                }
+                byte b = data[pos];
+                if (b == '"') {
+                    readString();
+                } else {
+                    if (b == '{' || b == '[') {
+                        depth++;
+                    } else if (b == '}' || b == ']') {
+                        depth--;
+                    }
+                    pos++;
+                }
+            } while (depth > 0);
+        } else if (!consumeLiteral("true") && !consumeLiteral("false") && !consumeNull()) {
+            readNumber();
+        }
+    }
+
+    /**
+     * Reads the separator after a member or an array element.
+     *
+     * @return <code>true</code> if another member/element follows, <code>false</code> if the object/array is closed
+     */
+    public boolean nextMember(char close) throws LwM2mJsonException {
+        skipWhitespace();
+        if (pos < end) {
+            if (data[pos] == ',') {
+                pos++;
+                return true;
+            } else if (data[pos] == close) {
+                pos++;
+                return false;
+            }
+        }
+        throw error("',' or '" + close + "' expected");
+    }
+
+    public void expect(char c) throws LwM2mJsonException {
+        skipWhitespace();
+        if (pos >= end || data[pos] != c) {
+            throw error("'" + c + "' expected");
+        }
+        pos++;
+    }
+
+    public boolean consume(char c) {
+        skipWhitespace();
+        if (pos < end && data[pos] == c) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void skipWhitespace() {
+        while (pos < end) {
+            byte c = data[pos];
+            if (c != ' ' && c != '\n' && c != '\r' && c != '\t') {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    public LwM2mJsonException error(String message) {
+        return new LwM2mJsonException(String.format("Invalid %s at offset %d: %s", format, pos, message));
+    }
+}
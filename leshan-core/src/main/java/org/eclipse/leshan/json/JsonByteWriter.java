@@ -0,0 +1,201 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.json;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Low-level writer of the JSON tokens of an UTF-8 encoded document, used by the streaming writers of the JSON based
+ * formats.
+ * <p>
+ * Strings are escaped the same way as Gson does (including HTML characters).
+ */
+public class JsonByteWriter {
+
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private byte[] buffer = new byte[256];
+    private int count = 0;
+
+    /**
+     * @return the number of bytes written
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Discards the bytes written after the given size.
+     */
+    public void truncate(int size) {
+        if (size < 0 || size > count) {
+            throw new IllegalArgumentException("Invalid size: " + size);
+        }
+        count = size;
+    }
+
+    /**
+     * @return a copy of the bytes written
+     */
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, count);
+    }
+
+    /**
+     * Writes a JSON number.
+     *
+     * @throws IllegalArgumentException if the value is NaN or infinite
+     */
+    public void writeNumber(Number value) {
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            writeLong(value.longValue());
+            return;
+        }
+        double d = value.doubleValue();
+        if (Double.isNaN(d) || Double.isInfinite(d)) {
+            throw new IllegalArgumentException(value + " is not a valid double value as per JSON specification");
+        }
+        writeAscii(value.toString());
+    }
+
+    public void writeLong(long value) {
+        if (value == Long.MIN_VALUE) {
+            writeAscii(Long.toString(value));
+            return;
+        }
+        ensureCapacity(20);
+        if (value < 0) {
+            buffer[count++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        for (int i = count + digits - 1; i >= count; i--) {
+            buffer[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        count += digits;
+    }
+
+    /**
+     * Writes a quoted and escaped string, with the same escaping rules as Gson (including HTML characters).
+     */
+    public void writeString(CharSequence s) {
+        int length = s.length();
+        // worst case: 6 bytes per char (unicode escape sequence)
+        ensureCapacity(length * 6 + 2);
+        byte[] b = buffer;
+        int c = count;
+        b[c++] = '"';
+        for (int i = 0; i < length; i++) {
+            char ch = s.charAt(i);
+            if (ch < 0x80) {
+                switch (ch) {
+                case '"':
+                case '\\':
+                    b[c++] = '\\';
+                    b[c++] = (byte) ch;
+                    break;
+                case '\t':
+                    b[c++] = '\\';
+                    b[c++] = 't';
+                    break;
+                case '\b':
+                    b[c++] = '\\';
+                    b[c++] = 'b';
+                    break;
+                case '\n':
+                    b[c++] = '\\';
+                    b[c++] = 'n';
+                    break;
+                case '\r':
+                    b[c++] = '\\';
+                    b[c++] = 'r';
+                    break;
+                case '\f':
+                    b[c++] = '\\';
+                    b[c++] = 'f';
+                    break;
+                case '<':
+                case '>':
+                case '&':
+                case '=':
+                case '\'':
+                    c = writeUnicodeEscape(b, c, ch);
+                    break;
+                default:
+                    if (ch < 0x20) {
+                        c = writeUnicodeEscape(b, c, ch);
+                    } else {
+                        b[c++] = (byte) ch;
+                    }
+                }
+            } else if (ch < 0x800) {
+                b[c++] = (byte) (0xC0 | ch >> 6);
+                b[c++] = (byte) (0x80 | ch & 0x3F);
+            } else if (ch == 0x2028 || ch == 0x2029) {
+                c = writeUnicodeEscape(b, c, ch);
+            } else if (Character.isHighSurrogate(ch) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(ch, s.charAt(++i));
+                b[c++] = (byte) (0xF0 | cp >> 18);
+                b[c++] = (byte) (0x80 | cp >> 12 & 0x3F);
+                b[c++] = (byte) (0x80 | cp >> 6 & 0x3F);
+                b[c++] = (byte) (0x80 | cp & 0x3F);
+            } else if (Character.isSurrogate(ch)) {
+                // unpaired surrogate, replaced like String.getBytes() does
+                b[c++] = '?';
+            } else {
+                b[c++] = (byte) (0xE0 | ch >> 12);
+                b[c++] = (byte) (0x80 | ch >> 6 & 0x3F);
+                b[c++] = (byte) (0x80 | ch & 0x3F);
+            }
+        }
+        b[c++] = '"';
+        count = c;
+    }
+
+    private static int writeUnicodeEscape(byte[] b, int c, char ch) {
+        b[c++] = '\\';
+        b[c++] = 'u';
+        b[c++] = HEX[ch >> 12 & 0xF];
+        b[c++] = HEX[ch >> 8 & 0xF];
+        b[c++] = HEX[ch >> 4 & 0xF];
+        b[c++] = HEX[ch & 0xF];
+        return c;
+    }
+
+    public void writeAscii(String s) {
+        int length = s.length();
+        ensureCapacity(length);
+        for (int i = 0; i < length; i++) {
+            buffer[count++] = (byte) s.charAt(i);
+        }
+    }
+
+    public void write(char c) {
+        ensureCapacity(1);
+        buffer[count++] = (byte) c;
+    }
+
+    private void ensureCapacity(int size) {
+        if (count + size > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, count + size));
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.json;
+
+import org.eclipse.leshan.core.model.ResourceModel.Type;
+
+/**
+ * Streaming reader for the LWM2M JSON format (application/vnd.oma.lwm2m+json).
+ * <p>
+ * The content is read in a single pass directly from its UTF-8 bytes. The base name, the base time and each entry of
+ * the resource list are given to a {@link Handler} as soon as they are read, no intermediate object is created.
+ * Unknown members are ignored.
+ */
+public class LwM2mJsonReader {
+
+    /**
+     * Receives the content of a LWM2M JSON document.
+     */
+    public interface Handler {
+
+        /**
+         * Called when the base name ("bn") is read.
+         */
+        void onBaseName(String baseName);
+
+        /**
+         * Called when the base time ("bt") is read.
+         */
+        void onBaseTime(long baseTime);
+
+        /**
+         * Called for each entry of the resource list ("e").
+         *
+         * @param name the name of the entry ("n"), may be <code>null</code>
+         * @param value the value of the entry: a {@link Boolean} ("bv"), a {@link Number} ("v") or a {@link String}
+         *        ("ov" or "sv"), <code>null</code> if the entry has no value
+         * @param type the type given by the JSON member of the value: {@link Type#BOOLEAN} for "bv",
+         *        {@link Type#FLOAT} for "v", {@link Type#STRING} for "sv" and <code>null</code> for "ov" or if the entry
+         *        has no value
+         * @param time the time of the entry ("t"), may be <code>null</code>
+         */
+        void onEntry(String name, Object value, Type type, Long time);
+    }
+
+    // members of the LWM2M JSON format, the index is the key returned by JsonByteReader.readKey()
+    private static final String[] KEYS = { "bn", "bt", "e", "n", "t", "v", "bv", "ov", "sv" };
+    private static final int BASE_NAME = 0;
+    private static final int BASE_TIME = 1;
+    private static final int ENTRIES = 2;
+    private static final int NAME = 3;
+    private static final int TIME = 4;
+    private static final int FLOAT_VALUE = 5;
+    private static final int BOOLEAN_VALUE = 6;
+    private static final int OBJLNK_VALUE = 7;
+    private static final int STRING_VALUE = 8;
+
+    private final JsonByteReader reader;
+
+    private LwM2mJsonReader(byte[] data) {
+        this.reader = new JsonByteReader("LWM2M JSON", data);
+    }
+
+    /**
+     * Reads a LWM2M JSON document.
+     *
+     * @param content the UTF-8 encoded document
+     * @param handler receives the content of the document
+     * @throws LwM2mJsonException if the content is not a valid LWM2M JSON document
+     */
+    public static void read(byte[] content, Handler handler) throws LwM2mJsonException {
+        new LwM2mJsonReader(content).readRoot(handler);
+    }
+
+    private void readRoot(Handler handler) throws LwM2mJsonException {
+        reader.expect('{');
+        if (!reader.consume('}')) {
+            do {
+                switch (reader.readKey(KEYS)) {
+                case BASE_NAME:
+                    String baseName = reader.readStringOrNull();
+                    if (baseName != null) {
+                        handler.onBaseName(baseName);
+                    }
+                    break;
+                case BASE_TIME:
+                    Long baseTime = reader.readLongOrNull();
+                    if (baseTime != null) {
+                        handler.onBaseTime(baseTime);
+                    }
+                    break;
+                case ENTRIES:
+                    if (!reader.consumeNull()) {
+                        readEntries(handler);
+                    }
+                    break;
+                default:
+                    reader.skipValue();
+                }
+            } while (reader.nextMember('}'));
+        }
+        reader.expectEnd();
+    }
+
+    private void readEntries(Handler handler) throws LwM2mJsonException {
+        reader.expect('[');
+        if (reader.consume(']')) {
+            return;
+        }
+        do {
+            readEntry(handler);
+        } while (reader.nextMember(']'));
+    }
+
+    private void readEntry(Handler handler) throws LwM2mJsonException {
+        String name = null;
+        Long time = null;
+        Number floatValue = null;
+        Boolean booleanValue = null;
+        String objlnkValue = null;
+        String stringValue = null;
+
+        reader.expect('{');
+        if (!reader.consume('}')) {
+            do {
+                switch (reader.readKey(KEYS)) {
+                case NAME:
+                    name = reader.readStringOrNull();
+                    break;
+                case TIME:
+                    time = reader.readLongOrNull();
+                    break;
+                case FLOAT_VALUE:
+                    floatValue = reader.consumeNull() ? null : reader.readNumber();
+                    break;
+                case BOOLEAN_VALUE:
+                    booleanValue = reader.consumeNull() ? null : reader.readBoolean();
+                    break;
+                case OBJLNK_VALUE:
+                    objlnkValue = reader.readStringOrNull();
+                    break;
+                case STRING_VALUE:
+                    stringValue = reader.readStringOrNull();
+                    break;
+                default:
+                    reader.skipValue();
+                }
+            } while (reader.nextMember('}'));
+        }
+
+        if (booleanValue != null) {
+            handler.onEntry(name, booleanValue, Type.BOOLEAN, time);
+        } else if (floatValue != null) {
+            handler.onEntry(name, floatValue, Type.FLOAT, time);
+        } else if (objlnkValue != null) {
+            handler.onEntry(name, objlnkValue, null, time);
+        } else if (stringValue != null) {
+            handler.onEntry(name, stringValue, Type.STRING, time);
+        } else {
+            handler.onEntry(name, null, null, time);
+        }
+    }
+}
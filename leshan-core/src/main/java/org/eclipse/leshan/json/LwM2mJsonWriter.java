@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.json;
+
+/**
+ * Streaming writer for the LWM2M JSON format (application/vnd.oma.lwm2m+json).
+ * <p>
+ * Entries are written directly in UTF-8 into a byte array, in the order they are given. The output is the same as the
+ * one of {@link LwM2mJson#toJsonLwM2m(JsonRootObject)}: members are in the same order and strings are escaped the
+ * same way.
+ * <p>
+ * Usage: for each entry call {@link #beginEntry(CharSequence)}, then at most one of the value methods, then
+ * {@link #endEntry(Long)}. Finally call {@link #toByteArray()}.
+ */
+public class LwM2mJsonWriter {
+
+    private final Long baseTime;
+
+    private final JsonByteWriter writer = new JsonByteWriter();
+    private boolean firstEntry = true;
+
+    public LwM2mJsonWriter() {
+        this(null, null);
+    }
+
+    /**
+     * @param baseName the base name ("bn"), may be <code>null</code>
+     * @param baseTime the base time ("bt"), may be <code>null</code>
+     */
+    public LwM2mJsonWriter(String baseName, Long baseTime) {
+        this.baseTime = baseTime;
+        writer.writeAscii("{");
+        if (baseName != null) {
+            writer.writeAscii("\"bn\":");
+            writer.writeString(baseName);
+            writer.writeAscii(",");
+        }
+        writer.writeAscii("\"e\":[");
+    }
+
+    /**
+     * Starts a new entry.
+     *
+     * @param name the name of the entry ("n")
+     */
+    public void beginEntry(CharSequence name) {
+        if (!firstEntry) {
+            writer.write(',');
+        }
+        firstEntry = false;
+        writer.writeAscii("{\"n\":");
+        writer.writeString(name);
+    }
+
+    /**
+     * Writes a string value ("sv").
+     */
+    public void stringValue(String value) {
+        writer.writeAscii(",\"sv\":");
+        writer.writeString(value);
+    }
+
+    /**
+     * Writes a numeric value ("v").
+     *
+     * @throws IllegalArgumentException if the value is NaN or infinite
+     */
+    public void numberValue(Number value) {
+        double d = value.doubleValue();
+        if (Double.isNaN(d) || Double.isInfinite(d)) {
+            throw new IllegalArgumentException(value + " is not a valid double value as per JSON specification");
+        }
+        writer.writeAscii(",\"v\":");
+        writer.writeNumber(value);
+    }
+
+    /**
+     * Writes an integer value ("v").
+     */
+    public void numberValue(long value) {
+        writer.writeAscii(",\"v\":");
+        writer.writeLong(value);
+    }
+
+    /**
+     * Writes a boolean value ("bv").
+     */
+    public void booleanValue(boolean value) {
+        writer.writeAscii(value ? ",\"bv\":true" : ",\"bv\":false");
+    }
+
+    /**
+     * Ends the current entry.
+     *
+     * @param time the time of the entry ("t"), may be <code>null</code>
+     */
+    public void endEntry(Long time) {
+        if (time != null) {
+            writer.writeAscii(",\"t\":");
+            writer.writeLong(time);
+        }
+        writer.write('}');
+    }
+
+    /**
+     * @return the JSON document
+     */
+    public byte[] toByteArray() {
+        int entriesEnd = writer.size();
+        writer.writeAscii("]");
+        if (baseTime != null) {
+            writer.writeAscii(",\"bt\":");
+            writer.writeLong(baseTime);
+        }
+        writer.writeAscii("}");
+        byte[] result = writer.toByteArray();
+        // the writer can still be used to add entries
+        writer.truncate(entriesEnd);
+        return result;
+    }
+}
@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.senml;
+
+import org.eclipse.leshan.core.model.ResourceModel.Type;
+
+/**
+ * The base fields of a SenML pack, which apply to the record they appear in and to the following ones.
+ */
+class BaseFields {
+
+    private String baseName;
+    private Long baseTime;
+
+    /**
+     * Updates the base fields with the ones of a record and gives the resolved record to the handler.
+     */
+    void resolve(SenMLReader.Handler handler, String baseName, Long baseTime, String name, Object value, Type type,
+            Long time) {
+        if (baseName != null) {
+            this.baseName = baseName;
+        }
+        if (baseTime != null) {
+            this.baseTime = baseTime;
+        }
+
+        String resolvedName;
+        if (this.baseName == null) {
+            resolvedName = name != null ? name : "";
+        } else {
+            resolvedName = name != null ? this.baseName + name : this.baseName;
+        }
+
+        Long resolvedTime;
+        if (this.baseTime == null) {
+            resolvedTime = time;
+        } else {
+            resolvedTime = time != null ? this.baseTime + time : this.baseTime;
+        }
+        handler.onRecord(resolvedName, value, type, resolvedTime);
+    }
+}
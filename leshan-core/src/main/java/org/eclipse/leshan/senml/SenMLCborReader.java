@@ -0,0 +1,361 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.senml;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.eclipse.leshan.core.model.ResourceModel.Type;
+
+/**
+ * Reader for the SenML CBOR representation (application/senml+cbor).
+ * <p>
+ * The content is read in a single pass, only the subset of CBOR used by SenML is decoded: unknown fields are skipped
+ * whatever their content. Fractional times are truncated to the second.
+ */
+public class SenMLCborReader implements SenMLReader {
+
+    // labels of the SenML CBOR representation (RFC 8428, table 4)
+    static final int BASE_NAME = -2;
+    static final int BASE_TIME = -3;
+    static final int NAME = 0;
+    static final int VALUE = 2;
+    static final int STRING_VALUE = 3;
+    static final int BOOLEAN_VALUE = 4;
+    static final int TIME = 6;
+    static final int DATA_VALUE = 8;
+    // label used by LWM2M for object link values
+    static final String OBJLNK_VALUE = "vlo";
+
+    // CBOR major types
+    static final int UNSIGNED_INTEGER = 0;
+    static final int NEGATIVE_INTEGER = 1;
+    static final int BYTE_STRING = 2;
+    static final int TEXT_STRING = 3;
+    static final int ARRAY = 4;
+    static final int MAP = 5;
+    static final int TAG = 6;
+    static final int SIMPLE_AND_FLOAT = 7;
+
+    static final int INDEFINITE = 31;
+    static final int BREAK = 0xFF;
+
+    // maximum nesting of the skipped values
+    private static final int MAX_DEPTH = 32;
+
+    @Override
+    public void read(byte[] content, Handler handler) throws SenMLException {
+        Cursor cursor = new Cursor(content);
+        BaseFields base = new BaseFields();
+
+        long records = cursor.readHeader(ARRAY);
+        for (long i = 0; records < 0 ? !cursor.consumeBreak() : i < records; i++) {
+            readRecord(cursor, base, handler);
+        }
+        if (cursor.pos != content.length) {
+            throw cursor.error("unexpected content after the pack");
+        }
+    }
+
+    private void readRecord(Cursor cursor, BaseFields base, Handler handler) throws SenMLException {
+        String baseName = null;
+        Long baseTime = null;
+        String name = null;
+        Long time = null;
+        Object value = null;
+        Type type = null;
+
+        long fields = cursor.readHeader(MAP);
+        for (long i = 0; fields < 0 ? !cursor.consumeBreak() : i < fields; i++) {
+            Object label = cursor.readItem();
+            if (label instanceof Long && (Long) label == ((Long) label).intValue()) {
+                switch (((Long) label).intValue()) {
+                case BASE_NAME:
+                    baseName = cursor.readItem(String.class);
+                    break;
+                case BASE_TIME:
+                    baseTime = toTime(cursor.readItem(Number.class));
+                    break;
+                case NAME:
+                    name = cursor.readItem(String.class);
+                    break;
+                case TIME:
+                    time = toTime(cursor.readItem(Number.class));
+                    break;
+                case VALUE:
+                    value = cursor.readItem(Number.class);
+                    type = Type.FLOAT;
+                    break;
+                case STRING_VALUE:
+                    value = cursor.readItem(String.class);
+                    type = Type.STRING;
+                    break;
+                case BOOLEAN_VALUE:
+                    value = cursor.readItem(Boolean.class);
+                    type = Type.BOOLEAN;
+                    break;
+                case DATA_VALUE:
+                    value = cursor.readItem(byte[].class);
+                    type = Type.OPAQUE;
+                    break;
+                default:
+                    cursor.skip(0);
+                }
+            } else if (OBJLNK_VALUE.equals(label)) {
+                value = cursor.readItem(String.class);
+                type = Type.OBJLNK;
+            } else {
+                cursor.skip(0);
+            }
+        }
+        if (value == null) {
+            type = null;
+        }
+        base.resolve(handler, baseName, baseTime, name, value, type, time);
+    }
+
+    private static Long toTime(Number time) {
+        return time == null ? null : time.longValue();
+    }
+
+    /**
+     * A position in a CBOR encoded content.
+     */
+    private static class Cursor {
+        private final byte[] data;
+        private int pos;
+
+        private Cursor(byte[] data) {
+            this.data = data;
+            this.pos = 0;
+        }
+
+        /**
+         * Reads the header of an array or a map.
+         *
+         * @return the number of elements, -1 if the length is indefinite
+         */
+        private long readHeader(int majorType) throws SenMLException {
+            int initialByte = readByte();
+            if (initialByte >>> 5 != majorType) {
+                throw error(majorType == ARRAY ? "array expected" : "map expected");
+            }
+            return readArgument(initialByte & 0x1F);
+        }
+
+        private boolean consumeBreak() throws SenMLException {
+            if (pos >= data.length) {
+                throw error("break expected");
+            }
+            if ((data[pos] & 0xFF) == BREAK) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Reads a scalar item of the given class, <code>null</code> and <code>undefined</code> are accepted.
+         */
+        private <T> T readItem(Class<T> expectedClass) throws SenMLException {
+            int start = pos;
+            Object item = readItem();
+            if (item != null && !expectedClass.isInstance(item)) {
+                pos = start;
+                throw error(expectedClass.getSimpleName() + " expected");
+            }
+            return expectedClass.cast(item);
+        }
+
+        /**
+         * Reads a scalar item: a {@link Long}, a {@link Double}, a {@link Float}, a {@link String}, a byte array, a
+         * {@link Boolean} or <code>null</code>. Tags are ignored.
+         */
+        private Object readItem() throws SenMLException {
+            int initialByte = readByte();
+            int majorType = initialByte >>> 5;
+            int info = initialByte & 0x1F;
+            switch (majorType) {
+            case UNSIGNED_INTEGER:
+                long unsigned = readArgument(info);
+                if (unsigned < 0) {
+                    throw error("integer too large");
+                }
+                return unsigned;
+            case NEGATIVE_INTEGER:
+                long negative = readArgument(info);
+                if (negative < 0) {
+                    throw error("integer too large");
+                }
+                return -1 - negative;
+            case BYTE_STRING:
+                return readBytes(majorType, info);
+            case TEXT_STRING:
+                return new String(readBytes(majorType, info), StandardCharsets.UTF_8);
+            case TAG:
+                readArgument(info);
+                return readItem();
+            case SIMPLE_AND_FLOAT:
+                switch (info) {
+                case 20:
+                    return false;
+                case 21:
+                    return true;
+                case 22:
+                case 23:
+                    // null and undefined
+                    return null;
+                case 25:
+                    return halfToFloat((int) readUnsigned(2));
+                case 26:
+                    return Float.intBitsToFloat((int) readUnsigned(4));
+                case 27:
+                    return Double.longBitsToDouble(readUnsigned(8));
+                default:
+                    throw error("unsupported simple value " + info);
+                }
+            default:
+                throw error("scalar value expected");
+            }
+        }
+
+        /**
+         * Skips a whole item, including the content of arrays and maps.
+         */
+        private void skip(int depth) throws SenMLException {
+            if (depth > MAX_DEPTH) {
+                throw error("too many nested values");
+            }
+            if (pos >= data.length) {
+                throw error("value expected");
+            }
+            int initialByte = data[pos] & 0xFF;
+            int majorType = initialByte >>> 5;
+            if (majorType == ARRAY || majorType == MAP) {
+                pos++;
+                long length = readArgument(initialByte & 0x1F);
+                int itemsPerElement = majorType == MAP ? 2 : 1;
+                for (long i = 0; length < 0 ? !consumeBreak() : i < length; i++) {
+                    for (int j = 0; j < itemsPerElement; j++) {
+                        skip(depth + 1);
+                    }
+                }
+            } else if (majorType == TAG) {
+                pos++;
+                readArgument(initialByte & 0x1F);
+                skip(depth + 1);
+            } else {
+                readItem();
+            }
+        }
+
+        private byte[] readBytes(int majorType, int info) throws SenMLException {
+            long length = readArgument(info);
+            if (length >= 0) {
+                int end = checkAvailable(length);
+                byte[] bytes = Arrays.copyOfRange(data, pos, end);
+                pos = end;
+                return bytes;
+            }
+            // indefinite length: concatenate the definite length chunks
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            while (!consumeBreak()) {
+                int chunkByte = readByte();
+                if (chunkByte >>> 5 != majorType) {
+                    throw error("invalid chunk in indefinite length string");
+                }
+                long chunkLength = readArgument(chunkByte & 0x1F);
+                if (chunkLength < 0) {
+                    throw error("invalid chunk in indefinite length string");
+                }
+                int end = checkAvailable(chunkLength);
+                bytes.write(data, pos, end - pos);
+                pos = end;
+            }
+            return bytes.toByteArray();
+        }
+
+        /**
+         * @return the argument of a data item, -1 for an indefinite length (a negative value for unsigned integers
+         *         larger than {@link Long#MAX_VALUE})
+         */
+        private long readArgument(int info) throws SenMLException {
+            if (info < 24) {
+                return info;
+            }
+            switch (info) {
+            case 24:
+                return readUnsigned(1);
+            case 25:
+                return readUnsigned(2);
+            case 26:
+                return readUnsigned(4);
+            case 27:
+                return readUnsigned(8);
+            case INDEFINITE:
+                return -1;
+            default:
+                throw error("invalid additional information " + info);
+            }
+        }
+
+        private long readUnsigned(int size) throws SenMLException {
+            int end = checkAvailable(size);
+            long value = 0;
+            for (int i = pos; i < end; i++) {
+                value = value << 8 | (data[i] & 0xFF);
+            }
+            pos = end;
+            return value;
+        }
+
+        private int readByte() throws SenMLException {
+            if (pos >= data.length) {
+                throw error("unexpected end of content");
+            }
+            return data[pos++] & 0xFF;
+        }
+
+        private int checkAvailable(long length) throws SenMLException {
+            if (length > data.length - pos) {
+                throw error("unexpected end of content");
+            }
+            return pos + (int) length;
+        }
+
+        private SenMLException error(String message) {
+            return new SenMLException(String.format("Invalid SenML CBOR at offset %d: %s", pos, message));
+        }
+    }
+
+    /**
+     * Converts an IEEE 754 half-precision float.
+     */
+    private static float halfToFloat(int half) {
+        int exponent = (half >> 10) & 0x1F;
+        int mantissa = half & 0x3FF;
+        float value;
+        if (exponent == 0) {
+            value = mantissa * (float) Math.pow(2, -24);
+        } else if (exponent == 31) {
+            value = mantissa == 0 ? Float.POSITIVE_INFINITY : Float.NaN;
+        } else {
+            value = (mantissa + 1024) * (float) Math.pow(2, exponent - 25);
+        }
+        return (half & 0x8000) == 0 ? value : -value;
+    }
+}
@@ -0,0 +1,270 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.senml;
+
+import static org.eclipse.leshan.senml.SenMLCborReader.ARRAY;
+import static org.eclipse.leshan.senml.SenMLCborReader.BASE_NAME;
+import static org.eclipse.leshan.senml.SenMLCborReader.BASE_TIME;
+import static org.eclipse.leshan.senml.SenMLCborReader.BOOLEAN_VALUE;
+import static org.eclipse.leshan.senml.SenMLCborReader.BYTE_STRING;
+import static org.eclipse.leshan.senml.SenMLCborReader.DATA_VALUE;
+import static org.eclipse.leshan.senml.SenMLCborReader.MAP;
+import static org.eclipse.leshan.senml.SenMLCborReader.NAME;
+import static org.eclipse.leshan.senml.SenMLCborReader.NEGATIVE_INTEGER;
+import static org.eclipse.leshan.senml.SenMLCborReader.OBJLNK_VALUE;
+import static org.eclipse.leshan.senml.SenMLCborReader.SIMPLE_AND_FLOAT;
+import static org.eclipse.leshan.senml.SenMLCborReader.STRING_VALUE;
+import static org.eclipse.leshan.senml.SenMLCborReader.TEXT_STRING;
+import static org.eclipse.leshan.senml.SenMLCborReader.UNSIGNED_INTEGER;
+import static org.eclipse.leshan.senml.SenMLCborReader.VALUE;
+
+import java.util.Arrays;
+
+/**
+ * Writer for the SenML CBOR representation (application/senml+cbor).
+ * <p>
+ * Records are written directly into a byte array, as maps of definite length with the integer labels of RFC 8428.
+ * Integers use the shortest encoding and floating point values are written in single precision when it is lossless.
+ */
+public class SenMLCborWriter implements SenMLWriter {
+
+    // room for the header of the array of records, written at the end
+    private static final int HEADER_SIZE = 9;
+
+    private byte[] buffer = new byte[256];
+    private int count = HEADER_SIZE;
+    private int records = 0;
+
+    // current record
+    private int recordStart;
+    private int fields;
+
+    @Override
+    public void beginRecord() {
+        records++;
+        // the map header is written at the end of the record
+        ensureCapacity(1);
+        recordStart = count++;
+        fields = 0;
+    }
+
+    @Override
+    public void baseName(String baseName) {
+        label(BASE_NAME);
+        writeText(baseName);
+    }
+
+    @Override
+    public void baseTime(long baseTime) {
+        label(BASE_TIME);
+        writeInteger(baseTime);
+    }
+
+    @Override
+    public void name(CharSequence name) {
+        label(NAME);
+        writeText(name);
+    }
+
+    @Override
+    public void numberValue(Number value) {
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            numberValue(value.longValue());
+            return;
+        }
+        double d = value.doubleValue();
+        if (Double.isNaN(d) || Double.isInfinite(d)) {
+            throw new IllegalArgumentException(value + " is not a valid SenML value");
+        }
+        label(VALUE);
+        float f = (float) d;
+        ensureCapacity(9);
+        if (f == d) {
+            buffer[count++] = (byte) (SIMPLE_AND_FLOAT << 5 | 26);
+            writeUnsigned(Float.floatToIntBits(f), 4);
+        } else {
+            buffer[count++] = (byte) (SIMPLE_AND_FLOAT << 5 | 27);
+            writeUnsigned(Double.doubleToLongBits(d), 8);
+        }
+    }
+
+    @Override
+    public void numberValue(long value) {
+        label(VALUE);
+        writeInteger(value);
+    }
+
+    @Override
+    public void stringValue(String value) {
+        label(STRING_VALUE);
+        writeText(value);
+    }
+
+    @Override
+    public void booleanValue(boolean value) {
+        label(BOOLEAN_VALUE);
+        ensureCapacity(1);
+        buffer[count++] = (byte) (SIMPLE_AND_FLOAT << 5 | (value ? 21 : 20));
+    }
+
+    @Override
+    public void opaqueValue(byte[] value) {
+        label(DATA_VALUE);
+        writeHeader(BYTE_STRING, value.length);
+        ensureCapacity(value.length);
+        System.arraycopy(value, 0, buffer, count, value.length);
+        count += value.length;
+    }
+
+    @Override
+    public void objlnkValue(String value) {
+        fields++;
+        writeText(OBJLNK_VALUE);
+        writeText(value);
+    }
+
+    @Override
+    public void endRecord() {
+        if (fields > 23) {
+            throw new IllegalStateException("Too many fields in the record");
+        }
+        buffer[recordStart] = (byte) (MAP << 5 | fields);
+    }
+
+    @Override
+    public byte[] toByteArray() {
+        // write the array header just before the records
+        int end = count;
+        int start = HEADER_SIZE - headerSize(records);
+        count = start;
+        writeHeader(ARRAY, records);
+        count = end;
+        return Arrays.copyOfRange(buffer, start, end);
+    }
+
+    private void label(int label) {
+        fields++;
+        writeInteger(label);
+    }
+
+    private void writeInteger(long value) {
+        if (value >= 0) {
+            writeHeader(UNSIGNED_INTEGER, value);
+        } else {
+            writeHeader(NEGATIVE_INTEGER, -1 - value);
+        }
+    }
+
+    private void writeText(CharSequence s) {
+        int length = s.length();
+        int utf8Length = 0;
+        for (int i = 0; i < length; i++) {
+            char ch = s.charAt(i);
+            if (ch < 0x80) {
+                utf8Length++;
+            } else if (ch < 0x800) {
+                utf8Length += 2;
+            } else if (Character.isHighSurrogate(ch) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                utf8Length += 4;
+                i++;
+            } else if (Character.isSurrogate(ch)) {
+                utf8Length++;
+            } else {
+                utf8Length += 3;
+            }
+        }
+        writeHeader(TEXT_STRING, utf8Length);
+        ensureCapacity(utf8Length);
+
+        byte[] b = buffer;
+        int c = count;
+        for (int i = 0; i < length; i++) {
+            char ch = s.charAt(i);
+            if (ch < 0x80) {
+                b[c++] = (byte) ch;
+            } else if (ch < 0x800) {
+                b[c++] = (byte) (0xC0 | ch >> 6);
+                b[c++] = (byte) (0x80 | ch & 0x3F);
+            } else if (Character.isHighSurrogate(ch) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(ch, s.charAt(++i));
+                b[c++] = (byte) (0xF0 | cp >> 18);
+                b[c++] = (byte) (0x80 | cp >> 12 & 0x3F);
+                b[c++] = (byte) (0x80 | cp >> 6 & 0x3F);
+                b[c++] = (byte) (0x80 | cp & 0x3F);
+            } else if (Character.isSurrogate(ch)) {
+                // unpaired surrogate, replaced like String.getBytes() does
+                b[c++] = '?';
+            } else {
+                b[c++] = (byte) (0xE0 | ch >> 12);
+                b[c++] = (byte) (0x80 | ch >> 6 & 0x3F);
+                b[c++] = (byte) (0x80 | ch & 0x3F);
+            }
+        }
+        count = c;
+    }
+
+    /**
+     * Writes the initial byte and the argument of a data item, in the shortest form.
+     */
+    private void writeHeader(int majorType, long argument) {
+        ensureCapacity(9);
+        int size = headerSize(argument);
+        switch (size) {
+        case 1:
+            buffer[count++] = (byte) (majorType << 5 | (int) argument);
+            break;
+        case 2:
+            buffer[count++] = (byte) (majorType << 5 | 24);
+            break;
+        case 3:
+            buffer[count++] = (byte) (majorType << 5 | 25);
+            break;
+        case 5:
+            buffer[count++] = (byte) (majorType << 5 | 26);
+            break;
+        default:
+            buffer[count++] = (byte) (majorType << 5 | 27);
+            break;
+        }
+        writeUnsigned(argument, size - 1);
+    }
+
+    private static int headerSize(long argument) {
+        if (argument < 24) {
+            return 1;
+        } else if (argument <= 0xFFL) {
+            return 2;
+        } else if (argument <= 0xFFFFL) {
+            return 3;
+        } else if (argument <= 0xFFFFFFFFL) {
+            return 5;
+        } else {
+            return 9;
+        }
+    }
+
+    private void writeUnsigned(long value, int size) {
+        for (int i = size - 1; i >= 0; i--) {
+            buffer[count++] = (byte) (value >>> (8 * i));
+        }
+    }
+
+    private void ensureCapacity(int size) {
+        if (count + size > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, count + size));
+        }
+    }
+}
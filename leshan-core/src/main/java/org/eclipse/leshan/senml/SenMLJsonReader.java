@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.senml;
+
+import org.eclipse.leshan.core.model.ResourceModel.Type;
+import org.eclipse.leshan.json.JsonByteReader;
+import org.eclipse.leshan.json.LwM2mJsonException;
+import org.eclipse.leshan.util.Base64;
+
+/**
+ * Reader for the SenML JSON representation (application/senml+json).
+ * <p>
+ * The content is read in a single pass directly from its UTF-8 bytes. Unknown fields are ignored. Fractional times
+ * are truncated to the second.
+ */
+public class SenMLJsonReader implements SenMLReader {
+
+    // fields of the SenML JSON representation, the index is the key returned by JsonByteReader.readKey()
+    private static final String[] KEYS = { "bn", "bt", "n", "t", "v", "vs", "vb", "vd", "vlo" };
+    private static final int BASE_NAME = 0;
+    private static final int BASE_TIME = 1;
+    private static final int NAME = 2;
+    private static final int TIME = 3;
+    private static final int VALUE = 4;
+    private static final int STRING_VALUE = 5;
+    private static final int BOOLEAN_VALUE = 6;
+    private static final int DATA_VALUE = 7;
+    private static final int OBJLNK_VALUE = 8;
+
+    @Override
+    public void read(byte[] content, Handler handler) throws SenMLException {
+        JsonByteReader reader = new JsonByteReader("SenML JSON", content);
+        BaseFields base = new BaseFields();
+        try {
+            reader.expect('[');
+            if (!reader.consume(']')) {
+                do {
+                    readRecord(reader, base, handler);
+                } while (reader.nextMember(']'));
+            }
+            reader.expectEnd();
+        } catch (LwM2mJsonException e) {
+            throw new SenMLException(e.getMessage(), e);
+        }
+    }
+
+    private void readRecord(JsonByteReader reader, BaseFields base, Handler handler) throws LwM2mJsonException {
+        String baseName = null;
+        Long baseTime = null;
+        String name = null;
+        Long time = null;
+        Object value = null;
+        Type type = null;
+
+        reader.expect('{');
+        if (!reader.consume('}')) {
+            do {
+                int key = reader.readKey(KEYS);
+                if (key != -1 && reader.consumeNull()) {
+                    continue;
+                }
+                switch (key) {
+                case BASE_NAME:
+                    baseName = reader.readString();
+                    break;
+                case BASE_TIME:
+                    baseTime = reader.readNumber().longValue();
+                    break;
+                case NAME:
+                    name = reader.readString();
+                    break;
+                case TIME:
+                    time = reader.readNumber().longValue();
+                    break;
+                case VALUE:
+                    value = reader.readNumber();
+                    type = Type.FLOAT;
+                    break;
+                case STRING_VALUE:
+                    value = reader.readString();
+                    type = Type.STRING;
+                    break;
+                case BOOLEAN_VALUE:
+                    value = reader.readBoolean();
+                    type = Type.BOOLEAN;
+                    break;
+                case DATA_VALUE:
+                    // base64url in SenML, the decoder also accepts the standard alphabet
+                    value = Base64.decodeBase64(reader.readString());
+                    type = Type.OPAQUE;
+                    break;
+                case OBJLNK_VALUE:
+                    value = reader.readString();
+                    type = Type.OBJLNK;
+                    break;
+                default:
+                    reader.skipValue();
+                }
+            } while (reader.nextMember('}'));
+        }
+        base.resolve(handler, baseName, baseTime, name, value, type, time);
+    }
+}
@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.senml;
+
+import org.eclipse.leshan.json.JsonByteWriter;
+import org.eclipse.leshan.util.Base64;
+
+/**
+ * Writer for the SenML JSON representation (application/senml+json).
+ * <p>
+ * Records are written directly in UTF-8 into a byte array, in the order they are given.
+ */
+public class SenMLJsonWriter implements SenMLWriter {
+
+    private final JsonByteWriter writer = new JsonByteWriter();
+    private boolean firstField;
+
+    public SenMLJsonWriter() {
+        writer.write('[');
+    }
+
+    @Override
+    public void beginRecord() {
+        if (writer.size() > 1) {
+            writer.write(',');
+        }
+        writer.write('{');
+        firstField = true;
+    }
+
+    private void field(String key) {
+        if (!firstField) {
+            writer.write(',');
+        }
+        firstField = false;
+        writer.writeAscii(key);
+    }
+
+    @Override
+    public void baseName(String baseName) {
+        field("\"bn\":");
+        writer.writeString(baseName);
+    }
+
+    @Override
+    public void baseTime(long baseTime) {
+        field("\"bt\":");
+        writer.writeLong(baseTime);
+    }
+
+    @Override
+    public void name(CharSequence name) {
+        field("\"n\":");
+        writer.writeString(name);
+    }
+
+    @Override
+    public void numberValue(Number value) {
+        double d = value.doubleValue();
+        if (Double.isNaN(d) || Double.isInfinite(d)) {
+            throw new IllegalArgumentException(value + " is not a valid double value as per JSON specification");
+        }
+        field("\"v\":");
+        writer.writeNumber(value);
+    }
+
+    @Override
+    public void numberValue(long value) {
+        field("\"v\":");
+        writer.writeLong(value);
+    }
+
+    @Override
+    public void stringValue(String value) {
+        field("\"vs\":");
+        writer.writeString(value);
+    }
+
+    @Override
+    public void booleanValue(boolean value) {
+        field(value ? "\"vb\":true" : "\"vb\":false");
+    }
+
+    @Override
+    public void opaqueValue(byte[] value) {
+        field("\"vd\":");
+        writer.writeString(Base64.encodeBase64URLSafeString(value));
+    }
+
+    @Override
+    public void objlnkValue(String value) {
+        field("\"vlo\":");
+        writer.writeString(value);
+    }
+
+    @Override
+    public void endRecord() {
+        writer.write('}');
+    }
+
+    @Override
+    public byte[] toByteArray() {
+        int recordsEnd = writer.size();
+        writer.write(']');
+        byte[] result = writer.toByteArray();
+        // the writer can still be used to add records
+        writer.truncate(recordsEnd);
+        return result;
+    }
+}
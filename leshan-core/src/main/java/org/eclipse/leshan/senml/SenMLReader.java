@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.senml;
+
+import org.eclipse.leshan.core.model.ResourceModel.Type;
+
+/**
+ * Streaming reader for a SenML representation (RFC 8428).
+ * <p>
+ * Each record of the pack is given to a {@link Handler} as soon as it is read, with its base fields already resolved.
+ * Implementations are stateless and can be shared.
+ */
+public interface SenMLReader {
+
+    /**
+     * Receives the records of a SenML pack.
+     */
+    interface Handler {
+
+        /**
+         * Called for each record of the pack.
+         *
+         * @param name the resolved name of the record (base name and name concatenated), never <code>null</code>
+         * @param value the value of the record: a {@link Number} ("v"), a {@link String} ("vs" or "vlo"), a
+         *        {@link Boolean} ("vb") or a byte array ("vd"), <code>null</code> if the record has no value
+         * @param type the type given by the field of the value: {@link Type#FLOAT} for "v", {@link Type#STRING} for
+         *        "vs", {@link Type#BOOLEAN} for "vb", {@link Type#OPAQUE} for "vd", {@link Type#OBJLNK} for "vlo" and
+         *        <code>null</code> if the record has no value
+         * @param time the resolved time of the record in seconds (base time and time added), <code>null</code> if the
+         *        record has neither a base time nor a time
+         */
+        void onRecord(String name, Object value, Type type, Long time);
+    }
+
+    /**
+     * Reads a SenML pack.
+     *
+     * @param content the encoded pack
+     * @param handler receives the records of the pack
+     * @throws SenMLException if the content is not a valid SenML pack
+     */
+    void read(byte[] content, Handler handler) throws SenMLException;
+}
@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.senml;
+
+/**
+ * Streaming writer for a SenML representation (RFC 8428).
+ * <p>
+ * Usage: for each record call {@link #beginRecord()}, then the field methods in any order and at most one value
+ * method, then {@link #endRecord()}. Finally call {@link #toByteArray()}. A writer is not thread-safe.
+ */
+public interface SenMLWriter {
+
+    void beginRecord();
+
+    /**
+     * Writes the base name ("bn") of the current record.
+     */
+    void baseName(String baseName);
+
+    /**
+     * Writes the base time ("bt") of the current record, in seconds.
+     */
+    void baseTime(long baseTime);
+
+    /**
+     * Writes the name ("n") of the current record.
+     */
+    void name(CharSequence name);
+
+    /**
+     * Writes a numeric value ("v").
+     *
+     * @throws IllegalArgumentException if the value is NaN or infinite
+     */
+    void numberValue(Number value);
+
+    /**
+     * Writes an integer value ("v").
+     */
+    void numberValue(long value);
+
+    /**
+     * Writes a string value ("vs").
+     */
+    void stringValue(String value);
+
+    /**
+     * Writes a boolean value ("vb").
+     */
+    void booleanValue(boolean value);
+
+    /**
+     * Writes a data value ("vd").
+     */
+    void opaqueValue(byte[] value);
+
+    /**
+     * Writes an object link value ("vlo"), in the "objectId:instanceId" form.
+     */
+    void objlnkValue(String value);
+
+    void endRecord();
+
+    /**
+     * @return the encoded pack
+     */
+    byte[] toByteArray();
+}
@@ -16,8 +16,6 @@
 package org.eclipse.leshan.tlv;
 
 import java.math.BigInteger;
-import java.nio.BufferOverflowException;
-import java.nio.BufferUnderflowException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
 import java.nio.charset.StandardCharsets;
@@ -35,118 +33,52 @@ public class TlvDecoder {
 
     private static final Logger LOG = LoggerFactory.getLogger(TlvDecoder.class);
 
-    public static Tlv[] decode(ByteBuffer input) throws TlvException {
+    // maximum number of bytes dumped in the message of a parse error
+    private static final int MAX_DUMP_LENGTH = 64;
 
+    /**
+     * Decodes all the TLVs between the position and the limit of the given buffer. The position of the buffer is
+     * moved to its limit.
+     * <p>
+     * Values are copied in the returned TLVs. Use a {@link TlvReader} to read values directly from the buffer.
+     */
+    public static Tlv[] decode(ByteBuffer input) throws TlvException {
         try {
-            List<Tlv> tlvs = new ArrayList<>();
-
-            while (input.remaining() > 0) {
-                input.order(ByteOrder.BIG_ENDIAN);
-
-                // decode type
-                int typeByte = input.get() & 0xFF;
-                TlvType type;
-                switch (typeByte & 0b1100_0000) {
-                case 0b0000_0000:
-                    type = TlvType.OBJECT_INSTANCE;
-                    break;
-                case 0b0100_0000:
-                    type = TlvType.RESOURCE_INSTANCE;
-                    break;
-                case 0b1000_0000:
-                    type = TlvType.MULTIPLE_RESOURCE;
-                    break;
-                case 0b1100_0000:
-                    type = TlvType.RESOURCE_VALUE;
-                    break;
-                default:
-                    throw new TlvException("unknown type: " + (typeByte & 0b1100_0000));
-                }
-
-                // decode identifier
-                int identifier;
-                try {
-                    if ((typeByte & 0b0010_0000) == 0) {
-                        identifier = input.get() & 0xFF;
-                    } else {
-                        identifier = input.getShort() & 0xFFFF;
-                    }
-                } catch (BufferUnderflowException e) {
-                    throw new TlvException("Invalid 'identifier' length", e);
-                }
-                LOG.trace("decoding {} {}", type, identifier);
-
-                // decode length
-                int length;
-                int lengthType = typeByte & 0b0001_1000;
-                try {
-                    switch (lengthType) {
-                    case 0b0000_0000:
-                        // 2 bit length
-                        length = typeByte & 0b0000_0111;
-                        break;
-                    case 0b0000_1000:
-                        // 8 bit length
-                        length = input.get() & 0xFF;
-                        break;
-                    case 0b0001_0000:
-                        // 16 bit length
-                        length = input.getShort() & 0xFFFF;
-                        break;
-                    case 0b0001_1000:
-                        // 24 bit length
-                        int b = input.get() & 0x000000FF;
-                        int s = input.getShort() & 0x0000FFFF;
-                        length = (b << 16) | s;
-                        break;
-                    default:
-                        throw new TlvException("unknown length type: " + (typeByte & 0b0001_1000));
-                    }
-                } catch (BufferUnderflowException e) {
-                    throw new TlvException("Invalid 'length' length", e);
-                }
-                LOG.trace("length: {} (length type: {})", length, lengthType);
-
-                // decode value
-                if (type == TlvType.RESOURCE_VALUE || type == TlvType.RESOURCE_INSTANCE) {
-                    try {
-                        byte[] payload = new byte[length];
-                        input.get(payload);
-                        tlvs.add(new Tlv(type, null, payload, identifier));
-
-                        if (LOG.isTraceEnabled()) {
-                            LOG.trace("payload value: {}", Hex.encodeHexString(payload));
-                        }
-                    } catch (BufferOverflowException e) {
-                        throw new TlvException("Invalid 'value' length", e);
-                    }
-                } else {
-                    try {
-                        // create a view of the contained TLVs
-                        ByteBuffer slice = input.slice();
-                        slice.limit(length);
-
-                        Tlv[] children = decode(slice);
+            Tlv[] tlvs = decode(new TlvReader(input));
+            input.position(input.limit());
+            return tlvs;
+        } catch (TlvException ex) {
+            throw new TlvException("Impossible to parse TLV: \n" + dump(input), ex);
+        } catch (RuntimeException ex) {
+            throw new TlvException("Unexpected TLV parse error: \n" + dump(input), ex);
+        }
+    }
 
-                        // skip the children, it will be decoded by the view
-                        input.position(input.position() + length);
+    private static Tlv[] decode(TlvReader reader) throws TlvException {
+        List<Tlv> tlvs = new ArrayList<>();
+        while (reader.next()) {
+            if (reader.getType() == TlvType.RESOURCE_VALUE || reader.getType() == TlvType.RESOURCE_INSTANCE) {
+                byte[] payload = reader.readOpaque();
+                tlvs.add(new Tlv(reader.getType(), null, payload, reader.getIdentifier()));
 
-                        Tlv tlv = new Tlv(type, children, null, identifier);
-                        tlvs.add(tlv);
-                    } catch (IllegalArgumentException e) {
-                        throw new TlvException("Invalid 'value' length", e);
-                    }
+                if (LOG.isTraceEnabled()) {
+                    LOG.trace("payload value: {}", Hex.encodeHexString(payload));
                 }
+            } else {
+                tlvs.add(new Tlv(reader.getType(), decode(reader.getChildren()), null, reader.getIdentifier()));
             }
+        }
+        return tlvs.toArray(new Tlv[tlvs.size()]);
+    }
 
-            return tlvs.toArray(new Tlv[] {});
-        } catch (TlvException ex) {
-            String printHexBinary = Hex.encodeHexString(input.array());
-            throw new TlvException("Impossible to parse TLV: \n" + printHexBinary, ex);
-        } catch (RuntimeException ex) {
-            String printHexBinary = Hex.encodeHexString(input.array());
-            throw new TlvException("Unexpected TLV parse error: \n" + printHexBinary, ex);
+    private static String dump(ByteBuffer input) {
+        int length = Math.min(input.limit(), MAX_DUMP_LENGTH);
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = input.get(i);
         }
+        String hex = Hex.encodeHexString(bytes);
+        return length < input.limit() ? hex + "..." : hex;
     }
 
     /**
@@ -0,0 +1,313 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.tlv;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.eclipse.leshan.core.node.ObjectLink;
+import org.eclipse.leshan.tlv.Tlv.TlvType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A cursor over the TLVs of a buffer.
+ * <p>
+ * The reader moves from one TLV to the next one at the same level with {@link #next()}. Only the header of each TLV
+ * is decoded, values are read on demand directly from the buffer and TLVs which are not read are simply skipped. The
+ * TLVs contained in a container (object instance or multiple resource) are read with the reader returned by
+ * {@link #getChildren()}.
+ * <p>
+ * The reader does not modify the position of the buffer it is created with and does not copy its content, so the
+ * buffer must not be modified while it is read.
+ */
+public class TlvReader {
+
+    private static final Logger LOG = LoggerFactory.getLogger(TlvReader.class);
+
+    private final ByteBuffer buffer;
+    private final int start;
+    private final int end;
+
+    // offset of the next TLV header
+    private int next;
+
+    // current TLV
+    private TlvType type;
+    private int identifier;
+    private int valueOffset;
+    private int length;
+
+    /**
+     * Creates a reader for the TLVs between the position and the limit of the given buffer.
+     */
+    public TlvReader(ByteBuffer input) {
+        this(input.duplicate().order(ByteOrder.BIG_ENDIAN), input.position(), input.limit());
+    }
+
+    private TlvReader(ByteBuffer buffer, int start, int end) {
+        this.buffer = buffer;
+        this.start = start;
+        this.end = end;
+        this.next = start;
+    }
+
+    /**
+     * Moves to the next TLV.
+     *
+     * @return <code>false</code> if there is no more TLV
+     * @throws TlvException if the header of the next TLV is invalid
+     */
+    public boolean next() throws TlvException {
+        if (next >= end) {
+            type = null;
+            return false;
+        }
+        int offset = next;
+
+        // decode type
+        int typeByte = buffer.get(offset++) & 0xFF;
+        switch (typeByte & 0b1100_0000) {
+        case 0b0000_0000:
+            type = TlvType.OBJECT_INSTANCE;
+            break;
+        case 0b0100_0000:
+            type = TlvType.RESOURCE_INSTANCE;
+            break;
+        case 0b1000_0000:
+            type = TlvType.MULTIPLE_RESOURCE;
+            break;
+        default:
+            type = TlvType.RESOURCE_VALUE;
+            break;
+        }
+
+        // decode identifier
+        int identifierSize = (typeByte & 0b0010_0000) == 0 ? 1 : 2;
+        if (offset + identifierSize > end) {
+            throw new TlvException("Invalid 'identifier' length at offset " + next);
+        }
+        identifier = identifierSize == 1 ? buffer.get(offset) & 0xFF : buffer.getShort(offset) & 0xFFFF;
+        offset += identifierSize;
+
+        // decode length
+        int lengthType = typeByte & 0b0001_1000;
+        int lengthSize = lengthType >> 3;
+        if (offset + lengthSize > end) {
+            throw new TlvException("Invalid 'length' length at offset " + next);
+        }
+        switch (lengthSize) {
+        case 0:
+            // 3 bit length
+            length = typeByte & 0b0000_0111;
+            break;
+        case 1:
+            // 8 bit length
+            length = buffer.get(offset) & 0xFF;
+            break;
+        case 2:
+            // 16 bit length
+            length = buffer.getShort(offset) & 0xFFFF;
+            break;
+        default:
+            // 24 bit length
+            length = (buffer.get(offset) & 0xFF) << 16 | buffer.getShort(offset + 1) & 0xFFFF;
+            break;
+        }
+        offset += lengthSize;
+
+        if (offset + length > end) {
+            throw new TlvException("Invalid 'value' length at offset " + next);
+        }
+        LOG.trace("decoding {} {}, length: {} (length type: {})", type, identifier, length, lengthType);
+
+        valueOffset = offset;
+        next = offset + length;
+        return true;
+    }
+
+    /**
+     * @return <code>true</code> if there is a TLV after the current one
+     */
+    public boolean hasNext() {
+        return next < end;
+    }
+
+    /**
+     * Moves back before the first TLV.
+     */
+    public void rewind() {
+        next = start;
+        type = null;
+    }
+
+    public TlvType getType() {
+        return type;
+    }
+
+    public int getIdentifier() {
+        return identifier;
+    }
+
+    /**
+     * @return the length of the value of the current TLV
+     */
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * @return a reader for the TLVs contained in the current TLV
+     */
+    public TlvReader getChildren() {
+        checkCurrent();
+        return new TlvReader(buffer, valueOffset, valueOffset + length);
+    }
+
+    /**
+     * @return a read-only view of the value of the current TLV
+     */
+    public ByteBuffer getValue() {
+        checkCurrent();
+        ByteBuffer value = buffer.asReadOnlyBuffer();
+        value.limit(valueOffset + length).position(valueOffset);
+        return value.slice();
+    }
+
+    /**
+     * @return a copy of the value of the current TLV
+     */
+    public byte[] readOpaque() {
+        checkCurrent();
+        if (buffer.hasArray()) {
+            int from = buffer.arrayOffset() + valueOffset;
+            return Arrays.copyOfRange(buffer.array(), from, from + length);
+        }
+        byte[] value = new byte[length];
+        for (int i = 0; i < length; i++) {
+            value[i] = buffer.get(valueOffset + i);
+        }
+        return value;
+    }
+
+    /**
+     * Reads the value of the current TLV as an UTF-8 string.
+     */
+    public String readString() {
+        checkCurrent();
+        if (buffer.hasArray()) {
+            return new String(buffer.array(), buffer.arrayOffset() + valueOffset, length, StandardCharsets.UTF_8);
+        }
+        return new String(readOpaque(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Reads the value of the current TLV as a signed integer.
+     *
+     * @return a {@link Byte}, {@link Short}, {@link Integer} or {@link Long} depending on the length of the value
+     */
+    public Number readInteger() throws TlvException {
+        checkCurrent();
+        if (length == 0 || length > 8) {
+            throw new TlvException("Invalid length for an integer value: " + length);
+        }
+        long value = readSigned();
+        if (length == 1) {
+            return (byte) value;
+        } else if (length <= 2) {
+            return (short) value;
+        } else if (length <= 4) {
+            return (int) value;
+        } else {
+            return value;
+        }
+    }
+
+    /**
+     * Reads the value of the current TLV as a float.
+     *
+     * @return a {@link Float} or a {@link Double} depending on the length of the value
+     */
+    public Number readFloat() throws TlvException {
+        checkCurrent();
+        if (length == 4) {
+            return buffer.getFloat(valueOffset);
+        } else if (length == 8) {
+            return buffer.getDouble(valueOffset);
+        } else {
+            throw new TlvException("Invalid length for a float value: " + length);
+        }
+    }
+
+    /**
+     * Reads the value of the current TLV as a boolean.
+     */
+    public boolean readBoolean() throws TlvException {
+        checkCurrent();
+        if (length == 1) {
+            byte value = buffer.get(valueOffset);
+            if (value == 0) {
+                return false;
+            } else if (value == 1) {
+                return true;
+            } else {
+                LOG.warn("Boolean value should be encoded as integer with value 0 or 1, not {}", value);
+                return false;
+            }
+        }
+        throw new TlvException("Invalid length for a boolean value: " + length);
+    }
+
+    /**
+     * Reads the value of the current TLV as a date (number of seconds since the epoch).
+     */
+    public Date readDate() throws TlvException {
+        checkCurrent();
+        if (length == 0 || length > 8) {
+            throw new TlvException("Invalid length for a time value: " + length);
+        }
+        return new Date(readSigned() * 1000L);
+    }
+
+    /**
+     * Reads the value of the current TLV as an object link.
+     */
+    public ObjectLink readObjlnk() throws TlvException {
+        checkCurrent();
+        if (length != 4) {
+            throw new TlvException("Invalid length for an objlnk value: " + length);
+        }
+        return new ObjectLink(buffer.getShort(valueOffset) & 0xFFFF, buffer.getShort(valueOffset + 2) & 0xFFFF);
+    }
+
+    private long readSigned() {
+        // the first byte gives the sign
+        long value = buffer.get(valueOffset);
+        for (int i = 1; i < length; i++) {
+            value = (value << 8) | (buffer.get(valueOffset + i) & 0xFF);
+        }
+        return value;
+    }
+
+    private void checkCurrent() {
+        if (type == null) {
+            throw new IllegalStateException("no current TLV");
+        }
+    }
+}
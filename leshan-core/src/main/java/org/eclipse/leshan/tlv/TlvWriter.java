@@ -0,0 +1,361 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.tlv;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.Date;
+
+import org.eclipse.leshan.core.node.ObjectLink;
+import org.eclipse.leshan.tlv.Tlv.TlvType;
+
+/**
+ * A single pass TLV writer.
+ * <p>
+ * Values are written straight into a {@link ByteBuffer}, without building a tree of {@link Tlv}. The length of a
+ * container (object instance or multiple resource) is only known once all its children are written: the writer
+ * reserves room for the largest header when the container is opened, then writes the real header and moves the
+ * content back by the few unused bytes when the container is closed.
+ * <p>
+ * When the buffer is full, a buffer twice as large is allocated and the content written so far is copied into it, use
+ * {@link #getBuffer()} to get the buffer holding the encoded TLVs.
+ * <p>
+ * A writer is not thread-safe.
+ */
+public class TlvWriter {
+
+    private static final int MAX_LENGTH_8BIT = 256;
+    private static final int MAX_LENGTH_16BIT = 65_536;
+    private static final int MAX_LENGTH_24BIT = 16_777_216;
+
+    // header: type byte + identifier (1 or 2 bytes) + length (0 to 3 bytes)
+    private static final int MAX_LENGTH_FIELD_SIZE = 3;
+
+    private ByteBuffer buffer;
+
+    // open containers: type, identifier and position of the reserved header
+    private TlvType[] containerTypes = new TlvType[4];
+    private int[] containerIds = new int[4];
+    private int[] containerStarts = new int[4];
+    private int depth = 0;
+
+    /**
+     * Creates a writer which writes at the current position of the given buffer.
+     */
+    public TlvWriter(ByteBuffer buffer) {
+        this.buffer = buffer;
+        this.buffer.order(ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * @return the buffer holding the encoded TLVs, its position is just after the last written TLV. This is not the
+     *         buffer given at construction if it was too small.
+     */
+    public ByteBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Opens an object instance or multiple resource TLV. The following TLVs are its children until
+     * {@link #endContainer()} is called.
+     */
+    public void beginContainer(TlvType type, int identifier) {
+        if (type != TlvType.OBJECT_INSTANCE && type != TlvType.MULTIPLE_RESOURCE) {
+            throw new IllegalArgumentException("not a container TLV type : '" + type + "'");
+        }
+        if (depth == containerStarts.length) {
+            containerTypes = Arrays.copyOf(containerTypes, depth * 2);
+            containerIds = Arrays.copyOf(containerIds, depth * 2);
+            containerStarts = Arrays.copyOf(containerStarts, depth * 2);
+        }
+        containerTypes[depth] = type;
+        containerIds[depth] = identifier;
+        containerStarts[depth] = buffer.position();
+        depth++;
+
+        int headerSize = 1 + identifierSize(identifier) + MAX_LENGTH_FIELD_SIZE;
+        ensureRemaining(headerSize);
+        buffer.position(buffer.position() + headerSize);
+    }
+
+    /**
+     * Closes the last opened container.
+     */
+    public void endContainer() {
+        if (depth == 0) {
+            throw new IllegalStateException("no container to close");
+        }
+        depth--;
+        int start = containerStarts[depth];
+        int identifier = containerIds[depth];
+        int reservedHeaderSize = 1 + identifierSize(identifier) + MAX_LENGTH_FIELD_SIZE;
+        int contentStart = start + reservedHeaderSize;
+        int length = buffer.position() - contentStart;
+
+        int headerSize = 1 + identifierSize(identifier) + lengthFieldSize(length);
+        int shift = reservedHeaderSize - headerSize;
+        if (shift > 0) {
+            move(contentStart, start + headerSize, length);
+        }
+        buffer.position(start);
+        writeHeader(containerTypes[depth], identifier, length);
+        buffer.position(start + headerSize + length);
+    }
+
+    /**
+     * Writes a resource value or resource instance TLV with a raw value.
+     */
+    public void writeOpaque(TlvType type, int identifier, byte[] value) {
+        writeValueHeader(type, identifier, value.length);
+        buffer.put(value);
+    }
+
+    /**
+     * Writes a resource value or resource instance TLV with an UTF-8 string value.
+     */
+    public void writeString(TlvType type, int identifier, String value) {
+        int length = utf8Length(value);
+        writeValueHeader(type, identifier, length);
+        writeUtf8(value);
+    }
+
+    /**
+     * Writes a resource value or resource instance TLV with an integer value, encoded on 1, 2, 4 or 8 bytes.
+     */
+    public void writeInteger(TlvType type, int identifier, long value) {
+        if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            writeValueHeader(type, identifier, 1);
+            buffer.put((byte) value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            writeValueHeader(type, identifier, 2);
+            buffer.putShort((short) value);
+        } else if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+            writeValueHeader(type, identifier, 4);
+            buffer.putInt((int) value);
+        } else {
+            writeValueHeader(type, identifier, 8);
+            buffer.putLong(value);
+        }
+    }
+
+    /**
+     * Writes a resource value or resource instance TLV with a floating point value, encoded on 4 bytes for a
+     * {@link Float} and 8 bytes otherwise.
+     */
+    public void writeFloat(TlvType type, int identifier, Number value) {
+        if (value instanceof Float) {
+            writeValueHeader(type, identifier, 4);
+            buffer.putFloat(value.floatValue());
+        } else {
+            writeValueHeader(type, identifier, 8);
+            buffer.putDouble(value.doubleValue());
+        }
+    }
+
+    /**
+     * Writes a resource value or resource instance TLV with a boolean value.
+     */
+    public void writeBoolean(TlvType type, int identifier, boolean value) {
+        writeValueHeader(type, identifier, 1);
+        buffer.put(value ? (byte) 1 : (byte) 0);
+    }
+
+    /**
+     * Writes a resource value or resource instance TLV with a date value, encoded as a number of seconds on 4 bytes.
+     */
+    public void writeDate(TlvType type, int identifier, Date value) {
+        writeValueHeader(type, identifier, 4);
+        buffer.putInt((int) (value.getTime() / 1000L));
+    }
+
+    /**
+     * Writes a resource value or resource instance TLV with an object link value.
+     */
+    public void writeObjlnk(TlvType type, int identifier, ObjectLink value) {
+        writeValueHeader(type, identifier, 4);
+        buffer.putShort((short) value.getObjectId());
+        buffer.putShort((short) value.getObjectInstanceId());
+    }
+
+    /**
+     * Writes a TLV and all its children.
+     */
+    public void write(Tlv tlv) {
+        switch (tlv.getType()) {
+        case RESOURCE_VALUE:
+        case RESOURCE_INSTANCE:
+            writeOpaque(tlv.getType(), tlv.getIdentifier(), tlv.getValue());
+            break;
+        default:
+            beginContainer(tlv.getType(), tlv.getIdentifier());
+            for (Tlv child : tlv.getChildren()) {
+                write(child);
+            }
+            endContainer();
+        }
+    }
+
+    private void writeValueHeader(TlvType type, int identifier, int length) {
+        if (type != TlvType.RESOURCE_VALUE && type != TlvType.RESOURCE_INSTANCE) {
+            throw new IllegalArgumentException("not a value TLV type : '" + type + "'");
+        }
+        ensureRemaining(1 + identifierSize(identifier) + lengthFieldSize(length) + length);
+        writeHeader(type, identifier, length);
+    }
+
+    private void writeHeader(TlvType type, int identifier, int length) {
+        int typeByte;
+        switch (type) {
+        case OBJECT_INSTANCE:
+            typeByte = 0b00_000000;
+            break;
+        case RESOURCE_INSTANCE:
+            typeByte = 0b01_000000;
+            break;
+        case MULTIPLE_RESOURCE:
+            typeByte = 0b10_000000;
+            break;
+        case RESOURCE_VALUE:
+            typeByte = 0b11_000000;
+            break;
+        default:
+            throw new IllegalArgumentException("unknown TLV type : '" + type + "'");
+        }
+
+        // encode identifier length
+        typeByte |= (identifier < MAX_LENGTH_8BIT) ? 0b00_0000 : 0b10_0000;
+
+        // type of length
+        if (length < 8) {
+            typeByte |= length;
+        } else if (length < MAX_LENGTH_8BIT) {
+            typeByte |= 0b0000_1000;
+        } else if (length < MAX_LENGTH_16BIT) {
+            typeByte |= 0b0001_0000;
+        } else {
+            typeByte |= 0b0001_1000;
+        }
+
+        buffer.put((byte) typeByte);
+        if (identifier < MAX_LENGTH_8BIT) {
+            buffer.put((byte) identifier);
+        } else {
+            buffer.putShort((short) identifier);
+        }
+
+        if (length >= 8) {
+            if (length < MAX_LENGTH_8BIT) {
+                buffer.put((byte) length);
+            } else if (length < MAX_LENGTH_16BIT) {
+                buffer.putShort((short) length);
+            } else {
+                buffer.put((byte) ((length & 0xFF_00_00) >> 16));
+                buffer.putShort((short) (length & 0xFF_FF));
+            }
+        }
+    }
+
+    private static int identifierSize(int identifier) {
+        return identifier < MAX_LENGTH_8BIT ? 1 : 2;
+    }
+
+    private static int lengthFieldSize(int length) {
+        if (length < 8) {
+            return 0;
+        } else if (length < MAX_LENGTH_8BIT) {
+            return 1;
+        } else if (length < MAX_LENGTH_16BIT) {
+            return 2;
+        } else if (length < MAX_LENGTH_24BIT) {
+            return 3;
+        } else {
+            throw new IllegalArgumentException("length should fit in max 24bits");
+        }
+    }
+
+    private void move(int from, int to, int length) {
+        if (buffer.hasArray()) {
+            byte[] array = buffer.array();
+            int offset = buffer.arrayOffset();
+            System.arraycopy(array, offset + from, array, offset + to, length);
+        } else {
+            // content is only moved backward, copying in ascending order is safe
+            for (int i = 0; i < length; i++) {
+                buffer.put(to + i, buffer.get(from + i));
+            }
+        }
+    }
+
+    private void ensureRemaining(int size) {
+        if (buffer.remaining() >= size) {
+            return;
+        }
+        int capacity = Math.max(buffer.capacity() * 2, buffer.position() + size);
+        ByteBuffer larger = buffer.isDirect() ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+        larger.order(ByteOrder.BIG_ENDIAN);
+        buffer.flip();
+        larger.put(buffer);
+        buffer = larger;
+    }
+
+    private static int utf8Length(String value) {
+        int length = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                // malformed, replaced by '?' like String.getBytes()
+                length++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private void writeUtf8(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | (c >> 6)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer.put((byte) (0xF0 | (codePoint >> 18)));
+                buffer.put((byte) (0x80 | ((codePoint >> 12) & 0x3F)));
+                buffer.put((byte) (0x80 | ((codePoint >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (codePoint & 0x3F)));
+            } else if (Character.isSurrogate(c)) {
+                buffer.put((byte) '?');
+            } else {
+                buffer.put((byte) (0xE0 | (c >> 12)));
+                buffer.put((byte) (0x80 | ((c >> 6) & 0x3F)));
+                buffer.put((byte) (0x80 | (c & 0x3F)));
+            }
+        }
+    }
+}
@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A hierarchical timing wheel which tracks the expiration time of a set of keys.
+ * <p>
+ * Scheduling, rescheduling and cancelling a key are done in constant time. {@link #advance(long)} only touches the
+ * buckets which are due, so the cost of a tick does not depend on the number of scheduled keys. Expiration happens
+ * at the end of the tick which contains the expiration time: a key is never expired early and at most one tick late.
+ * <p>
+ * Each level of the wheel has <code>wheelSize</code> buckets. A bucket of the first level spans one tick, a bucket of
+ * the level <code>n</code> spans <code>wheelSize</code> buckets of the level <code>n-1</code>. Upper levels are created
+ * on demand and their entries are moved down to the lower levels as time goes by.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @param <K> the type of keys tracked by this wheel
+ */
+public class TimingWheel<K> {
+
+    private final Map<K, Entry<K>> entries = new HashMap<>();
+    // entries which were scheduled with an expiration time already in the past
+    private final Set<Entry<K>> overdue = new LinkedHashSet<>();
+    private final Level<K> first;
+
+    /**
+     * @param tickInMs the duration of a tick of the first level
+     * @param wheelSize the number of buckets for each level
+     * @param startTime the current time in ms
+     */
+    public TimingWheel(long tickInMs, int wheelSize, long startTime) {
+        Validate.isTrue(tickInMs > 0, "tick must be positive");
+        Validate.isTrue(wheelSize > 1, "wheel size must be greater than 1");
+        this.first = new Level<>(tickInMs, wheelSize, startTime);
+    }
+
+    /**
+     * Schedules the expiration of the given key. If the key is already scheduled, its expiration time is replaced.
+     *
+     * @param key the key to schedule
+     * @param expirationTime the expiration time in ms
+     */
+    public synchronized void schedule(K key, long expirationTime) {
+        Entry<K> entry = entries.get(key);
+        if (entry != null) {
+            entry.unlink();
+            entry.expirationTime = expirationTime;
+        } else {
+            entry = new Entry<>(key, expirationTime);
+            entries.put(key, entry);
+        }
+        if (!first.add(entry)) {
+            entry.link(overdue);
+        }
+    }
+
+    /**
+     * Cancels the expiration of the given key.
+     *
+     * @return <code>true</code> if the key was scheduled
+     */
+    public synchronized boolean cancel(K key) {
+        Entry<K> entry = entries.remove(key);
+        if (entry == null) {
+            return false;
+        }
+        entry.unlink();
+        return true;
+    }
+
+    /**
+     * @return the number of scheduled keys
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Advances the wheel to the given time.
+     *
+     * @param now the current time in ms
+     * @return the keys which expired since the last call, they are not tracked anymore by the wheel.
+     */
+    public synchronized List<K> advance(long now) {
+        List<K> expired = new ArrayList<>();
+        drain(overdue, expired);
+
+        while (first.currentTime + first.tick <= now) {
+            // all the entries of the current bucket are expired
+            drain(first.bucketFor(first.currentTime), expired);
+            first.currentTime += first.tick;
+
+            // move down the entries of upper levels when they reach their current bucket
+            Level<K> level = first.overflow;
+            while (level != null && first.currentTime % level.tick == 0) {
+                level.currentTime = first.currentTime;
+                Set<Entry<K>> bucket = level.bucketFor(level.currentTime);
+                if (!bucket.isEmpty()) {
+                    List<Entry<K>> toMove = new ArrayList<>(bucket);
+                    for (Entry<K> entry : toMove) {
+                        entry.unlink();
+                        first.add(entry);
+                    }
+                }
+                level = level.overflow;
+            }
+        }
+        return expired;
+    }
+
+    private void drain(Set<Entry<K>> bucket, List<K> expired) {
+        if (!bucket.isEmpty()) {
+            for (Entry<K> entry : bucket) {
+                entry.bucket = null;
+                entries.remove(entry.key);
+                expired.add(entry.key);
+            }
+            bucket.clear();
+        }
+    }
+
+    private static class Entry<K> {
+        private final K key;
+        private long expirationTime;
+        private Set<Entry<K>> bucket;
+
+        private Entry(K key, long expirationTime) {
+            this.key = key;
+            this.expirationTime = expirationTime;
+        }
+
+        private void link(Set<Entry<K>> bucket) {
+            this.bucket = bucket;
+            bucket.add(this);
+        }
+
+        private void unlink() {
+            if (bucket != null) {
+                bucket.remove(this);
+                bucket = null;
+            }
+        }
+    }
+
+    private static class Level<K> {
+        private final long tick;
+        private final long interval;
+        private final Set<Entry<K>>[] buckets;
+
+        private long currentTime;
+        private Level<K> overflow;
+
+        @SuppressWarnings("unchecked")
+        private Level(long tick, int wheelSize, long startTime) {
+            this.tick = tick;
+            this.interval = tick * wheelSize;
+            this.currentTime = startTime - (startTime % tick);
+            this.buckets = new Set[wheelSize];
+            for (int i = 0; i < wheelSize; i++) {
+                buckets[i] = new LinkedHashSet<>();
+            }
+        }
+
+        private Set<Entry<K>> bucketFor(long time) {
+            return buckets[(int) ((time / tick) % buckets.length)];
+        }
+
+        /**
+         * @return <code>false</code> if the entry is already expired and could not be added
+         */
+        private boolean add(Entry<K> entry) {
+            if (entry.expirationTime < currentTime) {
+                return false;
+            } else if (entry.expirationTime < currentTime + interval) {
+                entry.link(bucketFor(entry.expirationTime));
+                return true;
+            } else {
+                if (overflow == null) {
+                    overflow = new Level<>(interval, buckets.length, currentTime);
+                }
+                return overflow.add(entry);
+            }
+        }
+    }
+}
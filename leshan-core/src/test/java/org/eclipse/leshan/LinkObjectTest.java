@@ -15,6 +15,7 @@
  *******************************************************************************/
 package org.eclipse.leshan;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
@@ -138,4 +139,40 @@ public class LinkObjectTest {
         Assert.assertEquals(input, output);
 
     }
+
+    @Test
+    public void parse_quoted_attributes_with_separators() {
+        Link[] parse = Link.parse("</1/0>;title=\"a,b;c=d\";ct=-1, </2>;big=12345678901".getBytes());
+        Assert.assertEquals(2, parse.length);
+
+        Map<String, Object> attResult = new HashMap<>();
+        attResult.put("title", "a,b;c=d");
+        attResult.put("ct", -1);
+        Assert.assertEquals(attResult, parse[0].getAttributes());
+        Assert.assertEquals("12345678901", parse[1].getAttributes().get("big"));
+    }
+
+    @Test
+    public void parse_ignores_empty_links() {
+        Assert.assertEquals(0, Link.parse(new byte[0]).length);
+
+        Link[] parse = Link.parse(" </1>, ,</2>,".getBytes());
+        Assert.assertEquals(2, parse.length);
+        Assert.assertEquals("/1", parse[0].getUrl());
+        Assert.assertEquals("/2", parse[1].getUrl());
+    }
+
+    @Test
+    public void parse_shares_identical_attributes() {
+        Link[] parse = Link.parse("</1/0>;ver=\"1.1\", </1/1>;ver=\"1.1\"".getBytes());
+        Assert.assertSame(parse[0].getAttributes(), parse[1].getAttributes());
+    }
+
+    @Test
+    public void serialize_to_bytes() {
+        String input = "</>;rt=\"oma.lwm2m\", </1/101>;pmin=10, </3/0>;title=\"caf\u00e9\"";
+        Link[] objs = Link.parse(input.getBytes(StandardCharsets.UTF_8));
+        Assert.assertArrayEquals(input.getBytes(StandardCharsets.UTF_8), Link.serializeToBytes(objs));
+        Assert.assertNull(Link.serializeToBytes());
+    }
 }
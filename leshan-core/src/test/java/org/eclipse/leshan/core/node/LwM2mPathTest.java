@@ -0,0 +1,68 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.node;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+public class LwM2mPathTest {
+
+    @Test
+    public void parse_paths() {
+        assertTrue(new LwM2mPath("/").isRoot());
+        assertTrue(new LwM2mPath("").isRoot());
+        assertEquals(new LwM2mPath(3), new LwM2mPath("/3"));
+        assertEquals(new LwM2mPath(3, 0), new LwM2mPath("3/0/"));
+        assertEquals(new LwM2mPath(3, 0, 1), new LwM2mPath("/3/0/1"));
+        assertEquals(new LwM2mPath(3, 0, 7, 1), new LwM2mPath("/3/0/7/1"));
+        assertEquals(new LwM2mPath(3, LwM2mObjectInstance.UNDEFINED), new LwM2mPath("/3/-1"));
+        assertEquals(Integer.valueOf(65535), new LwM2mPath("/65535/0").getObjectId());
+        assertNull(new LwM2mPath("/3/0").getResourceId());
+    }
+
+    @Test
+    public void invalid_paths() {
+        for (String path : new String[] { "/3/0/1/2/3", "/a", "/3//0", "/3/0//", "/-", "/99999999999" }) {
+            try {
+                new LwM2mPath(path);
+                fail(path + " should be invalid");
+            } catch (IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void append() {
+        assertEquals(new LwM2mPath(3, 0, 7, 1), LwM2mPath.ROOTPATH.append(3).append(0).append(7).append(1));
+        assertEquals(new LwM2mPath(3, 0, 7, 1), new LwM2mPath(3, 0).append("7/1"));
+        assertEquals(new LwM2mPath(3), new LwM2mPath(3).append("/"));
+        assertEquals("/3/0/7/1", new LwM2mPath(3, 0, 7).append(1).toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void append_to_resource_instance() {
+        new LwM2mPath(3, 0, 7, 1).append(2);
+    }
+
+    @Test
+    public void common_paths_are_interned() {
+        assertSame(LwM2mPath.of(3, 0, 1), LwM2mPath.parse("/3/0/1"));
+        assertSame(LwM2mPath.of(3, 0), new LwM2mPath(3).append(0));
+        assertEquals(LwM2mPath.of(10241, 0, 1), LwM2mPath.parse("/10241/0/1"));
+    }
+}
@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.node.codec;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import org.eclipse.leshan.core.model.LwM2mModel;
+import org.eclipse.leshan.core.model.ObjectLoader;
+import org.eclipse.leshan.core.node.LwM2mPath;
+import org.eclipse.leshan.core.node.LwM2mSingleResource;
+import org.eclipse.leshan.core.request.ContentFormat;
+import org.junit.Test;
+
+public class CachingLwM2mNodeEncoderTest {
+
+    private static final LwM2mPath PATH = new LwM2mPath("/3/0/15");
+
+    private final LwM2mModel model = new LwM2mModel(ObjectLoader.loadDefault());
+    private final LwM2mSingleResource node = LwM2mSingleResource.newStringResource(15, "Europe/Paris");
+
+    @Test
+    public void same_node_and_model_is_encoded_once() throws CodecException {
+        CachingLwM2mNodeEncoder encoder = new CachingLwM2mNodeEncoder(new DefaultLwM2mNodeEncoder());
+
+        byte[] first = encoder.encode(node, ContentFormat.TLV, PATH, model);
+        byte[] second = encoder.encode(node, ContentFormat.TLV, PATH, model);
+
+        assertSame(first, second);
+        assertArrayEquals(new DefaultLwM2mNodeEncoder().encode(node, ContentFormat.TLV, PATH, model), first);
+    }
+
+    @Test
+    public void other_format_or_model_is_encoded_again() throws CodecException {
+        CachingLwM2mNodeEncoder encoder = new CachingLwM2mNodeEncoder(new DefaultLwM2mNodeEncoder());
+
+        byte[] tlv = encoder.encode(node, ContentFormat.TLV, PATH, model);
+        assertNotSame(tlv, encoder.encode(node, ContentFormat.TEXT, PATH, model));
+        assertNotSame(tlv, encoder.encode(node, ContentFormat.TLV, PATH,
+                new LwM2mModel(ObjectLoader.loadDefault())));
+    }
+
+    @Test
+    public void oldest_payload_is_replaced() throws CodecException {
+        CachingLwM2mNodeEncoder encoder = new CachingLwM2mNodeEncoder(new DefaultLwM2mNodeEncoder(), 1);
+
+        byte[] tlv = encoder.encode(node, ContentFormat.TLV, PATH, model);
+        encoder.encode(node, ContentFormat.TEXT, PATH, model);
+
+        assertNotSame(tlv, encoder.encode(node, ContentFormat.TLV, PATH, model));
+    }
+}
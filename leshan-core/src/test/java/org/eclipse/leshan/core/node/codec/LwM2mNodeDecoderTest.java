@@ -19,7 +19,9 @@ package org.eclipse.leshan.core.node.codec;
 import static org.junit.Assert.*;
 
 import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 
 import org.eclipse.leshan.core.model.LwM2mModel;
@@ -32,6 +34,7 @@ import org.eclipse.leshan.core.node.LwM2mPath;
 import org.eclipse.leshan.core.node.LwM2mResource;
 import org.eclipse.leshan.core.node.LwM2mSingleResource;
 import org.eclipse.leshan.core.node.TimestampedLwM2mNode;
+import org.eclipse.leshan.core.node.codec.tlv.LwM2mNodeTlvDecoder;
 import org.eclipse.leshan.core.request.ContentFormat;
 import org.eclipse.leshan.tlv.Tlv;
 import org.eclipse.leshan.tlv.Tlv.TlvType;
@@ -152,6 +155,19 @@ public class LwM2mNodeDecoderTest {
         assertDeviceInstance(oInstance);
     }
 
+    @Test
+    public void tlv_device_object_instance0_with_filtered_resources() throws CodecException {
+
+        LwM2mObjectInstance oInstance = LwM2mNodeTlvDecoder.decode(ENCODED_DEVICE, new LwM2mPath(3, 0), model,
+                LwM2mObjectInstance.class, new HashSet<>(Arrays.asList(1, 7, 14)));
+
+        assertEquals(3, oInstance.getResources().size());
+        assertEquals("Lightweight M2M Client", oInstance.getResource(1).getValue());
+        assertEquals(3800L, oInstance.getResource(7).getValue(0));
+        assertEquals(5000L, oInstance.getResource(7).getValue(1));
+        assertEquals("+02:00", oInstance.getResource(14).getValue());
+    }
+
     @Test
     public void tlv_device_object_instance0_from_instance_tlv() throws CodecException {
 
@@ -513,4 +529,90 @@ public class LwM2mNodeDecoderTest {
         assertEquals(6, resource.getId());
         assertTrue(resource.getValues().isEmpty());
     }
+
+    @Test
+    public void senml_json_device_object_instance0() throws CodecException {
+        // senml json content for instance 0 of device object, the base name is set on the first record
+        StringBuilder b = new StringBuilder();
+        b.append("[{\"bn\":\"/3/0/\",\"n\":\"0\",\"vs\":\"Open Mobile Alliance\"},");
+        b.append("{\"n\":\"1\",\"vs\":\"Lightweight M2M Client\"},");
+        b.append("{\"n\":\"2\",\"vs\":\"345000123\"},");
+        b.append("{\"n\":\"3\",\"vs\":\"1.0\"},");
+        b.append("{\"n\":\"6/0\",\"v\":1},");
+        b.append("{\"n\":\"6/1\",\"v\":5},");
+        b.append("{\"n\":\"7/0\",\"v\":3800},");
+        b.append("{\"n\":\"7/1\",\"v\":5000},");
+        b.append("{\"n\":\"8/0\",\"v\":125},");
+        b.append("{\"n\":\"8/1\",\"v\":900},");
+        b.append("{\"n\":\"9\",\"v\":100},");
+        b.append("{\"n\":\"10\",\"v\":15},");
+        b.append("{\"n\":\"11\",\"v\":0},");
+        b.append("{\"n\":\"13\",\"v\":1367491215},");
+        b.append("{\"n\":\"14\",\"vs\":\"+02:00\"},");
+        b.append("{\"n\":\"15\",\"vs\":\"U\"}]");
+
+        LwM2mObjectInstance oInstance = (LwM2mObjectInstance) decoder.decode(b.toString().getBytes(),
+                ContentFormat.SENML_JSON, new LwM2mPath(3, 0), model);
+
+        assertDeviceInstance(oInstance);
+    }
+
+    @Test
+    public void senml_json_timestamped_resources() throws CodecException {
+        // the base time applies to the following records
+        StringBuilder b = new StringBuilder();
+        b.append("[{\"bn\":\"/1024/0/1\",\"bt\":25462634,\"v\":22.9,\"t\":-30},");
+        b.append("{\"v\":22.4,\"t\":-5},");
+        b.append("{\"v\":24.1,\"t\":-50}]");
+
+        List<TimestampedLwM2mNode> timestampedResources = decoder.decodeTimestampedData(b.toString().getBytes(),
+                ContentFormat.SENML_JSON, new LwM2mPath(1024, 0, 1), model);
+
+        assertEquals(3, timestampedResources.size());
+        assertEquals(Long.valueOf(25462634L - 5), timestampedResources.get(0).getTimestamp());
+        assertEquals(22.4d, ((LwM2mResource) timestampedResources.get(0).getNode()).getValue());
+        assertEquals(Long.valueOf(25462634L - 30), timestampedResources.get(1).getTimestamp());
+        assertEquals(22.9d, ((LwM2mResource) timestampedResources.get(1).getNode()).getValue());
+        assertEquals(Long.valueOf(25462634 - 50), timestampedResources.get(2).getTimestamp());
+        assertEquals(24.1d, ((LwM2mResource) timestampedResources.get(2).getNode()).getValue());
+    }
+
+    @Test(expected = CodecException.class)
+    public void senml_json_record_outside_requested_path() throws CodecException {
+        decoder.decode("[{\"n\":\"/3/1/0\",\"vs\":\"x\"}]".getBytes(), ContentFormat.SENML_JSON,
+                new LwM2mPath(3, 0), model);
+    }
+
+    @Test
+    public void senml_cbor_single_resource() throws CodecException {
+        // [{-2: "/3/0/", 0: "9", 2: 100, "x": [1, 2]}] with an unknown label
+        byte[] content = new byte[] { (byte) 0x81, (byte) 0xA4, 0x21, 0x65, '/', '3', '/', '0', '/', 0x00, 0x61, '9',
+                                0x02, 0x18, 0x64, 0x61, 'x', (byte) 0x82, 0x01, 0x02 };
+
+        LwM2mResource resource = (LwM2mResource) decoder.decode(content, ContentFormat.SENML_CBOR,
+                new LwM2mPath(3, 0, 9), model);
+
+        assertEquals(9, resource.getId());
+        assertEquals(Type.INTEGER, resource.getType());
+        assertEquals(100L, resource.getValue());
+    }
+
+    @Test
+    public void senml_cbor_device_object_instance0() throws CodecException {
+        LwM2mPath path = new LwM2mPath(3, 0);
+        LwM2mObjectInstance device = (LwM2mObjectInstance) decoder.decode(ENCODED_DEVICE, ContentFormat.TLV, path,
+                model);
+        byte[] content = new DefaultLwM2mNodeEncoder().encode(device, ContentFormat.SENML_CBOR, path, model);
+
+        LwM2mObjectInstance oInstance = (LwM2mObjectInstance) decoder.decode(content, ContentFormat.SENML_CBOR, path,
+                model);
+
+        assertDeviceInstance(oInstance);
+    }
+
+    @Test(expected = CodecException.class)
+    public void senml_cbor_truncated_content() throws CodecException {
+        byte[] content = new byte[] { (byte) 0x81, (byte) 0xA1, 0x21, 0x65, '/', '3' };
+        decoder.decode(content, ContentFormat.SENML_CBOR, new LwM2mPath(3, 0, 9), model);
+    }
 }
@@ -274,4 +274,56 @@ public class LwM2mNodeEncoderTest {
         String expected = b.toString();
         Assert.assertEquals(expected, new String(encoded));
     }
+
+    @Test
+    public void senml_json_encode_device_object_instance() {
+
+        LwM2mObjectInstance oInstance = new LwM2mObjectInstance(0, getDeviceResources());
+        byte[] encoded = encoder.encode(oInstance, ContentFormat.SENML_JSON, new LwM2mPath("/3/0"), model);
+
+        StringBuilder b = new StringBuilder();
+        b.append("[{\"bn\":\"/3/0/\",\"n\":\"0\",\"vs\":\"Open Mobile Alliance\"},");
+        b.append("{\"n\":\"1\",\"vs\":\"Lightweight M2M Client\"},");
+        b.append("{\"n\":\"2\",\"vs\":\"345000123\"},");
+        b.append("{\"n\":\"3\",\"vs\":\"1.0\"},");
+        b.append("{\"n\":\"6/0\",\"v\":1},");
+        b.append("{\"n\":\"6/1\",\"v\":5},");
+        b.append("{\"n\":\"7/0\",\"v\":3800},");
+        b.append("{\"n\":\"7/1\",\"v\":5000},");
+        b.append("{\"n\":\"8/0\",\"v\":125},");
+        b.append("{\"n\":\"8/1\",\"v\":900},");
+        b.append("{\"n\":\"9\",\"v\":100},");
+        b.append("{\"n\":\"10\",\"v\":15},");
+        b.append("{\"n\":\"11\",\"v\":0},");
+        b.append("{\"n\":\"13\",\"v\":1367491215},");
+        b.append("{\"n\":\"14\",\"vs\":\"+02:00\"},");
+        b.append("{\"n\":\"15\",\"vs\":\"U\"}]");
+
+        String expected = b.toString();
+        Assert.assertEquals(expected, new String(encoded, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void senml_json_encode_timestamped_resources() throws CodecException {
+        List<TimestampedLwM2mNode> data = new ArrayList<>();
+        data.add(new TimestampedLwM2mNode(500L, LwM2mSingleResource.newFloatResource(1, 22.9)));
+        data.add(new TimestampedLwM2mNode(510L, LwM2mSingleResource.newFloatResource(1, 22.4)));
+
+        byte[] encoded = encoder.encodeTimestampedData(data, ContentFormat.SENML_JSON, new LwM2mPath(1024, 0, 1),
+                model);
+
+        String expected = "[{\"bn\":\"/1024/0/1\",\"bt\":500,\"v\":22.9},{\"bt\":510,\"v\":22.4}]";
+        Assert.assertEquals(expected, new String(encoded, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void senml_cbor_encode_single_resource() {
+        byte[] encoded = encoder.encode(LwM2mSingleResource.newIntegerResource(9, 100), ContentFormat.SENML_CBOR,
+                new LwM2mPath(3, 0, 9), model);
+
+        // [{-2: "/3/0/9", 2: 100}]
+        byte[] expected = new byte[] { (byte) 0x81, (byte) 0xA2, 0x21, 0x66, '/', '3', '/', '0', '/', '9', 0x02, 0x18,
+                                0x64 };
+        Assert.assertArrayEquals(expected, encoded);
+    }
 }
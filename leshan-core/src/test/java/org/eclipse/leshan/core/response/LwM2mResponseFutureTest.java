@@ -0,0 +1,124 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.core.response;
+
+import static org.junit.Assert.*;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.leshan.ResponseCode;
+import org.eclipse.leshan.core.request.exception.TimeoutException;
+import org.junit.After;
+import org.junit.Test;
+
+public class LwM2mResponseFutureTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @After
+    public void stop() {
+        scheduler.shutdownNow();
+    }
+
+    private static class RecordingCallback implements ResponseCallback<ReadResponse>, ErrorCallback {
+        private final AtomicReference<ReadResponse> response = new AtomicReference<>();
+        private final AtomicReference<Exception> error = new AtomicReference<>();
+
+        @Override
+        public void onResponse(ReadResponse response) {
+            this.response.set(response);
+        }
+
+        @Override
+        public void onError(Exception e) {
+            error.set(e);
+        }
+    }
+
+    @Test
+    public void callbacks_are_called_on_completion() throws Exception {
+        LwM2mResponseFuture<ReadResponse> future = new LwM2mResponseFuture<>();
+        RecordingCallback before = new RecordingCallback();
+        future.addCallback(before, before);
+
+        ReadResponse response = ReadResponse.notFound();
+        assertTrue(future.complete(response));
+        assertFalse(future.completeExceptionally(new IllegalStateException()));
+
+        RecordingCallback after = new RecordingCallback();
+        future.addCallback(after, after);
+
+        assertSame(response, before.response.get());
+        assertSame(response, after.response.get());
+        assertNull(before.error.get());
+        assertSame(response, future.get());
+        assertEquals(ResponseCode.NOT_FOUND, future.get(0, TimeUnit.MILLISECONDS).getCode());
+    }
+
+    @Test
+    public void timeout_completes_the_future_and_aborts_the_request() throws Exception {
+        final AtomicInteger aborts = new AtomicInteger();
+        LwM2mResponseFuture<ReadResponse> future = new LwM2mResponseFuture<ReadResponse>() {
+            @Override
+            protected void onAbort() {
+                aborts.incrementAndGet();
+            }
+        };
+        future.setTimeout(scheduler, 50);
+
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("future should time out");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        assertEquals(1, aborts.get());
+        assertFalse(future.isCancelled());
+    }
+
+    @Test
+    public void completion_cancels_the_timeout() throws Exception {
+        LwM2mResponseFuture<ReadResponse> future = new LwM2mResponseFuture<>();
+        future.setTimeout(scheduler, 50);
+        future.complete(ReadResponse.notFound());
+
+        Thread.sleep(100);
+        assertEquals(ResponseCode.NOT_FOUND, future.get().getCode());
+    }
+
+    @Test(expected = CancellationException.class)
+    public void cancel() throws Exception {
+        LwM2mResponseFuture<ReadResponse> future = new LwM2mResponseFuture<>();
+        RecordingCallback callback = new RecordingCallback();
+        future.addCallback(callback, callback);
+
+        assertTrue(future.cancel(false));
+        assertTrue(future.isCancelled());
+        assertNotNull(callback.error.get());
+        future.get();
+    }
+
+    @Test(expected = java.util.concurrent.TimeoutException.class)
+    public void get_with_timeout() throws Exception {
+        new LwM2mResponseFuture<ReadResponse>().get(10, TimeUnit.MILLISECONDS);
+    }
+}
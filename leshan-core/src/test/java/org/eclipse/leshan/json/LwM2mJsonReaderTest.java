@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.json;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.leshan.core.model.ResourceModel.Type;
+import org.junit.Test;
+
+public class LwM2mJsonReaderTest {
+
+    private static class RecordingHandler implements LwM2mJsonReader.Handler {
+        private final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onBaseName(String baseName) {
+            events.add("bn=" + baseName);
+        }
+
+        @Override
+        public void onBaseTime(long baseTime) {
+            events.add("bt=" + baseTime);
+        }
+
+        @Override
+        public void onEntry(String name, Object value, Type type, Long time) {
+            events.add(name + "=" + value + ":" + type + "@" + time);
+        }
+    }
+
+    private static List<String> read(String json) throws LwM2mJsonException {
+        RecordingHandler handler = new RecordingHandler();
+        LwM2mJsonReader.read(json.getBytes(StandardCharsets.UTF_8), handler);
+        return handler.events;
+    }
+
+    @Test
+    public void read_entries_in_order() throws LwM2mJsonException {
+        List<String> events = read("{ \"e\" : [ {\"n\":\"0\",\"sv\":\"a\\u00e9\\n\"}, {\"n\":\"1/0\",\"v\":-2.5e1,\"t\":3},"
+                + "{\"n\":\"2\",\"v\":42}, {\"n\":\"3\",\"bv\":false}, {\"n\":\"4\",\"ov\":\"1:2\"} ],"
+                + " \"bt\" : 10, \"bn\" : \"/3/0/\" }");
+
+        assertEquals(7, events.size());
+        assertEquals("0=a\u00e9\n:STRING@null", events.get(0));
+        assertEquals("1/0=-25.0:FLOAT@3", events.get(1));
+        assertEquals("2=42:FLOAT@null", events.get(2));
+        assertEquals("3=false:BOOLEAN@null", events.get(3));
+        assertEquals("4=1:2:null@null", events.get(4));
+        assertEquals("bt=10", events.get(5));
+        assertEquals("bn=/3/0/", events.get(6));
+    }
+
+    @Test
+    public void unknown_members_are_ignored() throws LwM2mJsonException {
+        List<String> events = read("{\"x\":{\"y\":[1,{\"z\":null},\"]\"]},\"e\":[{\"n\":\"0\",\"u\":[true],\"v\":1}]}");
+
+        assertEquals(1, events.size());
+        assertEquals("0=1:FLOAT@null", events.get(0));
+    }
+
+    @Test(expected = LwM2mJsonException.class)
+    public void unterminated_array() throws LwM2mJsonException {
+        read("{\"e\":[{\"n\":\"0\",\"v\":1}");
+    }
+
+    @Test(expected = LwM2mJsonException.class)
+    public void content_after_root_object() throws LwM2mJsonException {
+        read("{\"e\":[]} {}");
+    }
+
+    @Test(expected = LwM2mJsonException.class)
+    public void invalid_number() throws LwM2mJsonException {
+        read("{\"e\":[{\"n\":\"0\",\"v\":1.2.3}]}");
+    }
+}
@@ -0,0 +1,81 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.json;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+public class LwM2mJsonWriterTest {
+
+    @Test
+    public void same_output_as_object_binding() {
+        String name = "a\"b\\c<d>&='\n\u00e9\u20ac\ud83d\ude00\u2028";
+
+        ArrayList<JsonArrayEntry> entries = new ArrayList<>();
+        JsonArrayEntry elt1 = new JsonArrayEntry();
+        elt1.setName(name);
+        elt1.setStringValue(name);
+        entries.add(elt1);
+        JsonArrayEntry elt2 = new JsonArrayEntry();
+        elt2.setName("1/0");
+        elt2.setFloatValue(23.5d);
+        elt2.setTime(-5L);
+        entries.add(elt2);
+        JsonArrayEntry elt3 = new JsonArrayEntry();
+        elt3.setName("2");
+        elt3.setFloatValue(-1234567890123L);
+        entries.add(elt3);
+        JsonArrayEntry elt4 = new JsonArrayEntry();
+        elt4.setName("3");
+        elt4.setBooleanValue(true);
+        entries.add(elt4);
+        JsonRootObject root = new JsonRootObject(entries);
+        root.setBaseName("/3/0/");
+        root.setBaseTime(500L);
+
+        LwM2mJsonWriter writer = new LwM2mJsonWriter("/3/0/", 500L);
+        writer.beginEntry(name);
+        writer.stringValue(name);
+        writer.endEntry(null);
+        writer.beginEntry("1/0");
+        writer.numberValue(23.5d);
+        writer.endEntry(-5L);
+        writer.beginEntry("2");
+        writer.numberValue(-1234567890123L);
+        writer.endEntry(null);
+        writer.beginEntry("3");
+        writer.booleanValue(true);
+        writer.endEntry(null);
+
+        assertEquals(LwM2mJson.toJsonLwM2m(root), new String(writer.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void empty_entries() {
+        assertEquals("{\"e\":[]}", new String(new LwM2mJsonWriter().toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nan_is_rejected() {
+        LwM2mJsonWriter writer = new LwM2mJsonWriter();
+        writer.beginEntry("0");
+        writer.numberValue(Double.NaN);
+    }
+}
@@ -0,0 +1,108 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.tlv;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.util.Date;
+
+import org.eclipse.leshan.core.node.ObjectLink;
+import org.eclipse.leshan.tlv.Tlv.TlvType;
+import org.junit.Test;
+
+public class TlvReaderTest {
+
+    private static ByteBuffer encode(Tlv... tlvs) {
+        return TlvEncoder.encode(tlvs);
+    }
+
+    @Test
+    public void read_values_in_place() throws TlvException {
+        ByteBuffer buffer = encode(new Tlv(TlvType.RESOURCE_VALUE, null, TlvEncoder.encodeString("leshan"), 0),
+                new Tlv(TlvType.RESOURCE_VALUE, null, TlvEncoder.encodeInteger(-300), 1),
+                new Tlv(TlvType.RESOURCE_VALUE, null, TlvEncoder.encodeFloat(1.5d), 2),
+                new Tlv(TlvType.RESOURCE_VALUE, null, TlvEncoder.encodeBoolean(true), 3),
+                new Tlv(TlvType.RESOURCE_VALUE, null, TlvEncoder.encodeDate(new Date(1367491215000L)), 4),
+                new Tlv(TlvType.RESOURCE_VALUE, null, TlvEncoder.encodeObjlnk(new ObjectLink(0x1234, 0x5678)), 5));
+
+        TlvReader reader = new TlvReader(buffer);
+        assertTrue(reader.next());
+        assertEquals(TlvType.RESOURCE_VALUE, reader.getType());
+        assertEquals(0, reader.getIdentifier());
+        assertEquals("leshan", reader.readString());
+        assertTrue(reader.next());
+        assertEquals((short) -300, reader.readInteger());
+        assertTrue(reader.next());
+        assertEquals(1.5d, reader.readFloat());
+        assertTrue(reader.next());
+        assertTrue(reader.readBoolean());
+        assertTrue(reader.next());
+        assertEquals(new Date(1367491215000L), reader.readDate());
+        assertTrue(reader.next());
+        assertEquals(new ObjectLink(0x1234, 0x5678), reader.readObjlnk());
+        assertFalse(reader.hasNext());
+        assertFalse(reader.next());
+
+        // the buffer is not consumed
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    public void skip_and_read_children() throws TlvException {
+        Tlv[] instances = new Tlv[] { new Tlv(TlvType.RESOURCE_INSTANCE, null, new byte[] { 1 }, 0),
+                                new Tlv(TlvType.RESOURCE_INSTANCE, null, new byte[] { 2 }, 1) };
+        ByteBuffer buffer = encode(new Tlv(TlvType.OBJECT_INSTANCE,
+                new Tlv[] { new Tlv(TlvType.RESOURCE_VALUE, null, new byte[1000], 0),
+                                        new Tlv(TlvType.MULTIPLE_RESOURCE, instances, null, 1) },
+                null, 2));
+
+        TlvReader reader = new TlvReader(buffer);
+        assertTrue(reader.next());
+        assertEquals(TlvType.OBJECT_INSTANCE, reader.getType());
+        assertEquals(2, reader.getIdentifier());
+
+        TlvReader resources = reader.getChildren();
+        // skip the first resource without reading it
+        assertTrue(resources.next());
+        assertEquals(1000, resources.getLength());
+        assertTrue(resources.next());
+        assertEquals(TlvType.MULTIPLE_RESOURCE, resources.getType());
+        assertFalse(resources.hasNext());
+
+        TlvReader values = resources.getChildren();
+        assertTrue(values.next());
+        assertEquals((byte) 1, values.readInteger());
+        assertTrue(values.next());
+        assertEquals(1, values.getIdentifier());
+        assertArrayEquals(new byte[] { 2 }, values.readOpaque());
+        assertFalse(values.next());
+
+        // the cursor can go back to the first TLV
+        resources.rewind();
+        assertTrue(resources.next());
+        assertEquals(0, resources.getIdentifier());
+
+        assertFalse(reader.next());
+    }
+
+    @Test(expected = TlvException.class)
+    public void truncated_value() throws TlvException {
+        // resource value of length 4 with only 2 bytes
+        TlvReader reader = new TlvReader(ByteBuffer.wrap(new byte[] { (byte) 0b1100_0100, 0, 1, 2 }));
+        reader.next();
+    }
+}
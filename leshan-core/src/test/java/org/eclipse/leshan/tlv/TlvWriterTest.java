@@ -0,0 +1,84 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.tlv;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.eclipse.leshan.tlv.Tlv.TlvType;
+import org.junit.Test;
+
+public class TlvWriterTest {
+
+    private static Tlv[] nestedTlvs() {
+        Tlv value = new Tlv(TlvType.RESOURCE_VALUE, null, TlvEncoder.encodeString("leshan"), 0);
+        Tlv[] instances = new Tlv[] { new Tlv(TlvType.RESOURCE_INSTANCE, null, new byte[300], 0),
+                                new Tlv(TlvType.RESOURCE_INSTANCE, null, new byte[] { 1 }, 300) };
+        Tlv multiple = new Tlv(TlvType.MULTIPLE_RESOURCE, instances, null, 7);
+        return new Tlv[] { new Tlv(TlvType.OBJECT_INSTANCE, new Tlv[] { value, multiple }, null, 1) };
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.position()];
+        buffer.flip();
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    @Test
+    public void nested_containers_can_be_decoded() throws TlvException {
+        TlvWriter writer = new TlvWriter(ByteBuffer.allocate(512));
+        for (Tlv tlv : nestedTlvs()) {
+            writer.write(tlv);
+        }
+
+        Tlv[] decoded = TlvDecoder.decode(ByteBuffer.wrap(toArray(writer.getBuffer())));
+        assertArrayEquals(nestedTlvs(), decoded);
+    }
+
+    @Test
+    public void small_buffer_grows_and_keeps_previous_content() throws TlvException {
+        ByteBuffer buffer = ByteBuffer.allocate(4);
+        buffer.put((byte) 0xAB);
+
+        TlvWriter writer = new TlvWriter(buffer);
+        for (Tlv tlv : nestedTlvs()) {
+            writer.write(tlv);
+        }
+        byte[] bytes = toArray(writer.getBuffer());
+
+        assertEquals((byte) 0xAB, bytes[0]);
+        assertArrayEquals(TlvEncoder.encode(nestedTlvs()).array(), Arrays.copyOfRange(bytes, 1, bytes.length));
+    }
+
+    @Test
+    public void direct_buffer_gives_same_bytes() {
+        TlvWriter writer = new TlvWriter(ByteBuffer.allocateDirect(16));
+        for (Tlv tlv : nestedTlvs()) {
+            writer.write(tlv);
+        }
+
+        assertArrayEquals(TlvEncoder.encode(nestedTlvs()).array(), toArray(writer.getBuffer()));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void end_without_container() {
+        new TlvWriter(ByteBuffer.allocate(16)).endContainer();
+    }
+}
@@ -0,0 +1,98 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.util;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class TimingWheelTest {
+
+    private static final long START = 1_000_000L;
+
+    private TimingWheel<String> wheel;
+
+    @Before
+    public void setUp() {
+        // 10ms tick, 4 buckets per level: levels span 40ms, 160ms, 640ms, ...
+        wheel = new TimingWheel<>(10, 4, START);
+    }
+
+    @Test
+    public void key_expires_at_the_end_of_its_tick() {
+        wheel.schedule("a", START + 25);
+
+        assertEquals(Collections.emptyList(), wheel.advance(START + 25));
+        assertEquals(Arrays.asList("a"), wheel.advance(START + 30));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void key_scheduled_in_the_past_expires_on_next_advance() {
+        wheel.schedule("a", START - 100);
+
+        assertEquals(Arrays.asList("a"), wheel.advance(START));
+    }
+
+    @Test
+    public void key_in_upper_levels_is_never_expired_early() {
+        wheel.schedule("a", START + 1234);
+
+        for (long now = START; now < START + 1234; now += 7) {
+            assertEquals(Collections.emptyList(), wheel.advance(now));
+        }
+        assertEquals(Arrays.asList("a"), wheel.advance(START + 1240));
+    }
+
+    @Test
+    public void large_time_jump_expires_all_due_keys() {
+        wheel.schedule("a", START + 15);
+        wheel.schedule("b", START + 500);
+        wheel.schedule("c", START + 5000);
+
+        List<String> expired = wheel.advance(START + 1000);
+
+        assertEquals(Arrays.asList("a", "b"), expired);
+        assertEquals(1, wheel.size());
+        assertEquals(Arrays.asList("c"), wheel.advance(START + 5010));
+    }
+
+    @Test
+    public void reschedule_replaces_expiration_time() {
+        wheel.schedule("a", START + 15);
+        wheel.schedule("a", START + 300);
+
+        assertEquals(Collections.emptyList(), wheel.advance(START + 100));
+        assertEquals(Arrays.asList("a"), wheel.advance(START + 310));
+    }
+
+    @Test
+    public void cancelled_key_does_not_expire() {
+        wheel.schedule("a", START + 15);
+        wheel.schedule("b", START + 300);
+
+        assertTrue(wheel.cancel("a"));
+        assertTrue(wheel.cancel("b"));
+        assertFalse(wheel.cancel("b"));
+
+        assertEquals(Collections.emptyList(), wheel.advance(START + 1000));
+    }
+}
@@ -49,6 +49,7 @@ import org.eclipse.leshan.server.impl.InMemorySecurityStore;
 import org.eclipse.leshan.server.impl.RegistrationServiceImpl;
 import org.eclipse.leshan.server.model.StaticModelProvider;
 import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationAdmissionControl;
 import org.eclipse.leshan.server.registration.RegistrationListener;
 import org.eclipse.leshan.server.registration.RegistrationUpdate;
 
@@ -143,11 +144,16 @@ public class IntegrationTestHelper {
     }
 
     public void createServer() {
+        createServer(null);
+    }
+
+    public void createServer(RegistrationAdmissionControl admissionControl) {
         LeshanServerBuilder builder = new LeshanServerBuilder();
         builder.setObjectModelProvider(new StaticModelProvider(createObjectModels()));
         builder.setLocalAddress(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
         builder.setLocalSecureAddress(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
         builder.setSecurityStore(new InMemorySecurityStore());
+        builder.setRegistrationAdmissionControl(admissionControl);
         server = builder.build();
         // monitor client registration
         setupRegistrationMonitoring();
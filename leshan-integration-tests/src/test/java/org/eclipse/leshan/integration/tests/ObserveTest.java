@@ -354,7 +354,7 @@ public class ObserveTest {
         }
     }
 
-    private final class TestObservationListener implements ObservationListener {
+    final class TestObservationListener implements ObservationListener {
 
         private final CountDownLatch latch = new CountDownLatch(1);
         private final AtomicBoolean receivedNotify = new AtomicBoolean();
@@ -23,11 +23,16 @@ import static org.hamcrest.core.Is.is;
 import static org.hamcrest.core.IsInstanceOf.instanceOf;
 import static org.junit.Assert.*;
 
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
 import org.eclipse.californium.core.coap.Response;
 import org.eclipse.leshan.core.node.LwM2mObject;
 import org.eclipse.leshan.core.node.LwM2mObjectInstance;
 import org.eclipse.leshan.core.node.LwM2mResource;
 import org.eclipse.leshan.core.request.ReadRequest;
+import org.eclipse.leshan.core.request.exception.TimeoutException;
+import org.eclipse.leshan.core.response.LwM2mResponseFuture;
 import org.eclipse.leshan.core.response.ReadResponse;
 import org.junit.After;
 import org.junit.Before;
@@ -115,6 +120,34 @@ public class ReadTest {
         assertEquals(IntegrationTestHelper.MODEL_NUMBER, resource.getValue());
     }
 
+    @Test
+    public void can_read_resource_asynchronously() throws Exception {
+        // read device model number
+        LwM2mResponseFuture<ReadResponse> future = helper.server.sendAsync(helper.getCurrentRegistration(),
+                new ReadRequest(3, 0, 1), 5000);
+        ReadResponse response = future.get(5, TimeUnit.SECONDS);
+
+        // verify result
+        assertEquals(CONTENT, response.getCode());
+        LwM2mResource resource = (LwM2mResource) response.getContent();
+        assertEquals(IntegrationTestHelper.MODEL_NUMBER, resource.getValue());
+    }
+
+    @Test
+    public void asynchronous_read_times_out() throws Exception {
+        // the client does not answer anymore
+        helper.client.stop(false);
+
+        LwM2mResponseFuture<ReadResponse> future = helper.server.sendAsync(helper.getCurrentRegistration(),
+                new ReadRequest(3, 0, 1), 500);
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("read should time out");
+        } catch (ExecutionException e) {
+            assertThat(e.getCause(), is(instanceOf(TimeoutException.class)));
+        }
+    }
+
     @Test
     public void cannot_read_non_readable_resource() throws InterruptedException {
         // read device reboot resource
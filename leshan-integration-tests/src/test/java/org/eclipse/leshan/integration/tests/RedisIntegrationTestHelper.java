@@ -34,6 +34,10 @@ import redis.clients.jedis.JedisPool;
 import redis.clients.util.Pool;
 
 public class RedisIntegrationTestHelper extends IntegrationTestHelper {
+
+    Pool<Jedis> jedis;
+    RedisRegistrationStore registrationStore;
+
     @Override
     public void createServer() {
         LeshanServerBuilder builder = new LeshanServerBuilder();
@@ -49,8 +53,9 @@ public class RedisIntegrationTestHelper extends IntegrationTestHelper {
         String redisURI = System.getenv("REDIS_URI");
         if (redisURI == null)
             redisURI = "";
-        Pool<Jedis> jedis = new JedisPool(redisURI);
-        builder.setRegistrationStore(new RedisRegistrationStore(jedis));
+        jedis = new JedisPool(redisURI);
+        registrationStore = new RedisRegistrationStore(jedis);
+        builder.setRegistrationStore(registrationStore);
 
         // Build server !
         server = builder.build();
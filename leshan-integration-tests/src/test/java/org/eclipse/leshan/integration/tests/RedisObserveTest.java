@@ -15,9 +15,94 @@
  *******************************************************************************/
 package org.eclipse.leshan.integration.tests;
 
+import static org.junit.Assert.*;
+
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.leshan.ResponseCode;
+import org.eclipse.leshan.core.node.LwM2mSingleResource;
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.core.request.ObserveRequest;
+import org.eclipse.leshan.core.request.WriteRequest;
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.core.response.ObserveResponse;
+import org.eclipse.leshan.server.cluster.serialization.ObservationSerDes;
+import org.junit.Test;
+
+import redis.clients.jedis.Jedis;
+
 public class RedisObserveTest extends ObserveTest {
 
     public RedisObserveTest() {
         helper = new RedisIntegrationTestHelper();
     }
+
+    @Test
+    public void can_receive_notifications_of_observation_stored_by_previous_version() throws InterruptedException {
+        TestObservationListener listener = new TestObservationListener();
+        helper.server.getObservationService().addListener(listener);
+
+        // observe device timezone
+        ObserveResponse observeResponse = helper.server.send(helper.getCurrentRegistration(),
+                new ObserveRequest(3, 0, 15));
+        assertEquals(ResponseCode.CONTENT, observeResponse.getCode());
+        storeInPreviousLayout((RedisIntegrationTestHelper) helper, observeResponse.getObservation());
+        assertEquals(1, helper.server.getObservationService().getObservations(helper.getCurrentRegistration())
+                .size());
+
+        // write device timezone
+        LwM2mResponse writeResponse = helper.server.send(helper.getCurrentRegistration(),
+                new WriteRequest(3, 0, 15, "Europe/Paris"));
+
+        // verify result
+        listener.waitForNotification(2000);
+        assertEquals(ResponseCode.CHANGED, writeResponse.getCode());
+        assertTrue(listener.receivedNotify().get());
+        assertEquals(LwM2mSingleResource.newStringResource(15, "Europe/Paris"), listener.getResponse().getContent());
+    }
+
+    @Test
+    public void token_collision_removes_observation_stored_by_previous_version() throws InterruptedException {
+        RedisIntegrationTestHelper redisHelper = (RedisIntegrationTestHelper) helper;
+        ObserveResponse observeResponse = helper.server.send(helper.getCurrentRegistration(),
+                new ObserveRequest(3, 0, 15));
+        assertEquals(ResponseCode.CONTENT, observeResponse.getCode());
+        String registrationId = observeResponse.getObservation().getRegistrationId();
+        Request request = storeInPreviousLayout(redisHelper, observeResponse.getObservation());
+
+        // a new observation with the same token
+        redisHelper.registrationStore.add(new org.eclipse.californium.core.observe.Observation(request, null));
+
+        try (Jedis j = redisHelper.jedis.getResource()) {
+            assertTrue(j.lrange(("TKNS:REGID:" + registrationId).getBytes(), 0, -1).isEmpty());
+        }
+        assertEquals(1, helper.server.getObservationService().getObservations(helper.getCurrentRegistration())
+                .size());
+    }
+
+    /**
+     * Moves the observation to the layout used by previous versions: the observation in JSON by token and a list of
+     * tokens by registration.
+     * 
+     * @return the CoAP request of the observation
+     */
+    private static Request storeInPreviousLayout(RedisIntegrationTestHelper redisHelper, Observation observation) {
+        String registrationId = observation.getRegistrationId();
+        try (Jedis j = redisHelper.jedis.getResource()) {
+            byte[] obsKey = ("OBS:REGID:" + registrationId).getBytes();
+            Request request = ObservationSerDes.deserialize(j.hget(obsKey, observation.getId())).getRequest();
+
+            j.hdel(obsKey, observation.getId());
+            j.set(concat("OBS:TKN:".getBytes(), observation.getId()), ObservationSerDes.serialize(
+                    new org.eclipse.californium.core.observe.Observation(request, null)));
+            j.lpush(("TKNS:REGID:" + registrationId).getBytes(), observation.getId());
+            return request;
+        }
+    }
+
+    private static byte[] concat(byte[] prefix, byte[] key) {
+        byte[] result = new byte[prefix.length + key.length];
+        System.arraycopy(prefix, 0, result, 0, prefix.length);
+        System.arraycopy(key, 0, result, prefix.length, key.length);
+        return result;
+    }
 }
@@ -15,9 +15,185 @@
  *******************************************************************************/
 package org.eclipse.leshan.integration.tests;
 
+import static org.junit.Assert.*;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Collection;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.Link;
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.server.cluster.RedisRegistrationStore;
+import org.eclipse.leshan.server.cluster.serialization.RegistrationSerDes;
+import org.eclipse.leshan.server.registration.ExpirationListener;
+import org.eclipse.leshan.server.registration.Registration;
+import org.junit.Test;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+
 public class RedisRegistrationTest extends RegistrationTest {
 
     public RedisRegistrationTest() {
         helper = new RedisIntegrationTestHelper();
     }
+
+    @Test
+    public void registration_is_indexed_by_address() {
+        RedisIntegrationTestHelper redisHelper = (RedisIntegrationTestHelper) helper;
+        helper.client.start();
+        helper.waitForRegistration(1);
+
+        Registration registration = helper.getCurrentRegistration();
+        InetSocketAddress address = new InetSocketAddress(registration.getAddress(), registration.getPort());
+        assertEquals(registration.getId(), redisHelper.registrationStore.getRegistrationByAdress(address).getId());
+        assertNull(redisHelper.registrationStore
+                .getRegistrationByAdress(new InetSocketAddress(registration.getAddress(), registration.getPort() + 1)));
+
+        // the registered event is raised before the client gets the response, so stopping the client now could
+        // interrupt its registration instead of deregistering it: remove the registration from the store
+        redisHelper.registrationStore.removeRegistration(registration.getId());
+        assertNull(redisHelper.registrationStore.getRegistrationByAdress(address));
+    }
+
+    @Test
+    public void registration_is_stored_in_json_unless_binary_format_is_enabled() {
+        RedisIntegrationTestHelper redisHelper = (RedisIntegrationTestHelper) helper;
+        Registration registration = new Registration.Builder("formatId", "formatEndpoint",
+                InetAddress.getLoopbackAddress(), 5683, new InetSocketAddress(5683)).objectLinks(new Link[0]).build();
+
+        RedisRegistrationStore store = new RedisRegistrationStore(redisHelper.jedis);
+        try (Jedis j = redisHelper.jedis.getResource()) {
+            // JSON by default, so the nodes of previous versions can read it
+            store.addRegistration(registration);
+            assertEquals('{', j.get("REG:EP:formatEndpoint".getBytes())[0]);
+
+            store.setBinaryFormat(true);
+            store.addRegistration(registration);
+            assertNotEquals('{', j.get("REG:EP:formatEndpoint".getBytes())[0]);
+            assertEquals("formatId", store.getRegistration("formatId").getId());
+        } finally {
+            store.removeRegistration("formatId");
+        }
+    }
+
+    @Test
+    public void registration_stored_by_previous_version_expires() throws InterruptedException {
+        RedisIntegrationTestHelper redisHelper = (RedisIntegrationTestHelper) helper;
+
+        // store an expired registration as previous versions did: in JSON and without expiration index
+        Registration registration = new Registration.Builder("legacyId", "legacyEndpoint",
+                InetAddress.getLoopbackAddress(), 5683, new InetSocketAddress(5683)).objectLinks(new Link[0])
+                        .lifeTimeInSec(1L).lastUpdate(new Date(System.currentTimeMillis() - 10000)).build();
+        try (Jedis j = redisHelper.jedis.getResource()) {
+            j.set("REG:EP:legacyEndpoint", RegistrationSerDes.sSerialize(registration));
+            j.set("EP:REGID:legacyId", "legacyEndpoint");
+        }
+
+        final CountDownLatch expired = new CountDownLatch(1);
+        RedisRegistrationStore store = new RedisRegistrationStore(redisHelper.jedis, 1);
+        store.setExpirationListener(new ExpirationListener() {
+            @Override
+            public void registrationExpired(Registration registration, Collection<Observation> observations) {
+                if (registration.getEndpoint().equals("legacyEndpoint")) {
+                    expired.countDown();
+                }
+            }
+        });
+        store.start();
+        try {
+            assertTrue(expired.await(5, TimeUnit.SECONDS));
+            assertNull(store.getRegistration("legacyId"));
+        } finally {
+            store.stop();
+        }
+    }
+
+    @Test
+    public void registration_stored_by_previous_version_is_indexed_by_address() throws InterruptedException {
+        RedisIntegrationTestHelper redisHelper = (RedisIntegrationTestHelper) helper;
+
+        // store a registration as previous versions did: in JSON and without socket address index
+        Registration registration = new Registration.Builder("legacyId", "legacyEndpoint",
+                InetAddress.getLoopbackAddress(), 5683, new InetSocketAddress(5683)).objectLinks(new Link[0]).build();
+        try (Jedis j = redisHelper.jedis.getResource()) {
+            j.set("REG:EP:legacyEndpoint", RegistrationSerDes.sSerialize(registration));
+            j.set("EP:REGID:legacyId", "legacyEndpoint");
+        }
+
+        RedisRegistrationStore store = new RedisRegistrationStore(redisHelper.jedis);
+        InetSocketAddress address = new InetSocketAddress(registration.getAddress(), registration.getPort());
+        assertNull(store.getRegistrationByAdress(address));
+        store.start();
+        try {
+            // the registration is indexed in background
+            Registration found = null;
+            for (int i = 0; i < 50 && found == null; i++) {
+                Thread.sleep(100);
+                found = store.getRegistrationByAdress(address);
+            }
+            assertNotNull(found);
+            assertEquals("legacyId", found.getId());
+            Iterator<Registration> sorted = store.getRegistrations("legacyEndpoint", true);
+            assertTrue(sorted.hasNext());
+            assertEquals("legacyId", sorted.next().getId());
+        } finally {
+            store.removeRegistration("legacyId");
+            store.stop();
+        }
+    }
+
+    @Test
+    public void registrations_are_iterated_in_endpoint_order() {
+        RedisIntegrationTestHelper redisHelper = (RedisIntegrationTestHelper) helper;
+        helper.client.start();
+        helper.waitForRegistration(1);
+
+        // other tests may leave registrations in the store, so start from the current endpoint
+        Registration registration = helper.getCurrentRegistration();
+        Iterator<Registration> it = redisHelper.registrationStore.getRegistrations(registration.getEndpoint(), true);
+        assertTrue(it.hasNext());
+        assertEquals(registration.getId(), it.next().getId());
+        it = redisHelper.registrationStore.getRegistrations(registration.getEndpoint(), false);
+        assertTrue(!it.hasNext() || it.next().getEndpoint().compareTo(registration.getEndpoint()) > 0);
+
+        redisHelper.registrationStore.removeRegistration(registration.getId());
+        it = redisHelper.registrationStore.getRegistrations(registration.getEndpoint(), true);
+        assertTrue(!it.hasNext() || !it.next().getEndpoint().equals(registration.getEndpoint()));
+    }
+
+    @Test
+    public void all_registrations_are_iterated_over_empty_scan_pages() {
+        RedisIntegrationTestHelper redisHelper = (RedisIntegrationTestHelper) helper;
+        helper.client.start();
+        helper.waitForRegistration(1);
+
+        // other keys make most of the SCAN pages empty
+        try (Jedis j = redisHelper.jedis.getResource()) {
+            Pipeline p = j.pipelined();
+            for (int i = 0; i < 2000; i++) {
+                p.set("OTHER:" + i, "value");
+            }
+            p.sync();
+        }
+        try {
+            boolean found = false;
+            for (Iterator<Registration> it = redisHelper.registrationStore.getAllRegistrations(); it.hasNext();) {
+                found |= it.next().getId().equals(helper.getCurrentRegistration().getId());
+            }
+            assertTrue(found);
+        } finally {
+            try (Jedis j = redisHelper.jedis.getResource()) {
+                Pipeline p = j.pipelined();
+                for (int i = 0; i < 2000; i++) {
+                    p.del("OTHER:" + i);
+                }
+                p.sync();
+            }
+        }
+    }
 }
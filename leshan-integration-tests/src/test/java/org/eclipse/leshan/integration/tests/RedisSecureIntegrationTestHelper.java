@@ -25,6 +25,7 @@ import org.eclipse.leshan.core.observation.Observation;
 import org.eclipse.leshan.server.californium.LeshanServerBuilder;
 import org.eclipse.leshan.server.cluster.RedisRegistrationStore;
 import org.eclipse.leshan.server.cluster.RedisSecurityStore;
+import org.eclipse.leshan.server.impl.EditableCachingSecurityStore;
 import org.eclipse.leshan.server.model.StaticModelProvider;
 import org.eclipse.leshan.server.registration.Registration;
 import org.eclipse.leshan.server.registration.RegistrationListener;
@@ -51,7 +52,7 @@ public class RedisSecureIntegrationTestHelper extends SecureIntegrationTestHelpe
             redisURI = "";
         Pool<Jedis> jedis = new JedisPool(redisURI);
         builder.setRegistrationStore(new RedisRegistrationStore(jedis));
-        builder.setSecurityStore(new RedisSecurityStore(jedis));
+        builder.setSecurityStore(new EditableCachingSecurityStore(new RedisSecurityStore(jedis)));
 
         // Build server !
         server = builder.build();
@@ -15,8 +15,99 @@
  *******************************************************************************/
 package org.eclipse.leshan.integration.tests;
 
+import static org.eclipse.leshan.integration.tests.SecureIntegrationTestHelper.GOOD_PSK_KEY;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.eclipse.leshan.server.cluster.RedisSecurityCacheInvalidator;
+import org.eclipse.leshan.server.cluster.RedisSecurityStore;
+import org.eclipse.leshan.server.impl.CachingSecurityStore;
+import org.eclipse.leshan.server.security.EditableSecurityStore;
+import org.eclipse.leshan.server.security.NonUniqueSecurityInfoException;
+import org.eclipse.leshan.server.security.SecurityInfo;
+import org.junit.Test;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.util.Pool;
+
 public class RedisSecurityTest extends SecurityTest {
     public RedisSecurityTest() {
         helper = new RedisSecureIntegrationTestHelper();
     }
+
+    @Test
+    public void cached_security_info_is_invalidated_by_other_nodes()
+            throws NonUniqueSecurityInfoException, InterruptedException {
+        helper.createServer();
+        helper.server.start();
+
+        // another node of the cluster
+        String redisURI = System.getenv("REDIS_URI");
+        Pool<Jedis> jedis = new JedisPool(redisURI == null ? "" : redisURI);
+        CachingSecurityStore otherNode = new CachingSecurityStore(new RedisSecurityStore(jedis));
+        RedisSecurityCacheInvalidator invalidator = new RedisSecurityCacheInvalidator(jedis, otherNode);
+        invalidator.start();
+        try {
+            // wait for the subscription
+            while (otherNode.getInvalidationCount() == 0) {
+                Thread.sleep(10);
+            }
+            String endpoint = helper.getCurrentEndpoint();
+            assertNull(otherNode.getByEndpoint(endpoint));
+
+            // the missing security info is cached until the invalidation message is received
+            SecurityInfo info = SecurityInfo.newPreSharedKeyInfo(endpoint, "cached_identity", GOOD_PSK_KEY);
+            helper.getSecurityStore().add(info);
+            long end = System.currentTimeMillis() + 5000;
+            while (otherNode.getByEndpoint(endpoint) == null && System.currentTimeMillis() < end) {
+                Thread.sleep(10);
+            }
+            assertEquals(info, otherNode.getByIdentity("cached_identity"));
+        } finally {
+            invalidator.stop();
+            jedis.destroy();
+        }
+    }
+
+    @Test
+    public void security_infos_are_added_and_removed_by_batch() throws NonUniqueSecurityInfoException {
+        helper.createServer();
+        EditableSecurityStore store = helper.getSecurityStore();
+        List<SecurityInfo> batch = new ArrayList<>();
+        List<String> endpoints = new ArrayList<>();
+        try {
+            // more than a pipeline
+            for (int i = 0; i < 2500; i++) {
+                batch.add(SecurityInfo.newPreSharedKeyInfo("batch_ep" + i, "batch_id" + i, GOOD_PSK_KEY));
+                endpoints.add("batch_ep" + i);
+            }
+            store.add(batch.get(0));
+            assertEquals(Arrays.asList(batch.get(0)), store.addAll(batch));
+            assertEquals("batch_ep2499", store.getByIdentity("batch_id2499").getEndpoint());
+
+            int count = 0;
+            for (Iterator<SecurityInfo> it = store.iterateAll(); it.hasNext();) {
+                if (it.next().getEndpoint().startsWith("batch_ep")) {
+                    count++;
+                }
+            }
+            assertEquals(2500, count);
+
+            // identities can be swapped in a single batch
+            store.addAll(Arrays.asList(SecurityInfo.newPreSharedKeyInfo("batch_ep0", "batch_id1", GOOD_PSK_KEY),
+                    SecurityInfo.newPreSharedKeyInfo("batch_ep1", "batch_id0", GOOD_PSK_KEY)));
+            assertEquals("batch_ep1", store.getByIdentity("batch_id0").getEndpoint());
+            assertEquals("batch_ep0", store.getByIdentity("batch_id1").getEndpoint());
+        } finally {
+            assertEquals(2500, store.removeAll(endpoints).size());
+            assertNull(store.getByEndpoint("batch_ep0"));
+            assertNull(store.getByIdentity("batch_id0"));
+        }
+    }
 }
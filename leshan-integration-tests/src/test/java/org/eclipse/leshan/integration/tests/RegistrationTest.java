@@ -31,6 +31,7 @@ import java.util.Map;
 import java.util.Set;
 
 import org.eclipse.californium.core.coap.CoAP.Code;
+import org.eclipse.californium.core.coap.CoAP.Type;
 import org.eclipse.californium.core.coap.Request;
 import org.eclipse.californium.core.coap.Response;
 import org.eclipse.californium.core.network.CoapEndpoint;
@@ -54,6 +55,7 @@ import org.eclipse.leshan.core.response.ObserveResponse;
 import org.eclipse.leshan.core.response.ReadResponse;
 import org.eclipse.leshan.core.response.RegisterResponse;
 import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationAdmissionControl;
 import org.eclipse.leshan.server.security.NonUniqueSecurityInfoException;
 import org.junit.After;
 import org.junit.Before;
@@ -310,4 +312,48 @@ public class RegistrationTest {
         assertEquals(response.getCode(), org.eclipse.californium.core.coap.CoAP.ResponseCode.BAD_REQUEST);
         coapEndpoint.stop();
     }
+
+    @Test
+    public void register_is_rejected_when_server_is_overloaded() throws InterruptedException, IOException {
+        // a single registration admitted per second
+        RegistrationAdmissionControl admissionControl = new RegistrationAdmissionControl.Builder().globalRate(1, 1)
+                .retryAfter(10).build();
+        helper.server.destroy();
+        helper.createServer(admissionControl);
+        helper.server.start();
+
+        CoapEndpoint coapEndpoint = new CoapEndpoint(new InetSocketAddress(0));
+        coapEndpoint.start();
+        try {
+            Response response = register(coapEndpoint, "endpoint1");
+            assertEquals(org.eclipse.californium.core.coap.CoAP.ResponseCode.CREATED, response.getCode());
+            // the admitted registration is acknowledged before it is queued, so the response is a separate one
+            assertEquals(Type.CON, response.getType());
+            assertNotNull(helper.server.getRegistrationService().getByEndpoint("endpoint1"));
+
+            // the client is asked to retry later
+            response = register(coapEndpoint, "endpoint2");
+            assertEquals(org.eclipse.californium.core.coap.CoAP.ResponseCode.SERVICE_UNAVAILABLE, response.getCode());
+            assertEquals(Type.ACK, response.getType());
+            assertTrue(response.getOptions().getMaxAge() >= 10 && response.getOptions().getMaxAge() <= 20);
+            assertNull(helper.server.getRegistrationService().getByEndpoint("endpoint2"));
+
+            assertEquals(1, admissionControl.getAdmittedCount());
+            assertEquals(1, admissionControl.getGlobalRejectedCount());
+        } finally {
+            coapEndpoint.stop();
+        }
+    }
+
+    private Response register(CoapEndpoint coapEndpoint, String endpoint) throws InterruptedException {
+        Request coapRequest = new Request(Code.POST);
+        coapRequest.setDestination(helper.server.getNonSecureAddress().getAddress());
+        coapRequest.setDestinationPort(helper.server.getNonSecureAddress().getPort());
+        coapRequest.getOptions().setContentFormat(ContentFormat.LINK.getCode());
+        coapRequest.getOptions().addUriPath("rd");
+        coapRequest.getOptions().addUriQuery("ep=" + endpoint);
+        coapRequest.setPayload("</1>,</3/0>");
+        coapEndpoint.sendRequest(coapRequest);
+        return coapRequest.waitForResponse(1000);
+    }
 }
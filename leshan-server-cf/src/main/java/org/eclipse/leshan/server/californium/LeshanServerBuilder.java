@@ -27,6 +27,7 @@ import org.eclipse.californium.core.network.config.NetworkConfig.Keys;
 import org.eclipse.californium.scandium.config.DtlsConnectorConfig;
 import org.eclipse.leshan.LwM2m;
 import org.eclipse.leshan.core.node.LwM2mNode;
+import org.eclipse.leshan.core.node.codec.CachingLwM2mNodeEncoder;
 import org.eclipse.leshan.core.node.codec.DefaultLwM2mNodeDecoder;
 import org.eclipse.leshan.core.node.codec.DefaultLwM2mNodeEncoder;
 import org.eclipse.leshan.core.node.codec.LwM2mNodeDecoder;
@@ -43,6 +44,7 @@ import org.eclipse.leshan.server.model.LwM2mModelProvider;
 import org.eclipse.leshan.server.model.StandardModelProvider;
 import org.eclipse.leshan.server.observation.ObservationService;
 import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationAdmissionControl;
 import org.eclipse.leshan.server.registration.RegistrationService;
 import org.eclipse.leshan.server.registration.RegistrationStore;
 import org.eclipse.leshan.server.security.Authorizer;
@@ -82,6 +84,8 @@ public class LeshanServerBuilder {
     private NetworkConfig coapConfig;
     private DtlsConnectorConfig.Builder dtlsConfigBuilder;
 
+    private RegistrationAdmissionControl admissionControl;
+
     /**
      * <p>
      * Set the address/port for unsecured CoAP Server.
@@ -263,6 +267,10 @@ public class LeshanServerBuilder {
      * Set the {@link LwM2mNodeEncoder} which will encode {@link LwM2mNode} with supported content format.
      * </p>
      * By default the {@link DefaultLwM2mNodeEncoder} is used. It supports Text, Opaque, TLV and JSON format.
+     * <p>
+     * When the same request is sent to many clients (e.g. with a
+     * {@link org.eclipse.leshan.server.request.BulkOperation}), a {@link CachingLwM2mNodeEncoder} can be set so the
+     * payload is only encoded once per model.
      */
     public LeshanServerBuilder setEncoder(LwM2mNodeEncoder encoder) {
         this.encoder = encoder;
@@ -296,6 +304,19 @@ public class LeshanServerBuilder {
         return this;
     }
 
+    /**
+     * <p>
+     * Set the {@link RegistrationAdmissionControl} which limits the registrations handled by the server, so the
+     * clients are asked to retry later during a registration storm.
+     * </p>
+     * By default there is no admission control: all the registrations are handled as soon as they are received. The
+     * admission control is destroyed with the server.
+     */
+    public LeshanServerBuilder setRegistrationAdmissionControl(RegistrationAdmissionControl admissionControl) {
+        this.admissionControl = admissionControl;
+        return this;
+    }
+
     public LeshanServer build() {
         if (localAddress == null)
             localAddress = new InetSocketAddress(LwM2m.DEFAULT_COAP_PORT);
@@ -401,6 +422,6 @@ public class LeshanServerBuilder {
         }
 
         return new LeshanServer(localAddress, registrationStore, registrationService, observationService, securityStore,
-                authorizer, modelProvider, encoder, decoder, coapConfig, dtlsConfig);
+                authorizer, modelProvider, encoder, decoder, coapConfig, dtlsConfig, admissionControl);
     }
 }
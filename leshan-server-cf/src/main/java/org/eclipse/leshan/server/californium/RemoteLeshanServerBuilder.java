@@ -43,6 +43,7 @@ import org.eclipse.leshan.server.model.LwM2mModelProvider;
 import org.eclipse.leshan.server.model.StandardModelProvider;
 import org.eclipse.leshan.server.observation.ObservationService;
 import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationAdmissionControl;
 import org.eclipse.leshan.server.registration.RegistrationService;
 import org.eclipse.leshan.server.registration.RegistrationStore;
 import org.eclipse.leshan.server.security.Authorizer;
@@ -82,6 +83,8 @@ public class RemoteLeshanServerBuilder {
     private NetworkConfig coapConfig;
     private DtlsConnectorConfig.Builder dtlsConfigBuilder;
 
+    private RegistrationAdmissionControl admissionControl;
+
     /**
      * <p>
      * Set the address/port for unsecured CoAP Server.
@@ -296,6 +299,19 @@ public class RemoteLeshanServerBuilder {
         return this;
     }
 
+    /**
+     * <p>
+     * Set the {@link RegistrationAdmissionControl} which limits the registrations handled by the server, so the
+     * clients are asked to retry later during a registration storm.
+     * </p>
+     * By default there is no admission control: all the registrations are handled as soon as they are received. The
+     * admission control is destroyed with the server.
+     */
+    public RemoteLeshanServerBuilder setRegistrationAdmissionControl(RegistrationAdmissionControl admissionControl) {
+        this.admissionControl = admissionControl;
+        return this;
+    }
+
     public RemoteLeshanServer build() {
         if (localAddress == null)
             localAddress = new InetSocketAddress(LwM2m.DEFAULT_COAP_PORT);
@@ -403,6 +419,6 @@ public class RemoteLeshanServerBuilder {
         }
 
         return new RemoteLeshanServer(localAddress, registrationStore, registrationService, observationService,
-                securityStore, authorizer, modelProvider, encoder, decoder, coapConfig, dtlsConfig);
+                securityStore, authorizer, modelProvider, encoder, decoder, coapConfig, dtlsConfig, admissionControl);
     }
 }
@@ -20,6 +20,7 @@ import java.util.Set;
 import java.util.SortedMap;
 import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ScheduledExecutorService;
 
 import org.eclipse.californium.core.coap.MessageObserverAdapter;
 import org.eclipse.californium.core.coap.Request;
@@ -33,6 +34,7 @@ import org.eclipse.leshan.core.node.codec.LwM2mNodeEncoder;
 import org.eclipse.leshan.core.request.DownlinkRequest;
 import org.eclipse.leshan.core.response.ErrorCallback;
 import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.core.response.LwM2mResponseFuture;
 import org.eclipse.leshan.core.response.ResponseCallback;
 import org.eclipse.leshan.server.model.LwM2mModelProvider;
 import org.eclipse.leshan.server.registration.Registration;
@@ -46,6 +48,8 @@ public class CaliforniumLwM2mRequestSender implements LwM2mRequestSender {
     private final LwM2mModelProvider modelProvider;
     private final LwM2mNodeDecoder decoder;
     private final LwM2mNodeEncoder encoder;
+    // handles the timeout of the asynchronous requests
+    private final ScheduledExecutorService timeoutScheduler;
     // A map which contains all pending CoAP requests
     // This is mainly used to cancel request and avoid retransmission on de-registration
     private final ConcurrentNavigableMap<String/* registrationId#requestId */, Request /* pending coap Request */> pendingRequests = new ConcurrentSkipListMap<>();
@@ -54,17 +58,21 @@ public class CaliforniumLwM2mRequestSender implements LwM2mRequestSender {
      * @param endpoints the CoAP endpoints to use for sending requests
      * @param observationService the service for keeping track of observed resources
      * @param modelProvider provides the supported objects definitions
+     * @param timeoutScheduler the scheduler in charge of the timeout of asynchronous requests
      */
     public CaliforniumLwM2mRequestSender(Set<Endpoint> endpoints, ObservationServiceImpl observationService,
-            LwM2mModelProvider modelProvider, LwM2mNodeEncoder encoder, LwM2mNodeDecoder decoder) {
+            LwM2mModelProvider modelProvider, LwM2mNodeEncoder encoder, LwM2mNodeDecoder decoder,
+            ScheduledExecutorService timeoutScheduler) {
         Validate.notNull(endpoints);
         Validate.notNull(observationService);
         Validate.notNull(modelProvider);
+        Validate.notNull(timeoutScheduler);
         this.observationService = observationService;
         this.endpoints = endpoints;
         this.modelProvider = modelProvider;
         this.encoder = encoder;
         this.decoder = decoder;
+        this.timeoutScheduler = timeoutScheduler;
     }
 
     @Override
@@ -108,6 +116,23 @@ public class CaliforniumLwM2mRequestSender implements LwM2mRequestSender {
     @Override
     public <T extends LwM2mResponse> void send(final Registration destination, final DownlinkRequest<T> request,
             ResponseCallback<T> responseCallback, ErrorCallback errorCallback) {
+        // no timeout: the request ends with the CoAP exchange
+        sendRequest(destination, request).addCallback(responseCallback, errorCallback);
+    }
+
+    @Override
+    public <T extends LwM2mResponse> LwM2mResponseFuture<T> sendAsync(final Registration destination,
+            final DownlinkRequest<T> request, long timeout) {
+        LwM2mResponseFuture<T> future = sendRequest(destination, request);
+        future.setTimeout(timeoutScheduler, timeout);
+        return future;
+    }
+
+    /**
+     * Sends the CoAP request of a LWM2M request and returns the future completed by its response.
+     */
+    private <T extends LwM2mResponse> LwM2mResponseFuture<T> sendRequest(final Registration destination,
+            final DownlinkRequest<T> request) {
         // Retrieve the objects definition
         final LwM2mModel model = modelProvider.getObjectModel(destination);
 
@@ -118,8 +143,16 @@ public class CaliforniumLwM2mRequestSender implements LwM2mRequestSender {
         request.accept(coapRequestBuilder);
         final Request coapRequest = coapRequestBuilder.getRequest();
 
-        // Add CoAP request callback
-        coapRequest.addMessageObserver(new AsyncRequestObserver<T>(coapRequest, responseCallback, errorCallback) {
+        // The CoAP request is cancelled if the response is not needed anymore
+        LwM2mResponseFuture<T> future = new LwM2mResponseFuture<T>() {
+            @Override
+            protected void onAbort() {
+                coapRequest.cancel();
+            }
+        };
+
+        // Complete the future from the CoAP request callback
+        coapRequest.addMessageObserver(new AsyncRequestObserver<T>(coapRequest, future, future) {
             @Override
             public T buildResponse(Response coapResponse) {
                 // Build LwM2m response
@@ -136,6 +169,7 @@ public class CaliforniumLwM2mRequestSender implements LwM2mRequestSender {
         // Send CoAP request asynchronously
         Endpoint endpoint = getEndpointForClient(destination);
         endpoint.sendRequest(coapRequest);
+        return future;
     }
 
     @Override
@@ -0,0 +1,217 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.californium.impl;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.rmi.RemoteException;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+import org.eclipse.californium.core.coap.EmptyMessage;
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.coap.Response;
+import org.eclipse.californium.core.network.interceptors.MessageInterceptor;
+import org.eclipse.leshan.server.CoapTraceRecord;
+import org.eclipse.leshan.server.RemoteCoapTraceListener;
+import org.eclipse.leshan.server.impl.RemoteListenerDispatcher;
+import org.eclipse.leshan.server.impl.RemoteListenerDispatcher.BatchSender;
+import org.eclipse.leshan.server.impl.RemoteListenerDispatcher.ListenerMetrics;
+import org.eclipse.leshan.server.impl.RemoteListenerDispatcher.OverflowPolicy;
+import org.eclipse.leshan.server.impl.RemoteListenerDispatcher.RemovalListener;
+
+/**
+ * A {@link MessageInterceptor} which traces the CoAP messages exchanged with a set of peers and streams the traces to
+ * remote listeners.
+ * <p>
+ * Messages of peers which are not traced are ignored without any allocation. Traces are sent asynchronously in batches
+ * and the oldest traces are dropped when a listener does not keep up, so tracing never slows down the CoAP stack.
+ */
+public class CoapTraceInterceptor implements MessageInterceptor {
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 1000;
+    private static final int DEFAULT_MAX_BATCH_SIZE = 100;
+
+    // traced peer => listeners
+    private final ConcurrentHashMap<InetSocketAddress, Set<RemoteCoapTraceListener>> traces = new ConcurrentHashMap<>();
+    private final RemoteListenerDispatcher<RemoteCoapTraceListener, CoapTraceRecord> dispatcher;
+
+    public CoapTraceInterceptor() {
+        this(DEFAULT_QUEUE_CAPACITY, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    /**
+     * @param queueCapacity the maximum number of traces queued for each listener
+     * @param maxBatchSize the maximum number of traces sent in a single remote call
+     */
+    public CoapTraceInterceptor(int queueCapacity, int maxBatchSize) {
+        dispatcher = new RemoteListenerDispatcher<>("CoAP trace",
+                new BatchSender<RemoteCoapTraceListener, CoapTraceRecord>() {
+                    @Override
+                    public void send(RemoteCoapTraceListener listener, List<CoapTraceRecord> records)
+                            throws RemoteException {
+                        listener.onTraces(records);
+                    }
+                }, queueCapacity, maxBatchSize, OverflowPolicy.DROP_OLDEST, 0);
+        // stop the traces of the listeners which do not exist anymore
+        dispatcher.setRemovalListener(new RemovalListener<RemoteCoapTraceListener>() {
+            @Override
+            public void listenerRemoved(RemoteCoapTraceListener listener) {
+                removeListener(listener);
+            }
+        });
+    }
+
+    /**
+     * Starts sending the traces of the messages exchanged with the given peer to the listener.
+     */
+    public synchronized void startTrace(RemoteCoapTraceListener listener, InetSocketAddress peer) {
+        Set<RemoteCoapTraceListener> listeners = traces.get(peer);
+        if (listeners == null) {
+            listeners = new CopyOnWriteArraySet<>();
+            traces.put(peer, listeners);
+        }
+        listeners.add(listener);
+        dispatcher.addListener(listener);
+    }
+
+    /**
+     * Stops sending the traces of the messages exchanged with the given peer to the listener.
+     */
+    public synchronized void stopTrace(RemoteCoapTraceListener listener, InetSocketAddress peer) {
+        Set<RemoteCoapTraceListener> listeners = traces.get(peer);
+        if (listeners != null) {
+            listeners.remove(listener);
+            if (listeners.isEmpty()) {
+                traces.remove(peer);
+            }
+        }
+        if (!isTracing(listener)) {
+            dispatcher.removeListener(listener);
+        }
+    }
+
+    /**
+     * Stops all the traces sent to the listener.
+     */
+    public synchronized void removeListener(RemoteCoapTraceListener listener) {
+        Iterator<Entry<InetSocketAddress, Set<RemoteCoapTraceListener>>> it = traces.entrySet().iterator();
+        while (it.hasNext()) {
+            Set<RemoteCoapTraceListener> listeners = it.next().getValue();
+            listeners.remove(listener);
+            if (listeners.isEmpty()) {
+                it.remove();
+            }
+        }
+        dispatcher.removeListener(listener);
+    }
+
+    boolean isTracing(RemoteCoapTraceListener listener) {
+        for (Set<RemoteCoapTraceListener> listeners : traces.values()) {
+            if (listeners.contains(listener)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the delivery metrics of each listener
+     */
+    public Collection<ListenerMetrics> getMetrics() {
+        return dispatcher.getMetrics();
+    }
+
+    /**
+     * Stops all the traces.
+     */
+    public synchronized void destroy() {
+        traces.clear();
+        dispatcher.stop();
+    }
+
+    private Set<RemoteCoapTraceListener> listeners(InetAddress address, int port) {
+        if (traces.isEmpty() || address == null) {
+            return null;
+        }
+        return traces.get(new InetSocketAddress(address, port));
+    }
+
+    private void dispatch(Set<RemoteCoapTraceListener> listeners, CoapTraceRecord record) {
+        for (RemoteCoapTraceListener listener : listeners) {
+            dispatcher.dispatch(listener, record);
+        }
+    }
+
+    @Override
+    public void sendRequest(Request request) {
+        Set<RemoteCoapTraceListener> listeners = listeners(request.getDestination(), request.getDestinationPort());
+        if (listeners != null) {
+            dispatch(listeners, CoapTraceRecord.of(
+                    new InetSocketAddress(request.getDestination(), request.getDestinationPort()), false, request));
+        }
+    }
+
+    @Override
+    public void sendResponse(Response response) {
+        Set<RemoteCoapTraceListener> listeners = listeners(response.getDestination(), response.getDestinationPort());
+        if (listeners != null) {
+            dispatch(listeners, CoapTraceRecord.of(
+                    new InetSocketAddress(response.getDestination(), response.getDestinationPort()), false, response));
+        }
+    }
+
+    @Override
+    public void sendEmptyMessage(EmptyMessage message) {
+        Set<RemoteCoapTraceListener> listeners = listeners(message.getDestination(), message.getDestinationPort());
+        if (listeners != null) {
+            dispatch(listeners, CoapTraceRecord.of(
+                    new InetSocketAddress(message.getDestination(), message.getDestinationPort()), false, message));
+        }
+    }
+
+    @Override
+    public void receiveRequest(Request request) {
+        Set<RemoteCoapTraceListener> listeners = listeners(request.getSource(), request.getSourcePort());
+        if (listeners != null) {
+            dispatch(listeners, CoapTraceRecord.of(new InetSocketAddress(request.getSource(), request.getSourcePort()),
+                    true, request));
+        }
+    }
+
+    @Override
+    public void receiveResponse(Response response) {
+        Set<RemoteCoapTraceListener> listeners = listeners(response.getSource(), response.getSourcePort());
+        if (listeners != null) {
+            dispatch(listeners, CoapTraceRecord.of(
+                    new InetSocketAddress(response.getSource(), response.getSourcePort()), true, response));
+        }
+    }
+
+    @Override
+    public void receiveEmptyMessage(EmptyMessage message) {
+        Set<RemoteCoapTraceListener> listeners = listeners(message.getSource(), message.getSourcePort());
+        if (listeners != null) {
+            dispatch(listeners, CoapTraceRecord.of(
+                    new InetSocketAddress(message.getSource(), message.getSourcePort()), true, message));
+        }
+    }
+}
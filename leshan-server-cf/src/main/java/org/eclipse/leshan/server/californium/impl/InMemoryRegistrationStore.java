@@ -26,16 +26,23 @@ import java.net.InetSocketAddress;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.eclipse.californium.core.observe.ObservationUtil;
 import org.eclipse.californium.elements.CorrelationContext;
@@ -46,29 +53,50 @@ import org.eclipse.leshan.server.Stoppable;
 import org.eclipse.leshan.server.californium.CaliforniumRegistrationStore;
 import org.eclipse.leshan.server.registration.Deregistration;
 import org.eclipse.leshan.server.registration.ExpirationListener;
+import org.eclipse.leshan.server.registration.OrderedRegistrationStore;
 import org.eclipse.leshan.server.registration.Registration;
 import org.eclipse.leshan.server.registration.RegistrationUpdate;
 import org.eclipse.leshan.server.registration.UpdatedRegistration;
 import org.eclipse.leshan.util.Key;
 import org.eclipse.leshan.util.NamedThreadFactory;
+import org.eclipse.leshan.util.TimingWheel;
+import org.eclipse.leshan.util.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * An in memory store for registration and observation.
+ * <p>
+ * Registrations are indexed by endpoint, by registration id and by socket address so all lookups are done in constant
+ * time. Reads are lock-free, writes are serialized per endpoint using a fixed set of striped locks, so registrations of
+ * different devices can be added, updated or removed concurrently. The end-points are also kept sorted, so paginated
+ * listings resume from their cursor.
+ * <p>
+ * Registration expiration is tracked using a {@link TimingWheel} keyed on the registration expiration time, so each
+ * cleanup tick only handles the registrations which are actually due.
  */
-public class InMemoryRegistrationStore implements CaliforniumRegistrationStore, Startable, Stoppable {
+public class InMemoryRegistrationStore
+        implements CaliforniumRegistrationStore, OrderedRegistrationStore, Startable, Stoppable {
     private final Logger LOG = LoggerFactory.getLogger(InMemoryRegistrationStore.class);
 
+    private static final int DEFAULT_LOCK_STRIPES = 64;
+    private static final int WHEEL_SIZE = 64;
+
     // Data structure
-    private final Map<String /* end-point */, Registration> regsByEp = new HashMap<>();
-    private Map<Key, org.eclipse.californium.core.observe.Observation> obsByToken = new HashMap<>();
-    private Map<String, List<Key>> tokensByRegId = new HashMap<>();
+    private final ConcurrentMap<String /* end-point */, Registration> regsByEp = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String /* registration id */, Registration> regsByRegId = new ConcurrentHashMap<>();
+    private final ConcurrentMap<InetSocketAddress, Registration> regsByAddr = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Key, org.eclipse.californium.core.observe.Observation> obsByToken = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Set<Key>> tokensByRegId = new ConcurrentHashMap<>();
+    // registered end-points in name order, for the paginated listings
+    private final NavigableSet<String> sortedEndpoints = new ConcurrentSkipListSet<>();
 
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // Write access for a given endpoint is serialized using one of those locks
+    private final Lock[] locks;
 
     // Listener use to notify when a registration expires
     private ExpirationListener expirationListener;
+    private final TimingWheel<String /* registration id */> expirations;
 
     private final ScheduledExecutorService schedExecutor;
     private final long cleanPeriod; // in seconds
@@ -84,112 +112,207 @@ public class InMemoryRegistrationStore implements CaliforniumRegistrationStore,
     }
 
     public InMemoryRegistrationStore(ScheduledExecutorService schedExecutor, long cleanPeriodInSec) {
+        this(schedExecutor, cleanPeriodInSec, DEFAULT_LOCK_STRIPES);
+    }
+
+    /**
+     * @param schedExecutor the executor used to clean expired registrations
+     * @param cleanPeriodInSec the period between 2 cleanups, this is also the precision of the expiration
+     * @param lockStripes the number of locks used to serialize writes (rounded up to the next power of 2)
+     */
+    public InMemoryRegistrationStore(ScheduledExecutorService schedExecutor, long cleanPeriodInSec, int lockStripes) {
+        Validate.isTrue(lockStripes > 0, "lockStripes must be positive");
         this.schedExecutor = schedExecutor;
         this.cleanPeriod = cleanPeriodInSec;
+        this.expirations = new TimingWheel<>(TimeUnit.SECONDS.toMillis(cleanPeriodInSec), WHEEL_SIZE,
+                System.currentTimeMillis());
+        int stripes = 1;
+        while (stripes < lockStripes) {
+            stripes <<= 1;
+        }
+        this.locks = new Lock[stripes];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
     }
 
     /* *************** Leshan Registration API **************** */
 
     @Override
     public Deregistration addRegistration(Registration registration) {
+        Lock lock = lockFor(registration.getEndpoint());
         try {
-            lock.writeLock().lock();
+            lock.lock();
 
             Registration registrationRemoved = regsByEp.put(registration.getEndpoint(), registration);
+            if (registrationRemoved != null) {
+                unindex(registrationRemoved);
+            } else {
+                sortedEndpoints.add(registration.getEndpoint());
+            }
+            regsByRegId.put(registration.getId(), registration);
+            regsByAddr.put(addressOf(registration), registration);
+            expirations.schedule(registration.getId(), registration.getExpirationTimeStamp());
+
             if (registrationRemoved != null) {
                 Collection<Observation> observationsRemoved = unsafeRemoveAllObservations(registrationRemoved.getId());
                 return new Deregistration(registrationRemoved, observationsRemoved);
             }
         } finally {
-            lock.writeLock().unlock();
+            lock.unlock();
         }
         return null;
     }
 
     @Override
     public UpdatedRegistration updateRegistration(RegistrationUpdate update) {
+        Registration registration = regsByRegId.get(update.getRegistrationId());
+        if (registration == null) {
+            return null;
+        }
+
+        Lock lock = lockFor(registration.getEndpoint());
         try {
-            lock.writeLock().lock();
+            lock.lock();
 
-            Registration registration = getRegistration(update.getRegistrationId());
+            // the registration may have been replaced or removed before we get the lock
+            registration = regsByRegId.get(update.getRegistrationId());
             if (registration == null) {
                 return null;
             } else {
                 Registration updatedRegistration = update.update(registration);
                 regsByEp.put(updatedRegistration.getEndpoint(), updatedRegistration);
+                regsByRegId.put(updatedRegistration.getId(), updatedRegistration);
+                InetSocketAddress previousAddress = addressOf(registration);
+                InetSocketAddress newAddress = addressOf(updatedRegistration);
+                if (!previousAddress.equals(newAddress)) {
+                    regsByAddr.remove(previousAddress, registration);
+                }
+                regsByAddr.put(newAddress, updatedRegistration);
+                expirations.schedule(updatedRegistration.getId(), updatedRegistration.getExpirationTimeStamp());
                 return new UpdatedRegistration(registration, updatedRegistration);
             }
         } finally {
-            lock.writeLock().unlock();
+            lock.unlock();
         }
     }
 
     @Override
     public Registration getRegistration(String registrationId) {
-        try {
-            lock.readLock().lock();
-
-            if (registrationId != null) {
-                for (Registration registration : regsByEp.values()) {
-                    if (registrationId.equals(registration.getId())) {
-                        return registration;
-                    }
-                }
-            }
+        if (registrationId == null) {
             return null;
-        } finally {
-            lock.readLock().unlock();
         }
+        return regsByRegId.get(registrationId);
     }
 
     @Override
     public Registration getRegistrationByEndpoint(String endpoint) {
-        try {
-            lock.readLock().lock();
-            return regsByEp.get(endpoint);
-        } finally {
-            lock.readLock().unlock();
-        }
+        return regsByEp.get(endpoint);
     }
 
     @Override
     public Registration getRegistrationByAdress(InetSocketAddress address) {
-        // TODO we should create an index instead of iterate all over the collection
-        for (Registration r : regsByEp.values()) {
-            if (address.getPort() == r.getPort() && address.getAddress().equals(r.getAddress())) {
-                return r;
-            }
-        }
-        return null;
+        return regsByAddr.get(address);
     }
 
     @Override
     public Iterator<Registration> getAllRegistrations() {
-        try {
-            lock.readLock().lock();
-            return new ArrayList<>(regsByEp.values()).iterator();
-        } finally {
-            lock.readLock().unlock();
-        }
+        // weakly consistent iterator: no copy of the whole store is needed
+        return Collections.unmodifiableCollection(regsByEp.values()).iterator();
+    }
+
+    @Override
+    public Iterator<Registration> getRegistrations(String fromEndpoint, boolean inclusive) {
+        final Iterator<String> endpoints = fromEndpoint == null ? sortedEndpoints.iterator()
+                : sortedEndpoints.tailSet(fromEndpoint, inclusive).iterator();
+        return new Iterator<Registration>() {
+            private Registration next;
+
+            @Override
+            public boolean hasNext() {
+                // the registration of an end-point may have been removed since the end-point was read
+                while (next == null && endpoints.hasNext()) {
+                    next = regsByEp.get(endpoints.next());
+                }
+                return next != null;
+            }
+
+            @Override
+            public Registration next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Registration registration = next;
+                next = null;
+                return registration;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
     }
 
     @Override
     public Deregistration removeRegistration(String registrationId) {
+        Registration registration = getRegistration(registrationId);
+        if (registration == null) {
+            return null;
+        }
+
+        Lock lock = lockFor(registration.getEndpoint());
         try {
-            lock.writeLock().lock();
+            lock.lock();
 
-            Registration registration = getRegistration(registrationId);
+            // the registration may have been replaced or removed before we get the lock
+            registration = regsByRegId.get(registrationId);
             if (registration != null) {
                 Collection<Observation> observationsRemoved = unsafeRemoveAllObservations(registration.getId());
-                regsByEp.remove(registration.getEndpoint());
+                if (regsByEp.remove(registration.getEndpoint(), registration)) {
+                    sortedEndpoints.remove(registration.getEndpoint());
+                }
+                unindex(registration);
                 return new Deregistration(registration, observationsRemoved);
             }
             return null;
         } finally {
-            lock.writeLock().unlock();
+            lock.unlock();
         }
     }
 
+    /* *************** Index utility functions **************** */
+
+    private Lock lockFor(String key) {
+        // spread the hash to avoid collisions on the lower bits
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return locks[h & (locks.length - 1)];
+    }
+
+    /*
+     * Get the lock protecting the given registration. If the registration does not exist anymore, its observations can
+     * not be modified concurrently by a registration write, so a lock based on the registration id is enough.
+     */
+    private Lock lockForRegistration(String registrationId) {
+        Registration registration = regsByRegId.get(registrationId);
+        return lockFor(registration != null ? registration.getEndpoint() : registrationId);
+    }
+
+    private static InetSocketAddress addressOf(Registration registration) {
+        return new InetSocketAddress(registration.getAddress(), registration.getPort());
+    }
+
+    /*
+     * Remove the registration from the id and address indexes and from the expiration wheel, the endpoint index is
+     * handled by the caller.
+     */
+    private void unindex(Registration registration) {
+        regsByRegId.remove(registration.getId());
+        regsByAddr.remove(addressOf(registration), registration);
+        expirations.cancel(registration.getId());
+    }
+
     /* *************** Leshan Observation API **************** */
 
     /*
@@ -201,8 +324,9 @@ public class InMemoryRegistrationStore implements CaliforniumRegistrationStore,
 
         List<Observation> removed = new ArrayList<>();
 
+        Lock lock = lockForRegistration(registrationId);
         try {
-            lock.writeLock().lock();
+            lock.lock();
             // cancel existing observations for the same path and registration id.
             for (Observation obs : unsafeGetObservations(registrationId)) {
                 if (observation.getPath().equals(obs.getPath()) && !Arrays.equals(observation.getId(), obs.getId())) {
@@ -211,7 +335,7 @@ public class InMemoryRegistrationStore implements CaliforniumRegistrationStore,
                 }
             }
         } finally {
-            lock.writeLock().unlock();
+            lock.unlock();
         }
 
         return removed;
@@ -219,8 +343,9 @@ public class InMemoryRegistrationStore implements CaliforniumRegistrationStore,
 
     @Override
     public Observation removeObservation(String registrationId, byte[] observationId) {
+        Lock lock = lockForRegistration(registrationId);
         try {
-            lock.writeLock().lock();
+            lock.lock();
 
             Observation observation = build(unsafeGetObservation(new Key(observationId)));
             if (observation != null && registrationId.equals(observation.getRegistrationId())) {
@@ -229,41 +354,32 @@ public class InMemoryRegistrationStore implements CaliforniumRegistrationStore,
             }
             return null;
         } finally {
-            lock.writeLock().unlock();
+            lock.unlock();
         }
     }
 
     @Override
     public Observation getObservation(String registrationId, byte[] observationId) {
-        try {
-            lock.readLock().lock();
-            Observation observation = build(unsafeGetObservation(new Key(observationId)));
-            if (observation != null && registrationId.equals(observation.getRegistrationId())) {
-                return observation;
-            }
-            return null;
-        } finally {
-            lock.readLock().unlock();
+        Observation observation = build(unsafeGetObservation(new Key(observationId)));
+        if (observation != null && registrationId.equals(observation.getRegistrationId())) {
+            return observation;
         }
+        return null;
     }
 
     @Override
     public Collection<Observation> getObservations(String registrationId) {
-        try {
-            lock.readLock().lock();
-            return unsafeGetObservations(registrationId);
-        } finally {
-            lock.readLock().unlock();
-        }
+        return unsafeGetObservations(registrationId);
     }
 
     @Override
     public Collection<Observation> removeObservations(String registrationId) {
+        Lock lock = lockForRegistration(registrationId);
         try {
-            lock.writeLock().lock();
+            lock.lock();
             return unsafeRemoveAllObservations(registrationId);
         } finally {
-            lock.writeLock().unlock();
+            lock.unlock();
         }
     }
 
@@ -272,18 +388,26 @@ public class InMemoryRegistrationStore implements CaliforniumRegistrationStore,
     @Override
     public void add(org.eclipse.californium.core.observe.Observation obs) {
         if (obs != null) {
+            validateObservation(obs);
+
+            String registrationId = extractRegistrationId(obs);
+            Lock lock = lockForRegistration(registrationId);
             try {
-                lock.writeLock().lock();
+                lock.lock();
 
-                validateObservation(obs);
+                // check again under the lock as the registration may have been removed concurrently
+                if (!regsByRegId.containsKey(registrationId)) {
+                    throw new IllegalStateException("no registration for this Id");
+                }
 
-                String registrationId = extractRegistrationId(obs);
                 Key token = new Key(obs.getRequest().getToken());
                 org.eclipse.californium.core.observe.Observation previousObservation = obsByToken.put(token, obs);
-                if (!tokensByRegId.containsKey(registrationId)) {
-                    tokensByRegId.put(registrationId, new ArrayList<Key>());
+                Set<Key> tokens = tokensByRegId.get(registrationId);
+                if (tokens == null) {
+                    tokens = Collections.newSetFromMap(new ConcurrentHashMap<Key, Boolean>());
+                    tokensByRegId.put(registrationId, tokens);
                 }
-                tokensByRegId.get(registrationId).add(token);
+                tokens.add(token);
 
                 // log any collisions
                 if (previousObservation != null) {
@@ -292,43 +416,37 @@ public class InMemoryRegistrationStore implements CaliforniumRegistrationStore,
                             previousObservation.getRequest(), obs.getRequest());
                 }
             } finally {
-                lock.writeLock().unlock();
+                lock.unlock();
             }
         }
     }
 
     @Override
     public org.eclipse.californium.core.observe.Observation get(byte[] token) {
-        try {
-            lock.readLock().lock();
-            return unsafeGetObservation(new Key(token));
-        } finally {
-            lock.readLock().unlock();
-        }
+        return unsafeGetObservation(new Key(token));
     }
 
     @Override
     public void setContext(byte[] token, CorrelationContext ctx) {
-        try {
-            lock.writeLock().lock();
-            Key key = new Key(token);
-            org.eclipse.californium.core.observe.Observation obs = obsByToken.get(key);
-            if (obs != null) {
-                obsByToken.put(key,
-                        new org.eclipse.californium.core.observe.Observation(obs.getRequest(), ctx));
-            }
-        } finally {
-            lock.writeLock().unlock();
+        Key key = new Key(token);
+        org.eclipse.californium.core.observe.Observation obs = obsByToken.get(key);
+        if (obs != null) {
+            // only replace the observation if it was not removed or replaced in the meantime
+            obsByToken.replace(key, obs, new org.eclipse.californium.core.observe.Observation(obs.getRequest(), ctx));
         }
     }
 
     @Override
     public void remove(byte[] token) {
-        try {
-            lock.writeLock().lock();
-            unsafeRemoveObservation(token);
-        } finally {
-            lock.writeLock().unlock();
+        org.eclipse.californium.core.observe.Observation obs = obsByToken.get(new Key(token));
+        if (obs != null) {
+            Lock lock = lockForRegistration(extractRegistrationId(obs));
+            try {
+                lock.lock();
+                unsafeRemoveObservation(token);
+            } finally {
+                lock.unlock();
+            }
         }
     }
 
@@ -345,17 +463,19 @@ public class InMemoryRegistrationStore implements CaliforniumRegistrationStore,
 
         if (removed != null) {
             String registrationId = extractRegistrationId(removed);
-            List<Key> tokens = tokensByRegId.get(registrationId);
-            tokens.remove(kToken);
-            if (tokens.isEmpty()) {
-                tokensByRegId.remove(registrationId);
+            Set<Key> tokens = tokensByRegId.get(registrationId);
+            if (tokens != null) {
+                tokens.remove(kToken);
+                if (tokens.isEmpty()) {
+                    tokensByRegId.remove(registrationId, tokens);
+                }
             }
         }
     }
 
     private Collection<Observation> unsafeRemoveAllObservations(String registrationId) {
         Collection<Observation> removed = new ArrayList<>();
-        List<Key> tokens = tokensByRegId.get(registrationId);
+        Set<Key> tokens = tokensByRegId.remove(registrationId);
         if (tokens != null) {
             for (Key token : tokens) {
                 Observation observationRemoved = build(obsByToken.remove(token));
@@ -364,13 +484,12 @@ public class InMemoryRegistrationStore implements CaliforniumRegistrationStore,
                 }
             }
         }
-        tokensByRegId.remove(registrationId);
         return removed;
     }
 
     private Collection<Observation> unsafeGetObservations(String registrationId) {
         Collection<Observation> result = new ArrayList<>();
-        List<Key> tokens = tokensByRegId.get(registrationId);
+        Set<Key> tokens = tokensByRegId.get(registrationId);
         if (tokens != null) {
             for (Key token : tokens) {
                 Observation obs = build(unsafeGetObservation(token));
@@ -451,29 +570,53 @@ public class InMemoryRegistrationStore implements CaliforniumRegistrationStore,
         }
     }
 
+    /*
+     * Remove the registration only if it is still expired: it may have been updated since the wheel returned it.
+     */
+    private Deregistration removeExpiredRegistration(String registrationId) {
+        Registration registration = regsByRegId.get(registrationId);
+        if (registration == null) {
+            return null;
+        }
+
+        Lock lock = lockFor(registration.getEndpoint());
+        try {
+            lock.lock();
+
+            registration = regsByRegId.get(registrationId);
+            if (registration == null) {
+                return null;
+            }
+            if (registration.isAlive()) {
+                expirations.schedule(registration.getId(), registration.getExpirationTimeStamp());
+                return null;
+            }
+            Collection<Observation> observationsRemoved = unsafeRemoveAllObservations(registration.getId());
+            if (regsByEp.remove(registration.getEndpoint(), registration)) {
+                sortedEndpoints.remove(registration.getEndpoint());
+            }
+            unindex(registration);
+            return new Deregistration(registration, observationsRemoved);
+        } finally {
+            lock.unlock();
+        }
+    }
+
     private class Cleaner implements Runnable {
 
         @Override
         public void run() {
-            try {
-                Collection<Registration> allRegs = new ArrayList<>();
+            for (String registrationId : expirations.advance(System.currentTimeMillis())) {
                 try {
-                    lock.readLock().lock();
-                    allRegs.addAll(regsByEp.values());
-                } finally {
-                    lock.readLock().unlock();
-                }
-
-                for (Registration reg : allRegs) {
-                    if (!reg.isAlive()) {
-                        // force de-registration
-                        Deregistration removedRegistration = removeRegistration(reg.getId());
+                    // force de-registration
+                    Deregistration removedRegistration = removeExpiredRegistration(registrationId);
+                    if (removedRegistration != null) {
                         expirationListener.registrationExpired(removedRegistration.getRegistration(),
                                 removedRegistration.getObservations());
                     }
+                } catch (Exception e) {
+                    LOG.warn("Unexpected Exception while registration cleaning", e);
                 }
-            } catch (Exception e) {
-                LOG.warn("Unexpected Exception while registration cleaning", e);
             }
         }
     }
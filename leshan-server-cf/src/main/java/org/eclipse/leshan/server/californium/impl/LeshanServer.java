@@ -20,6 +20,7 @@ import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 
 import org.eclipse.californium.core.CoapResource;
 import org.eclipse.californium.core.CoapServer;
@@ -37,6 +38,7 @@ import org.eclipse.leshan.core.observation.Observation;
 import org.eclipse.leshan.core.request.DownlinkRequest;
 import org.eclipse.leshan.core.response.ErrorCallback;
 import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.core.response.LwM2mResponseFuture;
 import org.eclipse.leshan.core.response.ResponseCallback;
 import org.eclipse.leshan.server.Destroyable;
 import org.eclipse.leshan.server.LwM2mServer;
@@ -48,6 +50,7 @@ import org.eclipse.leshan.server.impl.RegistrationServiceImpl;
 import org.eclipse.leshan.server.model.LwM2mModelProvider;
 import org.eclipse.leshan.server.observation.ObservationService;
 import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationAdmissionControl;
 import org.eclipse.leshan.server.registration.RegistrationHandler;
 import org.eclipse.leshan.server.registration.RegistrationListener;
 import org.eclipse.leshan.server.registration.RegistrationService;
@@ -56,6 +59,7 @@ import org.eclipse.leshan.server.request.LwM2mRequestSender;
 import org.eclipse.leshan.server.security.Authorizer;
 import org.eclipse.leshan.server.security.SecurityInfo;
 import org.eclipse.leshan.server.security.SecurityStore;
+import org.eclipse.leshan.util.NamedThreadFactory;
 import org.eclipse.leshan.util.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -81,6 +85,8 @@ public class LeshanServer implements LwM2mServer {
 
     private final LwM2mRequestSender requestSender;
 
+    private final ScheduledThreadPoolExecutor timeoutScheduler;
+
     private final RegistrationServiceImpl registrationService;
 
     private final ObservationServiceImpl observationService;
@@ -95,6 +101,8 @@ public class LeshanServer implements LwM2mServer {
 
     private final CaliforniumRegistrationStore registrationStore;
 
+    private final RegistrationAdmissionControl admissionControl;
+
     /**
      * Initialize a server which will bind to the specified address and port.
      *
@@ -107,12 +115,13 @@ public class LeshanServer implements LwM2mServer {
      * @param encoder encode used to encode request payload.
      * @param coapConfig the CoAP {@link NetworkConfig}.
      * @param dtlsConfig the DTLS configuration : {@link DtlsConnectorConfig}.
+     * @param admissionControl limits the registrations handled, may be <code>null</code>.
      */
     public LeshanServer(InetSocketAddress localAddress, CaliforniumRegistrationStore registrationStore,
             RegistrationServiceImpl registrationService, ObservationServiceImpl observationService,
             SecurityStore securityStore, Authorizer authorizer, LwM2mModelProvider modelProvider,
             LwM2mNodeEncoder encoder, LwM2mNodeDecoder decoder, NetworkConfig coapConfig,
-            DtlsConnectorConfig dtlsConfig) {
+            DtlsConnectorConfig dtlsConfig, RegistrationAdmissionControl admissionControl) {
         Validate.notNull(localAddress, "IP address cannot be null");
         Validate.notNull(registrationStore, "registration store cannot be null");
         Validate.notNull(authorizer, "authorizer cannot be null");
@@ -127,6 +136,7 @@ public class LeshanServer implements LwM2mServer {
         this.securityStore = securityStore;
         this.observationService = observationService;
         this.modelProvider = modelProvider;
+        this.admissionControl = admissionControl;
 
         // Cancel observations on client unregistering
         this.registrationService.addListener(new RegistrationListener() {
@@ -179,12 +189,14 @@ public class LeshanServer implements LwM2mServer {
 
         // define /rd resource
         RegisterResource rdResource = new RegisterResource(
-                new RegistrationHandler(this.registrationService, authorizer));
+                new RegistrationHandler(this.registrationService, authorizer), admissionControl);
         coapServer.add(rdResource);
 
-        // create sender
+        // create sender, the timeouts of all the asynchronous requests are handled by a single thread
+        timeoutScheduler = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("Leshan request timeout #%d"));
+        timeoutScheduler.setRemoveOnCancelPolicy(true);
         requestSender = new CaliforniumLwM2mRequestSender(endpoints, this.observationService, modelProvider, encoder,
-                decoder);
+                decoder, timeoutScheduler);
     }
 
     @Override
@@ -224,6 +236,10 @@ public class LeshanServer implements LwM2mServer {
     public void destroy() {
         // Destroy server
         coapServer.destroy();
+        timeoutScheduler.shutdownNow();
+        if (admissionControl != null) {
+            admissionControl.destroy();
+        }
 
         // Destroy stores
         if (registrationStore instanceof Destroyable) {
@@ -279,6 +295,12 @@ public class LeshanServer implements LwM2mServer {
         requestSender.send(destination, request, responseCallback, errorCallback);
     }
 
+    @Override
+    public <T extends LwM2mResponse> LwM2mResponseFuture<T> sendAsync(Registration destination,
+            DownlinkRequest<T> request, long timeout) {
+        return requestSender.sendAsync(destination, request, timeout);
+    }
+
     /**
      * @return the underlying {@link CoapServer}
      */
@@ -56,6 +56,11 @@ public class LwM2mPskStore implements PskStore {
         return getKey(identity);
     }
 
+    /**
+     * Gets the PSK identity of the client registered with the given address, when the server initiates a DTLS
+     * handshake. The registration is found with the address index of the registration store, then the identity with
+     * the endpoint index of the security store.
+     */
     @Override
     public String getIdentity(InetSocketAddress inetAddress) {
         if (registrationStore == null)
@@ -42,6 +42,7 @@ import org.eclipse.leshan.core.response.DeregisterResponse;
 import org.eclipse.leshan.core.response.RegisterResponse;
 import org.eclipse.leshan.core.response.UpdateResponse;
 import org.eclipse.leshan.server.impl.SendableResponse;
+import org.eclipse.leshan.server.registration.RegistrationAdmissionControl;
 import org.eclipse.leshan.server.registration.RegistrationHandler;
 import org.eclipse.leshan.server.registration.RegistrationService;
 import org.slf4j.Logger;
@@ -53,6 +54,10 @@ import org.slf4j.LoggerFactory;
  * This resource is the entry point of the Resource Directory ("/rd"). Each new client is added to the
  * {@link RegistrationService}.
  * </p>
+ * <p>
+ * With a {@link RegistrationAdmissionControl}, the registrations are handled by the threads of the admission control
+ * and a client is answered with a 5.03 Service Unavailable response and a Max-Age option when the server is overloaded.
+ * </p>
  */
 public class RegisterResource extends CoapResource {
 
@@ -72,10 +77,22 @@ public class RegisterResource extends CoapResource {
 
     private final RegistrationHandler registrationHandler;
 
+    private final RegistrationAdmissionControl admissionControl;
+
     public RegisterResource(RegistrationHandler registrationHandler) {
+        this(registrationHandler, null);
+    }
+
+    /**
+     * @param registrationHandler handles the registration logic
+     * @param admissionControl limits the registrations handled, may be <code>null</code> to handle all the
+     *        registrations as soon as they are received
+     */
+    public RegisterResource(RegistrationHandler registrationHandler, RegistrationAdmissionControl admissionControl) {
         super(RESOURCE_NAME);
 
         this.registrationHandler = registrationHandler;
+        this.admissionControl = admissionControl;
         getAttributes().addResourceType("core.rd");
     }
 
@@ -83,13 +100,19 @@ public class RegisterResource extends CoapResource {
     public void handleRequest(Exchange exchange) {
         try {
             super.handleRequest(exchange);
-        } catch (InvalidRequestException e) {
+        } catch (RuntimeException e) {
+            handleException(exchange, e);
+        }
+    }
+
+    private void handleException(Exchange exchange, RuntimeException e) {
+        if (e instanceof InvalidRequestException) {
             LOG.debug("InvalidRequestException while handling request({}) on the /rd resource", exchange.getRequest(),
                     e);
             Response response = new Response(ResponseCode.BAD_REQUEST);
             response.setPayload(e.getMessage());
             exchange.sendResponse(response);
-        } catch (RuntimeException e) {
+        } else {
             LOG.error("Exception while handling request({}) on the /rd resource", exchange.getRequest(), e);
             exchange.sendResponse(new Response(ResponseCode.INTERNAL_SERVER_ERROR));
         }
@@ -114,7 +137,11 @@ public class RegisterResource extends CoapResource {
         }
 
         if (uri.size() == 1) {
-            handleRegister(exchange, request);
+            if (admissionControl == null) {
+                handleRegister(exchange, request);
+            } else {
+                admitRegister(exchange, request);
+            }
             return;
         } else if (uri.size() == 2) {
             handleUpdate(exchange, request, uri.get(1));
@@ -139,6 +166,34 @@ public class RegisterResource extends CoapResource {
         }
     }
 
+    /*
+     * Handles the registration in the threads of the admission control, or asks the client to retry later if the
+     * server is overloaded.
+     */
+    private void admitRegister(final CoapExchange exchange, final Request request) {
+        if (admissionControl.tryAcquire(exchange.getSourceAddress())) {
+            // the registration may wait in the queue: the request is acknowledged now and answered separately
+            exchange.accept();
+            boolean queued = admissionControl.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        handleRegister(exchange, request);
+                    } catch (RuntimeException e) {
+                        handleException(exchange.advanced(), e);
+                    }
+                }
+            });
+            if (queued) {
+                return;
+            }
+        }
+        LOG.debug("Registration from {} rejected: server overloaded", exchange.getSourceAddress());
+        Response response = new Response(ResponseCode.SERVICE_UNAVAILABLE);
+        response.getOptions().setMaxAge(admissionControl.getRetryAfter());
+        exchange.respond(response);
+    }
+
     private void handleRegister(CoapExchange exchange, Request request) {
         // Get identity
         // --------------------------------
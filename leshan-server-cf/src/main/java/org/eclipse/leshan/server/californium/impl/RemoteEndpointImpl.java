@@ -15,43 +15,44 @@
  *******************************************************************************/
 package org.eclipse.leshan.server.californium.impl;
 
+import java.net.InetSocketAddress;
 import java.rmi.RemoteException;
-import java.util.ArrayList;
-import java.util.List;
 
 import org.eclipse.californium.core.network.Endpoint;
+import org.eclipse.leshan.server.Destroyable;
+import org.eclipse.leshan.server.RemoteCoapTraceListener;
 import org.eclipse.leshan.server.RemoteEndpoint;
-import org.eclipse.leshan.server.RemoteMessageInterceptor;
-import org.eclipse.leshan.server.impl.ProxyMessageInterceptor;
 
-public class RemoteEndpointImpl implements RemoteEndpoint {
+public class RemoteEndpointImpl implements RemoteEndpoint, Destroyable {
 
-    private Endpoint endpoint;
+    private final Endpoint endpoint;
 
-    private List<ProxyMessageInterceptor> interceptors = new ArrayList<ProxyMessageInterceptor>();
+    // installed once, it only builds traces for the traced peers
+    private final CoapTraceInterceptor tracer = new CoapTraceInterceptor();
 
     public RemoteEndpointImpl(Endpoint endpoint) {
         this.endpoint = endpoint;
+        this.endpoint.addInterceptor(tracer);
     }
 
     @Override
-    public void addInterceptor(RemoteMessageInterceptor remoteInterceptor) throws RemoteException {
-        ProxyMessageInterceptor interceptor = new ProxyMessageInterceptor(remoteInterceptor);
-        this.interceptors.add(interceptor);
-        this.endpoint.addInterceptor(interceptor);
+    public void startTrace(RemoteCoapTraceListener listener, InetSocketAddress peer) throws RemoteException {
+        tracer.startTrace(listener, peer);
     }
 
     @Override
-    public void removeInterceptor(RemoteMessageInterceptor remoteInterceptor) {
-        ProxyMessageInterceptor toDelete = null;
-        for (ProxyMessageInterceptor p : this.interceptors) {
-            if (p.getRemteMessageInterceptor() == remoteInterceptor) {
-                this.endpoint.removeInterceptor(p);
-                toDelete = p;
-            }
-        }
-        if (toDelete != null) {
-            this.interceptors.remove(toDelete);
-        }
+    public void stopTrace(RemoteCoapTraceListener listener, InetSocketAddress peer) throws RemoteException {
+        tracer.stopTrace(listener, peer);
+    }
+
+    @Override
+    public void removeTraceListener(RemoteCoapTraceListener listener) throws RemoteException {
+        tracer.removeListener(listener);
+    }
+
+    @Override
+    public void destroy() {
+        endpoint.removeInterceptor(tracer);
+        tracer.destroy();
     }
 }
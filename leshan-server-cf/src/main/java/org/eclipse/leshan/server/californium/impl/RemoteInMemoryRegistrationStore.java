@@ -20,27 +20,13 @@
  *******************************************************************************/
 package org.eclipse.leshan.server.californium.impl;
 
-import static org.eclipse.leshan.server.californium.impl.CoapRequestBuilder.*;
-
 import java.net.InetSocketAddress;
 import java.rmi.RemoteException;
-import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
-import org.eclipse.californium.core.observe.ObservationUtil;
 import org.eclipse.californium.elements.CorrelationContext;
-import org.eclipse.leshan.core.node.LwM2mPath;
 import org.eclipse.leshan.core.observation.Observation;
 import org.eclipse.leshan.server.Startable;
 import org.eclipse.leshan.server.Stoppable;
@@ -50,388 +36,127 @@ import org.eclipse.leshan.server.registration.ExpirationListener;
 import org.eclipse.leshan.server.registration.Registration;
 import org.eclipse.leshan.server.registration.RegistrationUpdate;
 import org.eclipse.leshan.server.registration.UpdatedRegistration;
-import org.eclipse.leshan.util.Key;
-import org.eclipse.leshan.util.NamedThreadFactory;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 /**
- * An in memory store for registration and observation.
+ * An in memory store for registration and observation which can be exported through RMI.
+ * <p>
+ * All the work is delegated to an {@link InMemoryRegistrationStore}.
  */
 public class RemoteInMemoryRegistrationStore implements RemoteCaliforniumRegistrationStore, Startable, Stoppable {
-    private final Logger LOG = LoggerFactory.getLogger(RemoteInMemoryRegistrationStore.class);
-
-    // Data structure
-    private final Map<String /* end-point */, Registration> regsByEp = new HashMap<>();
-    private Map<Key, org.eclipse.californium.core.observe.Observation> obsByToken = new HashMap<>();
-    private Map<String, List<Key>> tokensByRegId = new HashMap<>();
-
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
-
-    // Listener use to notify when a registration expires
-    private ExpirationListener expirationListener;
 
-    private final ScheduledExecutorService schedExecutor;
-    private final long cleanPeriod; // in seconds
+    private final InMemoryRegistrationStore store;
 
     public RemoteInMemoryRegistrationStore() {
-        this(2); // default clean period : 2s
+        this(new InMemoryRegistrationStore());
     }
 
     public RemoteInMemoryRegistrationStore(long cleanPeriodInSec) {
-        this(Executors.newScheduledThreadPool(1,
-                new NamedThreadFactory(String.format("InMemoryRegistrationStore Cleaner (%ds)", cleanPeriodInSec))),
-                cleanPeriodInSec);
+        this(new InMemoryRegistrationStore(cleanPeriodInSec));
     }
 
     public RemoteInMemoryRegistrationStore(ScheduledExecutorService schedExecutor, long cleanPeriodInSec) {
-        this.schedExecutor = schedExecutor;
-        this.cleanPeriod = cleanPeriodInSec;
+        this(new InMemoryRegistrationStore(schedExecutor, cleanPeriodInSec));
+    }
+
+    public RemoteInMemoryRegistrationStore(InMemoryRegistrationStore store) {
+        this.store = store;
     }
 
     /* *************** Leshan Registration API **************** */
 
     @Override
     public Deregistration addRegistration(Registration registration) throws RemoteException {
-        try {
-            lock.writeLock().lock();
-
-            Registration registrationRemoved = regsByEp.put(registration.getEndpoint(), registration);
-            if (registrationRemoved != null) {
-                Collection<Observation> observationsRemoved = unsafeRemoveAllObservations(registrationRemoved.getId());
-                return new Deregistration(registrationRemoved, observationsRemoved);
-            }
-        } finally {
-            lock.writeLock().unlock();
-        }
-        return null;
+        return store.addRegistration(registration);
     }
 
     @Override
     public UpdatedRegistration updateRegistration(RegistrationUpdate update) throws RemoteException {
-        try {
-            lock.writeLock().lock();
-
-            Registration registration = getRegistration(update.getRegistrationId());
-            if (registration == null) {
-                return null;
-            } else {
-                Registration updatedRegistration = update.update(registration);
-                regsByEp.put(updatedRegistration.getEndpoint(), updatedRegistration);
-                return new UpdatedRegistration(registration, updatedRegistration);
-            }
-        } finally {
-            lock.writeLock().unlock();
-        }
+        return store.updateRegistration(update);
     }
 
     public Registration getRegistrationById(String registrationId) {
-        try {
-            lock.readLock().lock();
-
-            if (registrationId != null) {
-                for (Registration registration : regsByEp.values()) {
-                    if (registrationId.equals(registration.getId())) {
-                        return registration;
-                    }
-                }
-            }
-            return null;
-        } finally {
-            lock.readLock().unlock();
-        }
+        return store.getRegistration(registrationId);
     }
 
     @Override
     public Registration getRegistration(String registrationId) throws RemoteException {
-        return getRegistrationById(registrationId);
+        return store.getRegistration(registrationId);
     }
 
     @Override
     public Registration getRegistrationByEndpoint(String endpoint) throws RemoteException {
-        try {
-            lock.readLock().lock();
-            return regsByEp.get(endpoint);
-        } finally {
-            lock.readLock().unlock();
-        }
+        return store.getRegistrationByEndpoint(endpoint);
     }
 
     @Override
     public Registration getRegistrationByAdress(InetSocketAddress address) throws RemoteException {
-        // TODO we should create an index instead of iterate all over the collection
-        for (Registration r : regsByEp.values()) {
-            if (address.getPort() == r.getPort() && address.getAddress().equals(r.getAddress())) {
-                return r;
-            }
-        }
-        return null;
+        return store.getRegistrationByAdress(address);
     }
 
     @Override
     public Iterator<Registration> getAllRegistrations() {
-        try {
-            lock.readLock().lock();
-            return new ArrayList<>(regsByEp.values()).iterator();
-        } finally {
-            lock.readLock().unlock();
-        }
+        return store.getAllRegistrations();
     }
 
     @Override
     public Deregistration removeRegistration(String registrationId) throws RemoteException {
-        try {
-            lock.writeLock().lock();
-
-            Registration registration = getRegistrationById(registrationId);
-            if (registration != null) {
-                Collection<Observation> observationsRemoved = unsafeRemoveAllObservations(registration.getId());
-                regsByEp.remove(registration.getEndpoint());
-                return new Deregistration(registration, observationsRemoved);
-            }
-            return null;
-        } finally {
-            lock.writeLock().unlock();
-        }
+        return store.removeRegistration(registrationId);
     }
 
     /* *************** Leshan Observation API **************** */
 
-    /*
-     * The observation is not persisted here, it is done by the Californium layer (in the implementation of the
-     * org.eclipse.californium.core.observe.ObservationStore#add method)
-     */
     @Override
     public Collection<Observation> addObservation(String registrationId, Observation observation) {
-
-        List<Observation> removed = new ArrayList<>();
-
-        try {
-            lock.writeLock().lock();
-            // cancel existing observations for the same path and registration id.
-            for (Observation obs : unsafeGetObservations(registrationId)) {
-                if (observation.getPath().equals(obs.getPath()) && !Arrays.equals(observation.getId(), obs.getId())) {
-                    unsafeRemoveObservation(obs.getId());
-                    removed.add(obs);
-                }
-            }
-        } finally {
-            lock.writeLock().unlock();
-        }
-
-        return removed;
+        return store.addObservation(registrationId, observation);
     }
 
     @Override
     public Observation removeObservation(String registrationId, byte[] observationId) {
-        try {
-            lock.writeLock().lock();
-
-            Observation observation = build(unsafeGetObservation(new Key(observationId)));
-            if (observation != null && registrationId.equals(observation.getRegistrationId())) {
-                unsafeRemoveObservation(observationId);
-                return observation;
-            }
-            return null;
-        } finally {
-            lock.writeLock().unlock();
-        }
+        return store.removeObservation(registrationId, observationId);
     }
 
     @Override
     public Observation getObservation(String registrationId, byte[] observationId) {
-        try {
-            lock.readLock().lock();
-            Observation observation = build(unsafeGetObservation(new Key(observationId)));
-            if (observation != null && registrationId.equals(observation.getRegistrationId())) {
-                return observation;
-            }
-            return null;
-        } finally {
-            lock.readLock().unlock();
-        }
+        return store.getObservation(registrationId, observationId);
     }
 
     @Override
     public Collection<Observation> getObservations(String registrationId) {
-        try {
-            lock.readLock().lock();
-            return unsafeGetObservations(registrationId);
-        } finally {
-            lock.readLock().unlock();
-        }
+        return store.getObservations(registrationId);
     }
 
     @Override
     public Collection<Observation> removeObservations(String registrationId) {
-        try {
-            lock.writeLock().lock();
-            return unsafeRemoveAllObservations(registrationId);
-        } finally {
-            lock.writeLock().unlock();
-        }
+        return store.removeObservations(registrationId);
     }
 
     /* *************** Californium ObservationStore API **************** */
 
     @Override
     public void add(org.eclipse.californium.core.observe.Observation obs) {
-        if (obs != null) {
-            try {
-                lock.writeLock().lock();
-
-                validateObservation(obs);
-
-                String registrationId = extractRegistrationId(obs);
-                Key token = new Key(obs.getRequest().getToken());
-                org.eclipse.californium.core.observe.Observation previousObservation = obsByToken.put(token, obs);
-                if (!tokensByRegId.containsKey(registrationId)) {
-                    tokensByRegId.put(registrationId, new ArrayList<Key>());
-                }
-                tokensByRegId.get(registrationId).add(token);
-
-                // log any collisions
-                if (previousObservation != null) {
-                    LOG.warn(
-                            "Token collision ? observation from request [{}] will be replaced by observation from request [{}] ",
-                            previousObservation.getRequest(), obs.getRequest());
-                }
-            } finally {
-                lock.writeLock().unlock();
-            }
-        }
+        store.add(obs);
     }
 
     @Override
     public org.eclipse.californium.core.observe.Observation get(byte[] token) {
-        try {
-            lock.readLock().lock();
-            return unsafeGetObservation(new Key(token));
-        } finally {
-            lock.readLock().unlock();
-        }
+        return store.get(token);
     }
 
     @Override
     public void setContext(byte[] token, CorrelationContext ctx) {
-        try {
-            lock.writeLock().lock();
-            Key key = new Key(token);
-            org.eclipse.californium.core.observe.Observation obs = obsByToken.get(key);
-            if (obs != null) {
-                obsByToken.put(key, new org.eclipse.californium.core.observe.Observation(obs.getRequest(), ctx));
-            }
-        } finally {
-            lock.writeLock().unlock();
-        }
+        store.setContext(token, ctx);
     }
 
     @Override
     public void remove(byte[] token) {
-        try {
-            lock.writeLock().lock();
-            unsafeRemoveObservation(token);
-        } finally {
-            lock.writeLock().unlock();
-        }
-    }
-
-    /* *************** Observation utility functions **************** */
-
-    private org.eclipse.californium.core.observe.Observation unsafeGetObservation(Key token) {
-        org.eclipse.californium.core.observe.Observation obs = obsByToken.get(token);
-        return ObservationUtil.shallowClone(obs);
-    }
-
-    private void unsafeRemoveObservation(byte[] observationId) {
-        Key kToken = new Key(observationId);
-        org.eclipse.californium.core.observe.Observation removed = obsByToken.remove(kToken);
-
-        if (removed != null) {
-            String registrationId = extractRegistrationId(removed);
-            List<Key> tokens = tokensByRegId.get(registrationId);
-            tokens.remove(kToken);
-            if (tokens.isEmpty()) {
-                tokensByRegId.remove(registrationId);
-            }
-        }
-    }
-
-    private Collection<Observation> unsafeRemoveAllObservations(String registrationId) {
-        Collection<Observation> removed = new ArrayList<>();
-        List<Key> tokens = tokensByRegId.get(registrationId);
-        if (tokens != null) {
-            for (Key token : tokens) {
-                Observation observationRemoved = build(obsByToken.remove(token));
-                if (observationRemoved != null) {
-                    removed.add(observationRemoved);
-                }
-            }
-        }
-        tokensByRegId.remove(registrationId);
-        return removed;
-    }
-
-    private Collection<Observation> unsafeGetObservations(String registrationId) {
-        Collection<Observation> result = new ArrayList<>();
-        List<Key> tokens = tokensByRegId.get(registrationId);
-        if (tokens != null) {
-            for (Key token : tokens) {
-                Observation obs = build(unsafeGetObservation(token));
-                if (obs != null) {
-                    result.add(obs);
-                }
-            }
-        }
-        return result;
-    }
-
-    /* Retrieve the registrationId from the request context */
-    private String extractRegistrationId(org.eclipse.californium.core.observe.Observation observation) {
-        return observation.getRequest().getUserContext().get(CoapRequestBuilder.CTX_REGID);
-    }
-
-    private Observation build(org.eclipse.californium.core.observe.Observation cfObs) {
-        if (cfObs == null)
-            return null;
-
-        String regId = null;
-        String lwm2mPath = null;
-        Map<String, String> context = null;
-
-        for (Entry<String, String> ctx : cfObs.getRequest().getUserContext().entrySet()) {
-            switch (ctx.getKey()) {
-            case CTX_REGID:
-                regId = ctx.getValue();
-                break;
-            case CTX_LWM2M_PATH:
-                lwm2mPath = ctx.getValue();
-                break;
-            default:
-                if (context == null) {
-                    context = new HashMap<>();
-                }
-                context.put(ctx.getKey(), ctx.getValue());
-            }
-        }
-        return new Observation(cfObs.getRequest().getToken(), regId, new LwM2mPath(lwm2mPath), context);
-    }
-
-    private void validateObservation(org.eclipse.californium.core.observe.Observation observation) {
-        if (!observation.getRequest().getUserContext().containsKey(CoapRequestBuilder.CTX_REGID))
-            throw new IllegalStateException("missing registrationId info in the request context");
-        if (!observation.getRequest().getUserContext().containsKey(CoapRequestBuilder.CTX_LWM2M_PATH))
-            throw new IllegalStateException("missing lwm2m path info in the request context");
-        if (getRegistrationById(observation.getRequest().getUserContext().get(CoapRequestBuilder.CTX_REGID)) == null) {
-            throw new IllegalStateException("no registration for this Id");
-        }
+        store.remove(token);
     }
 
     /* *************** Expiration handling **************** */
 
     @Override
     public void setExpirationListener(ExpirationListener listener) {
-        this.expirationListener = listener;
+        store.setExpirationListener(listener);
     }
 
     /**
@@ -439,7 +164,7 @@ public class RemoteInMemoryRegistrationStore implements RemoteCaliforniumRegistr
      */
     @Override
     public void start() {
-        schedExecutor.scheduleAtFixedRate(new Cleaner(), cleanPeriod, cleanPeriod, TimeUnit.SECONDS);
+        store.start();
     }
 
     /**
@@ -447,38 +172,6 @@ public class RemoteInMemoryRegistrationStore implements RemoteCaliforniumRegistr
      */
     @Override
     public void stop() {
-        schedExecutor.shutdownNow();
-        try {
-            schedExecutor.awaitTermination(5, TimeUnit.SECONDS);
-        } catch (InterruptedException e) {
-            LOG.warn("Clean up registration thread was interrupted.", e);
-        }
-    }
-
-    private class Cleaner implements Runnable {
-
-        @Override
-        public void run() {
-            try {
-                Collection<Registration> allRegs = new ArrayList<>();
-                try {
-                    lock.readLock().lock();
-                    allRegs.addAll(regsByEp.values());
-                } finally {
-                    lock.readLock().unlock();
-                }
-
-                for (Registration reg : allRegs) {
-                    if (!reg.isAlive()) {
-                        // force de-registration
-                        Deregistration removedRegistration = removeRegistration(reg.getId());
-                        expirationListener.registrationExpired(removedRegistration.getRegistration(),
-                                removedRegistration.getObservations());
-                    }
-                }
-            } catch (Exception e) {
-                LOG.warn("Unexpected Exception while registration cleaning", e);
-            }
-        }
+        store.stop();
     }
 }
@@ -21,6 +21,7 @@ import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 
 import org.eclipse.californium.core.CoapResource;
 import org.eclipse.californium.core.CoapServer;
@@ -37,24 +38,33 @@ import org.eclipse.leshan.core.node.codec.LwM2mNodeEncoder;
 import org.eclipse.leshan.core.request.DownlinkRequest;
 import org.eclipse.leshan.core.response.ErrorCallback;
 import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.core.response.LwM2mResponseFuture;
 import org.eclipse.leshan.core.response.ResponseCallback;
 import org.eclipse.leshan.server.Destroyable;
+import org.eclipse.leshan.server.LwM2mServer;
 import org.eclipse.leshan.server.RemoteEndpoint;
 import org.eclipse.leshan.server.RemoteLwM2mServer;
+import org.eclipse.leshan.server.RemoteResponse;
+import org.eclipse.leshan.server.RemoteResponseListener;
 import org.eclipse.leshan.server.Startable;
 import org.eclipse.leshan.server.Stoppable;
 import org.eclipse.leshan.server.californium.CaliforniumRegistrationStore;
 import org.eclipse.leshan.server.californium.LeshanServerBuilder;
+import org.eclipse.leshan.server.impl.RemoteListenerDispatcher;
+import org.eclipse.leshan.server.impl.RemoteListenerDispatcher.BatchSender;
+import org.eclipse.leshan.server.impl.RemoteListenerDispatcher.OverflowPolicy;
 import org.eclipse.leshan.server.impl.RemoteRegistrationServiceImpl;
 import org.eclipse.leshan.server.model.LwM2mModelProvider;
 import org.eclipse.leshan.server.observation.RemoteObservationService;
 import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationAdmissionControl;
 import org.eclipse.leshan.server.registration.RemoteRegistrationHandler;
 import org.eclipse.leshan.server.registration.RemoteRegistrationService;
 import org.eclipse.leshan.server.request.LwM2mRequestSender;
 import org.eclipse.leshan.server.security.Authorizer;
 import org.eclipse.leshan.server.security.SecurityInfo;
 import org.eclipse.leshan.server.security.SecurityStore;
+import org.eclipse.leshan.util.NamedThreadFactory;
 import org.eclipse.leshan.util.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -80,6 +90,10 @@ public class RemoteLeshanServer implements RemoteLwM2mServer {
 
     private final LwM2mRequestSender requestSender;
 
+    private final ScheduledThreadPoolExecutor timeoutScheduler;
+
+    private final RemoteListenerDispatcher<RemoteResponseListener, RemoteResponse> responseDispatcher;
+
     private final RemoteRegistrationServiceImpl registrationService;
 
     private final RemoteObservationServiceImpl observationService;
@@ -94,6 +108,8 @@ public class RemoteLeshanServer implements RemoteLwM2mServer {
 
     private final CaliforniumRegistrationStore registrationStore;
 
+    private final RegistrationAdmissionControl admissionControl;
+
     private final List<RemoteEndpoint> remoteEndpoints = new ArrayList<RemoteEndpoint>();
 
     /**
@@ -108,12 +124,13 @@ public class RemoteLeshanServer implements RemoteLwM2mServer {
      * @param encoder encode used to encode request payload.
      * @param coapConfig the CoAP {@link NetworkConfig}.
      * @param dtlsConfig the DTLS configuration : {@link DtlsConnectorConfig}.
+     * @param admissionControl limits the registrations handled, may be <code>null</code>.
      */
     public RemoteLeshanServer(InetSocketAddress localAddress, CaliforniumRegistrationStore registrationStore,
             RemoteRegistrationServiceImpl registrationService, RemoteObservationServiceImpl observationService,
             SecurityStore securityStore, Authorizer authorizer, LwM2mModelProvider modelProvider,
             LwM2mNodeEncoder encoder, LwM2mNodeDecoder decoder, NetworkConfig coapConfig,
-            DtlsConnectorConfig dtlsConfig) {
+            DtlsConnectorConfig dtlsConfig, RegistrationAdmissionControl admissionControl) {
         Validate.notNull(localAddress, "IP address cannot be null");
         Validate.notNull(registrationStore, "registration store cannot be null");
         Validate.notNull(authorizer, "authorizer cannot be null");
@@ -128,6 +145,7 @@ public class RemoteLeshanServer implements RemoteLwM2mServer {
         this.securityStore = securityStore;
         this.observationService = observationService;
         this.modelProvider = modelProvider;
+        this.admissionControl = admissionControl;
 
         // Cancel observations on client unregistering
         // TODO fix this at client side using RemoteRegistrationListener
@@ -185,12 +203,26 @@ public class RemoteLeshanServer implements RemoteLwM2mServer {
 
         // define /rd resource
         RemoteRegisterResource rdResource = new RemoteRegisterResource(
-                new RemoteRegistrationHandler(this.registrationService, authorizer));
+                new RemoteRegistrationHandler(this.registrationService, authorizer), admissionControl);
         coapServer.add(rdResource);
 
-        // create sender
+        // create sender, the timeouts of all the asynchronous requests are handled by a single thread
+        timeoutScheduler = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("Leshan request timeout #%d"));
+        timeoutScheduler.setRemoveOnCancelPolicy(true);
         requestSender = new RemoteCaliforniumLwM2mRequestSender(endpoints, this.observationService, modelProvider,
-                encoder, decoder);
+                encoder, decoder, timeoutScheduler);
+
+        // responses of asynchronous requests are delivered to remote listeners without blocking the CoAP stack: the
+        // responses which do not fit in the queue of a listener are dropped
+        responseDispatcher = new RemoteListenerDispatcher<>("Responses",
+                new BatchSender<RemoteResponseListener, RemoteResponse>() {
+                    @Override
+                    public void send(RemoteResponseListener listener, List<RemoteResponse> responses)
+                            throws RemoteException {
+                        listener.onResponses(responses);
+                    }
+                }, RemoteRegistrationServiceImpl.DEFAULT_QUEUE_CAPACITY,
+                RemoteRegistrationServiceImpl.DEFAULT_BATCH_SIZE, OverflowPolicy.DROP_NEWEST, 0);
     }
 
     public void start() {
@@ -228,6 +260,18 @@ public class RemoteLeshanServer implements RemoteLwM2mServer {
         // Destroy server
         coapServer.destroy();
 
+        // Stop the delivery of events to remote listeners
+        timeoutScheduler.shutdownNow();
+        if (admissionControl != null) {
+            admissionControl.destroy();
+        }
+        responseDispatcher.stop();
+        registrationService.destroy();
+        observationService.destroy();
+        for (RemoteEndpoint e : remoteEndpoints) {
+            ((Destroyable) e).destroy();
+        }
+
         // Destroy stores
         if (registrationStore instanceof Destroyable) {
             ((Destroyable) registrationStore).destroy();
@@ -290,6 +334,41 @@ public class RemoteLeshanServer implements RemoteLwM2mServer {
         requestSender.send(destination, request, responseCallback, errorCallback);
     }
 
+    /**
+     * Sends a Lightweight M2M request asynchronously, see
+     * {@link LwM2mServer#sendAsync(Registration, DownlinkRequest, long)}.
+     * <p>
+     * This method can only be used locally, the responses are delivered to remote callers with
+     * {@link #sendAsync(Registration, DownlinkRequest, long, long, RemoteResponseListener)}.
+     */
+    public <T extends LwM2mResponse> LwM2mResponseFuture<T> sendAsync(Registration destination,
+            DownlinkRequest<T> request, long timeout) {
+        return requestSender.sendAsync(destination, request, timeout);
+    }
+
+    @Override
+    public <T extends LwM2mResponse> void sendAsync(Registration destination, DownlinkRequest<T> request,
+            long timeout, final long requestId, final RemoteResponseListener listener) {
+        Validate.notNull(listener);
+        responseDispatcher.addListener(listener);
+        requestSender.sendAsync(destination, request, timeout).addCallback(new ResponseCallback<T>() {
+            @Override
+            public void onResponse(T response) {
+                responseDispatcher.dispatch(listener, new RemoteResponse(requestId, response, null));
+            }
+        }, new ErrorCallback() {
+            @Override
+            public void onError(Exception e) {
+                responseDispatcher.dispatch(listener, new RemoteResponse(requestId, null, e));
+            }
+        });
+    }
+
+    @Override
+    public void removeResponseListener(RemoteResponseListener listener) {
+        responseDispatcher.removeListener(listener);
+    }
+
     /**
      * @return the underlying {@link CoapServer}
      */
@@ -23,7 +23,6 @@ import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
-import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.eclipse.californium.core.coap.CoAP;
 import org.eclipse.californium.core.coap.Request;
@@ -41,9 +40,16 @@ import org.eclipse.leshan.core.observation.Observation;
 import org.eclipse.leshan.core.request.ContentFormat;
 import org.eclipse.leshan.core.request.exception.InvalidResponseException;
 import org.eclipse.leshan.core.response.ObserveResponse;
+import org.eclipse.leshan.server.Destroyable;
 import org.eclipse.leshan.server.californium.CaliforniumRegistrationStore;
+import org.eclipse.leshan.server.impl.RemoteListenerDispatcher;
+import org.eclipse.leshan.server.impl.RemoteListenerDispatcher.BatchSender;
+import org.eclipse.leshan.server.impl.RemoteListenerDispatcher.ListenerMetrics;
+import org.eclipse.leshan.server.impl.RemoteListenerDispatcher.OverflowPolicy;
 import org.eclipse.leshan.server.model.LwM2mModelProvider;
 import org.eclipse.leshan.server.observation.ObservationService;
+import org.eclipse.leshan.server.observation.RemoteBatchObservationListener;
+import org.eclipse.leshan.server.observation.RemoteObservationEvent;
 import org.eclipse.leshan.server.observation.RemoteObservationListener;
 import org.eclipse.leshan.server.observation.RemoteObservationService;
 import org.eclipse.leshan.server.registration.Registration;
@@ -55,9 +61,16 @@ import org.slf4j.LoggerFactory;
  * Implementation of the {@link ObservationService} accessing the persisted observation via the provided
  * {@link CaliforniumRegistrationStore}.
  * 
- * When a new observation is added or changed or canceled, the registered listeners are notified.
+ * When a new observation is added or changed or canceled, the registered listeners are notified. Events are delivered
+ * asynchronously to the remote listeners, in batches, using a {@link RemoteListenerDispatcher}: a slow or unreachable
+ * listener does not block the CoAP stack.
  */
-public class RemoteObservationServiceImpl implements RemoteObservationService, NotificationListener {
+public class RemoteObservationServiceImpl implements RemoteObservationService, NotificationListener, Destroyable {
+
+    /** Default maximum number of events queued for each listener */
+    public static final int DEFAULT_QUEUE_CAPACITY = 10000;
+    /** Default maximum number of events taken from the queue at once */
+    public static final int DEFAULT_BATCH_SIZE = 100;
 
     private final Logger LOG = LoggerFactory.getLogger(RemoteObservationServiceImpl.class);
 
@@ -67,7 +80,7 @@ public class RemoteObservationServiceImpl implements RemoteObservationService, N
     private Endpoint secureEndpoint;
     private Endpoint nonSecureEndpoint;
 
-    private final List<RemoteObservationListener> listeners = new CopyOnWriteArrayList<>();
+    private final RemoteListenerDispatcher<RemoteObservationListener, RemoteObservationEvent> dispatcher;
 
     /**
      * Creates an instance of {@link RemoteObservationServiceImpl}
@@ -78,9 +91,43 @@ public class RemoteObservationServiceImpl implements RemoteObservationService, N
      */
     public RemoteObservationServiceImpl(CaliforniumRegistrationStore store, LwM2mModelProvider modelProvider,
             LwM2mNodeDecoder decoder) {
+        this(store, modelProvider, decoder, DEFAULT_QUEUE_CAPACITY, DEFAULT_BATCH_SIZE, OverflowPolicy.DROP_OLDEST,
+                0);
+    }
+
+    /**
+     * Creates an instance of {@link RemoteObservationServiceImpl}
+     * 
+     * @param store instance of californium's {@link RemoteObservationStore}
+     * @param modelProvider instance of {@link LwM2mModelProvider}
+     * @param decoder instance of {@link LwM2mNodeDecoder}
+     * @param queueCapacity the maximum number of events queued for each listener
+     * @param maxBatchSize the maximum number of events taken from the queue at once (delivered in a single remote call
+     *        to a batch listener)
+     * @param policy the policy applied when the queue of a listener is full
+     * @param blockTimeout the maximum time in ms to wait for space in a full queue with the
+     *        {@link OverflowPolicy#BLOCK} policy
+     */
+    public RemoteObservationServiceImpl(CaliforniumRegistrationStore store, LwM2mModelProvider modelProvider,
+            LwM2mNodeDecoder decoder, int queueCapacity, int maxBatchSize, OverflowPolicy policy,
+            long blockTimeout) {
         this.registrationStore = store;
         this.modelProvider = modelProvider;
         this.decoder = decoder;
+        this.dispatcher = new RemoteListenerDispatcher<>("Observation events",
+                new BatchSender<RemoteObservationListener, RemoteObservationEvent>() {
+                    @Override
+                    public void send(RemoteObservationListener listener, List<RemoteObservationEvent> events)
+                            throws RemoteException {
+                        if (listener instanceof RemoteBatchObservationListener) {
+                            ((RemoteBatchObservationListener) listener).onEvents(events);
+                        } else {
+                            for (RemoteObservationEvent event : events) {
+                                event.dispatch(listener);
+                            }
+                        }
+                    }
+                }, queueCapacity, maxBatchSize, policy, blockTimeout);
     }
 
     // TODO check where this function is used, currently throws RemoteException
@@ -89,9 +136,7 @@ public class RemoteObservationServiceImpl implements RemoteObservationService, N
             cancel(existing);
         }
 
-        for (RemoteObservationListener listener : listeners) {
-            listener.newObservation(observation, registration);
-        }
+        dispatcher.dispatch(RemoteObservationEvent.newObservation(observation, registration));
     }
 
     public void setNonSecureEndpoint(Endpoint endpoint) {
@@ -146,13 +191,7 @@ public class RemoteObservationServiceImpl implements RemoteObservationService, N
             secureEndpoint.cancelObservation(observation.getId());
         if (nonSecureEndpoint != null)
             nonSecureEndpoint.cancelObservation(observation.getId());
-        try {
-            for (RemoteObservationListener listener : listeners) {
-                listener.cancelled(observation);
-            }
-        } catch (RemoteException e) {
-            LOG.error("Failed to set listener on cancelled vim RMI", e);
-        }
+        dispatcher.dispatch(RemoteObservationEvent.cancelled(observation));
     }
 
     @Override
@@ -192,12 +231,27 @@ public class RemoteObservationServiceImpl implements RemoteObservationService, N
 
     @Override
     public void addListener(RemoteObservationListener listener) throws RemoteException {
-        listeners.add(listener);
+        dispatcher.addListener(listener);
     }
 
     @Override
     public void removeListener(RemoteObservationListener listener) throws RemoteException {
-        listeners.remove(listener);
+        dispatcher.removeListener(listener);
+    }
+
+    /**
+     * @return the delivery metrics of each remote listener
+     */
+    public Collection<ListenerMetrics> getListenerMetrics() {
+        return dispatcher.getMetrics();
+    }
+
+    /**
+     * Stops the delivery of events to the remote listeners.
+     */
+    @Override
+    public void destroy() {
+        dispatcher.stop();
     }
 
     // ********** NotificationListener interface **********//
@@ -206,7 +260,7 @@ public class RemoteObservationServiceImpl implements RemoteObservationService, N
     public void onNotification(Request coapRequest, Response coapResponse) {
         LOG.trace("notification received for request {}: {}", coapRequest, coapResponse);
 
-        if (listeners.isEmpty())
+        if (!dispatcher.hasListeners())
             return;
 
         // get registration Id
@@ -238,37 +292,19 @@ public class RemoteObservationServiceImpl implements RemoteObservationService, N
             ObserveResponse response = createObserveResponse(observation, model, coapResponse);
 
             // notify all listeners
-            try {
-                for (RemoteObservationListener listener : listeners) {
-                    listener.onResponse(observation, registration, response);
-                }
-            } catch (RemoteException e) {
-                LOG.error("Failed to configure listener via RMI", e);
-            }
+            dispatcher.dispatch(RemoteObservationEvent.response(observation, registration, response));
 
         } catch (InvalidResponseException e) {
             if (LOG.isDebugEnabled()) {
                 LOG.debug(String.format("Invalid notification for observation [%s]", observation), e);
             }
 
-            try {
-                for (RemoteObservationListener listener : listeners) {
-                    listener.onError(observation, registration, e);
-                }
-            } catch (RemoteException e1) {
-                LOG.error("Failed to configure listener via RMI", e);
-            }
+            dispatcher.dispatch(RemoteObservationEvent.error(observation, registration, e));
         } catch (RuntimeException e) {
             if (LOG.isErrorEnabled()) {
                 LOG.error(String.format("Unable to handle notification for observation [%s]", observation), e);
             }
-            try {
-                for (RemoteObservationListener listener : listeners) {
-                    listener.onError(observation, registration, e);
-                }
-            } catch (RemoteException e1) {
-                LOG.error("Failed to configure listener via RMI", e);
-            }
+            dispatcher.dispatch(RemoteObservationEvent.error(observation, registration, e));
         }
 
     }
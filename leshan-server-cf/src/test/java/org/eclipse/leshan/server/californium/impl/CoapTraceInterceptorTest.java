@@ -0,0 +1,165 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.californium.impl;
+
+import static org.junit.Assert.*;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.rmi.NoSuchObjectException;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.californium.core.coap.CoAP.ResponseCode;
+import org.eclipse.californium.core.coap.CoAP.Type;
+import org.eclipse.californium.core.coap.MediaTypeRegistry;
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.coap.Response;
+import org.eclipse.leshan.server.CoapTraceRecord;
+import org.eclipse.leshan.server.RemoteCoapTraceListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CoapTraceInterceptorTest {
+
+    private static class TestListener implements RemoteCoapTraceListener {
+        private final List<CoapTraceRecord> records = new ArrayList<>();
+        private final CountDownLatch received;
+
+        private TestListener(int expected) {
+            received = new CountDownLatch(expected);
+        }
+
+        @Override
+        public void onTraces(List<CoapTraceRecord> records) {
+            synchronized (this.records) {
+                this.records.addAll(records);
+            }
+            for (int i = 0; i < records.size(); i++) {
+                received.countDown();
+            }
+        }
+    }
+
+    private CoapTraceInterceptor interceptor;
+    private InetSocketAddress traced;
+    private InetSocketAddress other;
+
+    @Before
+    public void setUp() throws Exception {
+        interceptor = new CoapTraceInterceptor();
+        traced = new InetSocketAddress(InetAddress.getLoopbackAddress(), 5684);
+        other = new InetSocketAddress(InetAddress.getLoopbackAddress(), 5685);
+    }
+
+    @After
+    public void tearDown() {
+        interceptor.destroy();
+    }
+
+    private Request request(InetSocketAddress destination) {
+        Request request = Request.newGet();
+        request.getOptions().setUriPath("3/0");
+        request.setMID(12);
+        request.setToken(new byte[] { 1, 2 });
+        request.setDestination(destination.getAddress());
+        request.setDestinationPort(destination.getPort());
+        return request;
+    }
+
+    private Response response(InetSocketAddress source) {
+        Response response = new Response(ResponseCode.CONTENT);
+        response.setType(Type.ACK);
+        response.setMID(12);
+        response.setToken(new byte[] { 1, 2 });
+        response.getOptions().setContentFormat(MediaTypeRegistry.TEXT_PLAIN);
+        response.setPayload("hello");
+        response.setSource(source.getAddress());
+        response.setSourcePort(source.getPort());
+        return response;
+    }
+
+    @Test
+    public void only_messages_of_traced_peers_are_sent() throws InterruptedException {
+        TestListener listener = new TestListener(2);
+        interceptor.startTrace(listener, traced);
+
+        interceptor.sendRequest(request(other));
+        interceptor.sendRequest(request(traced));
+        interceptor.receiveResponse(response(other));
+        interceptor.receiveResponse(response(traced));
+
+        assertTrue(listener.received.await(1, TimeUnit.SECONDS));
+        assertEquals(2, listener.records.size());
+
+        CoapTraceRecord sent = listener.records.get(0);
+        assertEquals(traced, sent.getPeer());
+        assertFalse(sent.isIncoming());
+        assertEquals("GET", sent.getCode());
+        assertEquals(12, sent.getMid());
+        assertEquals("0102", sent.getToken());
+        assertEquals("Uri-Path: \"3\", \"0\"", sent.getOptions());
+
+        CoapTraceRecord received = listener.records.get(1);
+        assertTrue(received.isIncoming());
+        assertEquals("2.05", received.getCode());
+        assertEquals("Content-Format: \"text/plain\"", received.getOptions());
+        assertArrayEquals("hello".getBytes(), received.getPayload());
+    }
+
+    @Test
+    public void stopped_trace_is_not_sent() throws InterruptedException {
+        TestListener stopped = new TestListener(1);
+        TestListener listener = new TestListener(1);
+        interceptor.startTrace(stopped, traced);
+        interceptor.startTrace(listener, traced);
+        interceptor.stopTrace(stopped, traced);
+
+        interceptor.sendRequest(request(traced));
+
+        assertTrue(listener.received.await(1, TimeUnit.SECONDS));
+        assertEquals(1, listener.records.size());
+        assertTrue(stopped.records.isEmpty());
+        assertEquals(1, interceptor.getMetrics().size());
+
+        interceptor.removeListener(listener);
+        assertTrue(interceptor.getMetrics().isEmpty());
+    }
+
+    @Test
+    public void traces_of_listener_which_does_not_exist_anymore_are_stopped() throws InterruptedException {
+        RemoteCoapTraceListener dead = new RemoteCoapTraceListener() {
+            @Override
+            public void onTraces(List<CoapTraceRecord> records) throws RemoteException {
+                throw new NoSuchObjectException("no such object");
+            }
+        };
+        interceptor.startTrace(dead, traced);
+        interceptor.startTrace(dead, other);
+
+        interceptor.sendRequest(request(traced));
+
+        for (int i = 0; i < 100 && interceptor.isTracing(dead); i++) {
+            Thread.sleep(10);
+        }
+        assertFalse(interceptor.isTracing(dead));
+        assertTrue(interceptor.getMetrics().isEmpty());
+    }
+}
@@ -18,10 +18,20 @@ package org.eclipse.leshan.server.californium.impl;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.leshan.Link;
 import org.eclipse.leshan.LwM2m;
+import org.eclipse.leshan.core.observation.Observation;
 import org.eclipse.leshan.core.request.BindingMode;
+import org.eclipse.leshan.server.registration.Deregistration;
+import org.eclipse.leshan.server.registration.ExpirationListener;
 import org.eclipse.leshan.server.registration.Registration;
 import org.eclipse.leshan.server.registration.RegistrationStore;
 import org.eclipse.leshan.server.registration.RegistrationUpdate;
@@ -89,6 +99,105 @@ public class InMemoryRegistrationStoreTest {
         Assert.assertTrue(reg.isAlive());
     }
 
+    @Test
+    public void registration_is_indexed_by_id_and_address() {
+        givenASimpleRegistration(lifetime);
+        store.addRegistration(registration);
+
+        Assert.assertEquals(registration, store.getRegistration(registrationId));
+        Assert.assertEquals(registration, store.getRegistrationByAdress(new InetSocketAddress(address, port)));
+        Assert.assertNull(store.getRegistrationByAdress(new InetSocketAddress(address, port + 1)));
+    }
+
+    @Test
+    public void update_registration_moves_address_index() {
+        givenASimpleRegistration(lifetime);
+        store.addRegistration(registration);
+
+        RegistrationUpdate update = new RegistrationUpdate(registrationId, address, port + 1, null, null, null, null);
+        store.updateRegistration(update);
+
+        Assert.assertNull(store.getRegistrationByAdress(new InetSocketAddress(address, port)));
+        Registration reg = store.getRegistrationByAdress(new InetSocketAddress(address, port + 1));
+        Assert.assertEquals(port + 1, reg.getPort());
+        Assert.assertSame(reg, store.getRegistration(registrationId));
+    }
+
+    @Test
+    public void new_registration_replaces_indexes_of_previous_one() {
+        givenASimpleRegistration(lifetime);
+        store.addRegistration(registration);
+
+        Registration newRegistration = new Registration.Builder("4712", ep, address, port + 1,
+                InetSocketAddress.createUnresolved("localhost", LwM2m.DEFAULT_COAP_PORT)).build();
+        Deregistration deregistration = store.addRegistration(newRegistration);
+
+        Assert.assertEquals(registrationId, deregistration.getRegistration().getId());
+        Assert.assertNull(store.getRegistration(registrationId));
+        Assert.assertNull(store.getRegistrationByAdress(new InetSocketAddress(address, port)));
+        Assert.assertSame(newRegistration, store.getRegistration("4712"));
+        Assert.assertSame(newRegistration, store.getRegistrationByAdress(new InetSocketAddress(address, port + 1)));
+    }
+
+    @Test
+    public void remove_registration_removes_all_indexes() {
+        givenASimpleRegistration(lifetime);
+        store.addRegistration(registration);
+
+        Deregistration deregistration = store.removeRegistration(registrationId);
+
+        Assert.assertEquals(registration, deregistration.getRegistration());
+        Assert.assertNull(store.getRegistration(registrationId));
+        Assert.assertNull(store.getRegistrationByEndpoint(ep));
+        Assert.assertNull(store.getRegistrationByAdress(new InetSocketAddress(address, port)));
+        Assert.assertNull(store.removeRegistration(registrationId));
+    }
+
+    @Test
+    public void registrations_are_iterated_in_endpoint_order() {
+        InMemoryRegistrationStore inMemoryStore = new InMemoryRegistrationStore();
+        for (String endpoint : Arrays.asList("c", "a", "d", "b")) {
+            inMemoryStore.addRegistration(new Registration.Builder("id-" + endpoint, endpoint, address, port,
+                    InetSocketAddress.createUnresolved("localhost", LwM2m.DEFAULT_COAP_PORT)).build());
+        }
+        inMemoryStore.removeRegistration("id-c");
+
+        Assert.assertEquals(Arrays.asList("a", "b", "d"), endpoints(inMemoryStore.getRegistrations(null, false)));
+        Assert.assertEquals(Arrays.asList("b", "d"), endpoints(inMemoryStore.getRegistrations("b", true)));
+        Assert.assertEquals(Arrays.asList("d"), endpoints(inMemoryStore.getRegistrations("b", false)));
+    }
+
+    private List<String> endpoints(Iterator<Registration> registrations) {
+        List<String> endpoints = new ArrayList<>();
+        while (registrations.hasNext()) {
+            endpoints.add(registrations.next().getEndpoint());
+        }
+        return endpoints;
+    }
+
+    @Test
+    public void expired_registration_is_removed_and_notified() throws InterruptedException {
+        InMemoryRegistrationStore inMemoryStore = new InMemoryRegistrationStore(1);
+        final CountDownLatch latch = new CountDownLatch(1);
+        inMemoryStore.setExpirationListener(new ExpirationListener() {
+            @Override
+            public void registrationExpired(Registration registration, Collection<Observation> observations) {
+                latch.countDown();
+            }
+        });
+        givenASimpleRegistration(1L);
+        inMemoryStore.addRegistration(registration);
+
+        inMemoryStore.start();
+        try {
+            Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+            Assert.assertNull(inMemoryStore.getRegistration(registrationId));
+            Assert.assertNull(inMemoryStore.getRegistrationByEndpoint(ep));
+        } finally {
+            inMemoryStore.stop();
+        }
+    }
+
     private void givenASimpleRegistration(Long lifetime) {
 
         Registration.Builder builder = new Registration.Builder(registrationId, ep, address, port,
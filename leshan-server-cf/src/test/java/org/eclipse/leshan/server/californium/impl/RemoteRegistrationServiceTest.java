@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.californium.impl;
+
+import static org.junit.Assert.*;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.core.request.BindingMode;
+import org.eclipse.leshan.server.impl.RemoteRegistrationServiceImpl;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationFilter;
+import org.eclipse.leshan.server.registration.RegistrationPage;
+import org.eclipse.leshan.server.registration.RegistrationStore;
+import org.eclipse.leshan.server.registration.RegistrationUpdate;
+import org.eclipse.leshan.server.registration.RemoteBatchRegistrationListener;
+import org.eclipse.leshan.server.registration.RemoteRegistrationEvent;
+import org.eclipse.leshan.server.registration.RemoteRegistrationListener;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RemoteRegistrationServiceTest {
+
+    private RegistrationStore store;
+    private RemoteRegistrationServiceImpl service;
+
+    @Before
+    public void setUp() {
+        store = new InMemoryRegistrationStore();
+        service = new RemoteRegistrationServiceImpl(store);
+    }
+
+    @After
+    public void tearDown() {
+        service.destroy();
+    }
+
+    private void givenARegistration(String endpoint, BindingMode binding, long lastUpdate) throws Exception {
+        store.addRegistration(new Registration.Builder("id-" + endpoint, endpoint, InetAddress.getLocalHost(),
+                5683, new InetSocketAddress(5683)).bindingMode(binding).lifeTimeInSec(10000L)
+                        .lastUpdate(new Date(lastUpdate)).build());
+    }
+
+    private List<String> endpoints(RegistrationPage page) {
+        List<String> endpoints = new ArrayList<>();
+        for (Registration registration : page.getRegistrations()) {
+            endpoints.add(registration.getEndpoint());
+        }
+        return endpoints;
+    }
+
+    @Test
+    public void registrations_are_paginated_in_endpoint_order() throws Exception {
+        long now = System.currentTimeMillis();
+        for (String endpoint : Arrays.asList("e", "c", "a", "d", "b")) {
+            givenARegistration(endpoint, BindingMode.U, now);
+        }
+
+        RegistrationPage page = service.getRegistrations(RegistrationFilter.ALL, null, 2);
+        assertEquals(Arrays.asList("a", "b"), endpoints(page));
+        assertEquals("b", page.getNextCursor());
+
+        page = service.getRegistrations(RegistrationFilter.ALL, page.getNextCursor(), 2);
+        assertEquals(Arrays.asList("c", "d"), endpoints(page));
+
+        // a registration added before the cursor does not shift the next page
+        givenARegistration("aa", BindingMode.U, now);
+        page = service.getRegistrations(RegistrationFilter.ALL, page.getNextCursor(), 2);
+        assertEquals(Arrays.asList("e"), endpoints(page));
+        assertFalse(page.hasNext());
+    }
+
+    @Test
+    public void registrations_are_filtered() throws Exception {
+        long now = System.currentTimeMillis();
+        givenARegistration("sensor-1", BindingMode.U, now - 60000);
+        givenARegistration("sensor-2", BindingMode.UQ, now);
+        givenARegistration("sensor-3", BindingMode.U, now);
+        givenARegistration("meter-1", BindingMode.U, now);
+
+        RegistrationFilter filter = new RegistrationFilter.Builder().endpointPrefix("sensor-")
+                .bindingMode(BindingMode.U).build();
+        assertEquals(Arrays.asList("sensor-1", "sensor-3"),
+                endpoints(service.getRegistrations(filter, null, 10)));
+
+        filter = new RegistrationFilter.Builder().updatedAfter(new Date(now - 1000)).build();
+        RegistrationPage page = service.getRegistrations(filter, null, 2);
+        assertEquals(Arrays.asList("meter-1", "sensor-2"), endpoints(page));
+        page = service.getRegistrations(filter, page.getNextCursor(), 2);
+        assertEquals(Arrays.asList("sensor-3"), endpoints(page));
+        assertFalse(page.hasNext());
+
+        filter = new RegistrationFilter.Builder().updatedBefore(new Date(now - 1000)).build();
+        assertEquals(Arrays.asList("sensor-1"), endpoints(service.getRegistrations(filter, null, 10)));
+    }
+
+    @Test
+    public void registrations_with_a_prefix_are_paginated() throws Exception {
+        long now = System.currentTimeMillis();
+        for (String endpoint : Arrays.asList("meter-1", "sensor-2", "sensor-1", "sensor-3", "valve-1")) {
+            givenARegistration(endpoint, BindingMode.U, now);
+        }
+
+        RegistrationFilter filter = new RegistrationFilter.Builder().endpointPrefix("sensor-").build();
+        RegistrationPage page = service.getRegistrations(filter, null, 2);
+        assertEquals(Arrays.asList("sensor-1", "sensor-2"), endpoints(page));
+        page = service.getRegistrations(filter, page.getNextCursor(), 2);
+        assertEquals(Arrays.asList("sensor-3"), endpoints(page));
+        assertFalse(page.hasNext());
+
+        // a cursor before the prefix
+        assertEquals(Arrays.asList("sensor-1"), endpoints(service.getRegistrations(filter, "meter-1", 1)));
+    }
+
+    @Test
+    public void only_batch_listeners_receive_events_in_batch() throws Exception {
+        Registration registration = new Registration.Builder("id-a", "a", InetAddress.getLocalHost(), 5683,
+                new InetSocketAddress(5683)).build();
+        final CountDownLatch registered = new CountDownLatch(2);
+        final List<Integer> batchSizes = new ArrayList<>();
+
+        service.addListener(new RemoteRegistrationListener() {
+            @Override
+            public void registered(Registration reg, Registration previousReg,
+                    Collection<Observation> previousObsersations) {
+                registered.countDown();
+            }
+
+            @Override
+            public void updated(RegistrationUpdate update, Registration updatedReg, Registration previousReg) {
+            }
+
+            @Override
+            public void unregistered(Registration reg, Collection<Observation> observations, boolean expired,
+                    Registration newReg) {
+            }
+        });
+        service.addListener(new RemoteBatchRegistrationListener() {
+            @Override
+            public void registered(Registration reg, Registration previousReg,
+                    Collection<Observation> previousObsersations) {
+                fail("events must be delivered in batch");
+            }
+
+            @Override
+            public void updated(RegistrationUpdate update, Registration updatedReg, Registration previousReg) {
+            }
+
+            @Override
+            public void unregistered(Registration reg, Collection<Observation> observations, boolean expired,
+                    Registration newReg) {
+            }
+
+            @Override
+            public void onEvents(List<RemoteRegistrationEvent> events) {
+                synchronized (batchSizes) {
+                    batchSizes.add(events.size());
+                }
+                registered.countDown();
+            }
+        });
+
+        service.fireRegistered(registration, null, null);
+
+        assertTrue(registered.await(1, TimeUnit.SECONDS));
+        synchronized (batchSizes) {
+            assertEquals(Arrays.asList(1), batchSizes);
+        }
+    }
+}
@@ -216,6 +216,7 @@ public class RemoteLeshanClientDemo {
         root.addServlet(eventServletHolder, "/event/*");
 
         ServletHolder clientServletHolder = new ServletHolder(new ClientServlet(lwServer, lwServer.getSecurePort()));
+        clientServletHolder.setAsyncSupported(true);
         root.addServlet(clientServletHolder, "/api/clients/*");
 
         // ServletHolder securityServletHolder = new ServletHolder(new SecurityServlet(securityStore, publicKey));
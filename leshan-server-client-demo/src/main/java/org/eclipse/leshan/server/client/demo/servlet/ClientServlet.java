@@ -17,8 +17,17 @@ package org.eclipse.leshan.server.client.demo.servlet;
 
 import java.io.IOException;
 import java.nio.charset.StandardCharsets;
+import java.rmi.NoSuchObjectException;
+import java.rmi.RemoteException;
+import java.rmi.server.UnicastRemoteObject;
+import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
@@ -30,10 +39,12 @@ import org.eclipse.leshan.core.node.LwM2mNode;
 import org.eclipse.leshan.core.node.LwM2mObjectInstance;
 import org.eclipse.leshan.core.node.LwM2mSingleResource;
 import org.eclipse.leshan.core.node.codec.CodecException;
+import org.eclipse.leshan.core.request.BindingMode;
 import org.eclipse.leshan.core.request.ContentFormat;
 import org.eclipse.leshan.core.request.CreateRequest;
 import org.eclipse.leshan.core.request.DeleteRequest;
 import org.eclipse.leshan.core.request.DiscoverRequest;
+import org.eclipse.leshan.core.request.DownlinkRequest;
 import org.eclipse.leshan.core.request.ExecuteRequest;
 import org.eclipse.leshan.core.request.ObserveRequest;
 import org.eclipse.leshan.core.request.ReadRequest;
@@ -43,26 +54,25 @@ import org.eclipse.leshan.core.request.exception.InvalidRequestException;
 import org.eclipse.leshan.core.request.exception.InvalidResponseException;
 import org.eclipse.leshan.core.request.exception.RequestCanceledException;
 import org.eclipse.leshan.core.request.exception.RequestRejectedException;
-import org.eclipse.leshan.core.response.CreateResponse;
-import org.eclipse.leshan.core.response.DeleteResponse;
-import org.eclipse.leshan.core.response.DiscoverResponse;
-import org.eclipse.leshan.core.response.ExecuteResponse;
+import org.eclipse.leshan.core.request.exception.TimeoutException;
 import org.eclipse.leshan.core.response.LwM2mResponse;
-import org.eclipse.leshan.core.response.ObserveResponse;
-import org.eclipse.leshan.core.response.ReadResponse;
-import org.eclipse.leshan.core.response.WriteResponse;
 import org.eclipse.leshan.server.RemoteLwM2mServer;
+import org.eclipse.leshan.server.RemoteResponse;
+import org.eclipse.leshan.server.RemoteResponseListener;
 import org.eclipse.leshan.server.client.demo.servlet.json.LwM2mNodeDeserializer;
 import org.eclipse.leshan.server.client.demo.servlet.json.LwM2mNodeSerializer;
 import org.eclipse.leshan.server.client.demo.servlet.json.RegistrationSerializer;
 import org.eclipse.leshan.server.client.demo.servlet.json.ResponseSerializer;
 import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationFilter;
+import org.eclipse.leshan.server.registration.RegistrationPage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import com.google.gson.JsonSyntaxException;
+import com.google.gson.stream.JsonWriter;
 
 /**
  * Service HTTP REST API calls.
@@ -71,18 +81,71 @@ public class ClientServlet extends HttpServlet {
 
     private static final String FORMAT_PARAM = "format";
 
+    // registration listing parameters
+    private static final String LIMIT_PARAM = "limit";
+    private static final String CURSOR_PARAM = "cursor";
+    private static final String PREFIX_PARAM = "prefix";
+    private static final String BINDING_PARAM = "binding";
+    private static final String UPDATED_AFTER_PARAM = "updatedAfter";
+    private static final String UPDATED_BEFORE_PARAM = "updatedBefore";
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    // number of registrations fetched per remote call when streaming all the registrations
+    private static final int PAGE_SIZE = 500;
+
     private static final Logger LOG = LoggerFactory.getLogger(ClientServlet.class);
 
     private static final long TIMEOUT = 5000; // ms
 
+    // the HTTP request times out a bit after the LWM2M request, in case the response is lost
+    private static final long ASYNC_TIMEOUT_MARGIN = 2000; // ms
+
     private static final long serialVersionUID = 1L;
 
     private final RemoteLwM2mServer server;
 
+    // requests waiting for the response of the client, by request id
+    private final ConcurrentHashMap<Long, AsyncContext> pendingRequests = new ConcurrentHashMap<>();
+    private final AtomicLong requestIds = new AtomicLong();
+
+    // receives the responses from the server
+    private final RemoteResponseListener responseListener = new RemoteResponseListener() {
+        @Override
+        public void onResponses(List<RemoteResponse> responses) {
+            for (RemoteResponse response : responses) {
+                AsyncContext async = pendingRequests.remove(response.getRequestId());
+                if (async == null) {
+                    // the HTTP request already timed out
+                    continue;
+                }
+                try {
+                    HttpServletRequest req = (HttpServletRequest) async.getRequest();
+                    HttpServletResponse resp = (HttpServletResponse) async.getResponse();
+                    if (response.getError() != null) {
+                        handleException(response.getError(), resp);
+                    } else {
+                        processDeviceResponse(req, resp, response.getResponse());
+                    }
+                } catch (IOException | RuntimeException e) {
+                    LOG.warn("Unable to write the response", e);
+                } finally {
+                    async.complete();
+                }
+            }
+        }
+    };
+
+    private final RemoteResponseListener responseListenerStub;
+
     private final Gson gson;
 
     public ClientServlet(RemoteLwM2mServer server, int securePort) {
         this.server = server;
+        try {
+            this.responseListenerStub = (RemoteResponseListener) UnicastRemoteObject.exportObject(responseListener, 0);
+        } catch (RemoteException e) {
+            throw new IllegalStateException("Unable to export the response listener via RMI", e);
+        }
 
         GsonBuilder gsonBuilder = new GsonBuilder();
         gsonBuilder.registerTypeHierarchyAdapter(Registration.class, new RegistrationSerializer(securePort));
@@ -93,6 +156,59 @@ public class ClientServlet extends HttpServlet {
         this.gson = gsonBuilder.create();
     }
 
+    /**
+     * Builds the registration filter from the query parameters.
+     */
+    private RegistrationFilter getFilter(HttpServletRequest req) {
+        RegistrationFilter.Builder builder = new RegistrationFilter.Builder();
+        builder.endpointPrefix(req.getParameter(PREFIX_PARAM));
+        String binding = req.getParameter(BINDING_PARAM);
+        if (binding != null) {
+            builder.bindingMode(BindingMode.valueOf(binding.toUpperCase()));
+        }
+        String updatedAfter = req.getParameter(UPDATED_AFTER_PARAM);
+        if (updatedAfter != null) {
+            builder.updatedAfter(new Date(Long.parseLong(updatedAfter)));
+        }
+        String updatedBefore = req.getParameter(UPDATED_BEFORE_PARAM);
+        if (updatedBefore != null) {
+            builder.updatedBefore(new Date(Long.parseLong(updatedBefore)));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Writes the registrations as a JSON array, one page at a time, so the whole list is never held in memory.
+     * <p>
+     * If a limit is given, only one page is written and the cursor of the next page is sent in the
+     * {@value #NEXT_CURSOR_HEADER} header.
+     */
+    private void writeRegistrations(HttpServletResponse resp, RegistrationFilter filter, String cursor, int limit)
+            throws IOException {
+        int pageSize = limit > 0 ? limit : PAGE_SIZE;
+        RegistrationPage page = server.getRemoteRegistrationService().getRegistrations(filter, cursor, pageSize);
+        if (limit > 0 && page.hasNext()) {
+            resp.setHeader(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        resp.setContentType("application/json");
+        resp.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        resp.setStatus(HttpServletResponse.SC_OK);
+
+        JsonWriter writer = new JsonWriter(resp.getWriter());
+        writer.beginArray();
+        while (true) {
+            for (Registration registration : page.getRegistrations()) {
+                gson.toJson(registration, Registration.class, writer);
+            }
+            if (limit > 0 || !page.hasNext()) {
+                break;
+            }
+            page = server.getRemoteRegistrationService().getRegistrations(filter, page.getNextCursor(), pageSize);
+        }
+        writer.endArray();
+        writer.flush();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -101,12 +217,16 @@ public class ClientServlet extends HttpServlet {
 
         // all registered clients
         if (req.getPathInfo() == null) {
-            List<Registration> registrations = server.getRemoteRegistrationService().getAllRegistrations();
-
-            String json = this.gson.toJson(registrations);
-            resp.setContentType("application/json");
-            resp.getOutputStream().write(json.getBytes(StandardCharsets.UTF_8));
-            resp.setStatus(HttpServletResponse.SC_OK);
+            RegistrationFilter filter;
+            int limit;
+            try {
+                filter = getFilter(req);
+                limit = req.getParameter(LIMIT_PARAM) == null ? 0 : Integer.parseInt(req.getParameter(LIMIT_PARAM));
+            } catch (IllegalArgumentException e) {
+                resp.sendError(HttpServletResponse.SC_BAD_REQUEST, e.getMessage());
+                return;
+            }
+            writeRegistrations(resp, filter, req.getParameter(CURSOR_PARAM), limit);
             return;
         }
 
@@ -139,13 +259,12 @@ public class ClientServlet extends HttpServlet {
                 if (registration != null) {
                     // create & process request
                     DiscoverRequest request = new DiscoverRequest(target);
-                    DiscoverResponse cResponse = server.send(registration, request, TIMEOUT);
-                    processDeviceResponse(req, resp, cResponse);
+                    sendAsync(req, resp, registration, request);
                 } else {
                     resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
                     resp.getWriter().format("No registered client with id '%s'", clientEndpoint).flush();
                 }
-            } catch (RuntimeException | InterruptedException e) {
+            } catch (RuntimeException e) {
                 handleException(e, resp);
             }
             return;
@@ -164,13 +283,12 @@ public class ClientServlet extends HttpServlet {
 
                 // create & process request
                 ReadRequest request = new ReadRequest(contentFormat, target);
-                ReadResponse cResponse = server.send(registration, request, TIMEOUT);
-                processDeviceResponse(req, resp, cResponse);
+                sendAsync(req, resp, registration, request);
             } else {
                 resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
                 resp.getWriter().format("No registered client with id '%s'", clientEndpoint).flush();
             }
-        } catch (RuntimeException | InterruptedException e) {
+        } catch (RuntimeException e) {
             handleException(e, resp);
         }
     }
@@ -192,6 +310,10 @@ public class ClientServlet extends HttpServlet {
             LOG.warn("Invalid response", e);
             resp.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
             resp.getWriter().append("Invalid Response:").append(e.getMessage()).flush();
+        } else if (e instanceof TimeoutException) {
+            LOG.warn("Request timeout", e);
+            resp.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+            resp.getWriter().append("Request timeout").flush();
         } else if (e instanceof InterruptedException) {
             LOG.warn("Thread Interrupted", e);
             resp.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
@@ -230,13 +352,12 @@ public class ClientServlet extends HttpServlet {
                 // create & process request
                 LwM2mNode node = extractLwM2mNode(target, req);
                 WriteRequest request = new WriteRequest(Mode.REPLACE, contentFormat, target, node);
-                WriteResponse cResponse = server.send(registration, request, TIMEOUT);
-                processDeviceResponse(req, resp, cResponse);
+                sendAsync(req, resp, registration, request);
             } else {
                 resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
                 resp.getWriter().format("No registered client with id '%s'", clientEndpoint).flush();
             }
-        } catch (RuntimeException | InterruptedException e) {
+        } catch (RuntimeException e) {
             handleException(e, resp);
         }
     }
@@ -263,13 +384,12 @@ public class ClientServlet extends HttpServlet {
 
                     // create & process request
                     ObserveRequest request = new ObserveRequest(contentFormat, target);
-                    ObserveResponse cResponse = server.send(registration, request, TIMEOUT);
-                    processDeviceResponse(req, resp, cResponse);
+                    sendAsync(req, resp, registration, request);
                 } else {
                     resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
                     resp.getWriter().format("no registered client with id '%s'", clientEndpoint).flush();
                 }
-            } catch (RuntimeException | InterruptedException e) {
+            } catch (RuntimeException e) {
                 handleException(e, resp);
             }
             return;
@@ -283,13 +403,12 @@ public class ClientServlet extends HttpServlet {
                 Registration registration = server.getRemoteRegistrationService().getByEndpoint(clientEndpoint);
                 if (registration != null) {
                     ExecuteRequest request = new ExecuteRequest(target, IOUtils.toString(req.getInputStream()));
-                    ExecuteResponse cResponse = server.send(registration, request, TIMEOUT);
-                    processDeviceResponse(req, resp, cResponse);
+                    sendAsync(req, resp, registration, request);
                 } else {
                     resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
                     resp.getWriter().format("no registered client with id '%s'", clientEndpoint).flush();
                 }
-            } catch (RuntimeException | InterruptedException e) {
+            } catch (RuntimeException e) {
                 handleException(e, resp);
             }
             return;
@@ -310,8 +429,7 @@ public class ClientServlet extends HttpServlet {
                     LwM2mNode node = extractLwM2mNode(target, req);
                     if (node instanceof LwM2mObjectInstance) {
                         CreateRequest request = new CreateRequest(contentFormat, target, (LwM2mObjectInstance) node);
-                        CreateResponse cResponse = server.send(registration, request, TIMEOUT);
-                        processDeviceResponse(req, resp, cResponse);
+                        sendAsync(req, resp, registration, request);
                     } else {
                         throw new IllegalArgumentException("payload must contain an object instance");
                     }
@@ -319,7 +437,7 @@ public class ClientServlet extends HttpServlet {
                     resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
                     resp.getWriter().format("no registered client with id '%s'", clientEndpoint).flush();
                 }
-            } catch (RuntimeException | InterruptedException e) {
+            } catch (RuntimeException e) {
                 handleException(e, resp);
             }
             return;
@@ -355,17 +473,80 @@ public class ClientServlet extends HttpServlet {
             Registration registration = server.getRemoteRegistrationService().getByEndpoint(clientEndpoint);
             if (registration != null) {
                 DeleteRequest request = new DeleteRequest(target);
-                DeleteResponse cResponse = server.send(registration, request, TIMEOUT);
-                processDeviceResponse(req, resp, cResponse);
+                sendAsync(req, resp, registration, request);
             } else {
                 resp.setStatus(HttpServletResponse.SC_BAD_REQUEST);
                 resp.getWriter().format("no registered client with id '%s'", clientEndpoint).flush();
             }
-        } catch (RuntimeException | InterruptedException e) {
+        } catch (RuntimeException e) {
             handleException(e, resp);
         }
     }
 
+    /**
+     * Sends the request without blocking the servlet thread: the HTTP response is written when the response of the
+     * client is received.
+     */
+    private void sendAsync(HttpServletRequest req, HttpServletResponse resp, Registration registration,
+            DownlinkRequest<?> request) throws IOException {
+        final long requestId = requestIds.incrementAndGet();
+        final AsyncContext async = req.startAsync();
+        async.setTimeout(TIMEOUT + ASYNC_TIMEOUT_MARGIN);
+        async.addListener(new AsyncListener() {
+            @Override
+            public void onTimeout(AsyncEvent event) throws IOException {
+                if (pendingRequests.remove(requestId) != null) {
+                    processDeviceResponse((HttpServletRequest) async.getRequest(),
+                            (HttpServletResponse) async.getResponse(), null);
+                    async.complete();
+                }
+            }
+
+            @Override
+            public void onError(AsyncEvent event) {
+                pendingRequests.remove(requestId);
+            }
+
+            @Override
+            public void onComplete(AsyncEvent event) {
+            }
+
+            @Override
+            public void onStartAsync(AsyncEvent event) {
+            }
+        });
+        pendingRequests.put(requestId, async);
+
+        try {
+            server.sendAsync(registration, request, TIMEOUT, requestId, responseListenerStub);
+        } catch (RuntimeException e) {
+            if (pendingRequests.remove(requestId) != null) {
+                handleException(e, resp);
+                async.complete();
+            }
+        } catch (RemoteException e) {
+            if (pendingRequests.remove(requestId) != null) {
+                async.complete();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        try {
+            server.removeResponseListener(responseListenerStub);
+        } catch (RemoteException e) {
+            LOG.warn("Unable to remove the response listener", e);
+        }
+        try {
+            UnicastRemoteObject.unexportObject(responseListener, true);
+        } catch (NoSuchObjectException e) {
+            LOG.debug("Response listener already unexported", e);
+        }
+        super.destroy();
+    }
+
     private void processDeviceResponse(HttpServletRequest req, HttpServletResponse resp, LwM2mResponse cResponse)
             throws IOException {
         if (cResponse == null) {
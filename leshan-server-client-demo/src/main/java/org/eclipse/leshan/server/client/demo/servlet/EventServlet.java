@@ -20,6 +20,7 @@ import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -28,9 +29,7 @@ import javax.servlet.http.HttpServletRequest;
 import org.eclipse.leshan.core.node.LwM2mNode;
 import org.eclipse.leshan.core.observation.Observation;
 import org.eclipse.leshan.core.response.ObserveResponse;
-import org.eclipse.leshan.server.RemoteEndpoint;
 import org.eclipse.leshan.server.RemoteLwM2mServer;
-import org.eclipse.leshan.server.RemoteMessageInterceptor;
 import org.eclipse.leshan.server.client.demo.servlet.json.LwM2mNodeSerializer;
 import org.eclipse.leshan.server.client.demo.servlet.json.RegistrationSerializer;
 import org.eclipse.leshan.server.client.demo.servlet.log.CoapMessage;
@@ -38,9 +37,13 @@ import org.eclipse.leshan.server.client.demo.servlet.log.CoapMessageListener;
 import org.eclipse.leshan.server.client.demo.servlet.log.RemoteCoapMessageTracer;
 import org.eclipse.leshan.server.client.demo.utils.EventSource;
 import org.eclipse.leshan.server.client.demo.utils.EventSourceServlet;
+import org.eclipse.leshan.server.observation.RemoteBatchObservationListener;
+import org.eclipse.leshan.server.observation.RemoteObservationEvent;
 import org.eclipse.leshan.server.observation.RemoteObservationListener;
 import org.eclipse.leshan.server.registration.Registration;
 import org.eclipse.leshan.server.registration.RegistrationUpdate;
+import org.eclipse.leshan.server.registration.RemoteBatchRegistrationListener;
+import org.eclipse.leshan.server.registration.RemoteRegistrationEvent;
 import org.eclipse.leshan.server.registration.RemoteRegistrationListener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -73,7 +76,7 @@ public class EventServlet extends EventSourceServlet {
     private Set<LeshanEventSource> eventSources = Collections
             .newSetFromMap(new ConcurrentHashMap<LeshanEventSource, Boolean>());
 
-    private final RemoteRegistrationListener registrationListener = new RemoteRegistrationListener() {
+    private final RemoteBatchRegistrationListener registrationListener = new RemoteBatchRegistrationListener() {
 
         @Override
         public void registered(Registration registration, Registration previousReg,
@@ -95,9 +98,16 @@ public class EventServlet extends EventSourceServlet {
             String jReg = EventServlet.this.gson.toJson(registration);
             sendEvent(EVENT_DEREGISTRATION, jReg, registration.getEndpoint());
         }
+
+        @Override
+        public void onEvents(List<RemoteRegistrationEvent> events) throws RemoteException {
+            for (RemoteRegistrationEvent event : events) {
+                event.dispatch(this);
+            }
+        }
     };
 
-    private final RemoteObservationListener observationListener = new RemoteObservationListener() {
+    private final RemoteBatchObservationListener observationListener = new RemoteBatchObservationListener() {
 
         @Override
         public void cancelled(Observation observation) {
@@ -130,6 +140,13 @@ public class EventServlet extends EventSourceServlet {
         @Override
         public void newObservation(Observation observation, Registration registration) {
         }
+
+        @Override
+        public void onEvents(List<RemoteObservationEvent> events) throws RemoteException {
+            for (RemoteObservationEvent event : events) {
+                event.dispatch(this);
+            }
+        }
     };
 
     public EventServlet(RemoteLwM2mServer server, int securePort) {
@@ -143,14 +160,11 @@ public class EventServlet extends EventSourceServlet {
                     .exportObject(this.observationListener, 0);
             server.getRemoteObservationService().addListener(observationListenerStub);
 
-            // add an interceptor to each endpoint to trace all CoAP messages
-            tempTracer = new RemoteCoapMessageTracer(server.getRemoteRegistrationService());
-            // export interceptor via RMI
-            RemoteMessageInterceptor coapMesageTracerStub = (RemoteMessageInterceptor) UnicastRemoteObject
-                    .exportObject(tempTracer, 0);
-            for (RemoteEndpoint endpoint : server.getRemoteEndpoints()) {
-                endpoint.addInterceptor(tempTracer);
-            }
+            // the endpoints only trace the CoAP messages of the clients followed by an event source
+            tempTracer = new RemoteCoapMessageTracer(server.getRemoteRegistrationService(),
+                    server.getRemoteEndpoints());
+            // export trace listener via RMI
+            UnicastRemoteObject.exportObject(tempTracer, 0);
         } catch (RemoteException e) {
             LOG.error("Failed to add listeners vim RMI", e);
         }
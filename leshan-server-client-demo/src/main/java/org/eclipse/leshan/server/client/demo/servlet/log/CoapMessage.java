@@ -30,6 +30,7 @@ import org.eclipse.californium.core.coap.OptionNumberRegistry;
 import org.eclipse.californium.core.coap.OptionSet;
 import org.eclipse.californium.core.coap.Request;
 import org.eclipse.californium.core.coap.Response;
+import org.eclipse.leshan.server.CoapTraceRecord;
 import org.eclipse.leshan.util.Hex;
 
 public class CoapMessage {
@@ -70,6 +71,17 @@ public class CoapMessage {
                 request.getPayload());
     }
 
+    public CoapMessage(CoapTraceRecord record) {
+        this.incoming = record.isIncoming();
+        this.timestamp = record.getTimestamp();
+        this.type = record.getType();
+        this.code = record.getCode();
+        this.mId = record.getMid();
+        this.token = record.getToken();
+        this.options = record.getOptions();
+        this.payload = toString(record.getPayload());
+    }
+
     private CoapMessage(boolean incoming, Type type, int mId, String token, OptionSet options, byte[] payload) {
         this.incoming = incoming;
         this.timestamp = System.currentTimeMillis();
@@ -102,13 +114,18 @@ public class CoapMessage {
 
             }
         }
+        this.payload = toString(payload);
+    }
+
+    private static String toString(byte[] payload) {
         if (payload != null && payload.length > 0) {
             String strPayload = new String(payload, StandardCharsets.UTF_8);
             if (StringUtils.isAsciiPrintable(strPayload)) {
-                this.payload = strPayload;
+                return strPayload;
             } else {
-                this.payload = "Hex:" + Hex.encodeHexString(payload);
+                return "Hex:" + Hex.encodeHexString(payload);
             }
         }
+        return null;
     }
 }
@@ -15,41 +15,69 @@
  *******************************************************************************/
 package org.eclipse.leshan.server.client.demo.servlet.log;
 
-import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.rmi.RemoteException;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
-import org.eclipse.californium.core.coap.EmptyMessage;
-import org.eclipse.californium.core.coap.Request;
-import org.eclipse.californium.core.coap.Response;
-import org.eclipse.leshan.server.RemoteMessageInterceptor;
+import org.eclipse.leshan.server.CoapTraceRecord;
+import org.eclipse.leshan.server.RemoteCoapTraceListener;
+import org.eclipse.leshan.server.RemoteEndpoint;
 import org.eclipse.leshan.server.registration.Registration;
 import org.eclipse.leshan.server.registration.RemoteRegistrationService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class RemoteCoapMessageTracer implements RemoteMessageInterceptor {
+/**
+ * Receives the traces of the CoAP messages of the clients followed by a {@link CoapMessageListener}.
+ * <p>
+ * Only the clients which have a listener are traced by the remote endpoints.
+ */
+public class RemoteCoapMessageTracer implements RemoteCoapTraceListener {
 
-    private final Map<String, CoapMessageListener> listeners = new ConcurrentHashMap<>();
+    private final Map<InetSocketAddress, CoapMessageListener> listeners = new ConcurrentHashMap<>();
 
     private final RemoteRegistrationService registry;
 
+    private final List<RemoteEndpoint> endpoints;
+
     private static final Logger LOG = LoggerFactory.getLogger(RemoteCoapMessageTracer.class);
 
+    public RemoteCoapMessageTracer(RemoteRegistrationService registry, List<RemoteEndpoint> endpoints) {
+        this.registry = registry;
+        this.endpoints = endpoints;
+    }
+
     public void addListener(String endpoint, CoapMessageListener listener) {
-        Registration registration = null;
-        try {
-            registration = registry.getByEndpoint(endpoint);
-        } catch (RemoteException e) {
-            LOG.error("Failed to get registration by endpoint", e);
-        }
-        if (registration != null) {
-            listeners.put(toStringAddress(registration.getAddress(), registration.getPort()), listener);
+        InetSocketAddress address = getAddress(endpoint);
+        if (address != null) {
+            listeners.put(address, listener);
+            try {
+                for (RemoteEndpoint e : endpoints) {
+                    e.startTrace(this, address);
+                }
+            } catch (RemoteException e) {
+                LOG.error("Failed to start CoAP trace via RMI", e);
+            }
         }
     }
 
     public void removeListener(String endpoint) {
+        InetSocketAddress address = getAddress(endpoint);
+        if (address != null) {
+            listeners.remove(address);
+            try {
+                for (RemoteEndpoint e : endpoints) {
+                    e.stopTrace(this, address);
+                }
+            } catch (RemoteException e) {
+                LOG.error("Failed to stop CoAP trace via RMI", e);
+            }
+        }
+    }
+
+    private InetSocketAddress getAddress(String endpoint) {
         Registration registration = null;
         try {
             registration = registry.getByEndpoint(endpoint);
@@ -57,70 +85,18 @@ public class RemoteCoapMessageTracer implements RemoteMessageInterceptor {
             LOG.error("Failed to get registration by endpoint", e);
         }
         if (registration != null) {
-            listeners.remove(toStringAddress(registration.getAddress(), registration.getPort()));
+            return new InetSocketAddress(registration.getAddress(), registration.getPort());
         }
-    }
-
-    private String toStringAddress(InetAddress clientAddress, int clientPort) {
-        return clientAddress.toString() + ":" + clientPort;
-    }
-
-    public RemoteCoapMessageTracer(RemoteRegistrationService registry) {
-        this.registry = registry;
+        return null;
     }
 
     @Override
-    public void sendRequest(Request request) {
-        CoapMessageListener listener = listeners
-                .get(toStringAddress(request.getDestination(), request.getDestinationPort()));
-        if (listener != null) {
-            listener.trace(new CoapMessage(request, false));
+    public void onTraces(List<CoapTraceRecord> records) {
+        for (CoapTraceRecord record : records) {
+            CoapMessageListener listener = listeners.get(record.getPeer());
+            if (listener != null) {
+                listener.trace(new CoapMessage(record));
+            }
         }
     }
-
-    @Override
-    public void sendResponse(Response response) {
-        CoapMessageListener listener = listeners
-                .get(toStringAddress(response.getDestination(), response.getDestinationPort()));
-        if (listener != null) {
-            listener.trace(new CoapMessage(response, false));
-        }
-    }
-
-    @Override
-    public void sendEmptyMessage(EmptyMessage message) {
-        CoapMessageListener listener = listeners
-                .get(toStringAddress(message.getDestination(), message.getDestinationPort()));
-        if (listener != null) {
-            listener.trace(new CoapMessage(message, false));
-        }
-    }
-
-    @Override
-    public void receiveRequest(Request request) {
-        CoapMessageListener listener = listeners.get(toStringAddress(request.getSource(), request.getSourcePort()));
-        if (listener != null) {
-            listener.trace(new CoapMessage(request, true));
-        }
-
-    }
-
-    @Override
-    public void receiveResponse(Response response) {
-        CoapMessageListener listener = listeners.get(toStringAddress(response.getSource(), response.getSourcePort()));
-        if (listener != null) {
-            listener.trace(new CoapMessage(response, true));
-        }
-
-    }
-
-    @Override
-    public void receiveEmptyMessage(EmptyMessage message) {
-        CoapMessageListener listener = listeners.get(toStringAddress(message.getSource(), message.getSourcePort()));
-        if (listener != null) {
-            listener.trace(new CoapMessage(message, true));
-        }
-
-    }
-
 }
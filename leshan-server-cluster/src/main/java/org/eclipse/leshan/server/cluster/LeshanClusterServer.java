@@ -31,6 +31,7 @@ import org.eclipse.leshan.core.model.ObjectModel;
 import org.eclipse.leshan.core.node.codec.DefaultLwM2mNodeDecoder;
 import org.eclipse.leshan.server.californium.LeshanServerBuilder;
 import org.eclipse.leshan.server.californium.impl.LeshanServer;
+import org.eclipse.leshan.server.impl.EditableCachingSecurityStore;
 import org.eclipse.leshan.server.model.LwM2mModelProvider;
 import org.eclipse.leshan.server.model.StaticModelProvider;
 import org.slf4j.Logger;
@@ -66,6 +67,10 @@ public class LeshanClusterServer {
         options.addOption("m", "modelsfolder", true, "A folder which contains object models in OMA DDF(.xml) format.");
         options.addOption("r", "redis", true,
                 "Sets the location of the Redis database. The URL is in the format of: 'redis://:password@hostname:port/db_number'\n\nDefault: 'redis://localhost:6379'.");
+        options.addOption("nc", "nearcache", true,
+                "Sets the maximum number of registrations kept in the local near-cache.\n  Default: 0 (disabled).");
+        options.addOption("bf", "binaryformat", false,
+                "Writes the registrations, observations and security info in the compact binary format. Only use it once all the nodes of the cluster are upgraded, previous versions only read the JSON format.");
         HelpFormatter formatter = new HelpFormatter();
         formatter.setOptionComparator(null);
 
@@ -125,16 +130,23 @@ public class LeshanClusterServer {
             redisUrl = cl.getOptionValue("r");
         }
 
+        // Get the near-cache size
+        int nearCacheSize = 0;
+        if (cl.hasOption("nc")) {
+            nearCacheSize = Integer.parseInt(cl.getOptionValue("nc"));
+        }
+
         try {
             createAndStartServer(clusterInstanceId, localAddress, localPort, secureLocalAddress, secureLocalPort,
-                    modelsFolderPath, redisUrl);
+                    modelsFolderPath, redisUrl, nearCacheSize, cl.hasOption("bf"));
         } catch (Exception e) {
             LOG.error("Jetty stopped with unexpected error ...", e);
         }
     }
 
     public static void createAndStartServer(String clusterInstanceId, String localAddress, int localPort,
-            String secureLocalAddress, int secureLocalPort, String modelsFolderPath, String redisUrl) throws Exception {
+            String secureLocalAddress, int secureLocalPort, String modelsFolderPath, String redisUrl, int nearCacheSize,
+            boolean binaryFormat) throws Exception {
         // Create Redis connector.
         // TODO: support sentinel pool and make pool configurable
         Pool<Jedis> jedis = new JedisPool(new URI(redisUrl));
@@ -154,11 +166,15 @@ public class LeshanClusterServer {
         LwM2mModelProvider modelProvider = new StaticModelProvider(models);
         builder.setObjectModelProvider(modelProvider);
 
-        RedisRegistrationStore registrationStore = new RedisRegistrationStore(jedis);
+        RedisRegistrationStore registrationStore = new RedisRegistrationStore(jedis, 2, nearCacheSize);
+        registrationStore.setBinaryFormat(binaryFormat);
         builder.setRegistrationStore(registrationStore);
 
         // TODO add support of public and private server key
-        builder.setSecurityStore(new RedisSecurityStore(jedis));
+        RedisSecurityStore redisSecurityStore = new RedisSecurityStore(jedis);
+        redisSecurityStore.setBinaryFormat(binaryFormat);
+        EditableCachingSecurityStore securityStore = new EditableCachingSecurityStore(redisSecurityStore);
+        builder.setSecurityStore(securityStore);
 
         // Create and start LWM2M server
         LeshanServer lwServer = builder.build();
@@ -170,7 +186,19 @@ public class LeshanClusterServer {
         lwServer.getRegistrationService().addListener(tokenHandler);
         lwServer.getRegistrationService().addListener(new RedisRegistrationEventPublisher(jedis));
 
+        // Invalidate the cached security info modified by any node
+        final RedisSecurityCacheInvalidator cacheInvalidator = new RedisSecurityCacheInvalidator(jedis, securityStore);
+        cacheInvalidator.start();
+
         // Start Jetty & Leshan
         lwServer.start();
+
+        // Stop the invalidation of the cache (and release its Redis connection) on shutdown
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            @Override
+            public void run() {
+                cacheInvalidator.stop();
+            }
+        });
     }
 }
@@ -18,17 +18,18 @@ package org.eclipse.leshan.server.cluster;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.eclipse.leshan.server.californium.impl.CoapRequestBuilder.*;
 
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
@@ -44,6 +45,7 @@ import org.eclipse.leshan.server.cluster.serialization.ObservationSerDes;
 import org.eclipse.leshan.server.cluster.serialization.RegistrationSerDes;
 import org.eclipse.leshan.server.registration.Deregistration;
 import org.eclipse.leshan.server.registration.ExpirationListener;
+import org.eclipse.leshan.server.registration.OrderedRegistrationStore;
 import org.eclipse.leshan.server.registration.Registration;
 import org.eclipse.leshan.server.registration.RegistrationUpdate;
 import org.eclipse.leshan.server.registration.UpdatedRegistration;
@@ -53,23 +55,330 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
 import redis.clients.jedis.ScanParams;
 import redis.clients.jedis.ScanResult;
 import redis.clients.util.Pool;
 
 /**
  * A RegistrationStore which stores registrations and observations in Redis.
+ * <p>
+ * All the operations which modify several keys are executed atomically on the Redis server using Lua scripts (see
+ * {@link RedisScript}), so no distributed lock is needed and most operations cost a single round-trip. As the scripts
+ * compute the keys they access, this store must be used with a single Redis instance (not a Redis Cluster).
+ * <p>
+ * Registration endpoints are also indexed in a sorted set scored by their expiration time, so the cleaner only
+ * fetches the registrations which are actually expired.
+ * <p>
+ * The socket address of each registration is indexed too (address to endpoint, and endpoint to address so the index
+ * can be cleaned when the registration is removed), so a registration is found by address with a single script call.
+ * This lookup is done by the DTLS layer each time the server opens a session to a client. The endpoints are also
+ * kept in a sorted set by name, so paginated listings resume from their cursor.
+ * <p>
+ * The observations of a registration are stored in a single hash (token to observation), so they are fetched or
+ * removed in one call whatever their number. Leshan observations are built from the observation context only, the
+ * CoAP request is only parsed when Californium asks for it. The observations stored by previous versions (a key per
+ * token holding the observation, and a list of tokens per registration) are still read and removed.
+ * <p>
+ * An optional {@link RegistrationNearCache} keeps the most used registrations in memory. Each script modifying a
+ * registration publishes its endpoint on the {@link #INVALIDATION_CHANNEL} channel so all the nodes of the cluster
+ * invalidate their cached copy. A node may still read a stale registration until the invalidation message reaches it.
  */
-public class RedisRegistrationStore implements CaliforniumRegistrationStore, Startable, Stoppable {
+public class RedisRegistrationStore
+        implements CaliforniumRegistrationStore, OrderedRegistrationStore, Startable, Stoppable {
 
     private static final Logger LOG = LoggerFactory.getLogger(RedisRegistrationStore.class);
 
     // Redis key prefixes
     private static final String REG_EP = "REG:EP:";
     private static final String REG_EP_REGID_IDX = "EP:REGID:"; // secondary index key (registration)
-    private static final String LOCK_EP = "LOCK:EP:";
-    private static final byte[] OBS_TKN = "OBS:TKN:".getBytes(UTF_8);
-    private static final String OBS_TKNS_REGID_IDX = "TKNS:REGID:"; // secondary index (token list by registration)
+    private static final String REG_REGID_EP_IDX = "REGID:EP:"; // secondary index key (registration id by endpoint)
+    private static final String REG_ADDR_EP_IDX = "ADDR:EP:"; // secondary index key (endpoint by socket address)
+    private static final String REG_EP_ADDR_IDX = "EP:ADDR:"; // secondary index key (socket address by endpoint)
+    private static final byte[] OBS_TKN = "OBS:TKN:".getBytes(UTF_8); // token index (registration id by token)
+    private static final String OBS_REGID = "OBS:REGID:"; // observations of a registration (hash token => observation)
+    // token list by registration, only used to read observations stored by previous versions
+    private static final String LEGACY_OBS_TKNS_REGID_IDX = "TKNS:REGID:";
+    private static final byte[] EXP_EP = "EXP:EP".getBytes(UTF_8); // a sorted set used for registration expiration
+                                                                   // (expiration date, Endpoint)
+    private static final byte[] SORTED_EP = "SORTED:EP".getBytes(UTF_8); // a sorted set of the endpoints by name (all
+                                                                         // scores are 0)
+
+    // Channel on which the endpoint of each modified registration is published (see RegistrationNearCache)
+    public static final String INVALIDATION_CHANNEL = "LESHAN_REG_INV";
+
+    // Maximum number of expired registrations fetched at once by the cleaner
+    private static final int CLEAN_LIMIT = 500;
+    // Maximum number of attempts to update a registration which is modified concurrently
+    private static final int UPDATE_MAX_ATTEMPTS = 10;
+
+    /* *************** Lua scripts **************** */
+
+    private static final String LUA_HEADER = "" //
+            + "local REG_EP = '" + REG_EP + "'\n" //
+            + "local EP_REGID = '" + REG_EP_REGID_IDX + "'\n" //
+            + "local REGID_EP = '" + REG_REGID_EP_IDX + "'\n" //
+            + "local ADDR_EP = '" + REG_ADDR_EP_IDX + "'\n" //
+            + "local EP_ADDR = '" + REG_EP_ADDR_IDX + "'\n" //
+            + "local OBS_TKN = '" + new String(OBS_TKN, UTF_8) + "'\n" //
+            + "local OBS_REGID = '" + OBS_REGID + "'\n" //
+            + "local TKNS_REGID = '" + LEGACY_OBS_TKNS_REGID_IDX + "'\n" //
+            + "local EXP_EP = '" + new String(EXP_EP, UTF_8) + "'\n" //
+            + "local SORTED_EP = '" + new String(SORTED_EP, UTF_8) + "'\n" //
+            + "local INVALIDATION_CHANNEL = '" + INVALIDATION_CHANNEL + "'\n" //
+            + "local CTX_REGID = '" + CTX_REGID + "'\n" //
+
+            // get the registration id of the registration stored for this endpoint
+            + "local function registrationId(ep, data)\n" //
+            + "  local id = redis.call('GET', REGID_EP .. ep)\n" //
+            // registrations stored before the REGID:EP index existed are in JSON
+            + "  if not id and data then\n" //
+            + "    local ok, json = pcall(cjson.decode, data)\n" //
+            + "    if ok and type(json) == 'table' then id = json['regId'] end\n" //
+            + "  end\n" //
+            + "  return id\n" //
+            + "end\n" //
+
+            // index the endpoint by its socket address, the previous address of the endpoint is not indexed anymore
+            + "local function setAddressIndex(ep, addr)\n" //
+            + "  local old = redis.call('GETSET', EP_ADDR .. ep, addr)\n" //
+            + "  if old and old ~= addr and redis.call('GET', ADDR_EP .. old) == ep then\n" //
+            + "    redis.call('DEL', ADDR_EP .. old)\n" //
+            + "  end\n" //
+            + "  redis.call('SET', ADDR_EP .. addr, ep)\n" //
+            + "end\n" //
+
+            // remove the address index of an endpoint, unless its address is now used by another endpoint
+            + "local function deleteAddressIndex(ep)\n" //
+            + "  local addr = redis.call('GET', EP_ADDR .. ep)\n" //
+            + "  if not addr then return end\n" //
+            + "  if redis.call('GET', ADDR_EP .. addr) == ep then redis.call('DEL', ADDR_EP .. addr) end\n" //
+            + "  redis.call('DEL', EP_ADDR .. ep)\n" //
+            + "end\n" //
+
+            // remove the token index entry if it still targets the given registration
+            + "local function removeTokenIndex(id, token)\n" //
+            + "  if redis.call('GET', OBS_TKN .. token) == id then redis.call('DEL', OBS_TKN .. token) end\n" //
+            + "end\n" //
+
+            // remove an observation stored in the previous layout (OBS:TKN => observation, TKNS:REGID => tokens)
+            + "local function removeLegacyObservation(id, token, removed)\n" //
+            + "  if redis.call('LREM', TKNS_REGID .. id, 0, token) > 0 then\n" //
+            + "    local obs = redis.call('GET', OBS_TKN .. token)\n" //
+            // the token may now be indexed in the current layout
+            + "    if obs and string.sub(obs, 1, 1) == '{' then\n" //
+            + "      table.insert(removed, token)\n" //
+            + "      table.insert(removed, obs)\n" //
+            + "      redis.call('DEL', OBS_TKN .. token)\n" //
+            + "    end\n" //
+            + "  end\n" //
+            + "end\n" //
+
+            // remove all the observations of a registration and return them as {token1, obs1, token2, obs2, ...}
+            + "local function removeObservations(id)\n" //
+            + "  local obsKey = OBS_REGID .. id\n" //
+            + "  local removed = redis.call('HGETALL', obsKey)\n" //
+            + "  for i = 1, #removed, 2 do removeTokenIndex(id, removed[i]) end\n" //
+            + "  redis.call('DEL', obsKey)\n" //
+            + "  for _, token in ipairs(redis.call('LRANGE', TKNS_REGID .. id, 0, -1)) do\n" //
+            + "    removeLegacyObservation(id, token, removed)\n" //
+            + "  end\n" //
+            + "  return removed\n" //
+            + "end\n" //
+
+            // delete a registration and its indexes
+            + "local function deleteRegistration(ep, id)\n" //
+            + "  redis.call('DEL', REG_EP .. ep, REGID_EP .. ep)\n" //
+            + "  redis.call('ZREM', EXP_EP, ep)\n" //
+            + "  redis.call('ZREM', SORTED_EP, ep)\n" //
+            + "  deleteAddressIndex(ep)\n" //
+            + "  if id then redis.call('DEL', EP_REGID .. id) end\n" //
+            + "  redis.call('PUBLISH', INVALIDATION_CHANNEL, ep)\n" //
+            + "end\n";
+
+    // ARGV: endpoint, registration id, serialized registration, expiration time, socket address
+    // returns: {previous serialized registration or nil, {token1, serialized observation1, ...}}
+    private static final RedisScript REGISTER = new RedisScript(LUA_HEADER //
+            + "local ep, id = ARGV[1], ARGV[2]\n" //
+            + "local old = redis.call('GETSET', REG_EP .. ep, ARGV[3])\n" //
+            + "local oldId = registrationId(ep, old)\n" //
+            + "redis.call('SET', REGID_EP .. ep, id)\n" //
+            + "redis.call('SET', EP_REGID .. id, ep)\n" //
+            + "redis.call('ZADD', EXP_EP, ARGV[4], ep)\n" //
+            + "redis.call('ZADD', SORTED_EP, 0, ep)\n" //
+            + "setAddressIndex(ep, ARGV[5])\n" //
+            + "redis.call('PUBLISH', INVALIDATION_CHANNEL, ep)\n" //
+            + "local removed = {}\n" //
+            + "if old and oldId and oldId ~= id then\n" //
+            + "  redis.call('DEL', EP_REGID .. oldId)\n" //
+            + "  removed = removeObservations(oldId)\n" //
+            + "end\n" //
+            + "return {old, removed}\n");
+
+    // ARGV: registration id
+    // returns: serialized registration or nil
+    private static final RedisScript GET_BY_ID = new RedisScript(LUA_HEADER //
+            + "local ep = redis.call('GET', EP_REGID .. ARGV[1])\n" //
+            + "if not ep then return false end\n" //
+            + "return redis.call('GET', REG_EP .. ep)\n");
+
+    // ARGV: socket address
+    // returns: serialized registration or nil
+    private static final RedisScript GET_BY_ADDRESS = new RedisScript(LUA_HEADER //
+            + "local ep = redis.call('GET', ADDR_EP .. ARGV[1])\n" //
+            + "if not ep then return false end\n" //
+            + "return redis.call('GET', REG_EP .. ep)\n");
+
+    // ARGV: endpoint, expected serialized registration, new serialized registration, new expiration time, new socket
+    // address
+    // returns: 1 if the registration was updated, 0 if it was modified concurrently.
+    private static final RedisScript UPDATE = new RedisScript(LUA_HEADER //
+            + "local ep = ARGV[1]\n" //
+            + "if redis.call('GET', REG_EP .. ep) ~= ARGV[2] then return 0 end\n" //
+            + "redis.call('SET', REG_EP .. ep, ARGV[3])\n" //
+            + "redis.call('ZADD', EXP_EP, ARGV[4], ep)\n" //
+            + "setAddressIndex(ep, ARGV[5])\n" //
+            + "redis.call('PUBLISH', INVALIDATION_CHANNEL, ep)\n" //
+            + "return 1\n");
+
+    // ARGV: registration id
+    // returns: nil or {serialized registration, {token1, serialized observation1, ...}}
+    private static final RedisScript DEREGISTER = new RedisScript(LUA_HEADER //
+            + "local id = ARGV[1]\n" //
+            + "local ep = redis.call('GET', EP_REGID .. id)\n" //
+            + "if not ep then return false end\n" //
+            + "local data = redis.call('GET', REG_EP .. ep)\n" //
+            + "if not data or registrationId(ep, data) ~= id then\n" //
+            // stale index: the endpoint is not registered with this id anymore
+            + "  redis.call('DEL', EP_REGID .. id)\n" //
+            + "  removeObservations(id)\n" //
+            + "  return false\n" //
+            + "end\n" //
+            + "deleteRegistration(ep, id)\n" //
+            + "return {data, removeObservations(id)}\n");
+
+    // ARGV: endpoint, current time
+    // returns: nil if the registration is not expired or {serialized registration, {token1, serialized observation1, ...}}
+    private static final RedisScript REMOVE_IF_EXPIRED = new RedisScript(LUA_HEADER //
+            + "local ep = ARGV[1]\n" //
+            + "local expiration = redis.call('ZSCORE', EXP_EP, ep)\n" //
+            + "if not expiration or tonumber(expiration) > tonumber(ARGV[2]) then return false end\n" //
+            + "local data = redis.call('GET', REG_EP .. ep)\n" //
+            + "local id = registrationId(ep, data)\n" //
+            + "deleteRegistration(ep, id)\n" //
+            + "if not data then return false end\n" //
+            + "local removed = {}\n" //
+            + "if id then removed = removeObservations(id) end\n" //
+            + "return {data, removed}\n");
+
+    // ARGV: endpoint, expected serialized registration, expiration time, socket address
+    // returns: 1 if the registration was indexed, 0 if it was modified, removed or already indexed concurrently.
+    private static final RedisScript INDEX_REGISTRATION = new RedisScript(LUA_HEADER //
+            + "local ep = ARGV[1]\n" //
+            + "if redis.call('GET', REG_EP .. ep) ~= ARGV[2] then return 0 end\n" //
+            + "local indexed = 0\n" //
+            + "if not redis.call('ZSCORE', EXP_EP, ep) then\n" //
+            + "  redis.call('ZADD', EXP_EP, ARGV[3], ep)\n" //
+            + "  indexed = 1\n" //
+            + "end\n" //
+            + "if redis.call('EXISTS', EP_ADDR .. ep) == 0 then\n" //
+            + "  setAddressIndex(ep, ARGV[4])\n" //
+            + "  indexed = 1\n" //
+            + "end\n" //
+            + "if not redis.call('ZSCORE', SORTED_EP, ep) then\n" //
+            + "  redis.call('ZADD', SORTED_EP, 0, ep)\n" //
+            + "  indexed = 1\n" //
+            + "end\n" //
+            + "return indexed\n");
+
+    // ARGV: registration id, token, serialized observation
+    // returns: {0} if there is no registration for this id or {1, previous serialized observation or nil}
+    private static final RedisScript ADD_OBSERVATION = new RedisScript(LUA_HEADER //
+            + "local id, token = ARGV[1], ARGV[2]\n" //
+            + "if redis.call('EXISTS', EP_REGID .. id) == 0 then return {0} end\n" //
+            + "local previous = false\n" //
+            + "local previousId = redis.call('GETSET', OBS_TKN .. token, id)\n" //
+            + "if previousId and string.sub(previousId, 1, 1) == '{' then\n" //
+            // observation stored in the previous layout, remove the token from the list of its registration
+            + "  previous = previousId\n" //
+            + "  local ok, json = pcall(cjson.decode, previousId)\n" //
+            + "  if ok and type(json) == 'table' and type(json['context']) == 'table' then\n" //
+            + "    local previousRegId = json['context'][CTX_REGID]\n" //
+            + "    if previousRegId then redis.call('LREM', TKNS_REGID .. previousRegId, 0, token) end\n" //
+            + "  end\n" //
+            + "elseif previousId then\n" //
+            + "  previous = redis.call('HGET', OBS_REGID .. previousId, token)\n" //
+            + "  redis.call('HDEL', OBS_REGID .. previousId, token)\n" //
+            + "end\n" //
+            + "redis.call('HSET', OBS_REGID .. id, token, ARGV[3])\n" //
+            + "return {1, previous}\n");
+
+    // ARGV: token
+    // returns: serialized observation or nil
+    private static final RedisScript GET_OBSERVATION_BY_TOKEN = new RedisScript(LUA_HEADER //
+            + "local id = redis.call('GET', OBS_TKN .. ARGV[1])\n" //
+            + "if not id then return false end\n" //
+            + "local obs = redis.call('HGET', OBS_REGID .. id, ARGV[1])\n" //
+            + "if obs then return obs end\n" //
+            // observation stored in the previous layout
+            + "if string.sub(id, 1, 1) == '{' then return id end\n" //
+            + "return false\n");
+
+    // ARGV: registration id
+    // returns: {token1, serialized observation1, ...}
+    private static final RedisScript GET_OBSERVATIONS = new RedisScript(LUA_HEADER //
+            + "local id = ARGV[1]\n" //
+            + "local observations = redis.call('HGETALL', OBS_REGID .. id)\n" //
+            // observations stored in the previous layout
+            + "for _, token in ipairs(redis.call('LRANGE', TKNS_REGID .. id, 0, -1)) do\n" //
+            + "  local obs = redis.call('GET', OBS_TKN .. token)\n" //
+            + "  if obs and string.sub(obs, 1, 1) == '{' then\n" //
+            + "    table.insert(observations, token)\n" //
+            + "    table.insert(observations, obs)\n" //
+            + "  end\n" //
+            + "end\n" //
+            + "return observations\n");
+
+    // ARGV: registration id, tokens...
+    // returns: {token1, serialized observation1, ...} for the observations removed
+    private static final RedisScript REMOVE_OBSERVATIONS = new RedisScript(LUA_HEADER //
+            + "local id = ARGV[1]\n" //
+            + "local obsKey = OBS_REGID .. id\n" //
+            + "local removed = {}\n" //
+            + "for i = 2, #ARGV do\n" //
+            + "  local obs = redis.call('HGET', obsKey, ARGV[i])\n" //
+            + "  if obs then\n" //
+            + "    redis.call('HDEL', obsKey, ARGV[i])\n" //
+            + "    removeTokenIndex(id, ARGV[i])\n" //
+            + "    table.insert(removed, ARGV[i])\n" //
+            + "    table.insert(removed, obs)\n" //
+            + "  else\n" //
+            + "    removeLegacyObservation(id, ARGV[i], removed)\n" //
+            + "  end\n" //
+            + "end\n" //
+            + "return removed\n");
+
+    // ARGV: token
+    // returns: {token, serialized observation} or an empty list if there is no observation for this token
+    private static final RedisScript REMOVE_OBSERVATION_BY_TOKEN = new RedisScript(LUA_HEADER //
+            + "local token = ARGV[1]\n" //
+            + "local id = redis.call('GET', OBS_TKN .. token)\n" //
+            + "if not id then return {} end\n" //
+            + "local obs = redis.call('HGET', OBS_REGID .. id, token)\n" //
+            + "if not obs then\n" //
+            + "  redis.call('DEL', OBS_TKN .. token)\n" //
+            + "  return {}\n" //
+            + "end\n" //
+            + "redis.call('HDEL', OBS_REGID .. id, token)\n" //
+            + "redis.call('DEL', OBS_TKN .. token)\n" //
+            + "return {token, obs}\n");
+
+    // ARGV: registration id
+    // returns: {token1, serialized observation1, ...} for the observations removed
+    private static final RedisScript REMOVE_ALL_OBSERVATIONS = new RedisScript(LUA_HEADER //
+            + "return removeObservations(ARGV[1])\n");
 
     private final Pool<Jedis> pool;
 
@@ -79,20 +388,56 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
     private final ScheduledExecutorService schedExecutor;
     private final long cleanPeriod; // in seconds
 
+    // local cache of registrations, null if disabled
+    private final RegistrationNearCache nearCache;
+
+    // true to write the registrations and observations in the binary format, false for the JSON format
+    private volatile boolean binaryFormat;
+    private NearCacheInvalidator invalidator;
+
     public RedisRegistrationStore(Pool<Jedis> p) {
-        this(p, 60); // default clean period 60s
+        this(p, 2); // default clean period 2s
     }
 
     public RedisRegistrationStore(Pool<Jedis> p, long cleanPeriodInSec) {
+        this(p, cleanPeriodInSec, 0);
+    }
+
+    /**
+     * @param nearCacheSize the maximum number of registrations kept in the local near-cache, 0 to disable it.
+     */
+    public RedisRegistrationStore(Pool<Jedis> p, long cleanPeriodInSec, int nearCacheSize) {
         this(p, Executors.newScheduledThreadPool(1,
                 new NamedThreadFactory(String.format("RedisRegistrationStore Cleaner (%ds)", cleanPeriodInSec))),
-                cleanPeriodInSec);
+                cleanPeriodInSec, nearCacheSize);
     }
 
     public RedisRegistrationStore(Pool<Jedis> p, ScheduledExecutorService schedExecutor, long cleanPeriodInSec) {
+        this(p, schedExecutor, cleanPeriodInSec, 0);
+    }
+
+    /**
+     * @param nearCacheSize the maximum number of registrations kept in the local near-cache, 0 to disable it.
+     */
+    public RedisRegistrationStore(Pool<Jedis> p, ScheduledExecutorService schedExecutor, long cleanPeriodInSec,
+            int nearCacheSize) {
+        Validate.isTrue(nearCacheSize >= 0, "near-cache size must not be negative");
         this.pool = p;
         this.schedExecutor = schedExecutor;
         this.cleanPeriod = cleanPeriodInSec;
+        this.nearCache = nearCacheSize > 0 ? new RegistrationNearCache(nearCacheSize) : null;
+    }
+
+    /**
+     * Sets the format of the registrations and observations written by this store. Both formats are always read, but
+     * the nodes of previous versions only read the JSON format: the binary format must only be enabled once all the
+     * nodes of the cluster are upgraded.
+     * 
+     * @param binaryFormat <code>true</code> for the compact binary format, <code>false</code> (default) for the JSON
+     *        format
+     */
+    public void setBinaryFormat(boolean binaryFormat) {
+        this.binaryFormat = binaryFormat;
     }
 
     /* *************** Redis Key utility function **************** */
@@ -108,12 +453,12 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
         return (prefix + registrationID).getBytes();
     }
 
-    private byte[] toLockKey(String endpoint) {
-        return toKey(LOCK_EP, endpoint);
+    private static byte[] toBytes(String value) {
+        return value.getBytes(UTF_8);
     }
 
-    private byte[] toLockKey(byte[] endpoint) {
-        return toKey(LOCK_EP.getBytes(UTF_8), endpoint);
+    private static byte[] toBytes(long value) {
+        return Long.toString(value).getBytes(UTF_8);
     }
 
     /* *************** Leshan Registration API **************** */
@@ -121,113 +466,113 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
     @Override
     public Deregistration addRegistration(Registration registration) {
         try (Jedis j = pool.getResource()) {
-            byte[] lockValue = null;
-            byte[] lockKey = toLockKey(registration.getEndpoint());
-
-            try {
-                lockValue = RedisLock.acquire(j, lockKey);
-
-                // add registration
-                byte[] k = toEndpointKey(registration.getEndpoint());
-                byte[] old = j.getSet(k, serializeReg(registration));
-
-                // add registration: secondary index
-                byte[] idx = toRegIdKey(registration.getId());
-                j.set(idx, registration.getEndpoint().getBytes(UTF_8));
-
-                if (old != null) {
-                    Registration oldRegistration = deserializeReg(old);
-                    // remove old secondary index
-                    if (registration.getId() != oldRegistration.getId())
-                        j.del(toRegIdKey(oldRegistration.getId()));
-                    // remove old observation
-                    Collection<Observation> obsRemoved = unsafeRemoveAllObservations(j, oldRegistration.getId());
-
-                    return new Deregistration(oldRegistration, obsRemoved);
-                }
-
-                return null;
-            } finally {
-                RedisLock.release(j, lockKey, lockValue);
+            List<?> result = (List<?>) REGISTER.eval(j, toBytes(registration.getEndpoint()),
+                    toBytes(registration.getId()), serializeReg(registration),
+                    toBytes(registration.getExpirationTimeStamp()), toAddressKey(registration));
+
+            invalidate(registration.getEndpoint());
+            byte[] old = (byte[]) result.get(0);
+            if (old != null) {
+                Registration oldRegistration = deserializeReg(old);
+                return new Deregistration(oldRegistration, buildObservations((List<?>) result.get(1)));
             }
+            return null;
         }
     }
 
     @Override
     public UpdatedRegistration updateRegistration(RegistrationUpdate update) {
         try (Jedis j = pool.getResource()) {
+            // optimistic update: the registration is only replaced if it was not modified since we read it.
+            for (int attempt = 0; attempt < UPDATE_MAX_ATTEMPTS; attempt++) {
+                byte[] data = (byte[]) GET_BY_ID.eval(j, toBytes(update.getRegistrationId()));
+                if (data == null) {
+                    return null;
+                }
 
-            // fetch the client ep by registration ID index
-            byte[] ep = j.get(toRegIdKey(update.getRegistrationId()));
-            if (ep == null) {
-                return null;
-            }
-
-            // fetch the client
-            byte[] data = j.get(toEndpointKey(ep));
-            if (data == null) {
-                return null;
-            }
-
-            Registration r = deserializeReg(data);
-
-            byte[] lockValue = null;
-            byte[] lockKey = toLockKey(r.getEndpoint());
-            try {
-                lockValue = RedisLock.acquire(j, lockKey);
-
+                Registration r = deserializeReg(data);
                 Registration updatedRegistration = update.update(r);
 
-                // store the new client
-                j.set(toEndpointKey(updatedRegistration.getEndpoint()), serializeReg(updatedRegistration));
-
-                return new UpdatedRegistration(r, updatedRegistration);
-
-            } finally {
-                RedisLock.release(j, lockKey, lockValue);
+                Long updated = (Long) UPDATE.eval(j, toBytes(r.getEndpoint()), data,
+                        serializeReg(updatedRegistration), toBytes(updatedRegistration.getExpirationTimeStamp()),
+                        toAddressKey(updatedRegistration));
+                if (updated == 1L) {
+                    invalidate(r.getEndpoint());
+                    return new UpdatedRegistration(r, updatedRegistration);
+                }
             }
+            throw new IllegalStateException(
+                    String.format("Could not update registration %s: too many concurrent modifications",
+                            update.getRegistrationId()));
         }
     }
 
     @Override
     public Registration getRegistration(String registrationId) {
-        try (Jedis j = pool.getResource()) {
-            byte[] ep = j.get(toRegIdKey(registrationId));
-            if (ep == null) {
-                return null;
+        long version = 0;
+        if (nearCache != null) {
+            Registration r = nearCache.getById(registrationId);
+            if (r != null) {
+                return r;
             }
-            byte[] data = j.get(toEndpointKey(ep));
+            version = nearCache.getVersion();
+        }
+
+        try (Jedis j = pool.getResource()) {
+            byte[] data = (byte[]) GET_BY_ID.eval(j, toBytes(registrationId));
             if (data == null) {
                 return null;
             }
-
-            return deserializeReg(data);
+            Registration r = deserializeReg(data);
+            if (nearCache != null) {
+                nearCache.put(r, version);
+            }
+            return r;
         }
     }
 
     @Override
     public Registration getRegistrationByEndpoint(String endpoint) {
         Validate.notNull(endpoint);
+        long version = 0;
+        if (nearCache != null) {
+            Registration r = nearCache.getByEndpoint(endpoint);
+            if (r != null) {
+                return r.isAlive() ? r : null;
+            }
+            version = nearCache.getVersion();
+        }
+
         try (Jedis j = pool.getResource()) {
             byte[] data = j.get(toEndpointKey(endpoint));
             if (data == null) {
                 return null;
             }
             Registration r = deserializeReg(data);
+            if (nearCache != null) {
+                nearCache.put(r, version);
+            }
             return r.isAlive() ? r : null;
         }
     }
 
     @Override
     public Registration getRegistrationByAdress(InetSocketAddress address) {
-        // TODO we should create an index instead of iterate all over the collection
-        for (Iterator<Registration> iterator = getAllRegistrations(); iterator.hasNext();) {
-            Registration r = iterator.next();
+        if (address.getAddress() == null) {
+            return null;
+        }
+        try (Jedis j = pool.getResource()) {
+            byte[] data = (byte[]) GET_BY_ADDRESS.eval(j, toAddressKey(address.getAddress(), address.getPort()));
+            if (data == null) {
+                return null;
+            }
+            Registration r = deserializeReg(data);
+            // never return the registration of another address, even with an inconsistent index
             if (address.getPort() == r.getPort() && address.getAddress().equals(r.getAddress())) {
                 return r;
             }
+            return null;
         }
-        return null;
     }
 
     @Override
@@ -235,6 +580,85 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
         return new RedisIterator(pool, new ScanParams().match(REG_EP + "*").count(100));
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The endpoints are read by pages from the {@link #SORTED_EP} sorted set with ZRANGEBYLEX (Redis 2.8.9 or later) and
+     * the registrations of each page are read with a single MGET.
+     */
+    @Override
+    public Iterator<Registration> getRegistrations(String fromEndpoint, boolean inclusive) {
+        if (fromEndpoint == null) {
+            return new SortedIterator(toBytes("-"));
+        }
+        return new SortedIterator(toBytes((inclusive ? "[" : "(") + fromEndpoint));
+    }
+
+    private class SortedIterator implements Iterator<Registration> {
+
+        private static final int PAGE_SIZE = 100;
+
+        private byte[] min; // ZRANGEBYLEX lower bound of the next page, null if there is no more page
+        private List<Registration> page = new ArrayList<>();
+        private int index;
+
+        private SortedIterator(byte[] min) {
+            this.min = min;
+        }
+
+        private void readNext() {
+            try (Jedis j = pool.getResource()) {
+                Set<byte[]> endpoints = j.zrangeByLex(SORTED_EP, min, toBytes("+"), 0, PAGE_SIZE);
+
+                this.page = new ArrayList<>(endpoints.size());
+                this.index = 0;
+                byte[][] keys = new byte[endpoints.size()][];
+                byte[] last = null;
+                int i = 0;
+                for (byte[] endpoint : endpoints) {
+                    keys[i++] = toKey(REG_EP.getBytes(UTF_8), endpoint);
+                    last = endpoint;
+                }
+                if (keys.length > 0) {
+                    for (byte[] value : j.mget(keys)) {
+                        // the registration may have been removed since its endpoint was read
+                        if (value != null) {
+                            this.page.add(deserializeReg(value));
+                        }
+                    }
+                }
+
+                // the next page starts after the last endpoint of this one
+                this.min = endpoints.size() < PAGE_SIZE ? null : toKey(toBytes("("), last);
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            // a page may only contain removed registrations
+            while (index >= page.size()) {
+                if (min == null) {
+                    return false;
+                }
+                readNext();
+            }
+            return true;
+        }
+
+        @Override
+        public Registration next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return page.get(index++);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
     protected class RedisIterator implements Iterator<Registration> {
 
         private Pool<Jedis> pool;
@@ -257,7 +681,10 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
                 this.scanResult = new ArrayList<>();
                 if (sr.getResult() != null && !sr.getResult().isEmpty()) {
                     for (byte[] value : j.mget(sr.getResult().toArray(new byte[][] {}))) {
-                        this.scanResult.add(deserializeReg(value));
+                        // the registration may have been removed since the scan
+                        if (value != null) {
+                            this.scanResult.add(deserializeReg(value));
+                        }
                     }
                 }
 
@@ -267,17 +694,15 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
 
         @Override
         public boolean hasNext() {
-            if (!scanResult.isEmpty()) {
-                return true;
-            }
-            if ("0".equals(cursor)) {
-                // no more elements to scan
-                return false;
+            // a page may be empty while there are more keys to scan
+            while (scanResult.isEmpty()) {
+                if ("0".equals(cursor)) {
+                    // no more elements to scan
+                    return false;
+                }
+                scanNext(cursor);
             }
-
-            // read more elements
-            scanNext(cursor);
-            return !scanResult.isEmpty();
+            return true;
         }
 
         @Override
@@ -297,55 +722,97 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
     @Override
     public Deregistration removeRegistration(String registrationId) {
         try (Jedis j = pool.getResource()) {
-
-            byte[] regKey = toRegIdKey(registrationId);
-
-            // fetch the client ep by registration ID index
-            byte[] ep = j.get(regKey);
-            if (ep == null) {
+            List<?> result = (List<?>) DEREGISTER.eval(j, toBytes(registrationId));
+            if (result == null) {
                 return null;
             }
+            Registration r = deserializeReg((byte[]) result.get(0));
+            invalidate(r.getEndpoint());
+            return new Deregistration(r, buildObservations((List<?>) result.get(1)));
+        }
+    }
 
-            byte[] data = j.get(toEndpointKey(ep));
-            if (data == null) {
-                return null;
-            }
+    /* *************** Near-cache **************** */
 
-            Registration r = deserializeReg(data);
-            deleteRegistration(j, r);
-            Collection<Observation> obsRemoved = unsafeRemoveAllObservations(j, r.getId());
-            return new Deregistration(r, obsRemoved);
+    /**
+     * @return the local cache of registrations or <code>null</code> if it is disabled.
+     */
+    public RegistrationNearCache getNearCache() {
+        return nearCache;
+    }
+
+    private void invalidate(String endpoint) {
+        // other nodes are notified by the scripts which modify the registration
+        if (nearCache != null) {
+            nearCache.invalidate(endpoint);
         }
     }
 
-    private void deleteRegistration(Jedis j, Registration r) {
-        byte[] lockValue = null;
-        byte[] lockKey = toLockKey(r.getEndpoint());
-        try {
-            lockValue = RedisLock.acquire(j, lockKey);
+    /**
+     * Invalidates the near-cache entries of the registrations modified by any node of the cluster.
+     */
+    private class NearCacheInvalidator implements Runnable {
+
+        private volatile boolean running = true;
+        private final JedisPubSub subscriber = new JedisPubSub() {
+            @Override
+            public void onSubscribe(String channel, int subscribedChannels) {
+                // invalidation messages may have been missed while we were not subscribed
+                nearCache.activate();
+            }
 
-            // delete all entries
-            j.del(toRegIdKey(r.getId()));
-            j.del(toEndpointKey(r.getEndpoint()));
+            @Override
+            public void onMessage(String channel, String endpoint) {
+                nearCache.invalidate(endpoint);
+            }
+        };
 
-        } finally {
-            RedisLock.release(j, lockKey, lockValue);
+        @Override
+        public void run() {
+            while (running) {
+                try (Jedis j = pool.getResource()) {
+                    j.subscribe(subscriber, INVALIDATION_CHANNEL);
+                } catch (RuntimeException e) {
+                    LOG.warn("Redis SUBSCRIBE to near-cache invalidation channel interrupted.", e);
+                }
+                // the cache is not invalidated anymore
+                nearCache.deactivate();
+
+                // wait & re-launch
+                if (running) {
+                    try {
+                        Thread.sleep(500);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
         }
-    }
 
-    private byte[] toRegIdKey(String registrationId) {
-        return toKey(REG_EP_REGID_IDX, registrationId);
+        private void stop() {
+            running = false;
+            if (subscriber.isSubscribed()) {
+                subscriber.unsubscribe();
+            }
+        }
     }
 
     private byte[] toEndpointKey(String endpoint) {
         return toKey(REG_EP, endpoint);
     }
 
-    private byte[] toEndpointKey(byte[] endpoint) {
-        return toKey(REG_EP.getBytes(UTF_8), endpoint);
+    private static byte[] toAddressKey(Registration registration) {
+        return toAddressKey(registration.getAddress(), registration.getPort());
+    }
+
+    private static byte[] toAddressKey(InetAddress address, int port) {
+        return toBytes(address.getHostAddress() + ":" + port);
     }
 
     private byte[] serializeReg(Registration registration) {
+        if (binaryFormat) {
+            return RegistrationSerDes.serializeBinary(registration);
+        }
         return RegistrationSerDes.bSerialize(registration);
     }
 
@@ -361,77 +828,51 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
      */
     @Override
     public Collection<Observation> addObservation(String registrationId, Observation observation) {
-
-        List<Observation> removed = new ArrayList<>();
-
-        if (!removed.isEmpty()) {
-            try (Jedis j = pool.getResource()) {
-
-                // fetch the client ep by registration ID index
-                byte[] ep = j.get(toRegIdKey(registrationId));
-                if (ep == null) {
-                    return null;
-                }
-
-                byte[] lockValue = null;
-                byte[] lockKey = toLockKey(ep);
-
-                try {
-                    lockValue = RedisLock.acquire(j, lockKey);
-
-                    // cancel existing observations for the same path and registration id.
-                    for (Observation obs : getObservations(j, registrationId)) {
-                        if (observation.getPath().equals(obs.getPath())
-                                && !Arrays.equals(observation.getId(), obs.getId())) {
-                            removed.add(obs);
-                            unsafeRemoveObservation(j, registrationId, obs.getId());
-                        }
-                    }
-
-                } finally {
-                    RedisLock.release(j, lockKey, lockValue);
+        try (Jedis j = pool.getResource()) {
+            // cancel existing observations for the same path and registration id.
+            List<byte[]> tokensToRemove = new ArrayList<>();
+            for (Observation obs : getObservations(j, registrationId)) {
+                if (observation.getPath().equals(obs.getPath()) && !Arrays.equals(observation.getId(), obs.getId())) {
+                    tokensToRemove.add(obs.getId());
                 }
             }
+            if (tokensToRemove.isEmpty()) {
+                return new ArrayList<>();
+            }
+            return removeObservations(j, registrationId, tokensToRemove);
         }
-
-        return removed;
-
     }
 
     @Override
     public Observation removeObservation(String registrationId, byte[] observationId) {
         try (Jedis j = pool.getResource()) {
+            Collection<Observation> removed = removeObservations(j, registrationId, Arrays.asList(observationId));
+            return removed.isEmpty() ? null : removed.iterator().next();
+        }
+    }
 
-            // fetch the client ep by registration ID index
-            byte[] ep = j.get(toRegIdKey(registrationId));
-            if (ep == null) {
-                return null;
+    @Override
+    public Observation getObservation(String registrationId, byte[] observationId) {
+        // fast path used for each notification: a single HGET and only the observation context is decoded
+        try (Jedis j = pool.getResource()) {
+            byte[] obs = j.hget(toKey(OBS_REGID, registrationId), observationId);
+            if (obs != null) {
+                return build(observationId, ObservationSerDes.deserializeContext(obs));
             }
 
-            // remove observation
-            byte[] lockValue = null;
-            byte[] lockKey = toLockKey(ep);
-            try {
-                lockValue = RedisLock.acquire(j, lockKey);
-
-                Observation observation = build(get(observationId));
-                if (observation != null && registrationId.equals(observation.getRegistrationId())) {
-                    unsafeRemoveObservation(j, registrationId, observationId);
-                    return observation;
-                }
+            // observation stored in the previous layout: the token key holds the observation itself
+            obs = j.get(toKey(OBS_TKN, observationId));
+            if (obs == null || obs.length == 0 || obs[0] != '{') {
+                return null;
+            }
+            Map<String, String> context = ObservationSerDes.deserializeContext(obs);
+            if (!registrationId.equals(context.get(CTX_REGID))) {
                 return null;
-
-            } finally {
-                RedisLock.release(j, lockKey, lockValue);
             }
+            return build(observationId, context);
         }
     }
 
-    @Override
-    public Observation getObservation(String registrationId, byte[] observationId) {
-        return build(get(observationId));
-    }
-
     @Override
     public Collection<Observation> getObservations(String registrationId) {
         try (Jedis j = pool.getResource()) {
@@ -440,35 +881,13 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
     }
 
     private Collection<Observation> getObservations(Jedis j, String registrationId) {
-        Collection<Observation> result = new ArrayList<>();
-        for (byte[] token : j.lrange(toKey(OBS_TKNS_REGID_IDX, registrationId), 0, -1)) {
-            byte[] obs = j.get(toKey(OBS_TKN, token));
-            if (obs != null) {
-                result.add(build(deserializeObs(obs)));
-            }
-        }
-        return result;
+        return buildObservations((List<?>) GET_OBSERVATIONS.eval(j, toBytes(registrationId)));
     }
 
     @Override
     public Collection<Observation> removeObservations(String registrationId) {
         try (Jedis j = pool.getResource()) {
-            // check registration exists
-            Registration registration = getRegistration(registrationId);
-            if (registration == null)
-                return Collections.emptyList();
-
-            // get endpoint and create lock
-            String endpoint = registration.getEndpoint();
-            byte[] lockValue = null;
-            byte[] lockKey = toKey(LOCK_EP, endpoint);
-            try {
-                lockValue = RedisLock.acquire(j, lockKey);
-
-                return unsafeRemoveAllObservations(j, registrationId);
-            } finally {
-                RedisLock.release(j, lockKey, lockValue);
-            }
+            return buildObservations((List<?>) REMOVE_ALL_OBSERVATIONS.eval(j, toBytes(registrationId)));
         }
     }
 
@@ -476,33 +895,22 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
 
     @Override
     public void add(org.eclipse.californium.core.observe.Observation obs) {
-        String endpoint = this.validateObservation(obs);
+        validateObservation(obs);
 
         try (Jedis j = pool.getResource()) {
-            byte[] lockValue = null;
-            byte[] lockKey = toKey(LOCK_EP, endpoint);
-            try {
-                lockValue = RedisLock.acquire(j, lockKey);
-
-                String registrationId = obs.getRequest().getUserContext().get(CTX_REGID);
-                if (!j.exists(toRegIdKey(registrationId)))
-                    throw new IllegalStateException("no registration for this Id");
-
-                byte[] previousValue = j.getSet(toKey(OBS_TKN, obs.getRequest().getToken()), serializeObs(obs));
-
-                // secondary index to get the list by registrationId
-                j.lpush(toKey(OBS_TKNS_REGID_IDX, registrationId), obs.getRequest().getToken());
-
-                // log any collisions
-                if (previousValue != null && previousValue.length != 0) {
-                    org.eclipse.californium.core.observe.Observation previousObservation = deserializeObs(
-                            previousValue);
-                    LOG.warn(
-                            "Token collision ? observation from request [{}] will be replaced by observation from request [{}] ",
-                            previousObservation.getRequest(), obs.getRequest());
-                }
-            } finally {
-                RedisLock.release(j, lockKey, lockValue);
+            String registrationId = obs.getRequest().getUserContext().get(CTX_REGID);
+            List<?> result = (List<?>) ADD_OBSERVATION.eval(j, toBytes(registrationId), obs.getRequest().getToken(),
+                    serializeObs(obs));
+            if ((Long) result.get(0) == 0L)
+                throw new IllegalStateException("no registration for this Id");
+
+            // log any collisions
+            byte[] previousValue = result.size() > 1 ? (byte[]) result.get(1) : null;
+            if (previousValue != null && previousValue.length != 0) {
+                org.eclipse.californium.core.observe.Observation previousObservation = deserializeObs(previousValue);
+                LOG.warn(
+                        "Token collision ? observation from request [{}] will be replaced by observation from request [{}] ",
+                        previousObservation.getRequest(), obs.getRequest());
             }
         }
     }
@@ -510,35 +918,14 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
     @Override
     public void remove(byte[] token) {
         try (Jedis j = pool.getResource()) {
-            byte[] tokenKey = toKey(OBS_TKN, token);
-
-            // fetch the observation by token
-            byte[] serializedObs = j.get(tokenKey);
-            if (serializedObs == null)
-                return;
-
-            org.eclipse.californium.core.observe.Observation obs = deserializeObs(serializedObs);
-            String registrationId = obs.getRequest().getUserContext().get(CoapRequestBuilder.CTX_REGID);
-            Registration registration = getRegistration(registrationId);
-            String endpoint = registration.getEndpoint();
-
-            byte[] lockValue = null;
-            byte[] lockKey = toKey(LOCK_EP, endpoint);
-            try {
-                lockValue = RedisLock.acquire(j, lockKey);
-
-                unsafeRemoveObservation(j, registrationId, token);
-            } finally {
-                RedisLock.release(j, lockKey, lockValue);
-            }
+            REMOVE_OBSERVATION_BY_TOKEN.eval(j, token);
         }
-
     }
 
     @Override
     public org.eclipse.californium.core.observe.Observation get(byte[] token) {
         try (Jedis j = pool.getResource()) {
-            byte[] obs = j.get(toKey(OBS_TKN, token));
+            byte[] obs = (byte[]) GET_OBSERVATION_BY_TOKEN.eval(j, token);
             if (obs == null) {
                 return null;
             } else {
@@ -549,27 +936,23 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
 
     /* *************** Observation utility functions **************** */
 
-    private void unsafeRemoveObservation(Jedis j, String registrationId, byte[] observationId) {
-        if (j.del(toKey(OBS_TKN, observationId)) > 0L) {
-            j.lrem(toKey(OBS_TKNS_REGID_IDX, registrationId), 0, observationId);
+    private Collection<Observation> removeObservations(Jedis j, String registrationId, List<byte[]> tokens) {
+        byte[][] args = new byte[tokens.size() + 1][];
+        args[0] = toBytes(registrationId);
+        for (int i = 0; i < tokens.size(); i++) {
+            args[i + 1] = tokens.get(i);
         }
+        return buildObservations((List<?>) REMOVE_OBSERVATIONS.eval(j, args));
     }
 
-    private Collection<Observation> unsafeRemoveAllObservations(Jedis j, String registrationId) {
-        Collection<Observation> removed = new ArrayList<>();
-        byte[] regIdKey = toKey(OBS_TKNS_REGID_IDX, registrationId);
-
-        // fetch all observations by token
-        for (byte[] token : j.lrange(regIdKey, 0, -1)) {
-            byte[] obs = j.get(toKey(OBS_TKN, token));
-            if (obs != null) {
-                removed.add(build(deserializeObs(obs)));
-            }
-            j.del(toKey(OBS_TKN, token));
+    /* Build observations from a {token1, serialized observation1, token2, ...} list returned by a script */
+    private Collection<Observation> buildObservations(List<?> tokensAndObservations) {
+        Collection<Observation> observations = new ArrayList<>(tokensAndObservations.size() / 2);
+        for (int i = 0; i + 1 < tokensAndObservations.size(); i += 2) {
+            observations.add(build((byte[]) tokensAndObservations.get(i),
+                    ObservationSerDes.deserializeContext((byte[]) tokensAndObservations.get(i + 1))));
         }
-        j.del(regIdKey);
-
-        return removed;
+        return observations;
     }
 
     @Override
@@ -578,6 +961,9 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
     }
 
     private byte[] serializeObs(org.eclipse.californium.core.observe.Observation obs) {
+        if (binaryFormat) {
+            return ObservationSerDes.serializeBinary(obs);
+        }
         return ObservationSerDes.serialize(obs);
     }
 
@@ -585,15 +971,12 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
         return ObservationSerDes.deserialize(data);
     }
 
-    private Observation build(org.eclipse.californium.core.observe.Observation cfObs) {
-        if (cfObs == null)
-            return null;
-
+    private Observation build(byte[] token, Map<String, String> userContext) {
         String regId = null;
         String lwm2mPath = null;
         Map<String, String> context = null;
 
-        for (Entry<String, String> ctx : cfObs.getRequest().getUserContext().entrySet()) {
+        for (Entry<String, String> ctx : userContext.entrySet()) {
             switch (ctx.getKey()) {
             case CTX_REGID:
                 regId = ctx.getValue();
@@ -608,30 +991,29 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
                 context.put(ctx.getKey(), ctx.getValue());
             }
         }
-        return new Observation(cfObs.getRequest().getToken(), regId, new LwM2mPath(lwm2mPath), context);
+        return new Observation(token, regId, new LwM2mPath(lwm2mPath), context);
     }
 
-    private String validateObservation(org.eclipse.californium.core.observe.Observation observation) {
+    private void validateObservation(org.eclipse.californium.core.observe.Observation observation) {
         if (!observation.getRequest().getUserContext().containsKey(CoapRequestBuilder.CTX_REGID))
             throw new IllegalStateException("missing registrationId info in the request context");
         if (!observation.getRequest().getUserContext().containsKey(CoapRequestBuilder.CTX_LWM2M_PATH))
             throw new IllegalStateException("missing lwm2m path info in the request context");
-
-        String endpoint = observation.getRequest().getUserContext().get(CoapRequestBuilder.CTX_ENDPOINT);
-        if (endpoint == null)
-            throw new IllegalStateException("missing endpoint info in the request context");
-
-        return endpoint;
     }
 
     /* *************** Expiration handling **************** */
 
     /**
-     * Start regular cleanup of dead registrations.
+     * Start regular cleanup of dead registrations. The registrations stored by previous versions are indexed first.
      */
     @Override
     public void start() {
+        schedExecutor.execute(new IndexBackfill());
         schedExecutor.scheduleAtFixedRate(new Cleaner(), cleanPeriod, cleanPeriod, TimeUnit.SECONDS);
+        if (nearCache != null) {
+            invalidator = new NearCacheInvalidator();
+            new Thread(invalidator, String.format("Redis %s channel reader", INVALIDATION_CHANNEL)).start();
+        }
     }
 
     /**
@@ -639,6 +1021,10 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
      */
     @Override
     public void stop() {
+        if (invalidator != null) {
+            invalidator.stop();
+            invalidator = null;
+        }
         schedExecutor.shutdownNow();
         try {
             schedExecutor.awaitTermination(5, TimeUnit.SECONDS);
@@ -653,26 +1039,84 @@ public class RedisRegistrationStore implements CaliforniumRegistrationStore, Sta
         public void run() {
 
             try (Jedis j = pool.getResource()) {
-                ScanParams params = new ScanParams().match(REG_EP + "*").count(100);
-                String cursor = "0";
+                Set<byte[]> endpointsExpired;
                 do {
-                    // TODO we probably need a lock here
-                    ScanResult<byte[]> res = j.scan(cursor.getBytes(), params);
-                    for (byte[] key : res.getResult()) {
-                        Registration r = deserializeReg(j.get(key));
-                        if (!r.isAlive()) {
-                            deleteRegistration(j, r);
-                            expirationListener.registrationExpired(r, new ArrayList<Observation>());
+                    long now = System.currentTimeMillis();
+                    endpointsExpired = j.zrangeByScore(EXP_EP, Double.NEGATIVE_INFINITY, now, 0, CLEAN_LIMIT);
+                    for (byte[] endpoint : endpointsExpired) {
+                        // the registration is only removed if it is still expired: it may have been updated or
+                        // already removed by another node since the expired endpoints were fetched.
+                        List<?> result = (List<?>) REMOVE_IF_EXPIRED.eval(j, endpoint, toBytes(now));
+                        if (result != null) {
+                            invalidate(new String(endpoint, UTF_8));
+                            expirationListener.registrationExpired(deserializeReg((byte[]) result.get(0)),
+                                    buildObservations((List<?>) result.get(1)));
                         }
                     }
-                    cursor = res.getStringCursor();
-                } while (!"0".equals(cursor));
+                } while (endpointsExpired.size() == CLEAN_LIMIT);
             } catch (Exception e) {
                 LOG.warn("Unexpected Exception while registration cleaning", e);
             }
         }
     }
 
+    /**
+     * Indexes the registrations stored by previous versions: they have no expiration time in the {@link #EXP_EP}
+     * sorted set, so they would never be removed by the {@link Cleaner}, no socket address index, so they would not be
+     * found by {@link #getRegistrationByAdress(InetSocketAddress)}, and they are not in the {@link #SORTED_EP} sorted
+     * set, so they would not be listed by {@link #getRegistrations(String, boolean)}.
+     */
+    private class IndexBackfill implements Runnable {
+
+        @Override
+        public void run() {
+            ScanParams scanParams = new ScanParams().match(REG_EP + "*").count(CLEAN_LIMIT);
+            int indexed = 0;
+            try (Jedis j = pool.getResource()) {
+                String cursor = "0";
+                do {
+                    ScanResult<byte[]> sr = j.scan(cursor.getBytes(), scanParams);
+                    List<byte[]> keys = sr.getResult();
+
+                    // only the registrations which are not indexed yet are read
+                    Pipeline p = j.pipelined();
+                    List<Response<Double>> expirations = new ArrayList<>(keys.size());
+                    List<Response<Boolean>> addresses = new ArrayList<>(keys.size());
+                    List<Response<Double>> sorted = new ArrayList<>(keys.size());
+                    for (byte[] key : keys) {
+                        String endpoint = toEndpoint(key);
+                        expirations.add(p.zscore(EXP_EP, toBytes(endpoint)));
+                        addresses.add(p.exists(REG_EP_ADDR_IDX + endpoint));
+                        sorted.add(p.zscore(SORTED_EP, toBytes(endpoint)));
+                    }
+                    p.sync();
+
+                    for (int i = 0; i < keys.size(); i++) {
+                        if (expirations.get(i).get() == null || !addresses.get(i).get()
+                                || sorted.get(i).get() == null) {
+                            byte[] data = j.get(keys.get(i));
+                            if (data != null) {
+                                Registration r = deserializeReg(data);
+                                indexed += (Long) INDEX_REGISTRATION.eval(j, toBytes(r.getEndpoint()), data,
+                                        toBytes(r.getExpirationTimeStamp()), toAddressKey(r));
+                            }
+                        }
+                    }
+                    cursor = sr.getStringCursor();
+                } while (!"0".equals(cursor) && !Thread.currentThread().isInterrupted());
+            } catch (Exception e) {
+                LOG.warn("Unexpected Exception while indexing registrations", e);
+            }
+            if (indexed > 0) {
+                LOG.info("{} registrations stored by a previous version were indexed", indexed);
+            }
+        }
+
+        private String toEndpoint(byte[] key) {
+            return new String(key, REG_EP.length(), key.length - REG_EP.length(), UTF_8);
+        }
+    }
+
     @Override
     public void setExpirationListener(ExpirationListener listener) {
         expirationListener = listener;
@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.cluster;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.eclipse.leshan.util.Hex;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+/**
+ * A Lua script executed atomically on the Redis server.
+ *
+ * The script is called by its SHA1 digest (EVALSHA) and is only sent to the server (EVAL) when it is not already in
+ * the server script cache.
+ */
+public class RedisScript {
+
+    private final byte[] script;
+    private final byte[] sha1;
+
+    public RedisScript(String script) {
+        this.script = script.getBytes(UTF_8);
+        try {
+            this.sha1 = Hex.encodeHexString(MessageDigest.getInstance("SHA-1").digest(this.script)).getBytes(UTF_8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not supported", e);
+        }
+    }
+
+    /**
+     * Executes the script.
+     *
+     * @param j a Redis connection
+     * @param keys the keys accessed by the script (KEYS table)
+     * @param args the arguments of the script (ARGV table)
+     * @return the result of the script converted by Jedis (byte[], Long, List&lt;Object&gt; or <code>null</code>)
+     */
+    public Object eval(Jedis j, byte[][] keys, byte[]... args) {
+        byte[][] params = new byte[keys.length + args.length][];
+        System.arraycopy(keys, 0, params, 0, keys.length);
+        System.arraycopy(args, 0, params, keys.length, args.length);
+        try {
+            return j.evalsha(sha1, keys.length, params);
+        } catch (JedisDataException e) {
+            if (e.getMessage() != null && e.getMessage().startsWith("NOSCRIPT")) {
+                // EVAL also loads the script in the server cache
+                return j.eval(script, keys.length, params);
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Executes a script which does not access any key given as parameter.
+     *
+     * @see #eval(Jedis, byte[][], byte[]...)
+     */
+    public Object eval(Jedis j, byte[]... args) {
+        return eval(j, new byte[0][], args);
+    }
+}
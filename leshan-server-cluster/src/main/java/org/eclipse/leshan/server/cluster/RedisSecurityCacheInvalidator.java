@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.cluster;
+
+import org.eclipse.leshan.server.Startable;
+import org.eclipse.leshan.server.Stoppable;
+import org.eclipse.leshan.server.impl.CachingSecurityStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPubSub;
+import redis.clients.util.Pool;
+
+/**
+ * Invalidates the entries of a {@link CachingSecurityStore} when the security info are modified in Redis by any node
+ * of the cluster (see {@link RedisSecurityStore#INVALIDATION_CHANNEL}).
+ * <p>
+ * The whole cache is emptied each time the subscription to the channel starts or stops, as invalidation messages may
+ * be missed in between. While the node is not subscribed, the cached entries may be stale until they expire.
+ */
+public class RedisSecurityCacheInvalidator implements Startable, Stoppable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RedisSecurityCacheInvalidator.class);
+
+    private final Pool<Jedis> pool;
+    private final CachingSecurityStore cache;
+
+    private volatile boolean running;
+    private final JedisPubSub subscriber = new JedisPubSub() {
+        @Override
+        public void onSubscribe(String channel, int subscribedChannels) {
+            cache.invalidateAll();
+        }
+
+        @Override
+        public void onMessage(String channel, String endpoint) {
+            cache.invalidate(endpoint);
+        }
+    };
+
+    public RedisSecurityCacheInvalidator(Pool<Jedis> pool, CachingSecurityStore cache) {
+        this.pool = pool;
+        this.cache = cache;
+    }
+
+    @Override
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                subscribe();
+            }
+        }, String.format("Redis %s channel reader", RedisSecurityStore.INVALIDATION_CHANNEL)).start();
+    }
+
+    private void subscribe() {
+        while (running) {
+            try (Jedis j = pool.getResource()) {
+                j.subscribe(subscriber, RedisSecurityStore.INVALIDATION_CHANNEL);
+            } catch (RuntimeException e) {
+                LOG.warn("Redis SUBSCRIBE to security invalidation channel interrupted.", e);
+            }
+            cache.invalidateAll();
+
+            // wait & re-launch
+            if (running) {
+                try {
+                    Thread.sleep(500);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        running = false;
+        if (subscriber.isSubscribed()) {
+            subscriber.unsubscribe();
+        }
+    }
+}
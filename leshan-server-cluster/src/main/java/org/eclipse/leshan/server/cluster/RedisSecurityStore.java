@@ -15,16 +15,27 @@
  *******************************************************************************/
 package org.eclipse.leshan.server.cluster;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.LinkedList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 import org.eclipse.leshan.server.cluster.serialization.SecurityInfoSerDes;
 import org.eclipse.leshan.server.security.EditableSecurityStore;
 import org.eclipse.leshan.server.security.NonUniqueSecurityInfoException;
 import org.eclipse.leshan.server.security.SecurityInfo;
 import org.eclipse.leshan.server.security.SecurityStore;
+import org.eclipse.leshan.util.Validate;
 
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
 import redis.clients.jedis.ScanParams;
 import redis.clients.jedis.ScanResult;
 import redis.clients.util.Pool;
@@ -33,6 +44,13 @@ import redis.clients.util.Pool;
  * A {@link SecurityStore} implementation based on Redis.
  * 
  * Security info are stored using the endpoint as primary key and a secondary index is created for psk-identity lookup.
+ * The endpoint of each added or removed security info is published on the {@link #INVALIDATION_CHANNEL} channel, so
+ * the caches of the cluster can be invalidated (see {@link RedisSecurityCacheInvalidator}).
+ * <p>
+ * The bulk operations ({@link #addAll(Collection)}, {@link #removeAll(Collection)}) send their commands in pipelines of
+ * {@value #BATCH_SIZE} security info, so a batch only needs a few round-trips instead of several per security info.
+ * <p>
+ * Security info are written in JSON unless the binary format is enabled (see {@link #setBinaryFormat(boolean)}).
  */
 public class RedisSecurityStore implements EditableSecurityStore {
 
@@ -40,12 +58,33 @@ public class RedisSecurityStore implements EditableSecurityStore {
 
     private static final String PSKID_SEC = "PSKID#SEC";
 
+    // Channel on which the endpoint of each modified security info is published
+    public static final String INVALIDATION_CHANNEL = "LESHAN_SEC_INV";
+
+    // number of security info handled by a single pipeline
+    private static final int BATCH_SIZE = 1000;
+
     private final Pool<Jedis> pool;
 
+    // true to write the security info in the binary format, false for the JSON format
+    private volatile boolean binaryFormat;
+
     public RedisSecurityStore(Pool<Jedis> pool) {
         this.pool = pool;
     }
 
+    /**
+     * Sets the format of the security info written by this store. Both formats are always read, but the nodes of
+     * previous versions only read the JSON format: the binary format must only be enabled once all the nodes of the
+     * cluster are upgraded.
+     * 
+     * @param binaryFormat <code>true</code> for the compact binary format, <code>false</code> (default) for the JSON
+     *        format
+     */
+    public void setBinaryFormat(boolean binaryFormat) {
+        this.binaryFormat = binaryFormat;
+    }
+
     @Override
     public SecurityInfo getByEndpoint(String endpoint) {
         try (Jedis j = pool.getResource()) {
@@ -77,19 +116,80 @@ public class RedisSecurityStore implements EditableSecurityStore {
 
     @Override
     public Collection<SecurityInfo> getAll() {
-        try (Jedis j = pool.getResource()) {
-            ScanParams params = new ScanParams().match(SEC_EP + "*").count(100);
-            Collection<SecurityInfo> list = new LinkedList<>();
-            String cursor = "0";
-            do {
-                ScanResult<byte[]> res = j.scan(cursor.getBytes(), params);
-                for (byte[] key : res.getResult()) {
-                    byte[] element = j.get(key);
-                    list.add(deserialize(element));
+        Collection<SecurityInfo> list = new ArrayList<>();
+        for (Iterator<SecurityInfo> it = iterateAll(); it.hasNext();) {
+            list.add(it.next());
+        }
+        return list;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The keys are scanned by pages and the security info of each page are read with a single MGET.
+     */
+    @Override
+    public Iterator<SecurityInfo> iterateAll() {
+        return new SecurityInfoIterator(new ScanParams().match(SEC_EP + "*").count(100));
+    }
+
+    private class SecurityInfoIterator implements Iterator<SecurityInfo> {
+
+        private final ScanParams scanParams;
+
+        private String cursor;
+        private List<SecurityInfo> scanResult;
+        private int index;
+
+        private SecurityInfoIterator(ScanParams scanParams) {
+            this.scanParams = scanParams;
+            // init scan result
+            scanNext("0");
+        }
+
+        private void scanNext(String cursor) {
+            try (Jedis j = pool.getResource()) {
+                ScanResult<byte[]> sr = j.scan(cursor.getBytes(), scanParams);
+
+                this.scanResult = new ArrayList<>();
+                this.index = 0;
+                if (sr.getResult() != null && !sr.getResult().isEmpty()) {
+                    for (byte[] value : j.mget(sr.getResult().toArray(new byte[][] {}))) {
+                        // the security info may have been removed since the scan
+                        if (value != null) {
+                            this.scanResult.add(deserialize(value));
+                        }
+                    }
                 }
-                cursor = res.getStringCursor();
-            } while (!"0".equals(cursor));
-            return list;
+
+                this.cursor = sr.getStringCursor();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            // a page may be empty while there are more keys to scan
+            while (index >= scanResult.size()) {
+                if ("0".equals(cursor)) {
+                    // no more elements to scan
+                    return false;
+                }
+                scanNext(cursor);
+            }
+            return true;
+        }
+
+        @Override
+        public SecurityInfo next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return scanResult.get(index++);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
         }
     }
 
@@ -112,6 +212,7 @@ public class RedisSecurityStore implements EditableSecurityStore {
             if (previousIdentity != null && !previousIdentity.equals(info.getIdentity())) {
                 j.hdel(PSKID_SEC, previousIdentity);
             }
+            j.publish(INVALIDATION_CHANNEL, info.getEndpoint());
 
             return previous;
         }
@@ -128,13 +229,128 @@ public class RedisSecurityStore implements EditableSecurityStore {
                     j.hdel(PSKID_SEC.getBytes(), info.getIdentity().getBytes());
                 }
                 j.del((SEC_EP + endpoint).getBytes());
+                j.publish(INVALIDATION_CHANNEL, endpoint);
                 return info;
             }
         }
         return null;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The PSK identities are checked and the previous security info are read in a first series of pipelines, then the
+     * security info are written in a second one. As for {@link #add(SecurityInfo)}, the batch is not atomic: concurrent
+     * modifications of the same end-points or identities are not detected.
+     */
+    @Override
+    public Collection<SecurityInfo> addAll(Collection<SecurityInfo> infos) throws NonUniqueSecurityInfoException {
+        Map<String, SecurityInfo> batch = new LinkedHashMap<>();
+        Set<String> identities = new HashSet<>();
+        for (SecurityInfo info : infos) {
+            Validate.isTrue(batch.put(info.getEndpoint(), info) == null,
+                    "Several security info for endpoint " + info.getEndpoint());
+            if (info.getIdentity() != null && !identities.add(info.getIdentity())) {
+                throw new NonUniqueSecurityInfoException("PSK Identity " + info.getIdentity() + " is used twice");
+            }
+        }
+        List<SecurityInfo> batchInfos = new ArrayList<>(batch.values());
+
+        try (Jedis j = pool.getResource()) {
+            // check the identities and read the previous security info before modifying anything
+            List<SecurityInfo> previousInfos = new ArrayList<>();
+            for (int from = 0; from < batchInfos.size(); from += BATCH_SIZE) {
+                List<SecurityInfo> chunk = batchInfos.subList(from, Math.min(from + BATCH_SIZE, batchInfos.size()));
+                Pipeline p = j.pipelined();
+                List<Response<String>> owners = new ArrayList<>(chunk.size());
+                List<Response<byte[]>> previousData = new ArrayList<>(chunk.size());
+                for (SecurityInfo info : chunk) {
+                    owners.add(info.getIdentity() == null ? null : p.hget(PSKID_SEC, info.getIdentity()));
+                    previousData.add(p.get((SEC_EP + info.getEndpoint()).getBytes()));
+                }
+                p.sync();
+
+                for (int i = 0; i < chunk.size(); i++) {
+                    SecurityInfo info = chunk.get(i);
+                    String owner = owners.get(i) == null ? null : owners.get(i).get();
+                    // an identity may be taken from an end-point which gets another identity in the same batch
+                    if (owner != null && !owner.equals(info.getEndpoint()) && !batch.containsKey(owner)) {
+                        throw new NonUniqueSecurityInfoException(
+                                "PSK Identity " + info.getIdentity() + " is already used");
+                    }
+                    byte[] data = previousData.get(i).get();
+                    if (data != null) {
+                        previousInfos.add(deserialize(data));
+                    }
+                }
+            }
+
+            Pipeline p = j.pipelined();
+            for (SecurityInfo previous : previousInfos) {
+                // remove the identities which are not used anymore
+                if (previous.getIdentity() != null && !identities.contains(previous.getIdentity())) {
+                    p.hdel(PSKID_SEC, previous.getIdentity());
+                }
+            }
+            int count = 0;
+            for (SecurityInfo info : batchInfos) {
+                if (info.getIdentity() != null) {
+                    p.hset(PSKID_SEC.getBytes(), info.getIdentity().getBytes(), info.getEndpoint().getBytes());
+                }
+                p.set((SEC_EP + info.getEndpoint()).getBytes(), serialize(info));
+                p.publish(INVALIDATION_CHANNEL, info.getEndpoint());
+                if (++count % BATCH_SIZE == 0) {
+                    p.sync();
+                    p = j.pipelined();
+                }
+            }
+            p.sync();
+
+            return previousInfos;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The security info are read then removed by pipelines.
+     */
+    @Override
+    public Collection<SecurityInfo> removeAll(Collection<String> endpoints) {
+        List<String> batch = new ArrayList<>(new LinkedHashSet<>(endpoints));
+        List<SecurityInfo> removed = new ArrayList<>();
+        try (Jedis j = pool.getResource()) {
+            for (int from = 0; from < batch.size(); from += BATCH_SIZE) {
+                List<String> chunk = batch.subList(from, Math.min(from + BATCH_SIZE, batch.size()));
+                Pipeline p = j.pipelined();
+                List<Response<byte[]>> data = new ArrayList<>(chunk.size());
+                for (String endpoint : chunk) {
+                    data.add(p.get((SEC_EP + endpoint).getBytes()));
+                }
+                p.sync();
+
+                p = j.pipelined();
+                for (int i = 0; i < chunk.size(); i++) {
+                    if (data.get(i).get() != null) {
+                        SecurityInfo info = deserialize(data.get(i).get());
+                        if (info.getIdentity() != null) {
+                            p.hdel(PSKID_SEC.getBytes(), info.getIdentity().getBytes());
+                        }
+                        p.del((SEC_EP + info.getEndpoint()).getBytes());
+                        p.publish(INVALIDATION_CHANNEL, info.getEndpoint());
+                        removed.add(info);
+                    }
+                }
+                p.sync();
+            }
+        }
+        return removed;
+    }
+
     private byte[] serialize(SecurityInfo secInfo) {
+        if (binaryFormat) {
+            return SecurityInfoSerDes.serializeBinary(secInfo);
+        }
         return SecurityInfoSerDes.serialize(secInfo);
     }
 
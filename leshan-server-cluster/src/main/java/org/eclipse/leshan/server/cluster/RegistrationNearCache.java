@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.cluster;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.util.Validate;
+
+/**
+ * A bounded local cache of the registrations stored in Redis, indexed by endpoint and by registration id.
+ * <p>
+ * The least recently used registrations are evicted when the cache is full. Entries are invalidated by endpoint. The
+ * cache only stores registrations while it is active, i.e. while the node receives the invalidation messages of the
+ * cluster (see {@link RedisRegistrationStore#INVALIDATION_CHANNEL}).
+ * <p>
+ * A registration read from Redis is only added if no invalidation happened since the read started (see
+ * {@link #getVersion()}), so a stale registration can not replace a more recent invalidation.
+ */
+public class RegistrationNearCache {
+
+    private final Map<String, Registration> byEndpoint;
+    private final Map<String, Registration> byId = new HashMap<>();
+
+    // incremented on each invalidation, guarded by this
+    private long version = 0;
+    private boolean active = false;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param maxSize the maximum number of registrations in the cache
+     */
+    public RegistrationNearCache(final int maxSize) {
+        Validate.isTrue(maxSize > 0, "maximum size must be positive");
+        this.byEndpoint = new LinkedHashMap<String, Registration>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Registration> eldest) {
+                if (size() > maxSize) {
+                    byId.remove(eldest.getValue().getId());
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    public synchronized Registration getByEndpoint(String endpoint) {
+        return count(byEndpoint.get(endpoint));
+    }
+
+    public synchronized Registration getById(String registrationId) {
+        Registration r = byId.get(registrationId);
+        if (r != null) {
+            // refresh the LRU order
+            byEndpoint.get(r.getEndpoint());
+        }
+        return count(r);
+    }
+
+    private Registration count(Registration r) {
+        if (r != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return r;
+    }
+
+    /**
+     * @return the current version of the cache, to give to {@link #put(Registration, long)} once the registration is
+     *         read from Redis.
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Adds a registration read from Redis.
+     * 
+     * @param r the registration
+     * @param readVersion the version of the cache before the registration was read
+     */
+    public synchronized void put(Registration r, long readVersion) {
+        if (!active || readVersion != version) {
+            return;
+        }
+        Registration previous = byEndpoint.put(r.getEndpoint(), r);
+        if (previous != null) {
+            byId.remove(previous.getId());
+        }
+        byId.put(r.getId(), r);
+    }
+
+    /**
+     * Removes the registration of the given endpoint.
+     */
+    public synchronized void invalidate(String endpoint) {
+        version++;
+        invalidations.incrementAndGet();
+        Registration r = byEndpoint.remove(endpoint);
+        if (r != null) {
+            byId.remove(r.getId());
+        }
+    }
+
+    /**
+     * Empties the cache and starts caching registrations.
+     */
+    public synchronized void activate() {
+        clear();
+        active = true;
+    }
+
+    /**
+     * Empties the cache and stops caching registrations.
+     */
+    public synchronized void deactivate() {
+        clear();
+        active = false;
+    }
+
+    private void clear() {
+        version++;
+        byEndpoint.clear();
+        byId.clear();
+    }
+
+    public synchronized boolean isActive() {
+        return active;
+    }
+
+    public synchronized int size() {
+        return byEndpoint.size();
+    }
+
+    /**
+     * @return the number of lookups which found a registration in the cache
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of lookups which did not find a registration in the cache
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of invalidations received
+     */
+    public long getInvalidationCount() {
+        return invalidations.get();
+    }
+
+    /**
+     * @return the number of registrations evicted because the cache was full
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+}
@@ -15,6 +15,11 @@
  *******************************************************************************/
 package org.eclipse.leshan.server.cluster.serialization;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -33,13 +38,17 @@ import com.eclipsesource.json.JsonObject;
 import com.eclipsesource.json.JsonValue;
 
 /**
- * Functions for serializing and deserializing a Californium {@link Observation} in JSON.
+ * Functions for serializing and deserializing a Californium {@link Observation}.
  * 
  * The embedded CoAP request is serialized using the Californium network serialization (see {@link UdpDataParser} and
- * {@link UdpDataSerializer}).
+ * {@link UdpDataSerializer}). {@link #serialize(Observation)} produces JSON (hex-encoded request),
+ * {@link #serializeBinary(Observation)} a compact binary format. Both formats can be deserialized.
  */
 public class ObservationSerDes {
 
+    // first byte of the binary format (JSON always starts with '{')
+    private static final byte BINARY_V1 = 1;
+
     private static final DataSerializer serializer = new UdpDataSerializer();
     private static final DataParser parser = new UdpDataParser();
 
@@ -58,19 +67,55 @@ public class ObservationSerDes {
         return o.toString().getBytes();
     }
 
+    /**
+     * Serializes an observation in a compact binary format: the user context comes first so it can be read without
+     * parsing the CoAP request, followed by the raw CoAP request.
+     */
+    public static byte[] serializeBinary(Observation obs) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(BINARY_V1);
+
+            Map<String, String> context = obs.getRequest().getUserContext();
+            out.writeShort(context == null ? 0 : context.size());
+            if (context != null) {
+                for (Entry<String, String> e : context.entrySet()) {
+                    out.writeUTF(e.getKey());
+                    out.writeUTF(e.getValue());
+                }
+            }
+
+            byte[] request = serializer.serializeRequest(obs.getRequest()).bytes;
+            out.writeInt(request.length);
+            out.write(request);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to serialize observation", e);
+        }
+        return bytes.toByteArray();
+    }
+
     public static Observation deserialize(byte[] data) {
+        if (data.length > 0 && data[0] == BINARY_V1) {
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, 1, data.length - 1))) {
+                Map<String, String> context = readContext(in);
+                byte[] req = new byte[in.readInt()];
+                in.readFully(req);
+                return newObservation(req, context);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Invalid serialized observation", e);
+            }
+        }
+
         JsonObject v = (JsonObject) Json.parse(new String(data));
 
         byte[] req = Hex.decodeHex(v.getString("request", null).toCharArray());
-        Request request = (Request) parser.parseMessage(new RawData(req, null, 0));
-
         JsonValue ctxValue = v.get("context");
-        if (ctxValue != null) {
-            Map<String, String> context = new HashMap<>();
-            JsonObject ctxObject = (JsonObject) ctxValue;
-            for (String name : ctxObject.names()) {
-                context.put(name, ctxObject.getString(name, null));
-            }
+        return newObservation(req, ctxValue == null ? null : deserializeContext((JsonObject) ctxValue));
+    }
+
+    private static Observation newObservation(byte[] req, Map<String, String> context) {
+        Request request = (Request) parser.parseMessage(new RawData(req, null, 0));
+        if (context != null) {
             request.setUserContext(context);
         }
 
@@ -78,4 +123,44 @@ public class ObservationSerDes {
         return new Observation(request, null);
     }
 
+    /**
+     * Deserializes only the user context of the observation request, without parsing the CoAP request.
+     * 
+     * @return the user context or an empty map if the observation has no context
+     */
+    public static Map<String, String> deserializeContext(byte[] data) {
+        if (data.length > 0 && data[0] == BINARY_V1) {
+            try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, 1, data.length - 1))) {
+                return readContext(in);
+            } catch (IOException e) {
+                throw new IllegalArgumentException("Invalid serialized observation", e);
+            }
+        }
+
+        JsonObject v = (JsonObject) Json.parse(new String(data));
+
+        JsonValue ctxValue = v.get("context");
+        if (ctxValue == null) {
+            return new HashMap<>();
+        }
+        return deserializeContext((JsonObject) ctxValue);
+    }
+
+    private static Map<String, String> readContext(DataInputStream in) throws IOException {
+        int size = in.readUnsignedShort();
+        Map<String, String> context = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            context.put(in.readUTF(), in.readUTF());
+        }
+        return context;
+    }
+
+    private static Map<String, String> deserializeContext(JsonObject ctxObject) {
+        Map<String, String> context = new HashMap<>();
+        for (String name : ctxObject.names()) {
+            context.put(name, ctxObject.getString(name, null));
+        }
+        return context;
+    }
+
 }
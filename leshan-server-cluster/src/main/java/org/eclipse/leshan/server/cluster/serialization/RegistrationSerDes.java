@@ -15,13 +15,22 @@
  *******************************************************************************/
 package org.eclipse.leshan.server.cluster.serialization;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 import org.eclipse.leshan.Link;
 import org.eclipse.leshan.core.request.BindingMode;
+import org.eclipse.leshan.server.registration.ObjectLinkSet;
 import org.eclipse.leshan.server.registration.Registration;
 
 import com.eclipsesource.json.Json;
@@ -30,10 +39,29 @@ import com.eclipsesource.json.JsonObject;
 import com.eclipsesource.json.JsonValue;
 
 /**
- * Functions for serialize and deserialize a Client in JSON.
+ * Functions for serialize and deserialize a Client.
+ * <p>
+ * {@link #serializeBinary(Registration)} produces a compact binary format, where the object links are stored as a
+ * single CoRE Link Format blob. {@link #deserialize(byte[])} reads this binary format as well as the JSON format
+ * produced by {@link #bSerialize(Registration)}.
  */
 public class RegistrationSerDes {
 
+    // first byte of the binary format (JSON always starts with '{')
+    private static final byte BINARY_V1 = 1;
+
+    // the most recently parsed object links, by CoRE Link Format content
+    private static final int MAX_PARSED_LINKS = 256;
+    private static final Map<ByteBuffer, Link[]> PARSED_LINKS = new LinkedHashMap<ByteBuffer, Link[]>(16, 0.75f,
+            true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<ByteBuffer, Link[]> eldest) {
+            return size() > MAX_PARSED_LINKS;
+        }
+    };
+
     public static JsonObject jSerialize(Registration r) {
         JsonObject o = Json.object();
         o.add("regDate", r.getRegistrationDate().getTime());
@@ -84,6 +112,43 @@ public class RegistrationSerDes {
         return jSerialize(r).toString().getBytes();
     }
 
+    /**
+     * Serializes a registration in a compact binary format, where the object links are stored in the CoRE Link Format.
+     */
+    public static byte[] serializeBinary(Registration r) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(BINARY_V1);
+            out.writeUTF(r.getId());
+            out.writeUTF(r.getEndpoint());
+            writeBytes(out, r.getAddress().getAddress());
+            out.writeShort(r.getPort());
+            out.writeUTF(r.getRegistrationEndpointAddress().getHostString());
+            out.writeShort(r.getRegistrationEndpointAddress().getPort());
+            out.writeLong(r.getLifeTimeInSec());
+            out.writeBoolean(r.getSmsNumber() != null);
+            if (r.getSmsNumber() != null) {
+                out.writeUTF(r.getSmsNumber());
+            }
+            out.writeUTF(r.getLwM2mVersion());
+            out.writeUTF(r.getBindingMode().name());
+            out.writeLong(r.getRegistrationDate().getTime());
+            out.writeLong(r.getLastUpdate().getTime());
+
+            ObjectLinkSet links = r.getObjectLinkSet();
+            writeBytes(out, links == null ? new byte[0] : links.getCoreLinkFormat());
+
+            out.writeShort(r.getAdditionalRegistrationAttributes().size());
+            for (Map.Entry<String, String> e : r.getAdditionalRegistrationAttributes().entrySet()) {
+                out.writeUTF(e.getKey());
+                out.writeUTF(e.getValue());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to serialize registration " + r.getId(), e);
+        }
+        return bytes.toByteArray();
+    }
+
     public static Registration deserialize(JsonObject jObj) {
         Registration.Builder b = new Registration.Builder(jObj.getString("regId", null), jObj.getString("ep", null),
                 new InetSocketAddress(jObj.getString("address", null), jObj.getInt("port", 0)).getAddress(),
@@ -128,6 +193,76 @@ public class RegistrationSerDes {
     }
 
     public static Registration deserialize(byte[] data) {
+        if (data.length > 0 && data[0] == BINARY_V1) {
+            return bDeserialize(data);
+        }
         return deserialize((JsonObject) Json.parse(new String(data)));
     }
+
+    private static Registration bDeserialize(byte[] data) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, 1, data.length - 1))) {
+            String id = in.readUTF();
+            String endpoint = in.readUTF();
+            InetAddress address = InetAddress.getByAddress(readBytes(in));
+            int port = in.readUnsignedShort();
+            String regAddr = in.readUTF();
+            int regPort = in.readUnsignedShort();
+
+            Registration.Builder b = new Registration.Builder(id, endpoint, address, port,
+                    new InetSocketAddress(regAddr, regPort));
+            b.lifeTimeInSec(in.readLong());
+            if (in.readBoolean()) {
+                b.smsNumber(in.readUTF());
+            }
+            b.lwM2mVersion(in.readUTF());
+            b.bindingMode(BindingMode.valueOf(in.readUTF()));
+            b.registrationDate(new Date(in.readLong()));
+            b.lastUpdate(new Date(in.readLong()));
+
+            b.objectLinks(parseLinks(readBytes(in)));
+
+            int nbAttributes = in.readUnsignedShort();
+            Map<String, String> addAttr = new HashMap<>();
+            for (int i = 0; i < nbAttributes; i++) {
+                addAttr.put(in.readUTF(), in.readUTF());
+            }
+            b.additionalRegistrationAttributes(addAttr);
+
+            return b.build();
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid serialized registration", e);
+        }
+    }
+
+    /*
+     * Parses the object links, most registrations share the same object links so the result of the parsing is reused.
+     */
+    private static Link[] parseLinks(byte[] content) {
+        if (content.length == 0) {
+            return new Link[0];
+        }
+        ByteBuffer key = ByteBuffer.wrap(content);
+        synchronized (PARSED_LINKS) {
+            Link[] links = PARSED_LINKS.get(key);
+            if (links != null) {
+                return links;
+            }
+        }
+        Link[] links = Link.parse(content);
+        synchronized (PARSED_LINKS) {
+            PARSED_LINKS.put(key, links);
+        }
+        return links;
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
 }
\ No newline at end of file
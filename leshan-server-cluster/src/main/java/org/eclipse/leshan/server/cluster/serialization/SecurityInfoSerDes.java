@@ -15,6 +15,11 @@
  *******************************************************************************/
 package org.eclipse.leshan.server.cluster.serialization;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.math.BigInteger;
 import java.security.AlgorithmParameters;
 import java.security.KeyFactory;
@@ -28,6 +33,7 @@ import java.security.spec.ECPublicKeySpec;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.InvalidParameterSpecException;
 import java.security.spec.KeySpec;
+import java.security.spec.X509EncodedKeySpec;
 import java.util.Arrays;
 
 import org.eclipse.leshan.server.security.SecurityInfo;
@@ -37,10 +43,21 @@ import com.eclipsesource.json.Json;
 import com.eclipsesource.json.JsonObject;
 
 /**
- * Functions for serialize and deserialize security information in JSON for storage.
+ * Functions for serialize and deserialize security information for storage.
+ * <p>
+ * {@link #serialize(SecurityInfo)} produces JSON, {@link #serializeBinary(SecurityInfo)} a compact binary format. Both
+ * formats can be deserialized.
  */
 public class SecurityInfoSerDes {
 
+    // first byte of the binary format (JSON always starts with '{')
+    private static final byte BINARY_V1 = 1;
+
+    // kind of security information
+    private static final byte PSK = 0;
+    private static final byte RPK = 1;
+    private static final byte X509 = 2;
+
     public static byte[] serialize(SecurityInfo s) {
         JsonObject o = Json.object();
         o.set("ep", s.getEndpoint());
@@ -80,7 +97,35 @@ public class SecurityInfoSerDes {
         return o.toString().getBytes();
     }
 
+    /**
+     * Serializes security information in a compact binary format (raw pre-shared key, X.509 encoded public key).
+     */
+    public static byte[] serializeBinary(SecurityInfo s) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(BINARY_V1);
+            out.writeUTF(s.getEndpoint());
+            if (s.getPreSharedKey() != null) {
+                out.writeByte(PSK);
+                out.writeUTF(s.getIdentity());
+                writeBytes(out, s.getPreSharedKey());
+            } else if (s.getRawPublicKey() != null) {
+                out.writeByte(RPK);
+                writeBytes(out, s.getRawPublicKey().getEncoded());
+            } else {
+                out.writeByte(X509);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to serialize security info of " + s.getEndpoint(), e);
+        }
+        return bytes.toByteArray();
+    }
+
     public static SecurityInfo deserialize(byte[] data) {
+        if (data.length > 0 && data[0] == BINARY_V1) {
+            return bDeserialize(data);
+        }
+
         JsonObject o = (JsonObject) Json.parse(new String(data));
 
         SecurityInfo i;
@@ -113,4 +158,35 @@ public class SecurityInfoSerDes {
         return i;
     }
 
+    private static SecurityInfo bDeserialize(byte[] data) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, 1, data.length - 1))) {
+            String ep = in.readUTF();
+            byte kind = in.readByte();
+            switch (kind) {
+            case PSK:
+                String identity = in.readUTF();
+                return SecurityInfo.newPreSharedKeyInfo(ep, identity, readBytes(in));
+            case RPK:
+                PublicKey key = KeyFactory.getInstance("EC").generatePublic(new X509EncodedKeySpec(readBytes(in)));
+                return SecurityInfo.newRawPublicKeyInfo(ep, key);
+            case X509:
+                return SecurityInfo.newX509CertInfo(ep);
+            default:
+                throw new IllegalStateException("Invalid security info kind " + kind);
+            }
+        } catch (IOException | InvalidKeySpecException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Invalid security info content", e);
+        }
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
 }
@@ -0,0 +1,110 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.cluster;
+
+import static org.junit.Assert.*;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+import org.eclipse.leshan.server.registration.Registration;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RegistrationNearCacheTest {
+
+    private RegistrationNearCache cache;
+
+    @Before
+    public void setUp() {
+        cache = new RegistrationNearCache(2);
+        cache.activate();
+    }
+
+    private Registration registration(String id, String endpoint) {
+        return new Registration.Builder(id, endpoint, InetAddress.getLoopbackAddress(), 5683,
+                new InetSocketAddress(5683)).build();
+    }
+
+    @Test
+    public void registration_is_cached_by_endpoint_and_id() {
+        Registration r = registration("id1", "ep1");
+        assertNull(cache.getById("id1"));
+
+        cache.put(r, cache.getVersion());
+
+        assertSame(r, cache.getById("id1"));
+        assertSame(r, cache.getByEndpoint("ep1"));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    public void invalidation_removes_registration() {
+        cache.put(registration("id1", "ep1"), cache.getVersion());
+
+        cache.invalidate("ep1");
+
+        assertNull(cache.getById("id1"));
+        assertNull(cache.getByEndpoint("ep1"));
+        assertEquals(1, cache.getInvalidationCount());
+    }
+
+    @Test
+    public void registration_read_before_an_invalidation_is_not_cached() {
+        long version = cache.getVersion();
+        cache.invalidate("ep1");
+
+        cache.put(registration("id1", "ep1"), version);
+
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void new_registration_replaces_previous_one() {
+        cache.put(registration("id1", "ep1"), cache.getVersion());
+        cache.put(registration("id2", "ep1"), cache.getVersion());
+
+        assertNull(cache.getById("id1"));
+        assertEquals("id2", cache.getByEndpoint("ep1").getId());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void least_recently_used_registration_is_evicted() {
+        cache.put(registration("id1", "ep1"), cache.getVersion());
+        cache.put(registration("id2", "ep2"), cache.getVersion());
+        cache.getById("id1");
+
+        cache.put(registration("id3", "ep3"), cache.getVersion());
+
+        assertNotNull(cache.getById("id1"));
+        assertNull(cache.getById("id2"));
+        assertNotNull(cache.getById("id3"));
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    public void inactive_cache_does_not_store_registrations() {
+        cache.put(registration("id1", "ep1"), cache.getVersion());
+
+        cache.deactivate();
+        assertEquals(0, cache.size());
+
+        cache.put(registration("id1", "ep1"), cache.getVersion());
+        assertNull(cache.getById("id1"));
+    }
+}
@@ -15,10 +15,12 @@
  *******************************************************************************/
 package org.eclipse.leshan.server.cluster.serialization;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 
 import java.net.Inet4Address;
 import java.net.InetSocketAddress;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -50,5 +52,40 @@ public class ClientSerDesTest {
         Registration r2 = RegistrationSerDes.deserialize(ser);
 
         assertEquals(r, r2);
+        assertRegistrationEquals(r, r2);
+    }
+
+    @Test
+    public void binary_and_json_ser_des_are_equals() throws Exception {
+        Link[] objs = new Link[] { new Link("/3/0"), new Link("/", Collections.singletonMap("rt", "oma.lwm2m")) };
+
+        Registration.Builder builder = new Registration.Builder("registrationId", "endpoint",
+                Inet4Address.getByName("127.0.0.1"), 5683, new InetSocketAddress(212)).objectLinks(objs)
+                        .smsNumber("0123456789").lifeTimeInSec(300L)
+                        .additionalRegistrationAttributes(Collections.singletonMap("key", "value"));
+        builder.registrationDate(new Date(100L));
+        builder.lastUpdate(new Date(101L));
+        Registration r = builder.build();
+
+        assertRegistrationEquals(r, RegistrationSerDes.deserialize(RegistrationSerDes.bSerialize(r)));
+        assertRegistrationEquals(r, RegistrationSerDes.deserialize(RegistrationSerDes.serializeBinary(r)));
+        // the parsed object links are reused
+        assertRegistrationEquals(r, RegistrationSerDes.deserialize(RegistrationSerDes.serializeBinary(r)));
+    }
+
+    private void assertRegistrationEquals(Registration expected, Registration actual) {
+        assertEquals(expected.getId(), actual.getId());
+        assertEquals(expected.getAddress(), actual.getAddress());
+        assertEquals(expected.getPort(), actual.getPort());
+        assertEquals(expected.getRegistrationEndpointAddress(), actual.getRegistrationEndpointAddress());
+        assertEquals(expected.getLifeTimeInSec(), actual.getLifeTimeInSec());
+        assertEquals(expected.getSmsNumber(), actual.getSmsNumber());
+        assertEquals(expected.getLwM2mVersion(), actual.getLwM2mVersion());
+        assertEquals(expected.getBindingMode(), actual.getBindingMode());
+        assertEquals(expected.getRegistrationDate(), actual.getRegistrationDate());
+        assertEquals(expected.getLastUpdate(), actual.getLastUpdate());
+        assertArrayEquals(expected.getObjectLinks(), actual.getObjectLinks());
+        assertEquals(expected.getRootPath(), actual.getRootPath());
+        assertEquals(expected.getAdditionalRegistrationAttributes(), actual.getAdditionalRegistrationAttributes());
     }
 }
@@ -0,0 +1,79 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.cluster.serialization;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.network.serialization.UdpDataSerializer;
+import org.eclipse.californium.core.observe.Observation;
+import org.eclipse.leshan.util.Hex;
+import org.junit.Test;
+
+import com.eclipsesource.json.Json;
+import com.eclipsesource.json.JsonObject;
+
+public class ObservationSerDesTest {
+
+    private Observation newObservation() {
+        Request request = Request.newGet();
+        request.setToken(new byte[] { 1, 2, 3, 4 });
+        request.setObserve();
+        request.setURI("coap://127.0.0.1:5683/3/0/1");
+
+        Map<String, String> context = new HashMap<>();
+        context.put("leshan-regId", "registrationId");
+        context.put("leshan-path", "/3/0/1");
+        request.setUserContext(context);
+        return new Observation(request, null);
+    }
+
+    @Test
+    public void binary_ser_and_des_are_equals() {
+        Observation obs = newObservation();
+
+        byte[] data = ObservationSerDes.serializeBinary(obs);
+        Observation obs2 = ObservationSerDes.deserialize(data);
+
+        assertArrayEquals(obs.getRequest().getToken(), obs2.getRequest().getToken());
+        assertEquals(obs.getRequest().getOptions().toString(), obs2.getRequest().getOptions().toString());
+        assertEquals(obs.getRequest().getUserContext(), obs2.getRequest().getUserContext());
+        assertEquals(obs.getRequest().getUserContext(), ObservationSerDes.deserializeContext(data));
+    }
+
+    @Test
+    public void json_observation_ser_des_are_equals() {
+        Observation obs = newObservation();
+
+        JsonObject o = Json.object();
+        o.set("request", Hex.encodeHexString(new UdpDataSerializer().serializeRequest(obs.getRequest()).bytes));
+        JsonObject ctx = Json.object();
+        for (Map.Entry<String, String> e : obs.getRequest().getUserContext().entrySet()) {
+            ctx.set(e.getKey(), e.getValue());
+        }
+        o.set("context", ctx);
+        byte[] data = o.toString().getBytes();
+        assertEquals(o.toString(), new String(ObservationSerDes.serialize(obs)));
+
+        Observation obs2 = ObservationSerDes.deserialize(data);
+        assertArrayEquals(obs.getRequest().getToken(), obs2.getRequest().getToken());
+        assertEquals(obs.getRequest().getUserContext(), obs2.getRequest().getUserContext());
+        assertEquals(obs.getRequest().getUserContext(), ObservationSerDes.deserializeContext(data));
+    }
+}
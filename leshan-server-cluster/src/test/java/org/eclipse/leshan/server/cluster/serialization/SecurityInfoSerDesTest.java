@@ -20,6 +20,7 @@ import static org.junit.Assert.assertEquals;
 import java.math.BigInteger;
 import java.security.AlgorithmParameters;
 import java.security.KeyFactory;
+import java.security.KeyPairGenerator;
 import java.security.spec.ECGenParameterSpec;
 import java.security.spec.ECParameterSpec;
 import java.security.spec.ECPoint;
@@ -70,4 +71,29 @@ public class SecurityInfoSerDesTest {
         System.err.println(new String(SecurityInfoSerDes.serialize(SecurityInfoSerDes.deserialize(data))));
         assertEquals(si, SecurityInfoSerDes.deserialize(data));
     }
+
+    @Test
+    public void security_info_psk_binary_ser_des_then_equal() {
+        SecurityInfo si = SecurityInfo.newPreSharedKeyInfo("myendPoint", "pskIdentity",
+                Hex.decodeHex("deadbeef".toCharArray()));
+
+        assertEquals(si, SecurityInfoSerDes.deserialize(SecurityInfoSerDes.serializeBinary(si)));
+    }
+
+    @Test
+    public void security_info_rpk_binary_ser_des_then_equal() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("EC");
+        generator.initialize(new ECGenParameterSpec("secp256r1"));
+        SecurityInfo si = SecurityInfo.newRawPublicKeyInfo("myendpoint", generator.generateKeyPair().getPublic());
+
+        assertEquals(si, SecurityInfoSerDes.deserialize(SecurityInfoSerDes.serializeBinary(si)));
+    }
+
+    @Test
+    public void security_info_x509_ser_des_then_equal() {
+        SecurityInfo si = SecurityInfo.newX509CertInfo("myendpoint");
+
+        assertEquals(si, SecurityInfoSerDes.deserialize(SecurityInfoSerDes.serialize(si)));
+        assertEquals(si, SecurityInfoSerDes.deserialize(SecurityInfoSerDes.serializeBinary(si)));
+    }
 }
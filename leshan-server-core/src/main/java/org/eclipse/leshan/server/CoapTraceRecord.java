@@ -0,0 +1,168 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server;
+
+import java.io.Serializable;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.eclipse.californium.core.coap.EmptyMessage;
+import org.eclipse.californium.core.coap.Message;
+import org.eclipse.californium.core.coap.Option;
+import org.eclipse.californium.core.coap.OptionNumberRegistry;
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.coap.Response;
+
+/**
+ * A compact trace of a CoAP message sent or received by an endpoint of the server.
+ * <p>
+ * Unlike the Californium messages, a record only holds what is needed to display the message: it is cheap to serialize
+ * and to send over RMI.
+ */
+public class CoapTraceRecord implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final InetSocketAddress peer;
+    private final long timestamp;
+    private final boolean incoming;
+    private final String type;
+    private final String code;
+    private final int mid;
+    private final String token;
+    private final String options;
+    private final byte[] payload;
+
+    private CoapTraceRecord(InetSocketAddress peer, boolean incoming, Message message, String code) {
+        this.peer = peer;
+        this.timestamp = System.currentTimeMillis();
+        this.incoming = incoming;
+        this.type = message.getType() == null ? null : message.getType().toString();
+        this.code = code;
+        this.mid = message.getMID();
+        this.token = message.getTokenString();
+        this.options = toString(message.getOptions().asSortedList());
+        this.payload = message.getPayloadSize() > 0 ? message.getPayload() : null;
+    }
+
+    public static CoapTraceRecord of(InetSocketAddress peer, boolean incoming, Request request) {
+        return new CoapTraceRecord(peer, incoming, request, request.getCode().toString());
+    }
+
+    public static CoapTraceRecord of(InetSocketAddress peer, boolean incoming, Response response) {
+        return new CoapTraceRecord(peer, incoming, response, response.getCode().toString());
+    }
+
+    public static CoapTraceRecord of(InetSocketAddress peer, boolean incoming, EmptyMessage message) {
+        return new CoapTraceRecord(peer, incoming, message, null);
+    }
+
+    private static String toString(List<Option> options) {
+        if (options.isEmpty()) {
+            return null;
+        }
+        // group the values of repeated options
+        Map<String, List<String>> optMap = new LinkedHashMap<>();
+        for (Option opt : options) {
+            String name = OptionNumberRegistry.toString(opt.getNumber());
+            List<String> values = optMap.get(name);
+            if (values == null) {
+                values = new ArrayList<>();
+                optMap.put(name, values);
+            }
+            values.add(opt.toValueString());
+        }
+
+        StringBuilder builder = new StringBuilder();
+        for (Entry<String, List<String>> e : optMap.entrySet()) {
+            if (builder.length() > 0) {
+                builder.append(" - ");
+            }
+            builder.append(e.getKey()).append(": ");
+            for (int i = 0; i < e.getValue().size(); i++) {
+                if (i > 0) {
+                    builder.append(", ");
+                }
+                builder.append(e.getValue().get(i));
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @return the address of the peer which sent or received the message
+     */
+    public InetSocketAddress getPeer() {
+        return peer;
+    }
+
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return <code>true</code> for a received message and <code>false</code> for a sent message
+     */
+    public boolean isIncoming() {
+        return incoming;
+    }
+
+    /**
+     * @return Confirmable, Non-confirmable, Acknowledgment or Reset
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * @return the request method or the response code, <code>null</code> for an empty message
+     */
+    public String getCode() {
+        return code;
+    }
+
+    public int getMid() {
+        return mid;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * @return a human readable representation of the options or <code>null</code> if there is no option
+     */
+    public String getOptions() {
+        return options;
+    }
+
+    /**
+     * @return the payload or <code>null</code> if there is no payload
+     */
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("CoapTraceRecord [peer=%s, incoming=%s, type=%s, code=%s, mid=%s, token=%s]", peer,
+                incoming, type, code, mid, token);
+    }
+}
@@ -23,6 +23,7 @@ import org.eclipse.leshan.core.request.exception.RequestRejectedException;
 import org.eclipse.leshan.core.request.exception.TimeoutException;
 import org.eclipse.leshan.core.response.ErrorCallback;
 import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.core.response.LwM2mResponseFuture;
 import org.eclipse.leshan.core.response.ResponseCallback;
 import org.eclipse.leshan.server.model.LwM2mModelProvider;
 import org.eclipse.leshan.server.observation.ObservationService;
@@ -111,6 +112,21 @@ public interface LwM2mServer {
     <T extends LwM2mResponse> void send(Registration destination, DownlinkRequest<T> request,
             ResponseCallback<T> responseCallback, ErrorCallback errorCallback) throws CodecException;
 
+    /**
+     * Sends a Lightweight M2M request asynchronously. No thread is blocked while waiting for the response: the timeout
+     * is handled by a scheduler shared between all the requests.
+     * 
+     * @param destination the remote client
+     * @param request the request to send to the client
+     * @param timeout the request timeout in millisecond
+     * @return the pending response. It is completed with an exception as described for
+     *         {@link #send(Registration, DownlinkRequest, ResponseCallback, ErrorCallback)}, or with a
+     *         {@link TimeoutException} if the given timeout expires. Cancelling it cancels the request.
+     * @throws CodecException if request payload can not be encoded.
+     */
+    <T extends LwM2mResponse> LwM2mResponseFuture<T> sendAsync(Registration destination, DownlinkRequest<T> request,
+            long timeout) throws CodecException;
+
     /**
      * Get the registration service to access to registered clients. You can use this object for listening client
      * registration lifecycle.
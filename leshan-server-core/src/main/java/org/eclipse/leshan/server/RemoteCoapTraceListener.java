@@ -0,0 +1,34 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.util.List;
+
+/**
+ * Receives the traces of the CoAP messages exchanged with the peers traced on a {@link RemoteEndpoint} (see
+ * {@link RemoteEndpoint#startTrace(RemoteCoapTraceListener, java.net.InetSocketAddress)}).
+ */
+public interface RemoteCoapTraceListener extends Remote {
+
+    /**
+     * Called with a batch of traces, in the order the messages were sent or received.
+     * 
+     * @param records the traces of the CoAP messages
+     */
+    void onTraces(List<CoapTraceRecord> records) throws RemoteException;
+}
@@ -19,6 +19,7 @@
  ******************************************************************************/
 package org.eclipse.leshan.server;
 
+import java.net.InetSocketAddress;
 import java.rmi.Remote;
 import java.rmi.RemoteException;
 
@@ -58,17 +59,28 @@ public interface RemoteEndpoint extends Remote {
     // void removeNotificationListener(NotificationListener lis);
 
     /**
-     * Adds a message interceptor to this endpoint.
+     * Starts tracing the CoAP messages exchanged with the given peer.
+     * <p>
+     * The endpoint only builds traces for the messages of traced peers. Traces are sent asynchronously in batches to
+     * the listener, the oldest traces are dropped if the listener does not keep up.
      *
-     * @param interceptor the interceptor
+     * @param listener the listener receiving the traces
+     * @param peer the address of the peer to trace
      */
-    void addInterceptor(RemoteMessageInterceptor interceptor) throws RemoteException;
+    void startTrace(RemoteCoapTraceListener listener, InetSocketAddress peer) throws RemoteException;
 
     /**
-     * Removes the interceptor.
+     * Stops tracing the CoAP messages exchanged with the given peer.
      *
-     * @param interceptor the interceptor
+     * @param listener the listener receiving the traces
+     * @param peer the address of the traced peer
      */
-    void removeInterceptor(RemoteMessageInterceptor interceptor) throws RemoteException;
+    void stopTrace(RemoteCoapTraceListener listener, InetSocketAddress peer) throws RemoteException;
 
+    /**
+     * Stops all the traces sent to the given listener.
+     *
+     * @param listener the listener receiving the traces
+     */
+    void removeTraceListener(RemoteCoapTraceListener listener) throws RemoteException;
 }
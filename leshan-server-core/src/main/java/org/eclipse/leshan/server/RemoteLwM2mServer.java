@@ -102,6 +102,33 @@ public interface RemoteLwM2mServer extends Remote {
     <T extends LwM2mResponse> void send(Registration destination, DownlinkRequest<T> request,
             ResponseCallback<T> responseCallback, ErrorCallback errorCallback) throws CodecException, RemoteException;
 
+    /**
+     * Sends a Lightweight M2M request asynchronously. The response, or the error, is delivered later to the given
+     * remote listener with the given request id. No thread is blocked while waiting for the response.
+     * <p>
+     * The listener is registered by its first request and receives the responses until it is removed with
+     * {@link #removeResponseListener(RemoteResponseListener)}, or until it is not exported anymore. The responses
+     * which do not fit in the queue of a listener which does not keep up are dropped.
+     * 
+     * @param destination the remote client
+     * @param request the request to send to the client
+     * @param timeout the request timeout in millisecond
+     * @param requestId the id given to the listener with the response, chosen by the caller
+     * @param listener the (exported) listener which receives the response
+     * @throws CodecException if request payload can not be encoded.
+     */
+    <T extends LwM2mResponse> void sendAsync(Registration destination, DownlinkRequest<T> request, long timeout,
+            long requestId, RemoteResponseListener listener) throws CodecException, RemoteException;
+
+    /**
+     * Stops delivering responses to a listener given to
+     * {@link #sendAsync(Registration, DownlinkRequest, long, long, RemoteResponseListener)}. The responses of its
+     * pending requests are discarded.
+     * 
+     * @param listener the listener to remove
+     */
+    void removeResponseListener(RemoteResponseListener listener) throws RemoteException;
+
     /**
      * Get the registration service to access to registered clients. You can use this object for listening client
      * registration lifecycle.
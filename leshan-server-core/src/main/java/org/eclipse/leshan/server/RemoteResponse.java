@@ -0,0 +1,64 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server;
+
+import java.io.Serializable;
+
+import org.eclipse.leshan.core.response.LwM2mResponse;
+
+/**
+ * The result of a request sent asynchronously through a {@link RemoteLwM2mServer}: either a response or an error.
+ */
+public class RemoteResponse implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final long requestId;
+    private final LwM2mResponse response;
+    private final Exception error;
+
+    public RemoteResponse(long requestId, LwM2mResponse response, Exception error) {
+        this.requestId = requestId;
+        this.response = response;
+        this.error = error;
+    }
+
+    /**
+     * @return the id given by the sender of the request
+     */
+    public long getRequestId() {
+        return requestId;
+    }
+
+    /**
+     * @return the response or <code>null</code> if the request failed
+     */
+    public LwM2mResponse getResponse() {
+        return response;
+    }
+
+    /**
+     * @return the error or <code>null</code> if a response was received
+     */
+    public Exception getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RemoteResponse [requestId=%s, response=%s, error=%s]", requestId, response, error);
+    }
+}
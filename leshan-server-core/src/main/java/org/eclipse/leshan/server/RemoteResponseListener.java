@@ -0,0 +1,32 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server;
+
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.util.List;
+
+/**
+ * Receives the responses of the requests sent with
+ * {@link RemoteLwM2mServer#sendAsync(org.eclipse.leshan.server.registration.Registration, org.eclipse.leshan.core.request.DownlinkRequest, long, long, RemoteResponseListener)}.
+ */
+public interface RemoteResponseListener extends Remote {
+
+    /**
+     * Invoked with a batch of responses, in the order they were received.
+     */
+    void onResponses(List<RemoteResponse> responses) throws RemoteException;
+}
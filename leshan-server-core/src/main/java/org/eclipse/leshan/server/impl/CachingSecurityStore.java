@@ -0,0 +1,366 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.impl;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.leshan.server.Destroyable;
+import org.eclipse.leshan.server.Startable;
+import org.eclipse.leshan.server.Stoppable;
+import org.eclipse.leshan.server.security.SecurityInfo;
+import org.eclipse.leshan.server.security.SecurityStore;
+import org.eclipse.leshan.util.Validate;
+
+/**
+ * A bounded local cache in front of a {@link SecurityStore}.
+ * <p>
+ * Security info are looked up for each DTLS handshake (by PSK identity) and for each registration request (by
+ * endpoint). This cache keeps the security info found by endpoint and by identity for a given time to live, and also
+ * remembers for a shorter time the endpoints and identities which have no security info. The least recently used
+ * entries are evicted when the cache is full.
+ * <p>
+ * Concurrent lookups of the same endpoint or identity which are not in the cache share a single call to the store.
+ * <p>
+ * {@link #invalidate(String)} must be called for each modification of the security info made without using this
+ * cache, e.g. by another server when the store is shared (see <code>RedisSecurityCacheInvalidator</code> for the Redis
+ * store), otherwise a stale entry is kept until it expires. Use {@link EditableCachingSecurityStore} to modify the
+ * security info through the cache.
+ */
+public class CachingSecurityStore implements SecurityStore, Startable, Stoppable, Destroyable {
+
+    private static final int DEFAULT_MAX_SIZE = 10000;
+    private static final long DEFAULT_TTL = 300000; // ms
+    private static final long DEFAULT_NEGATIVE_TTL = 10000; // ms
+
+    private static class Entry {
+        private final SecurityInfo info; // null if there is no security info
+        private final long expiration; // ns
+        private final long version;
+
+        private Entry(SecurityInfo info, long expiration, long version) {
+            this.info = info;
+            this.expiration = expiration;
+            this.version = version;
+        }
+    }
+
+    private final SecurityStore store;
+    private final long ttl; // ns
+    private final long negativeTtl; // ns
+
+    // guarded by this
+    private final Map<String, Entry> byEndpoint;
+    private final Map<String, Entry> byIdentity;
+    private final Map<String, String> identityByEndpoint = new HashMap<>(); // of the entries found by identity
+    private long version = 0; // incremented on each invalidation
+
+    // lookups in progress
+    private final ConcurrentMap<String, FutureTask<SecurityInfo>> endpointLoads = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, FutureTask<SecurityInfo>> identityLoads = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public CachingSecurityStore(SecurityStore store) {
+        this(store, DEFAULT_MAX_SIZE, DEFAULT_TTL, DEFAULT_NEGATIVE_TTL);
+    }
+
+    /**
+     * @param store the store of the security info
+     * @param maxSize the maximum number of entries by endpoint and by identity
+     * @param ttl the time to live in ms of the security info found in the store
+     * @param negativeTtl the time to live in ms of the absence of security info, 0 to always look them up
+     */
+    public CachingSecurityStore(SecurityStore store, final int maxSize, long ttl, long negativeTtl) {
+        Validate.notNull(store);
+        Validate.isTrue(maxSize > 0, "maximum size must be positive");
+        Validate.isTrue(ttl > 0, "time to live must be positive");
+        Validate.isTrue(negativeTtl >= 0, "negative time to live must not be negative");
+        this.store = store;
+        this.ttl = TimeUnit.MILLISECONDS.toNanos(ttl);
+        this.negativeTtl = TimeUnit.MILLISECONDS.toNanos(negativeTtl);
+        this.byEndpoint = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+        this.byIdentity = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > maxSize) {
+                    SecurityInfo info = eldest.getValue().info;
+                    if (info != null) {
+                        identityByEndpoint.remove(info.getEndpoint());
+                    }
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public SecurityInfo getByEndpoint(final String endpoint) {
+        if (endpoint == null) {
+            return store.getByEndpoint(endpoint);
+        }
+        long readVersion;
+        synchronized (this) {
+            Entry entry = byEndpoint.get(endpoint);
+            if (entry != null && isValid(entry, false)) {
+                hits.incrementAndGet();
+                return entry.info;
+            }
+            misses.incrementAndGet();
+            readVersion = version;
+        }
+
+        final long loadVersion = readVersion;
+        return load(endpointLoads, endpoint, new Callable<SecurityInfo>() {
+            @Override
+            public SecurityInfo call() {
+                loads.incrementAndGet();
+                SecurityInfo info = store.getByEndpoint(endpoint);
+                synchronized (CachingSecurityStore.this) {
+                    if (loadVersion == version && isCacheable(info)) {
+                        byEndpoint.put(endpoint, newEntry(info));
+                        if (info != null && info.getIdentity() != null) {
+                            putIdentity(info.getIdentity(), info);
+                        }
+                    }
+                }
+                return info;
+            }
+        });
+    }
+
+    @Override
+    public SecurityInfo getByIdentity(final String identity) {
+        if (identity == null) {
+            return store.getByIdentity(identity);
+        }
+        long readVersion;
+        synchronized (this) {
+            Entry entry = byIdentity.get(identity);
+            if (entry != null && isValid(entry, true)) {
+                hits.incrementAndGet();
+                return entry.info;
+            }
+            misses.incrementAndGet();
+            readVersion = version;
+        }
+
+        final long loadVersion = readVersion;
+        return load(identityLoads, identity, new Callable<SecurityInfo>() {
+            @Override
+            public SecurityInfo call() {
+                loads.incrementAndGet();
+                SecurityInfo info = store.getByIdentity(identity);
+                synchronized (CachingSecurityStore.this) {
+                    if (loadVersion == version && isCacheable(info)) {
+                        putIdentity(identity, info);
+                        if (info != null) {
+                            byEndpoint.put(info.getEndpoint(), newEntry(info));
+                        }
+                    }
+                }
+                return info;
+            }
+        });
+    }
+
+    private boolean isValid(Entry entry, boolean identity) {
+        if (entry.expiration - System.nanoTime() <= 0) {
+            return false;
+        }
+        // any security info added since this entry was read may use this identity
+        return !identity || entry.info != null || entry.version == version;
+    }
+
+    private boolean isCacheable(SecurityInfo info) {
+        return info != null || negativeTtl > 0;
+    }
+
+    private Entry newEntry(SecurityInfo info) {
+        return new Entry(info, System.nanoTime() + (info != null ? ttl : negativeTtl), version);
+    }
+
+    private void putIdentity(String identity, SecurityInfo info) {
+        byIdentity.put(identity, newEntry(info));
+        if (info != null) {
+            identityByEndpoint.put(info.getEndpoint(), identity);
+        }
+    }
+
+    /*
+     * Calls the loader, unless the same key is already loaded by another thread: in this case waits for its result.
+     */
+    private SecurityInfo load(ConcurrentMap<String, FutureTask<SecurityInfo>> inProgress, String key,
+            Callable<SecurityInfo> loader) {
+        FutureTask<SecurityInfo> task = new FutureTask<>(loader);
+        FutureTask<SecurityInfo> running = inProgress.putIfAbsent(key, task);
+        if (running == null) {
+            try {
+                task.run();
+            } finally {
+                inProgress.remove(key, task);
+            }
+            running = task;
+        }
+
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for security info " + key, e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException("Unable to get security info " + key, cause);
+        }
+    }
+
+    /**
+     * Removes the security info of the given endpoint from the cache. Must be called when the security info of this
+     * endpoint is modified in the store without using this cache.
+     */
+    public void invalidate(String endpoint) {
+        synchronized (this) {
+            version++;
+            byEndpoint.remove(endpoint);
+            String identity = identityByEndpoint.remove(endpoint);
+            if (identity != null) {
+                byIdentity.remove(identity);
+            }
+        }
+        invalidations.incrementAndGet();
+        // the lookups in progress may return the previous security info
+        endpointLoads.remove(endpoint);
+        identityLoads.clear();
+    }
+
+    /**
+     * Empties the cache.
+     */
+    public void invalidateAll() {
+        synchronized (this) {
+            version++;
+            byEndpoint.clear();
+            byIdentity.clear();
+            identityByEndpoint.clear();
+        }
+        invalidations.incrementAndGet();
+        endpointLoads.clear();
+        identityLoads.clear();
+    }
+
+    /**
+     * @return the cached store
+     */
+    public SecurityStore getStore() {
+        return store;
+    }
+
+    @Override
+    public void start() {
+        if (store instanceof Startable) {
+            ((Startable) store).start();
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (store instanceof Stoppable) {
+            ((Stoppable) store).stop();
+        }
+    }
+
+    @Override
+    public void destroy() {
+        if (store instanceof Destroyable) {
+            ((Destroyable) store).destroy();
+        }
+    }
+
+    /**
+     * @return the number of entries by endpoint
+     */
+    public synchronized int size() {
+        return byEndpoint.size();
+    }
+
+    /**
+     * @return the number of lookups answered by the cache
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of lookups which were not in the cache
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of calls to the cached store, lower than the number of misses when concurrent lookups of
+     *         the same key share the same call
+     */
+    public long getLoadCount() {
+        return loads.get();
+    }
+
+    /**
+     * @return the number of invalidations
+     */
+    public long getInvalidationCount() {
+        return invalidations.get();
+    }
+
+    /**
+     * @return the number of entries evicted because the cache was full
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+}
@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.impl;
+
+import java.util.Collection;
+import java.util.Iterator;
+
+import org.eclipse.leshan.server.security.EditableSecurityStore;
+import org.eclipse.leshan.server.security.NonUniqueSecurityInfoException;
+import org.eclipse.leshan.server.security.SecurityInfo;
+
+/**
+ * A {@link CachingSecurityStore} in front of an {@link EditableSecurityStore}.
+ * <p>
+ * Security info added or removed through this store are invalidated locally.
+ */
+public class EditableCachingSecurityStore extends CachingSecurityStore implements EditableSecurityStore {
+
+    private final EditableSecurityStore store;
+
+    public EditableCachingSecurityStore(EditableSecurityStore store) {
+        super(store);
+        this.store = store;
+    }
+
+    /**
+     * @param store the store of the security info
+     * @param maxSize the maximum number of entries by endpoint and by identity
+     * @param ttl the time to live in ms of the security info found in the store
+     * @param negativeTtl the time to live in ms of the absence of security info, 0 to always look them up
+     */
+    public EditableCachingSecurityStore(EditableSecurityStore store, int maxSize, long ttl, long negativeTtl) {
+        super(store, maxSize, ttl, negativeTtl);
+        this.store = store;
+    }
+
+    @Override
+    public Collection<SecurityInfo> getAll() {
+        return store.getAll();
+    }
+
+    @Override
+    public Iterator<SecurityInfo> iterateAll() {
+        return store.iterateAll();
+    }
+
+    @Override
+    public SecurityInfo add(SecurityInfo info) throws NonUniqueSecurityInfoException {
+        try {
+            return store.add(info);
+        } finally {
+            invalidate(info.getEndpoint());
+        }
+    }
+
+    @Override
+    public SecurityInfo remove(String endpoint) {
+        try {
+            return store.remove(endpoint);
+        } finally {
+            invalidate(endpoint);
+        }
+    }
+
+    @Override
+    public Collection<SecurityInfo> addAll(Collection<SecurityInfo> infos) throws NonUniqueSecurityInfoException {
+        try {
+            return store.addAll(infos);
+        } finally {
+            for (SecurityInfo info : infos) {
+                invalidate(info.getEndpoint());
+            }
+        }
+    }
+
+    @Override
+    public Collection<SecurityInfo> removeAll(Collection<String> endpoints) {
+        try {
+            return store.removeAll(endpoints);
+        } finally {
+            for (String endpoint : endpoints) {
+                invalidate(endpoint);
+            }
+        }
+    }
+
+    @Override
+    public EditableSecurityStore getStore() {
+        return store;
+    }
+}
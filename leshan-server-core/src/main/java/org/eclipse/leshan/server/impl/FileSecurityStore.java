@@ -15,16 +15,37 @@
  *******************************************************************************/
 package org.eclipse.leshan.server.impl;
 
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import org.eclipse.leshan.server.Destroyable;
+import org.eclipse.leshan.server.Stoppable;
 import org.eclipse.leshan.server.security.NonUniqueSecurityInfoException;
 import org.eclipse.leshan.server.security.SecurityInfo;
 import org.eclipse.leshan.server.security.SecurityStore;
+import org.eclipse.leshan.util.NamedThreadFactory;
 import org.eclipse.leshan.util.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -32,28 +53,92 @@ import org.slf4j.LoggerFactory;
 /**
  * A {@link SecurityStore} which persists {@link SecurityInfo} in a file.
  * <p>
- * This implementation serializes the store content into a file to be able to re-load the {@link SecurityInfo} when the
- * server is restarted.
+ * Each modification of the store appends a small record to a journal file (the store file name followed by
+ * <code>.journal</code>), so the cost of a modification does not depend on the size of the store. The journal is
+ * flushed to the disk periodically. When it becomes larger than the snapshot of the store, it is compacted in the
+ * background: the whole content is written to a new snapshot file (the store file) and the journal is started again.
+ * <p>
+ * When the store is created, the snapshot and then the journal are read to re-load the {@link SecurityInfo}. Files
+ * written with Java serialization by previous versions are still read, and converted at once.
  * </p>
  */
-public class FileSecurityStore extends InMemorySecurityStore {
+public class FileSecurityStore extends InMemorySecurityStore implements Stoppable, Destroyable {
 
     private static final Logger LOG = LoggerFactory.getLogger(FileSecurityStore.class);
 
+    // default location for persistence
+    private static final String DEFAULT_FILE = "data/security.data";
+
+    private static final long DEFAULT_SYNC_PERIOD = 100; // ms
+    private static final long DEFAULT_COMPACTION_THRESHOLD = 1024 * 1024; // bytes
+
     // the name of the file used to persist the store content
     private final String filename;
 
-    // default location for persistence
-    private static final String DEFAULT_FILE = "data/security.data";
+    private final File snapshotFile;
+    private final File journalFile;
+    // journal being compacted, its content is removed once the new snapshot is written
+    private final File compactedJournalFile;
+
+    private final long syncPeriod; // ms
+    private final long compactionThreshold; // bytes
+    private final ScheduledExecutorService executor;
+
+    // guarded by the write lock
+    private volatile FileChannel journal;
+    private long journalSize;
+    private long snapshotSize;
+    private boolean compacting;
+
+    private final AtomicBoolean unsynced = new AtomicBoolean();
 
     public FileSecurityStore() {
         this(DEFAULT_FILE);
     }
 
     public FileSecurityStore(String file) {
+        this(file, DEFAULT_SYNC_PERIOD, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * @param file the snapshot file, the journal is written next to it
+     * @param syncPeriod the maximum time in ms before a modification is flushed to the disk, 0 to flush each
+     *        modification before returning
+     * @param compactionThreshold the minimal size in bytes of the journal before it is compacted
+     */
+    public FileSecurityStore(String file, long syncPeriod, long compactionThreshold) {
         Validate.notEmpty(file);
-        filename = file;
+        Validate.isTrue(syncPeriod >= 0, "sync period must not be negative");
+        Validate.isTrue(compactionThreshold > 0, "compaction threshold must be positive");
+        this.filename = file;
+        this.snapshotFile = new File(file);
+        this.journalFile = new File(file + ".journal");
+        this.compactedJournalFile = new File(file + ".journal.old");
+        this.syncPeriod = syncPeriod;
+        this.compactionThreshold = compactionThreshold;
+
+        final ThreadFactory threadFactory = new NamedThreadFactory(
+                String.format("FileSecurityStore journal (%s)", file));
+        this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = threadFactory.newThread(r);
+                // the journal is written by the caller threads, only its flush may be delayed
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
         loadFromFile();
+
+        if (syncPeriod > 0) {
+            executor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    sync();
+                }
+            }, syncPeriod, syncPeriod, TimeUnit.MILLISECONDS);
+        }
     }
 
     protected SecurityInfo addToStore(SecurityInfo info) throws NonUniqueSecurityInfoException {
@@ -65,7 +150,7 @@ public class FileSecurityStore extends InMemorySecurityStore {
         writeLock.lock();
         try {
             SecurityInfo previous = addToStore(info);
-            saveToFile();
+            append(SecurityJournal.add(info));
             return previous;
         } finally {
             writeLock.unlock();
@@ -78,7 +163,7 @@ public class FileSecurityStore extends InMemorySecurityStore {
         try {
             SecurityInfo info = super.remove(endpoint);
             if (info != null) {
-                saveToFile();
+                append(SecurityJournal.remove(endpoint));
             }
             return info;
         } finally {
@@ -86,43 +171,355 @@ public class FileSecurityStore extends InMemorySecurityStore {
         }
     }
 
-    protected void loadFromFile() {
-        File file = new File(filename);
-        if (!file.exists()) {
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The records of the whole batch are appended to the journal at once.
+     */
+    @Override
+    public Collection<SecurityInfo> addAll(Collection<SecurityInfo> infos) throws NonUniqueSecurityInfoException {
+        writeLock.lock();
+        try {
+            Collection<SecurityInfo> previous = super.addAll(infos);
+            ByteArrayOutputStream records = new ByteArrayOutputStream();
+            for (SecurityInfo info : infos) {
+                records.write(SecurityJournal.add(info));
+            }
+            append(records.toByteArray());
+            return previous;
+        } catch (IOException e) {
+            // not thrown by a ByteArrayOutputStream
+            throw new IllegalStateException(e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The records of the whole batch are appended to the journal at once.
+     */
+    @Override
+    public Collection<SecurityInfo> removeAll(Collection<String> endpoints) {
+        writeLock.lock();
+        try {
+            Collection<SecurityInfo> removed = super.removeAll(endpoints);
+            if (!removed.isEmpty()) {
+                ByteArrayOutputStream records = new ByteArrayOutputStream();
+                for (SecurityInfo info : removed) {
+                    records.write(SecurityJournal.remove(info.getEndpoint()));
+                }
+                append(records.toByteArray());
+            }
+            return removed;
+        } catch (IOException e) {
+            // not thrown by a ByteArrayOutputStream
+            throw new IllegalStateException(e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /*
+     * Appends records to the journal, must be called with the write lock.
+     */
+    private void append(byte[] records) {
+        if (journal == null) {
+            LOG.error("Could not save security info: journal {} is not open", journalFile);
             return;
         }
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(records);
+            while (buffer.hasRemaining()) {
+                journal.write(buffer);
+            }
+            journalSize += records.length;
+            if (syncPeriod == 0) {
+                journal.force(false);
+            } else {
+                unsynced.set(true);
+            }
+        } catch (IOException e) {
+            LOG.error("Could not save security info to journal {}", journalFile, e);
+        }
+        compactIfNeeded();
+    }
+
+    /*
+     * Starts a background compaction if the journal is too large, must be called with the write lock.
+     */
+    private void compactIfNeeded() {
+        if (!compacting && journal != null && journalSize > compactionThreshold && journalSize > snapshotSize) {
+            compacting = true;
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    saveToFile();
+                }
+            });
+        }
+    }
 
-        try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(file));) {
-            SecurityInfo[] infos = (SecurityInfo[]) in.readObject();
+    /**
+     * Flushes the journal to the disk.
+     */
+    private void sync() {
+        FileChannel channel = journal;
+        if (channel != null && unsynced.getAndSet(false)) {
+            try {
+                channel.force(false);
+            } catch (ClosedChannelException e) {
+                // the journal was flushed before being closed
+            } catch (IOException e) {
+                LOG.error("Could not flush security info journal {}", journalFile, e);
+            }
+        }
+    }
 
-            if (infos != null) {
-                for (SecurityInfo info : infos) {
+    protected void loadFromFile() {
+        // the content is rebuilt by endpoint then added to the store
+        Map<String, SecurityInfo> infos = new LinkedHashMap<>();
+        boolean compact = false;
+        if (snapshotFile.exists()) {
+            try {
+                if (SecurityJournal.isSerialized(snapshotFile)) {
+                    loadSerializedFile(infos);
+                    compact = true;
+                } else {
+                    SecurityJournal.replay(snapshotFile, SecurityJournal.SNAPSHOT_MAGIC, infos);
+                }
+                snapshotSize = snapshotFile.length();
+            } catch (IOException e) {
+                LOG.error("Could not load security infos from file", e);
+                setAside(snapshotFile);
+            }
+        }
+        // a compaction was interrupted, the snapshot may not contain the compacted journal
+        if (compactedJournalFile.exists()) {
+            try {
+                SecurityJournal.replay(compactedJournalFile, SecurityJournal.JOURNAL_MAGIC, infos);
+                compact = true;
+            } catch (IOException e) {
+                LOG.error("Could not load security infos from file", e);
+                setAside(compactedJournalFile);
+            }
+        }
+        long journalLength = 0;
+        if (journalFile.exists()) {
+            try {
+                journalLength = SecurityJournal.replay(journalFile, SecurityJournal.JOURNAL_MAGIC, infos);
+            } catch (IOException e) {
+                LOG.error("Could not load security infos from file", e);
+                setAside(journalFile);
+            }
+        }
+
+        writeLock.lock();
+        try {
+            for (SecurityInfo info : infos.values()) {
+                try {
                     addToStore(info);
+                } catch (NonUniqueSecurityInfoException e) {
+                    LOG.error("Could not load security info of {}", info.getEndpoint(), e);
                 }
-                if (infos.length > 0) {
-                    LOG.debug("{} security infos loaded", infos.length);
+            }
+            if (!infos.isEmpty()) {
+                LOG.debug("{} security infos loaded", infos.size());
+            }
+            openJournal(journalLength);
+            if (compact) {
+                compacting = true;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+
+        if (compact) {
+            saveToFile();
+        }
+    }
+
+    /*
+     * Keeps a file which can not be read for a manual recovery, instead of overwriting it.
+     */
+    private void setAside(File file) {
+        File corrupted = new File(file.getPath() + ".corrupted");
+        LOG.warn("Moving unreadable file {} to {}", file, corrupted);
+        try {
+            Files.move(file.toPath(), corrupted.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            LOG.error("Could not move {}", file, e);
+        }
+    }
+
+    private void loadSerializedFile(Map<String, SecurityInfo> infos) throws IOException {
+        try (ObjectInputStream in = new ObjectInputStream(new FileInputStream(snapshotFile))) {
+            SecurityInfo[] serialized = (SecurityInfo[]) in.readObject();
+            if (serialized != null) {
+                for (SecurityInfo info : serialized) {
+                    infos.put(info.getEndpoint(), info);
                 }
             }
-        } catch (NonUniqueSecurityInfoException | IOException | ClassNotFoundException e) {
-            LOG.error("Could not load security infos from file", e);
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Invalid security info file " + snapshotFile, e);
+        }
+    }
+
+    /*
+     * Opens the journal for appending, must be called with the write lock.
+     * 
+     * @param validLength the length of the valid content of the existing journal, 0 to create a new journal
+     */
+    private void openJournal(long validLength) {
+        try {
+            File parent = journalFile.getAbsoluteFile().getParentFile();
+            if (parent != null) {
+                parent.mkdirs();
+            }
+            FileChannel channel = FileChannel.open(journalFile.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE);
+            if (validLength < 4) {
+                channel.truncate(0);
+                channel.write(ByteBuffer.wrap(SecurityJournal.header(SecurityJournal.JOURNAL_MAGIC)));
+                channel.force(true);
+                journalSize = channel.size();
+            } else {
+                // drop the incomplete record written before a crash
+                channel.truncate(validLength);
+                journalSize = validLength;
+            }
+            channel.position(journalSize);
+            journal = channel;
+        } catch (IOException e) {
+            LOG.error("Could not open security info journal {}", journalFile, e);
+        }
+    }
+
+    /*
+     * Flushes and closes the journal, must be called with the write lock.
+     */
+    private void closeJournal() throws IOException {
+        FileChannel channel = journal;
+        journal = null;
+        if (channel != null) {
+            try {
+                channel.force(false);
+            } finally {
+                channel.close();
+            }
         }
     }
 
+    /**
+     * Writes the whole content of the store to a new snapshot and starts a new journal.
+     * <p>
+     * The store can be modified while the snapshot is written.
+     */
     protected void saveToFile() {
+        List<SecurityInfo> infos;
+        writeLock.lock();
         try {
-            File file = new File(filename);
-            if (!file.exists()) {
-                File parent = file.getParentFile();
-                if (parent != null) {
-                    parent.mkdirs();
+            if (journal == null) {
+                compacting = false;
+                return;
+            }
+            infos = new ArrayList<>(securityByEp.values());
+            // the modifications made from now are written to a new journal, unless the previous journal was not
+            // compacted yet: it must be kept until a snapshot is written
+            try {
+                if (!compactedJournalFile.exists()) {
+                    closeJournal();
+                    Files.move(journalFile.toPath(), compactedJournalFile.toPath());
+                    openJournal(0);
                 }
-                file.createNewFile();
+            } catch (IOException e) {
+                LOG.error("Could not start a new security info journal {}", journalFile, e);
+                openJournal(journalFile.exists() ? journalFile.length() : 0);
+                compacting = false;
+                return;
             }
-            try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(filename));) {
-                out.writeObject(this.getAll().toArray(new SecurityInfo[0]));
+        } finally {
+            writeLock.unlock();
+        }
+
+        boolean saved = false;
+        try {
+            long size = writeSnapshot(infos);
+            Files.deleteIfExists(compactedJournalFile.toPath());
+            writeLock.lock();
+            try {
+                snapshotSize = size;
+            } finally {
+                writeLock.unlock();
             }
+            saved = true;
+            LOG.debug("{} security infos saved to {}", infos.size(), filename);
         } catch (IOException e) {
             LOG.error("Could not save security infos to file", e);
+        } finally {
+            writeLock.lock();
+            try {
+                compacting = false;
+                if (saved) {
+                    // the journal may have grown during the compaction
+                    compactIfNeeded();
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    private long writeSnapshot(List<SecurityInfo> infos) throws IOException {
+        File parent = snapshotFile.getAbsoluteFile().getParentFile();
+        if (parent != null) {
+            parent.mkdirs();
+        }
+        File tmp = new File(filename + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(tmp)) {
+            OutputStream out = new BufferedOutputStream(file);
+            out.write(SecurityJournal.header(SecurityJournal.SNAPSHOT_MAGIC));
+            for (SecurityInfo info : infos) {
+                out.write(SecurityJournal.add(info));
+            }
+            out.flush();
+            file.getFD().sync();
+        }
+        Files.move(tmp.toPath(), snapshotFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+        return snapshotFile.length();
+    }
+
+    /**
+     * Flushes the journal to the disk.
+     */
+    @Override
+    public void stop() {
+        sync();
+    }
+
+    /**
+     * Flushes and closes the journal, and waits for the end of a running compaction. The store can not be modified
+     * anymore.
+     */
+    @Override
+    public void destroy() {
+        writeLock.lock();
+        try {
+            executor.shutdown();
+            closeJournal();
+        } catch (IOException e) {
+            LOG.error("Could not close security info journal {}", journalFile, e);
+        } finally {
+            writeLock.unlock();
+        }
+        // the files must not be modified once the store is destroyed
+        try {
+            if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                LOG.warn("Compaction of security info file {} still running", filename);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 }
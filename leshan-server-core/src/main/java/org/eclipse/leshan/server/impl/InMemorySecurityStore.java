@@ -19,6 +19,8 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -28,6 +30,7 @@ import org.eclipse.leshan.server.security.EditableSecurityStore;
 import org.eclipse.leshan.server.security.NonUniqueSecurityInfoException;
 import org.eclipse.leshan.server.security.SecurityInfo;
 import org.eclipse.leshan.server.security.SecurityStore;
+import org.eclipse.leshan.util.Validate;
 
 /**
  * A {@link SecurityStore} which store {@link SecurityInfo} in memory.
@@ -84,6 +87,16 @@ public class InMemorySecurityStore implements EditableSecurityStore {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The iterator is over a copy of the store content.
+     */
+    @Override
+    public Iterator<SecurityInfo> iterateAll() {
+        return getAll().iterator();
+    }
+
     @Override
     public SecurityInfo add(SecurityInfo info) throws NonUniqueSecurityInfoException {
         writeLock.lock();
@@ -126,4 +139,64 @@ public class InMemorySecurityStore implements EditableSecurityStore {
             writeLock.unlock();
         }
     }
+
+    @Override
+    public Collection<SecurityInfo> addAll(Collection<SecurityInfo> infos) throws NonUniqueSecurityInfoException {
+        writeLock.lock();
+        try {
+            Map<String, SecurityInfo> batch = new HashMap<>();
+            Map<String, SecurityInfo> batchByIdentity = new HashMap<>();
+            for (SecurityInfo info : infos) {
+                Validate.isTrue(batch.put(info.getEndpoint(), info) == null,
+                        "Several security info for endpoint " + info.getEndpoint());
+                String identity = info.getIdentity();
+                if (identity != null && batchByIdentity.put(identity, info) != null) {
+                    throw new NonUniqueSecurityInfoException("PSK Identity " + identity + " is used twice");
+                }
+            }
+            // an identity may be taken from an end-point which gets another identity in the same batch
+            for (SecurityInfo info : batchByIdentity.values()) {
+                SecurityInfo infoByIdentity = securityByIdentity.get(info.getIdentity());
+                if (infoByIdentity != null && !info.getEndpoint().equals(infoByIdentity.getEndpoint())
+                        && !batch.containsKey(infoByIdentity.getEndpoint())) {
+                    throw new NonUniqueSecurityInfoException("PSK Identity " + info.getIdentity() + " is already used");
+                }
+            }
+
+            List<SecurityInfo> previousInfos = new ArrayList<>();
+            for (SecurityInfo info : batch.values()) {
+                SecurityInfo previous = securityByEp.put(info.getEndpoint(), info);
+                if (previous != null) {
+                    previousInfos.add(previous);
+                    if (previous.getIdentity() != null) {
+                        securityByIdentity.remove(previous.getIdentity());
+                    }
+                }
+            }
+            securityByIdentity.putAll(batchByIdentity);
+            return previousInfos;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Collection<SecurityInfo> removeAll(Collection<String> endpoints) {
+        writeLock.lock();
+        try {
+            List<SecurityInfo> removed = new ArrayList<>();
+            for (String endpoint : endpoints) {
+                SecurityInfo info = securityByEp.remove(endpoint);
+                if (info != null) {
+                    if (info.getIdentity() != null) {
+                        securityByIdentity.remove(info.getIdentity());
+                    }
+                    removed.add(info);
+                }
+            }
+            return removed;
+        } finally {
+            writeLock.unlock();
+        }
+    }
 }
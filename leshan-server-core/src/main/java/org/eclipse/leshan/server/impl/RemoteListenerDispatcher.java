@@ -0,0 +1,353 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.impl;
+
+import java.rmi.NoSuchObjectException;
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.leshan.util.NamedThreadFactory;
+import org.eclipse.leshan.util.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Delivers events to remote (RMI) listeners asynchronously.
+ * <p>
+ * Each listener has its own bounded queue, so a slow or dead listener never blocks the thread which fires the events
+ * nor delays the other listeners. Events queued for a listener are sent in batches: one remote call delivers all the
+ * events queued since the previous call (up to <code>maxBatchSize</code>).
+ * <p>
+ * When the queue of a listener is full, the {@link OverflowPolicy} decides which event is dropped. Listeners whose
+ * remote object does not exist anymore are removed, and the {@link RemovalListener} is notified so the state kept for
+ * them elsewhere can be released.
+ *
+ * @param <L> the type of remote listener
+ * @param <E> the type of event
+ */
+public class RemoteListenerDispatcher<L extends Remote, E> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RemoteListenerDispatcher.class);
+
+    /**
+     * Sends a batch of events to a remote listener.
+     */
+    public interface BatchSender<L, E> {
+        void send(L listener, List<E> events) throws RemoteException;
+    }
+
+    /**
+     * Notified when a listener is removed because its remote object does not exist anymore.
+     */
+    public interface RemovalListener<L> {
+        void listenerRemoved(L listener);
+    }
+
+    /**
+     * What to do when an event is fired while the queue of a listener is full.
+     */
+    public enum OverflowPolicy {
+        /** the oldest queued event is dropped */
+        DROP_OLDEST,
+        /** the new event is dropped */
+        DROP_NEWEST,
+        /** the thread firing the event waits up to <code>blockTimeout</code> ms then drops the new event */
+        BLOCK
+    }
+
+    private final String name;
+    private final BatchSender<L, E> sender;
+    private final int queueCapacity;
+    private final int maxBatchSize;
+    private final OverflowPolicy policy;
+    private final long blockTimeout;
+    private final ExecutorService executor;
+
+    private final ConcurrentHashMap<L, ListenerQueue> queues = new ConcurrentHashMap<>();
+
+    private volatile RemovalListener<L> removalListener;
+
+    /**
+     * @param name the name of the dispatcher, used for logs and thread names
+     * @param sender sends batches of events to a listener
+     * @param queueCapacity the maximum number of events queued for each listener
+     * @param maxBatchSize the maximum number of events sent in a single remote call
+     * @param policy the policy applied when the queue of a listener is full
+     * @param blockTimeout the maximum time in ms to wait for space in a queue with the {@link OverflowPolicy#BLOCK}
+     *        policy
+     */
+    public RemoteListenerDispatcher(String name, BatchSender<L, E> sender, int queueCapacity, int maxBatchSize,
+            OverflowPolicy policy, long blockTimeout) {
+        Validate.notNull(sender);
+        Validate.notNull(policy);
+        Validate.isTrue(queueCapacity > 0, "queue capacity must be positive");
+        Validate.isTrue(maxBatchSize > 0, "batch size must be positive");
+        this.name = name;
+        this.sender = sender;
+        this.queueCapacity = queueCapacity;
+        this.maxBatchSize = maxBatchSize;
+        this.policy = policy;
+        this.blockTimeout = blockTimeout;
+        this.executor = Executors.newCachedThreadPool(new NamedThreadFactory(name + " dispatcher #%d"));
+    }
+
+    public void addListener(L listener) {
+        // the listener may be added for each request, do not allocate a queue if it is already there
+        if (!queues.containsKey(listener)) {
+            queues.putIfAbsent(listener, new ListenerQueue(listener));
+        }
+    }
+
+    public void removeListener(L listener) {
+        queues.remove(listener);
+    }
+
+    /**
+     * Sets the listener notified when a remote listener which does not exist anymore is removed.
+     */
+    public void setRemovalListener(RemovalListener<L> removalListener) {
+        this.removalListener = removalListener;
+    }
+
+    public boolean hasListeners() {
+        return !queues.isEmpty();
+    }
+
+    /**
+     * Queues an event for all the listeners.
+     */
+    public void dispatch(E event) {
+        for (ListenerQueue queue : queues.values()) {
+            queue.offer(event);
+        }
+    }
+
+    /**
+     * Queues an event for a single listener. The event is ignored if the listener was not added.
+     */
+    public void dispatch(L listener, E event) {
+        ListenerQueue queue = queues.get(listener);
+        if (queue != null) {
+            queue.offer(event);
+        }
+    }
+
+    /**
+     * @return the metrics of each listener
+     */
+    public Collection<ListenerMetrics> getMetrics() {
+        List<ListenerMetrics> metrics = new ArrayList<>(queues.size());
+        for (ListenerQueue queue : queues.values()) {
+            metrics.add(queue.metrics());
+        }
+        return metrics;
+    }
+
+    /**
+     * Stops the delivery of events. Queued events are discarded.
+     */
+    public void stop() {
+        queues.clear();
+        executor.shutdownNow();
+    }
+
+    /**
+     * A snapshot of the delivery metrics of a listener.
+     */
+    public static class ListenerMetrics {
+        private final Object listener;
+        private final int pending;
+        private final long lag;
+        private final long delivered;
+        private final long dropped;
+        private final long failed;
+
+        public ListenerMetrics(Object listener, int pending, long lag, long delivered, long dropped, long failed) {
+            this.listener = listener;
+            this.pending = pending;
+            this.lag = lag;
+            this.delivered = delivered;
+            this.dropped = dropped;
+            this.failed = failed;
+        }
+
+        public Object getListener() {
+            return listener;
+        }
+
+        /**
+         * @return the number of events waiting to be delivered
+         */
+        public int getPending() {
+            return pending;
+        }
+
+        /**
+         * @return the age in ms of the oldest event waiting to be delivered, 0 if there is none
+         */
+        public long getLag() {
+            return lag;
+        }
+
+        /**
+         * @return the number of events successfully delivered
+         */
+        public long getDelivered() {
+            return delivered;
+        }
+
+        /**
+         * @return the number of events dropped because the queue was full
+         */
+        public long getDropped() {
+            return dropped;
+        }
+
+        /**
+         * @return the number of events which could not be delivered because of a remote error
+         */
+        public long getFailed() {
+            return failed;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "ListenerMetrics [listener=%s, pending=%s, lag=%sms, delivered=%s, dropped=%s, failed=%s]",
+                    listener, pending, lag, delivered, dropped, failed);
+        }
+    }
+
+    private static class QueuedEvent<E> {
+        private final E event;
+        private final long timestamp;
+
+        private QueuedEvent(E event) {
+            this.event = event;
+            this.timestamp = System.currentTimeMillis();
+        }
+    }
+
+    private class ListenerQueue implements Runnable {
+        private final L listener;
+        private final LinkedBlockingQueue<QueuedEvent<E>> queue = new LinkedBlockingQueue<>(queueCapacity);
+        // true while a delivery task is scheduled or running for this listener
+        private final AtomicBoolean scheduled = new AtomicBoolean(false);
+
+        private final AtomicLong delivered = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private final AtomicLong failed = new AtomicLong();
+
+        private ListenerQueue(L listener) {
+            this.listener = listener;
+        }
+
+        private void offer(E event) {
+            QueuedEvent<E> queued = new QueuedEvent<>(event);
+            boolean added;
+            switch (policy) {
+            case DROP_OLDEST:
+                added = queue.offer(queued);
+                while (!added) {
+                    if (queue.poll() != null) {
+                        dropped.incrementAndGet();
+                    }
+                    added = queue.offer(queued);
+                }
+                break;
+            case BLOCK:
+                try {
+                    added = queue.offer(queued, blockTimeout, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    added = false;
+                }
+                break;
+            default:
+                added = queue.offer(queued);
+            }
+
+            if (!added) {
+                dropped.incrementAndGet();
+                LOG.debug("{}: event dropped for listener {}, queue is full", name, listener);
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (!queue.isEmpty() && scheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    // dispatcher is stopped
+                    scheduled.set(false);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                List<QueuedEvent<E>> batch = new ArrayList<>();
+                while (queue.drainTo(batch, maxBatchSize) > 0) {
+                    List<E> events = new ArrayList<>(batch.size());
+                    for (QueuedEvent<E> queued : batch) {
+                        events.add(queued.event);
+                    }
+                    try {
+                        sender.send(listener, events);
+                        delivered.addAndGet(events.size());
+                    } catch (NoSuchObjectException e) {
+                        LOG.warn("{}: listener {} does not exist anymore, it is removed", name, listener);
+                        failed.addAndGet(events.size());
+                        removeListener(listener);
+                        RemovalListener<L> removal = removalListener;
+                        if (removal != null) {
+                            removal.listenerRemoved(listener);
+                        }
+                        return;
+                    } catch (RemoteException | RuntimeException e) {
+                        LOG.error(String.format("%s: unable to deliver %d events to listener %s", name,
+                                events.size(), listener), e);
+                        failed.addAndGet(events.size());
+                    }
+                    batch.clear();
+                }
+            } finally {
+                scheduled.set(false);
+            }
+            // an event may have been queued after the last drain
+            schedule();
+        }
+
+        private ListenerMetrics metrics() {
+            QueuedEvent<E> oldest = queue.peek();
+            long lag = oldest == null ? 0 : System.currentTimeMillis() - oldest.timestamp;
+            return new ListenerMetrics(listener, queue.size(), lag, delivered.get(), dropped.get(), failed.get());
+        }
+    }
+}
@@ -20,42 +20,93 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.TreeMap;
 
 import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.server.Destroyable;
+import org.eclipse.leshan.server.impl.RemoteListenerDispatcher.BatchSender;
+import org.eclipse.leshan.server.impl.RemoteListenerDispatcher.ListenerMetrics;
+import org.eclipse.leshan.server.impl.RemoteListenerDispatcher.OverflowPolicy;
 import org.eclipse.leshan.server.registration.ExpirationListener;
+import org.eclipse.leshan.server.registration.OrderedRegistrationStore;
 import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationFilter;
+import org.eclipse.leshan.server.registration.RegistrationPage;
 import org.eclipse.leshan.server.registration.RegistrationStore;
 import org.eclipse.leshan.server.registration.RegistrationUpdate;
+import org.eclipse.leshan.server.registration.RemoteBatchRegistrationListener;
+import org.eclipse.leshan.server.registration.RemoteRegistrationEvent;
 import org.eclipse.leshan.server.registration.RemoteRegistrationListener;
 import org.eclipse.leshan.server.registration.RemoteRegistrationService;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import org.eclipse.leshan.util.Validate;
 
 /**
  * An implementation of {@link RemoteRegistrationService}
+ * <p>
+ * Registration events are delivered asynchronously to the remote listeners, in batches, using a
+ * {@link RemoteListenerDispatcher}: a slow or unreachable listener does not block the CoAP stack.
  */
-public class RemoteRegistrationServiceImpl implements RemoteRegistrationService, ExpirationListener {
+public class RemoteRegistrationServiceImpl implements RemoteRegistrationService, ExpirationListener, Destroyable {
 
-    private final List<RemoteRegistrationListener> listeners = new CopyOnWriteArrayList<>();
+    /** Default maximum number of events queued for each listener */
+    public static final int DEFAULT_QUEUE_CAPACITY = 10000;
+    /** Default maximum number of events taken from the queue at once */
+    public static final int DEFAULT_BATCH_SIZE = 100;
+    /** Default time in ms a registration event waits for space in a full listener queue before being dropped */
+    public static final long DEFAULT_BLOCK_TIMEOUT = 100;
 
-    private RegistrationStore store;
+    private final RemoteListenerDispatcher<RemoteRegistrationListener, RemoteRegistrationEvent> dispatcher;
 
-    private static final Logger LOG = LoggerFactory.getLogger(RemoteRegistrationServiceImpl.class);
+    private RegistrationStore store;
 
     public RemoteRegistrationServiceImpl(RegistrationStore store) {
+        this(store, DEFAULT_QUEUE_CAPACITY, DEFAULT_BATCH_SIZE, OverflowPolicy.BLOCK, DEFAULT_BLOCK_TIMEOUT);
+    }
+
+    /**
+     * @param store the registration store
+     * @param queueCapacity the maximum number of events queued for each listener
+     * @param maxBatchSize the maximum number of events taken from the queue at once (delivered in a single remote call
+     *        to a batch listener)
+     * @param policy the policy applied when the queue of a listener is full
+     * @param blockTimeout the maximum time in ms to wait for space in a full queue with the
+     *        {@link OverflowPolicy#BLOCK} policy
+     */
+    public RemoteRegistrationServiceImpl(RegistrationStore store, int queueCapacity, int maxBatchSize,
+            OverflowPolicy policy, long blockTimeout) {
         this.store = store;
+        this.dispatcher = new RemoteListenerDispatcher<>("Registration events",
+                new BatchSender<RemoteRegistrationListener, RemoteRegistrationEvent>() {
+                    @Override
+                    public void send(RemoteRegistrationListener listener, List<RemoteRegistrationEvent> events)
+                            throws RemoteException {
+                        if (listener instanceof RemoteBatchRegistrationListener) {
+                            ((RemoteBatchRegistrationListener) listener).onEvents(events);
+                        } else {
+                            for (RemoteRegistrationEvent event : events) {
+                                event.dispatch(listener);
+                            }
+                        }
+                    }
+                }, queueCapacity, maxBatchSize, policy, blockTimeout);
         store.setExpirationListener(this);
     }
 
     @Override
     public void addListener(RemoteRegistrationListener listener) {
-        listeners.add(listener);
+        dispatcher.addListener(listener);
     }
 
     @Override
     public void removeListener(RemoteRegistrationListener listener) {
-        listeners.remove(listener);
+        dispatcher.removeListener(listener);
+    }
+
+    /**
+     * @return the delivery metrics of each remote listener
+     */
+    public Collection<ListenerMetrics> getListenerMetrics() {
+        return dispatcher.getMetrics();
     }
 
     @Override
@@ -67,6 +118,83 @@ public class RemoteRegistrationServiceImpl implements RemoteRegistrationService,
         return registrations;
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * With an {@link OrderedRegistrationStore}, the page is read from the cursor (or from the endpoint prefix of the
+     * filter), so each page costs the same whatever its position. With other stores, the whole store is scanned for
+     * each page.
+     */
+    @Override
+    public RegistrationPage getRegistrations(RegistrationFilter filter, String cursor, int limit) {
+        Validate.notNull(filter);
+        Validate.isTrue(limit > 0, "limit must be positive");
+
+        if (store instanceof OrderedRegistrationStore) {
+            return getOrderedRegistrations((OrderedRegistrationStore) store, filter, cursor, limit);
+        }
+
+        // keep the 'limit + 1' first matching registrations after the cursor, the extra one tells if there is a next
+        // page. Only this window is kept in memory whatever the size of the store.
+        TreeMap<String, Registration> window = new TreeMap<>();
+        for (Iterator<Registration> iterator = store.getAllRegistrations(); iterator.hasNext();) {
+            Registration registration = iterator.next();
+            String endpoint = registration.getEndpoint();
+            if (cursor != null && endpoint.compareTo(cursor) <= 0) {
+                continue;
+            }
+            if (window.size() > limit && endpoint.compareTo(window.lastKey()) >= 0) {
+                continue;
+            }
+            if (!filter.matches(registration)) {
+                continue;
+            }
+            window.put(endpoint, registration);
+            if (window.size() > limit + 1) {
+                window.pollLastEntry();
+            }
+        }
+
+        String nextCursor = null;
+        if (window.size() > limit) {
+            window.pollLastEntry();
+            nextCursor = window.lastKey();
+        }
+        return new RegistrationPage(new ArrayList<>(window.values()), nextCursor);
+    }
+
+    private RegistrationPage getOrderedRegistrations(OrderedRegistrationStore store, RegistrationFilter filter,
+            String cursor, int limit) {
+        String prefix = filter.getEndpointPrefix();
+        Iterator<Registration> iterator;
+        if (prefix != null && (cursor == null || cursor.compareTo(prefix) < 0)) {
+            // the matching endpoints start at the prefix
+            iterator = store.getRegistrations(prefix, true);
+        } else {
+            iterator = store.getRegistrations(cursor, false);
+        }
+
+        // read one more registration to know if there is a next page
+        List<Registration> registrations = new ArrayList<>(limit + 1);
+        while (registrations.size() <= limit && iterator.hasNext()) {
+            Registration registration = iterator.next();
+            if (prefix != null && !registration.getEndpoint().startsWith(prefix)) {
+                // no more endpoint with this prefix
+                break;
+            }
+            if (filter.matches(registration)) {
+                registrations.add(registration);
+            }
+        }
+
+        String nextCursor = null;
+        if (registrations.size() > limit) {
+            registrations.remove(limit);
+            nextCursor = registrations.get(limit - 1).getEndpoint();
+        }
+        return new RegistrationPage(registrations, nextCursor);
+    }
+
     @Override
     public Registration getByEndpoint(String endpoint) throws RemoteException {
         return store.getRegistrationByEndpoint(endpoint);
@@ -78,48 +206,32 @@ public class RemoteRegistrationServiceImpl implements RemoteRegistrationService,
 
     @Override
     public void registrationExpired(Registration registration, Collection<Observation> observations) {
-        try {
-            for (RemoteRegistrationListener l : listeners) {
-                l.unregistered(registration, observations, true, null);
-            }
-        } catch (RemoteException e) {
-            LOG.error("Failed to fire expired via RMI", e);
-        }
+        dispatcher.dispatch(RemoteRegistrationEvent.unregistered(registration, observations, true, null));
     }
 
     public void fireRegistered(Registration registration, Registration previousReg,
             Collection<Observation> previousObsersations) {
-        try {
-            for (RemoteRegistrationListener l : listeners) {
-                l.registered(registration, previousReg, previousObsersations);
-            }
-        } catch (RemoteException e) {
-            LOG.error("Failed to fire registered via RMI", e);
-        }
+        dispatcher.dispatch(RemoteRegistrationEvent.registered(registration, previousReg, previousObsersations));
     }
 
     public void fireUnregistered(Registration registration, Collection<Observation> observations, Registration newReg) {
-        try {
-            for (RemoteRegistrationListener l : listeners) {
-                l.unregistered(registration, observations, false, newReg);
-            }
-        } catch (RemoteException e) {
-            LOG.error("Failed to fire unregistered via RMI", e);
-        }
+        dispatcher.dispatch(RemoteRegistrationEvent.unregistered(registration, observations, false, newReg));
     }
 
     public void fireUpdated(RegistrationUpdate update, Registration updatedRegistration,
             Registration previousRegistration) {
-        try {
-            for (RemoteRegistrationListener l : listeners) {
-                l.updated(update, updatedRegistration, previousRegistration);
-            }
-        } catch (RemoteException e) {
-            LOG.error("Failed to fire updated via RMI", e);
-        }
+        dispatcher.dispatch(RemoteRegistrationEvent.updated(update, updatedRegistration, previousRegistration));
     }
 
     public RegistrationStore getStore() {
         return store;
     }
+
+    /**
+     * Stops the delivery of events to the remote listeners.
+     */
+    @Override
+    public void destroy() {
+        dispatcher.stop();
+    }
 }
@@ -0,0 +1,232 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+import org.eclipse.leshan.server.security.SecurityInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The binary format of the files of the {@link FileSecurityStore}.
+ * <p>
+ * A file starts with a magic number followed by records. Each record is framed by its length and a CRC32 of its
+ * content, so a record partially written before a crash is detected and ignored. A record either sets the security
+ * info of an endpoint or removes it: replaying the records of a file in order gives the content of the store.
+ */
+final class SecurityJournal {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SecurityJournal.class);
+
+    /** First bytes of a snapshot file */
+    static final int SNAPSHOT_MAGIC = 0x4C53_5331; // "LSS1"
+    /** First bytes of a journal file */
+    static final int JOURNAL_MAGIC = 0x4C53_4A31; // "LSJ1"
+
+    // record types
+    private static final byte ADD = 1;
+    private static final byte REMOVE = 2;
+
+    // kind of security information
+    private static final byte PSK = 0;
+    private static final byte RPK = 1;
+    private static final byte X509 = 2;
+
+    private SecurityJournal() {
+    }
+
+    /**
+     * @return the record setting the given security info
+     */
+    static byte[] add(SecurityInfo info) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(ADD);
+            out.writeUTF(info.getEndpoint());
+            if (info.getPreSharedKey() != null) {
+                out.writeByte(PSK);
+                out.writeUTF(info.getIdentity());
+                writeBytes(out, info.getPreSharedKey());
+            } else if (info.getRawPublicKey() != null) {
+                out.writeByte(RPK);
+                out.writeUTF(info.getRawPublicKey().getAlgorithm());
+                writeBytes(out, info.getRawPublicKey().getEncoded());
+            } else {
+                out.writeByte(X509);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to serialize security info of " + info.getEndpoint(), e);
+        }
+        return frame(bytes.toByteArray());
+    }
+
+    /**
+     * @return the record removing the security info of the given endpoint
+     */
+    static byte[] remove(String endpoint) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(32);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(REMOVE);
+            out.writeUTF(endpoint);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to serialize removal of " + endpoint, e);
+        }
+        return frame(bytes.toByteArray());
+    }
+
+    /**
+     * @return the first bytes of a file with the given magic number
+     */
+    static byte[] header(int magic) {
+        return ByteBuffer.allocate(4).putInt(magic).array();
+    }
+
+    private static byte[] frame(byte[] record) {
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        return ByteBuffer.allocate(record.length + 8).putInt(record.length).put(record).putInt((int) crc.getValue())
+                .array();
+    }
+
+    /**
+     * @return <code>true</code> if the given file was written with Java serialization by previous versions
+     */
+    static boolean isSerialized(File file) throws IOException {
+        try (InputStream in = new FileInputStream(file)) {
+            return in.read() == 0xAC && in.read() == 0xED;
+        }
+    }
+
+    /**
+     * Applies the records of a file to the given security info (by endpoint).
+     * <p>
+     * The file is memory-mapped and read in a single pass. Reading stops at the first incomplete or corrupted record.
+     *
+     * @return the length of the valid content of the file, 0 if the file is shorter than a magic number (a crash
+     *         happened while it was created)
+     * @throws IOException if the file can not be read or does not start with the given magic number
+     */
+    static long replay(File file, int magic, Map<String, SecurityInfo> infos) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(file + " is too large");
+            }
+            if (size < 4) {
+                return 0;
+            }
+            MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt() != magic) {
+                throw new IOException(file + " is not a security info file");
+            }
+
+            CRC32 crc = new CRC32();
+            int count = 0;
+            int valid = buffer.position();
+            while (buffer.remaining() >= 8) {
+                int length = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining() - 4) {
+                    break;
+                }
+                byte[] record = new byte[length];
+                buffer.get(record);
+                crc.reset();
+                crc.update(record);
+                if (buffer.getInt() != (int) crc.getValue()) {
+                    break;
+                }
+                apply(record, infos);
+                valid = buffer.position();
+                count++;
+            }
+
+            if (valid < size) {
+                LOG.warn("Ignoring {} bytes of incomplete or corrupted records at the end of {}", size - valid, file);
+            }
+            LOG.debug("{} records read from {}", count, file);
+            return valid;
+        }
+    }
+
+    private static void apply(byte[] record, Map<String, SecurityInfo> infos) throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+            byte type = in.readByte();
+            String endpoint = in.readUTF();
+            switch (type) {
+            case ADD:
+                infos.put(endpoint, readInfo(endpoint, in));
+                break;
+            case REMOVE:
+                infos.remove(endpoint);
+                break;
+            default:
+                throw new IOException("Invalid record type " + type);
+            }
+        }
+    }
+
+    private static SecurityInfo readInfo(String endpoint, DataInputStream in) throws IOException {
+        byte kind = in.readByte();
+        switch (kind) {
+        case PSK:
+            String identity = in.readUTF();
+            return SecurityInfo.newPreSharedKeyInfo(endpoint, identity, readBytes(in));
+        case RPK:
+            String algorithm = in.readUTF();
+            try {
+                PublicKey key = KeyFactory.getInstance(algorithm)
+                        .generatePublic(new X509EncodedKeySpec(readBytes(in)));
+                return SecurityInfo.newRawPublicKeyInfo(endpoint, key);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("Invalid public key for " + endpoint, e);
+            }
+        case X509:
+            return SecurityInfo.newX509CertInfo(endpoint);
+        default:
+            throw new IOException("Invalid security info kind " + kind);
+        }
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return bytes;
+    }
+}
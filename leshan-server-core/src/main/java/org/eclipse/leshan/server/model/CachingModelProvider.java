@@ -0,0 +1,146 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.model;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.leshan.Link;
+import org.eclipse.leshan.core.model.LwM2mModel;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.util.Validate;
+
+/**
+ * A {@link LwM2mModelProvider} which creates a model per registration and shares it between all the registrations
+ * with the same signature.
+ * <p>
+ * The model of a registration must only depend on its object links. The models are kept in a bounded cache by
+ * signature, the least recently used ones are evicted when the cache is full. The model is also associated to the
+ * object links array of the registration, so the signature is only computed once per array: registrations sharing the
+ * same array (e.g. after an update without new object links) do not need any computation.
+ */
+public abstract class CachingModelProvider implements LwM2mModelProvider {
+
+    // models by object links array, entries are removed when the array is no more used
+    private final Map<Link[], LwM2mModel> modelsByLinks = Collections
+            .synchronizedMap(new WeakHashMap<Link[], LwM2mModel>());
+
+    // models by signature, guarded by itself
+    private final Map<String, LwM2mModel> modelsBySignature;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param maxModels the maximum number of models in the cache
+     */
+    public CachingModelProvider(final int maxModels) {
+        Validate.isTrue(maxModels > 0, "maximum number of models must be positive");
+        this.modelsBySignature = new LinkedHashMap<String, LwM2mModel>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, LwM2mModel> eldest) {
+                if (size() > maxModels) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    @Override
+    public LwM2mModel getObjectModel(Registration registration) {
+        Link[] objectLinks = registration.getObjectLinks();
+        if (objectLinks != null) {
+            LwM2mModel model = modelsByLinks.get(objectLinks);
+            if (model != null) {
+                hits.incrementAndGet();
+                return model;
+            }
+        }
+
+        String signature = getSignature(registration);
+        LwM2mModel model;
+        synchronized (modelsBySignature) {
+            model = modelsBySignature.get(signature);
+        }
+        if (model != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+            // created outside of the lock, two threads may create the same model but only one is kept
+            LwM2mModel created = createModel(registration);
+            synchronized (modelsBySignature) {
+                model = modelsBySignature.get(signature);
+                if (model == null) {
+                    model = created;
+                    modelsBySignature.put(signature, model);
+                }
+            }
+        }
+
+        if (objectLinks != null) {
+            modelsByLinks.put(objectLinks, model);
+        }
+        return model;
+    }
+
+    /**
+     * Computes the signature of a registration: registrations with the same signature must have the same model.
+     */
+    protected abstract String getSignature(Registration registration);
+
+    /**
+     * Creates the model of a registration.
+     */
+    protected abstract LwM2mModel createModel(Registration registration);
+
+    /**
+     * @return the number of models in the cache
+     */
+    public int size() {
+        synchronized (modelsBySignature) {
+            return modelsBySignature.size();
+        }
+    }
+
+    /**
+     * @return the number of lookups which found a model in the cache
+     */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of lookups which created a model
+     */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /**
+     * @return the number of models evicted because the cache was full
+     */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+}
@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.leshan.core.model.LwM2mModel;
+import org.eclipse.leshan.core.model.ObjectModel;
+import org.eclipse.leshan.util.Validate;
+
+/**
+ * A thread-safe repository of object descriptions, with several versions per object.
+ * <p>
+ * Each object has a default description, used when the version is not given or unknown.
+ */
+public class LwM2mModelRepository {
+
+    private final Map<Integer, ObjectModel> defaultModels = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, ConcurrentMap<String, ObjectModel>> versionedModels = new ConcurrentHashMap<>();
+
+    /**
+     * @param defaultModels the default description of each object
+     */
+    public LwM2mModelRepository(Collection<ObjectModel> defaultModels) {
+        for (ObjectModel model : defaultModels) {
+            this.defaultModels.put(model.id, model);
+        }
+    }
+
+    /**
+     * Adds the description of an object for a given version.
+     *
+     * @param version the object version, as given by the <code>ver</code> attribute of the object links
+     * @param model the object description
+     */
+    public void addObjectModel(String version, ObjectModel model) {
+        Validate.notNull(version);
+        Validate.notNull(model);
+        ConcurrentMap<String, ObjectModel> versions = versionedModels.get(model.id);
+        if (versions == null) {
+            versions = new ConcurrentHashMap<>();
+            ConcurrentMap<String, ObjectModel> previous = versionedModels.putIfAbsent(model.id, versions);
+            if (previous != null) {
+                versions = previous;
+            }
+        }
+        versions.put(version, model);
+    }
+
+    /**
+     * Returns the description of an object.
+     *
+     * @param objectId the object identifier
+     * @param version the object version, may be <code>null</code>
+     * @return the description for this version, the default description if the version is <code>null</code> or
+     *         unknown, or <code>null</code> if the object is unknown
+     */
+    public ObjectModel getObjectModel(int objectId, String version) {
+        if (version != null) {
+            Map<String, ObjectModel> versions = versionedModels.get(objectId);
+            if (versions != null) {
+                ObjectModel model = versions.get(version);
+                if (model != null) {
+                    return model;
+                }
+            }
+        }
+        return defaultModels.get(objectId);
+    }
+
+    /**
+     * Creates a model with the default description of each object, except for the objects given with a version.
+     *
+     * @param versions the version of some objects by object id
+     */
+    public LwM2mModel createModel(Map<Integer, String> versions) {
+        Map<Integer, ObjectModel> models = new HashMap<>(defaultModels);
+        for (Map.Entry<Integer, String> version : versions.entrySet()) {
+            ObjectModel model = getObjectModel(version.getKey(), version.getValue());
+            if (model != null) {
+                models.put(model.id, model);
+            }
+        }
+        return new LwM2mModel(new ArrayList<>(models.values()));
+    }
+}
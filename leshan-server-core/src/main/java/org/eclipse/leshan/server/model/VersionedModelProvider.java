@@ -0,0 +1,91 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.model;
+
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+
+import org.eclipse.leshan.core.model.LwM2mModel;
+import org.eclipse.leshan.server.registration.ObjectLinkSet;
+import org.eclipse.leshan.server.registration.Registration;
+
+/**
+ * A {@link LwM2mModelProvider} which uses the object versions given by the registration.
+ * <p>
+ * The version of an object is given by the <code>ver</code> attribute of its object link (e.g.
+ * <code>&lt;/1024&gt;;ver="2.0"</code>). The model of a registration uses the description of this version for each
+ * object with a version, and the default description for the other objects. Models are shared between the
+ * registrations with the same object versions.
+ */
+public class VersionedModelProvider extends CachingModelProvider {
+
+    /**
+     * The object link attribute which gives the version of the object.
+     */
+    public static final String VERSION_ATTRIBUTE = ObjectLinkSet.VERSION_ATTRIBUTE;
+
+    private static final int DEFAULT_MAX_MODELS = 1000;
+
+    private final LwM2mModelRepository repository;
+
+    public VersionedModelProvider(LwM2mModelRepository repository) {
+        this(repository, DEFAULT_MAX_MODELS);
+    }
+
+    /**
+     * @param repository the object descriptions
+     * @param maxModels the maximum number of models in the cache
+     */
+    public VersionedModelProvider(LwM2mModelRepository repository, int maxModels) {
+        super(maxModels);
+        this.repository = repository;
+    }
+
+    @Override
+    protected String getSignature(Registration registration) {
+        Map<Integer, String> versions = getObjectVersions(registration);
+        if (versions.isEmpty()) {
+            return "";
+        }
+        StringBuilder signature = new StringBuilder();
+        for (Entry<Integer, String> version : versions.entrySet()) {
+            if (signature.length() > 0) {
+                signature.append(',');
+            }
+            signature.append(version.getKey()).append('@').append(version.getValue());
+        }
+        return signature.toString();
+    }
+
+    @Override
+    protected LwM2mModel createModel(Registration registration) {
+        return repository.createModel(getObjectVersions(registration));
+    }
+
+    /**
+     * @return the version of the objects by object id, sorted by object id
+     */
+    protected Map<Integer, String> getObjectVersions(Registration registration) {
+        Map<Integer, String> versions = new TreeMap<>();
+        for (Entry<Integer, String> object : registration.getSupportedObjects().entrySet()) {
+            if (object.getValue() != null) {
+                versions.put(object.getKey(), object.getValue());
+            }
+        }
+        return versions;
+    }
+}
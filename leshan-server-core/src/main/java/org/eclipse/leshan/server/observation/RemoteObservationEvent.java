@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.observation;
+
+import java.io.Serializable;
+import java.rmi.RemoteException;
+
+import org.eclipse.leshan.core.observation.Observation;
+import org.eclipse.leshan.core.response.ObserveResponse;
+import org.eclipse.leshan.server.registration.Registration;
+
+/**
+ * An observation event delivered in batch to a {@link RemoteBatchObservationListener} (see
+ * {@link RemoteBatchObservationListener#onEvents(java.util.List)}).
+ */
+public class RemoteObservationEvent implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Type {
+        NEW_OBSERVATION, CANCELLED, RESPONSE, ERROR
+    }
+
+    private final Type type;
+    private final Observation observation;
+    private final Registration registration;
+    private final ObserveResponse response;
+    private final Exception error;
+
+    private RemoteObservationEvent(Type type, Observation observation, Registration registration,
+            ObserveResponse response, Exception error) {
+        this.type = type;
+        this.observation = observation;
+        this.registration = registration;
+        this.response = response;
+        this.error = error;
+    }
+
+    public static RemoteObservationEvent newObservation(Observation observation, Registration registration) {
+        return new RemoteObservationEvent(Type.NEW_OBSERVATION, observation, registration, null, null);
+    }
+
+    public static RemoteObservationEvent cancelled(Observation observation) {
+        return new RemoteObservationEvent(Type.CANCELLED, observation, null, null, null);
+    }
+
+    public static RemoteObservationEvent response(Observation observation, Registration registration,
+            ObserveResponse response) {
+        return new RemoteObservationEvent(Type.RESPONSE, observation, registration, response, null);
+    }
+
+    public static RemoteObservationEvent error(Observation observation, Registration registration, Exception error) {
+        return new RemoteObservationEvent(Type.ERROR, observation, registration, null, error);
+    }
+
+    /**
+     * Calls the {@link RemoteObservationListener} method corresponding to this event.
+     */
+    public void dispatch(RemoteObservationListener listener) throws RemoteException {
+        switch (type) {
+        case NEW_OBSERVATION:
+            listener.newObservation(observation, registration);
+            break;
+        case CANCELLED:
+            listener.cancelled(observation);
+            break;
+        case RESPONSE:
+            listener.onResponse(observation, registration, response);
+            break;
+        case ERROR:
+            listener.onError(observation, registration, error);
+            break;
+        }
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Observation getObservation() {
+        return observation;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RemoteObservationEvent [type=%s, observation=%s]", type, observation);
+    }
+}
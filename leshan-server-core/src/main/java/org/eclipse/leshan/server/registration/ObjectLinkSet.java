@@ -0,0 +1,269 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.registration;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.eclipse.leshan.Link;
+
+/**
+ * An immutable set of object links, shared between all the registrations with the same object links.
+ * <p>
+ * Sets are created with {@link #intern(Link[])} which always returns the same instance for equal links, as long as
+ * this instance is used. The data derived from the links (root path, supported objects, CoRE Link Format) is computed
+ * once per set.
+ */
+public final class ObjectLinkSet implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The object link attribute which gives the version of the object.
+     */
+    public static final String VERSION_ATTRIBUTE = "ver";
+
+    private static final String DEFAULT_ROOT_PATH = "/";
+
+    // canonical sets by links, the entries of the sets which are no more used are removed on the next intern
+    private static final ConcurrentMap<LinksKey, SetReference> SETS = new ConcurrentHashMap<>();
+    private static final ReferenceQueue<ObjectLinkSet> UNUSED_SETS = new ReferenceQueue<>();
+
+    private final Link[] links;
+    private final int hashCode;
+
+    private final String rootPath;
+    private final Map<Integer, String> supportedObjects;
+
+    // the links in the CoRE Link Format, computed on first use
+    private transient volatile byte[] coreLinkFormat;
+
+    private ObjectLinkSet(Link[] links, int hashCode) {
+        this.links = links;
+        this.hashCode = hashCode;
+        this.rootPath = extractRootPath(links);
+        this.supportedObjects = Collections.unmodifiableMap(extractSupportedObjects(links, rootPath));
+    }
+
+    /**
+     * Returns the shared set for the given links.
+     *
+     * @param links the object links, the array is not kept so it can be reused by the caller
+     * @return the canonical set for these links or <code>null</code> if <code>links</code> is <code>null</code>
+     */
+    public static ObjectLinkSet intern(Link[] links) {
+        if (links == null) {
+            return null;
+        }
+        removeUnusedSets();
+
+        int hashCode = Arrays.hashCode(links);
+        SetReference ref = SETS.get(new LinksKey(links, hashCode));
+        ObjectLinkSet set = ref == null ? null : ref.get();
+        if (set != null) {
+            return set;
+        }
+
+        ObjectLinkSet newSet = new ObjectLinkSet(Arrays.copyOf(links, links.length), hashCode);
+        LinksKey key = new LinksKey(newSet.links, hashCode);
+        SetReference newRef = new SetReference(newSet, key);
+        while (true) {
+            ref = SETS.putIfAbsent(key, newRef);
+            if (ref == null) {
+                return newSet;
+            }
+            set = ref.get();
+            if (set != null) {
+                return set;
+            }
+            // the previous set is no more used
+            if (SETS.replace(key, ref, newRef)) {
+                return newSet;
+            }
+        }
+    }
+
+    private static void removeUnusedSets() {
+        Reference<? extends ObjectLinkSet> ref;
+        while ((ref = UNUSED_SETS.poll()) != null) {
+            SETS.remove(((SetReference) ref).key, ref);
+        }
+    }
+
+    private static class LinksKey {
+        private final Link[] links;
+        private final int hashCode;
+
+        private LinksKey(Link[] links, int hashCode) {
+            this.links = links;
+            this.hashCode = hashCode;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj)
+                return true;
+            if (!(obj instanceof LinksKey))
+                return false;
+            LinksKey other = (LinksKey) obj;
+            return hashCode == other.hashCode && Arrays.equals(links, other.links);
+        }
+    }
+
+    private static class SetReference extends WeakReference<ObjectLinkSet> {
+        private final LinksKey key;
+
+        private SetReference(ObjectLinkSet set, LinksKey key) {
+            super(set, UNUSED_SETS);
+            this.key = key;
+        }
+    }
+
+    /**
+     * @return the object links, the array is shared and must not be modified
+     */
+    public Link[] getLinks() {
+        return links;
+    }
+
+    /**
+     * @return the path where the objects are hosted on the device
+     */
+    public String getRootPath() {
+        return rootPath;
+    }
+
+    /**
+     * @return the ids of the objects supported by the device, sorted, associated to their version
+     *         ({@value #VERSION_ATTRIBUTE} attribute, without quotes) or to <code>null</code> when the link has no
+     *         version
+     */
+    public Map<Integer, String> getSupportedObjects() {
+        return supportedObjects;
+    }
+
+    /**
+     * @return the links in the CoRE Link Format, the array is shared and must not be modified
+     */
+    public byte[] getCoreLinkFormat() {
+        byte[] bytes = coreLinkFormat;
+        if (bytes == null) {
+            bytes = links.length == 0 ? new byte[0] : Link.serializeToBytes(links);
+            coreLinkFormat = bytes;
+        }
+        return bytes;
+    }
+
+    private static String extractRootPath(Link[] links) {
+        // the root path is given by the link with the LWM2M resource type
+        for (Link link : links) {
+            if (link != null && "oma.lwm2m".equals(link.getAttributes().get("rt"))) {
+                return link.getUrl();
+            }
+        }
+        return DEFAULT_ROOT_PATH;
+    }
+
+    private static Map<Integer, String> extractSupportedObjects(Link[] links, String rootPath) {
+        Map<Integer, String> objects = new TreeMap<>();
+        for (Link link : links) {
+            if (link == null) {
+                continue;
+            }
+            Integer objectId = getObjectId(link.getUrl(), rootPath);
+            if (objectId == null) {
+                continue;
+            }
+            Object version = link.getAttributes().get(VERSION_ATTRIBUTE);
+            if (version != null) {
+                objects.put(objectId, unquote(version.toString()));
+            } else if (!objects.containsKey(objectId)) {
+                objects.put(objectId, null);
+            }
+        }
+        return objects;
+    }
+
+    private static Integer getObjectId(String url, String rootPath) {
+        if (url == null) {
+            return null;
+        }
+        int start = 0;
+        if (url.startsWith(rootPath)) {
+            start = rootPath.length();
+        }
+        while (start < url.length() && url.charAt(start) == '/') {
+            start++;
+        }
+        int end = url.indexOf('/', start);
+        if (end < 0) {
+            end = url.length();
+        }
+        if (start == end) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(url.substring(start, end));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static String unquote(String value) {
+        if (value.length() >= 2 && value.charAt(0) == '"' && value.charAt(value.length() - 1) == '"') {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
+    private Object readResolve() throws ObjectStreamException {
+        return intern(links);
+    }
+
+    @Override
+    public int hashCode() {
+        return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj)
+            return true;
+        if (!(obj instanceof ObjectLinkSet))
+            return false;
+        ObjectLinkSet other = (ObjectLinkSet) obj;
+        return hashCode == other.hashCode && Arrays.equals(links, other.links);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(links);
+    }
+}
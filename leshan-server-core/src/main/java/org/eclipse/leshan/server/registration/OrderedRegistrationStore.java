@@ -0,0 +1,35 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.registration;
+
+import java.util.Iterator;
+
+/**
+ * A {@link RegistrationStore} which keeps its registrations sorted by endpoint name, so a listing can resume from an
+ * endpoint without reading the registrations before it (see {@link RemoteRegistrationService#getRegistrations}).
+ */
+public interface OrderedRegistrationStore extends RegistrationStore {
+
+    /**
+     * Returns an iterator over the registrations sorted by endpoint name, starting from the given endpoint. The
+     * iterator is weakly consistent: the registrations added or removed while iterating may be returned or not.
+     *
+     * @param fromEndpoint the first endpoint, <code>null</code> to start from the first registration
+     * @param inclusive <code>true</code> if the registration of <code>fromEndpoint</code> is returned
+     * @return an iterator over the registrations from the given endpoint
+     */
+    Iterator<Registration> getRegistrations(String fromEndpoint, boolean inclusive);
+}
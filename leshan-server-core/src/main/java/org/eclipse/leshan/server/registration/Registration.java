@@ -40,6 +40,8 @@ public class Registration implements Serializable {
 
     private static final String DEFAULT_LWM2M_VERSION = "1.0";
 
+    private static final String DEFAULT_ROOT_PATH = "/";
+
     private final Date registrationDate;
 
     private final InetAddress address;
@@ -66,13 +68,11 @@ public class Registration implements Serializable {
 
     private final String id;
 
-    private final Link[] objectLinks;
+    /** The object links, shared with the registrations with the same links */
+    private final ObjectLinkSet objectLinks;
 
     private final Map<String, String> additionalRegistrationAttributes;
 
-    /** The location where LWM2M objects are hosted on the device */
-    private final String rootPath;
-
     private final Date lastUpdate;
 
     protected Registration(String id, String endpoint, InetAddress address, int port, String lwM2mVersion,
@@ -94,18 +94,7 @@ public class Registration implements Serializable {
         this.smsNumber = smsNumber;
         this.registrationEndpointAddress = registrationEndpointAddress;
 
-        this.objectLinks = objectLinks;
-        // extract the root objects path from the object links
-        String rootPath = "/";
-        if (objectLinks != null) {
-            for (Link link : objectLinks) {
-                if (link != null && "oma.lwm2m".equals(link.getAttributes().get("rt"))) {
-                    rootPath = link.getUrl();
-                    break;
-                }
-            }
-        }
-        this.rootPath = rootPath;
+        this.objectLinks = ObjectLinkSet.intern(objectLinks);
 
         this.lifeTimeInSec = lifetimeInSec == null ? DEFAULT_LIFETIME_IN_SEC : lifetimeInSec;
         this.lwM2mVersion = lwM2mVersion == null ? DEFAULT_LWM2M_VERSION : lwM2mVersion;
@@ -165,17 +154,35 @@ public class Registration implements Serializable {
         return registrationEndpointAddress;
     }
 
+    /**
+     * @return the object links, the array is shared between registrations and must not be modified
+     */
     public Link[] getObjectLinks() {
+        return objectLinks == null ? null : objectLinks.getLinks();
+    }
+
+    /**
+     * @return the shared set of object links or <code>null</code> if the registration has no object links
+     */
+    public ObjectLinkSet getObjectLinkSet() {
         return objectLinks;
     }
 
+    /**
+     * @return the ids of the objects supported by the device associated to their version, see
+     *         {@link ObjectLinkSet#getSupportedObjects()}
+     */
+    public Map<Integer, String> getSupportedObjects() {
+        return objectLinks == null ? Collections.<Integer, String> emptyMap() : objectLinks.getSupportedObjects();
+    }
+
     public Link[] getSortedObjectLinks() {
         // sort the list of objects
         if (objectLinks == null) {
             return null;
         }
 
-        Link[] res = Arrays.copyOf(objectLinks, objectLinks.length);
+        Link[] res = Arrays.copyOf(objectLinks.getLinks(), objectLinks.getLinks().length);
 
         Arrays.sort(res, new Comparator<Link>() {
 
@@ -245,7 +252,7 @@ public class Registration implements Serializable {
      * @return the path where the objects are hosted on the device
      */
     public String getRootPath() {
-        return rootPath;
+        return objectLinks == null ? DEFAULT_ROOT_PATH : objectLinks.getRootPath();
     }
 
     /**
@@ -261,8 +268,15 @@ public class Registration implements Serializable {
         return lastUpdate;
     }
 
+    /**
+     * @return the time in ms (since epoch) at which this registration expires if it is not updated.
+     */
+    public long getExpirationTimeStamp() {
+        return lastUpdate.getTime() + lifeTimeInSec * 1000;
+    }
+
     public boolean isAlive() {
-        return lastUpdate.getTime() + lifeTimeInSec * 1000 > System.currentTimeMillis();
+        return getExpirationTimeStamp() > System.currentTimeMillis();
     }
 
     public Map<String, String> getAdditionalRegistrationAttributes() {
@@ -278,7 +292,7 @@ public class Registration implements Serializable {
         return String.format(
                 "Registration [registrationDate=%s, address=%s, port=%s, registrationEndpoint=%s, lifeTimeInSec=%s, smsNumber=%s, lwM2mVersion=%s, bindingMode=%s, endpoint=%s, registrationId=%s, objectLinks=%s, lastUpdate=%s]",
                 registrationDate, address, port, registrationEndpointAddress, lifeTimeInSec, smsNumber, lwM2mVersion,
-                bindingMode, endpoint, id, Arrays.toString(objectLinks), lastUpdate);
+                bindingMode, endpoint, id, objectLinks, lastUpdate);
     }
 
     /**
@@ -0,0 +1,378 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.registration;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.leshan.server.Destroyable;
+import org.eclipse.leshan.util.NamedThreadFactory;
+import org.eclipse.leshan.util.Validate;
+
+/**
+ * Limits the registrations handled by the server, so a registration storm (e.g. the whole fleet registering again after
+ * a network outage) does not overload the registration store and the listeners.
+ * <p>
+ * A registration is admitted if:
+ * <ul>
+ * <li>the queue of the registrations waiting to be handled is not full,</li>
+ * <li>a token is available in the bucket of the subnet of the client (by default, the /24 for IPv4 and the /64 for
+ * IPv6),</li>
+ * <li>and a token is available in the global bucket.</li>
+ * </ul>
+ * Tokens are only taken from the buckets when the registration is admitted. Otherwise the client should be asked to
+ * retry later (e.g. a CoAP 5.03 Service Unavailable response with a Max-Age option set to {@link #getRetryAfter()}).
+ * <p>
+ * An admitted registration has a place reserved in the queue until it is handled by the fixed pool of threads (see
+ * {@link #execute(Runnable)}). The number of registrations admitted and rejected and the size of the queue are
+ * available for monitoring.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * RegistrationAdmissionControl admissionControl = new RegistrationAdmissionControl.Builder().globalRate(500, 1000)
+ *         .subnetRate(20, 50).maxQueueSize(2000).build();
+ * </pre>
+ */
+public class RegistrationAdmissionControl implements Destroyable {
+
+    private final TokenBucket globalBucket; // null for no limit
+    private final int subnetRate;
+    private final int subnetBurst;
+    private final int ipv4PrefixLength;
+    private final int ipv6PrefixLength;
+    private final int retryAfter; // s
+
+    // buckets of the last active subnets, in access order
+    private final Map<InetAddress, TokenBucket> subnetBuckets;
+
+    private final ThreadPoolExecutor executor;
+    // places of the registrations admitted and not handled yet
+    private final Semaphore places;
+
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLong globalRejections = new AtomicLong();
+    private final AtomicLong subnetRejections = new AtomicLong();
+    private final AtomicLong queueRejections = new AtomicLong();
+
+    private RegistrationAdmissionControl(Builder builder) {
+        long now = System.nanoTime();
+        this.globalBucket = builder.globalRate > 0 ? new TokenBucket(builder.globalRate, builder.globalBurst, now)
+                : null;
+        this.subnetRate = builder.subnetRate;
+        this.subnetBurst = builder.subnetBurst;
+        this.ipv4PrefixLength = builder.ipv4PrefixLength;
+        this.ipv6PrefixLength = builder.ipv6PrefixLength;
+        this.retryAfter = builder.retryAfter;
+
+        final int maxSubnets = builder.maxSubnets;
+        this.subnetBuckets = new LinkedHashMap<InetAddress, TokenBucket>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Entry<InetAddress, TokenBucket> eldest) {
+                return size() > maxSubnets;
+            }
+        };
+
+        // the size of the queue is bounded by the places
+        this.executor = new ThreadPoolExecutor(builder.threads, builder.threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(), new NamedThreadFactory("Leshan registration #%d"));
+        this.places = new Semaphore(builder.maxQueueSize + builder.threads);
+    }
+
+    /**
+     * Admits a registration from the given address: a place is reserved in the queue and a token is taken from the
+     * buckets. An admitted registration must then be given to {@link #execute(Runnable)}.
+     *
+     * @param source the address of the client
+     * @return <code>false</code> if the client should retry later
+     */
+    public boolean tryAcquire(InetAddress source) {
+        // the queue is checked first, so no token is taken for a registration which cannot be queued
+        if (!places.tryAcquire()) {
+            queueRejections.incrementAndGet();
+            return false;
+        }
+
+        long now = System.nanoTime();
+        TokenBucket subnetBucket = null;
+        if (subnetRate > 0) {
+            InetAddress subnet = subnetOf(source);
+            synchronized (subnetBuckets) {
+                subnetBucket = subnetBuckets.get(subnet);
+                if (subnetBucket == null) {
+                    subnetBucket = new TokenBucket(subnetRate, subnetBurst, now);
+                    subnetBuckets.put(subnet, subnetBucket);
+                }
+            }
+            if (!subnetBucket.tryAcquire(now)) {
+                places.release();
+                subnetRejections.incrementAndGet();
+                return false;
+            }
+        }
+        if (globalBucket != null && !globalBucket.tryAcquire(now)) {
+            // the registration is not admitted, its subnet token is given back
+            if (subnetBucket != null) {
+                subnetBucket.release();
+            }
+            places.release();
+            globalRejections.incrementAndGet();
+            return false;
+        }
+        admitted.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Queues the handling of a registration admitted by {@link #tryAcquire(InetAddress)}.
+     *
+     * @return <code>false</code> if this admission control is destroyed, the client should then retry later
+     */
+    public boolean execute(final Runnable registration) {
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        registration.run();
+                    } finally {
+                        places.release();
+                    }
+                }
+            });
+            return true;
+        } catch (RejectedExecutionException e) {
+            places.release();
+            return false;
+        }
+    }
+
+    /**
+     * Returns the delay in seconds after which a rejected client should retry. The delay is random between the
+     * configured delay and twice this delay, so the rejected clients do not come back all at once.
+     */
+    public int getRetryAfter() {
+        return retryAfter + ThreadLocalRandom.current().nextInt(retryAfter + 1);
+    }
+
+    private InetAddress subnetOf(InetAddress address) {
+        byte[] bytes = address.getAddress();
+        int prefixLength = bytes.length == 4 ? ipv4PrefixLength : ipv6PrefixLength;
+        for (int i = 0; i < bytes.length; i++) {
+            int bits = prefixLength - i * 8;
+            if (bits <= 0) {
+                bytes[i] = 0;
+            } else if (bits < 8) {
+                bytes[i] &= (byte) (0xFF << (8 - bits));
+            }
+        }
+        try {
+            return InetAddress.getByAddress(bytes);
+        } catch (UnknownHostException e) {
+            // not thrown for an address of a valid length
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return the number of registrations waiting to be handled
+     */
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * @return the number of registrations admitted
+     */
+    public long getAdmittedCount() {
+        return admitted.get();
+    }
+
+    /**
+     * @return the number of registrations rejected, whatever the reason
+     */
+    public long getRejectedCount() {
+        return globalRejections.get() + subnetRejections.get() + queueRejections.get();
+    }
+
+    /**
+     * @return the number of registrations rejected by the global rate limit
+     */
+    public long getGlobalRejectedCount() {
+        return globalRejections.get();
+    }
+
+    /**
+     * @return the number of registrations rejected by the rate limit of their subnet
+     */
+    public long getSubnetRejectedCount() {
+        return subnetRejections.get();
+    }
+
+    /**
+     * @return the number of registrations rejected because the queue was full
+     */
+    public long getQueueRejectedCount() {
+        return queueRejections.get();
+    }
+
+    /**
+     * Stops the threads handling the registrations. The queued registrations are still handled.
+     */
+    @Override
+    public void destroy() {
+        executor.shutdown();
+    }
+
+    private static class TokenBucket {
+
+        private final double tokensPerNano;
+        private final double capacity;
+        private double tokens;
+        private long lastRefill; // ns
+
+        private TokenBucket(int rate, int burst, long now) {
+            this.tokensPerNano = rate / (double) TimeUnit.SECONDS.toNanos(1);
+            this.capacity = burst;
+            this.tokens = burst;
+            this.lastRefill = now;
+        }
+
+        private synchronized boolean tryAcquire(long now) {
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+            lastRefill = now;
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+
+        private synchronized void release() {
+            tokens = Math.min(capacity, tokens + 1);
+        }
+    }
+
+    public static class Builder {
+
+        private static final int DEFAULT_MAX_QUEUE_SIZE = 1000;
+        private static final int DEFAULT_MAX_SUBNETS = 10000;
+        private static final int DEFAULT_RETRY_AFTER = 30; // s
+
+        private int globalRate;
+        private int globalBurst;
+        private int subnetRate;
+        private int subnetBurst;
+        private int ipv4PrefixLength = 24;
+        private int ipv6PrefixLength = 64;
+        private int maxSubnets = DEFAULT_MAX_SUBNETS;
+        private int maxQueueSize = DEFAULT_MAX_QUEUE_SIZE;
+        private int threads = Runtime.getRuntime().availableProcessors();
+        private int retryAfter = DEFAULT_RETRY_AFTER;
+
+        /**
+         * Limits the number of registrations per second for the whole server. No limit by default.
+         *
+         * @param rate the number of registrations admitted per second, 0 for no limit
+         * @param burst the number of registrations which can be admitted at once
+         */
+        public Builder globalRate(int rate, int burst) {
+            Validate.isTrue(rate >= 0, "rate must not be negative");
+            Validate.isTrue(rate == 0 || burst > 0, "burst must be positive");
+            this.globalRate = rate;
+            this.globalBurst = burst;
+            return this;
+        }
+
+        /**
+         * Limits the number of registrations per second for each subnet. No limit by default.
+         *
+         * @param rate the number of registrations admitted per second, 0 for no limit
+         * @param burst the number of registrations which can be admitted at once
+         */
+        public Builder subnetRate(int rate, int burst) {
+            Validate.isTrue(rate >= 0, "rate must not be negative");
+            Validate.isTrue(rate == 0 || burst > 0, "burst must be positive");
+            this.subnetRate = rate;
+            this.subnetBurst = burst;
+            return this;
+        }
+
+        /**
+         * Sets the length of the prefixes of the subnets (24 for IPv4 and 64 for IPv6 by default).
+         */
+        public Builder subnetPrefixLength(int ipv4PrefixLength, int ipv6PrefixLength) {
+            Validate.isTrue(ipv4PrefixLength >= 0 && ipv4PrefixLength <= 32, "invalid IPv4 prefix length");
+            Validate.isTrue(ipv6PrefixLength >= 0 && ipv6PrefixLength <= 128, "invalid IPv6 prefix length");
+            this.ipv4PrefixLength = ipv4PrefixLength;
+            this.ipv6PrefixLength = ipv6PrefixLength;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of subnets for which a rate is tracked (10000 by default). The least recently active
+         * subnets are forgotten first.
+         */
+        public Builder maxSubnets(int maxSubnets) {
+            Validate.isTrue(maxSubnets > 0, "maximum number of subnets must be positive");
+            this.maxSubnets = maxSubnets;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of registrations waiting to be handled (1000 by default).
+         */
+        public Builder maxQueueSize(int maxQueueSize) {
+            Validate.isTrue(maxQueueSize > 0, "maximum queue size must be positive");
+            this.maxQueueSize = maxQueueSize;
+            return this;
+        }
+
+        /**
+         * Sets the number of threads handling the registrations (the number of processors by default).
+         */
+        public Builder threads(int threads) {
+            Validate.isTrue(threads > 0, "number of threads must be positive");
+            this.threads = threads;
+            return this;
+        }
+
+        /**
+         * Sets the minimal delay in seconds after which a rejected client should retry (30s by default).
+         */
+        public Builder retryAfter(int retryAfter) {
+            Validate.isTrue(retryAfter > 0, "retry delay must be positive");
+            this.retryAfter = retryAfter;
+            return this;
+        }
+
+        public RegistrationAdmissionControl build() {
+            return new RegistrationAdmissionControl(this);
+        }
+    }
+}
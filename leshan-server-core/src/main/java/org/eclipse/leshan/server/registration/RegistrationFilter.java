@@ -0,0 +1,131 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.registration;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import org.eclipse.leshan.core.request.BindingMode;
+
+/**
+ * A filter on registrations, evaluated server side by {@link RemoteRegistrationService#getRegistrations}.
+ * <p>
+ * All the criteria are optional, a registration matches the filter if it matches all the criteria which are set.
+ */
+public class RegistrationFilter implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    /** A filter matching all the registrations */
+    public static final RegistrationFilter ALL = new Builder().build();
+
+    private final String endpointPrefix;
+    private final BindingMode bindingMode;
+    private final Date updatedAfter;
+    private final Date updatedBefore;
+
+    private RegistrationFilter(String endpointPrefix, BindingMode bindingMode, Date updatedAfter, Date updatedBefore) {
+        this.endpointPrefix = endpointPrefix;
+        this.bindingMode = bindingMode;
+        this.updatedAfter = updatedAfter;
+        this.updatedBefore = updatedBefore;
+    }
+
+    public String getEndpointPrefix() {
+        return endpointPrefix;
+    }
+
+    public BindingMode getBindingMode() {
+        return bindingMode;
+    }
+
+    public Date getUpdatedAfter() {
+        return updatedAfter;
+    }
+
+    public Date getUpdatedBefore() {
+        return updatedBefore;
+    }
+
+    /**
+     * @return <code>true</code> if the registration matches all the criteria of this filter
+     */
+    public boolean matches(Registration registration) {
+        if (endpointPrefix != null && !registration.getEndpoint().startsWith(endpointPrefix)) {
+            return false;
+        }
+        if (bindingMode != null && bindingMode != registration.getBindingMode()) {
+            return false;
+        }
+        if (updatedAfter != null && !registration.getLastUpdate().after(updatedAfter)) {
+            return false;
+        }
+        if (updatedBefore != null && !registration.getLastUpdate().before(updatedBefore)) {
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "RegistrationFilter [endpointPrefix=%s, bindingMode=%s, updatedAfter=%s, updatedBefore=%s]",
+                endpointPrefix, bindingMode, updatedAfter, updatedBefore);
+    }
+
+    public static class Builder {
+        private String endpointPrefix;
+        private BindingMode bindingMode;
+        private Date updatedAfter;
+        private Date updatedBefore;
+
+        /**
+         * Only keeps the registrations whose endpoint name starts with the given prefix.
+         */
+        public Builder endpointPrefix(String endpointPrefix) {
+            this.endpointPrefix = endpointPrefix;
+            return this;
+        }
+
+        /**
+         * Only keeps the registrations with the given binding mode.
+         */
+        public Builder bindingMode(BindingMode bindingMode) {
+            this.bindingMode = bindingMode;
+            return this;
+        }
+
+        /**
+         * Only keeps the registrations registered or updated strictly after the given date.
+         */
+        public Builder updatedAfter(Date updatedAfter) {
+            this.updatedAfter = updatedAfter;
+            return this;
+        }
+
+        /**
+         * Only keeps the registrations registered or updated strictly before the given date.
+         */
+        public Builder updatedBefore(Date updatedBefore) {
+            this.updatedBefore = updatedBefore;
+            return this;
+        }
+
+        public RegistrationFilter build() {
+            return new RegistrationFilter(endpointPrefix, bindingMode, updatedAfter, updatedBefore);
+        }
+    }
+}
@@ -0,0 +1,53 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.registration;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * A page of registrations returned by {@link RemoteRegistrationService#getRegistrations}.
+ */
+public class RegistrationPage implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final List<Registration> registrations;
+    private final String nextCursor;
+
+    public RegistrationPage(List<Registration> registrations, String nextCursor) {
+        this.registrations = registrations;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * @return the registrations of this page, sorted by endpoint name
+     */
+    public List<Registration> getRegistrations() {
+        return registrations;
+    }
+
+    /**
+     * @return the cursor to give to get the next page or <code>null</code> if this is the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
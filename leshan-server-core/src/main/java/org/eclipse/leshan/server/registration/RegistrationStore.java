@@ -63,6 +63,9 @@ public interface RegistrationStore {
 
     /**
      * Get the registration by socket address.
+     * <p>
+     * This is called each time the server opens a DTLS session to a client, so implementations should index the
+     * registrations by address instead of iterating over all of them.
      * 
      * @param address of the client registered.
      * @return the registration or null if there is no client registered with this socket address.
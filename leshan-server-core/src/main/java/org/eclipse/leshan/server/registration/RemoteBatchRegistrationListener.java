@@ -0,0 +1,38 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ * 
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ * 
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ * 
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.registration;
+
+import java.rmi.RemoteException;
+import java.util.List;
+
+/**
+ * A {@link RemoteRegistrationListener} which receives registration events in batch.
+ * <p>
+ * The server delivers all the events to such a listener with {@link #onEvents(List)}, in a single remote call per
+ * batch. Other listeners receive one remote call per event.
+ */
+public interface RemoteBatchRegistrationListener extends RemoteRegistrationListener {
+
+    /**
+     * Invoked with a batch of registration events, in the order they occurred.
+     * <p>
+     * Implementations will generally call {@link RemoteRegistrationEvent#dispatch(RemoteRegistrationListener)} for
+     * each event.
+     *
+     * @param events the registration events
+     */
+    void onEvents(List<RemoteRegistrationEvent> events) throws RemoteException;
+}
@@ -0,0 +1,106 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.registration;
+
+import java.io.Serializable;
+import java.rmi.RemoteException;
+import java.util.Collection;
+
+import org.eclipse.leshan.core.observation.Observation;
+
+/**
+ * A registration event delivered in batch to a {@link RemoteBatchRegistrationListener} (see
+ * {@link RemoteBatchRegistrationListener#onEvents(java.util.List)}).
+ */
+public class RemoteRegistrationEvent implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    public enum Type {
+        REGISTERED, UPDATED, UNREGISTERED
+    }
+
+    private final Type type;
+    private final Registration registration;
+    private final Registration previousRegistration;
+    private final Registration newRegistration;
+    private final RegistrationUpdate update;
+    private final Collection<Observation> observations;
+    private final boolean expired;
+
+    private RemoteRegistrationEvent(Type type, Registration registration, Registration previousRegistration,
+            Registration newRegistration, RegistrationUpdate update, Collection<Observation> observations,
+            boolean expired) {
+        this.type = type;
+        this.registration = registration;
+        this.previousRegistration = previousRegistration;
+        this.newRegistration = newRegistration;
+        this.update = update;
+        this.observations = observations;
+        this.expired = expired;
+    }
+
+    public static RemoteRegistrationEvent registered(Registration registration, Registration previousReg,
+            Collection<Observation> previousObservations) {
+        return new RemoteRegistrationEvent(Type.REGISTERED, registration, previousReg, null, null,
+                previousObservations, false);
+    }
+
+    public static RemoteRegistrationEvent updated(RegistrationUpdate update, Registration updatedRegistration,
+            Registration previousRegistration) {
+        return new RemoteRegistrationEvent(Type.UPDATED, updatedRegistration, previousRegistration, null, update,
+                null, false);
+    }
+
+    public static RemoteRegistrationEvent unregistered(Registration registration, Collection<Observation> observations,
+            boolean expired, Registration newReg) {
+        return new RemoteRegistrationEvent(Type.UNREGISTERED, registration, null, newReg, null, observations,
+                expired);
+    }
+
+    /**
+     * Calls the {@link RemoteRegistrationListener} method corresponding to this event.
+     */
+    public void dispatch(RemoteRegistrationListener listener) throws RemoteException {
+        switch (type) {
+        case REGISTERED:
+            listener.registered(registration, previousRegistration, observations);
+            break;
+        case UPDATED:
+            listener.updated(update, registration, previousRegistration);
+            break;
+        case UNREGISTERED:
+            listener.unregistered(registration, observations, expired, newRegistration);
+            break;
+        }
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return the new, updated or removed registration
+     */
+    public Registration getRegistration() {
+        return registration;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("RemoteRegistrationEvent [type=%s, endpoint=%s]", type, registration.getEndpoint());
+    }
+}
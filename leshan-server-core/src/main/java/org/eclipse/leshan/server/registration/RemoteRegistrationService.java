@@ -34,11 +34,27 @@ public interface RemoteRegistrationService extends Remote {
 
     /**
      * Returns an List of all registrations. This is necessary in order to pass them over RMI.
+     * <p>
+     * All the registrations are sent in a single remote call, prefer {@link #getRegistrations} for large fleets.
      *
      * @return an <tt>List</tt> over registrations
      */
     List<Registration> getAllRegistrations() throws RemoteException;
 
+    /**
+     * Returns a page of the registrations matching the filter, sorted by endpoint name.
+     * <p>
+     * The first page is obtained with a <code>null</code> cursor, the following ones with the cursor of the previous
+     * page (see {@link RegistrationPage#getNextCursor()}). As the pages are ordered by endpoint name, a registration
+     * added or removed while iterating does not shift the other registrations between pages.
+     *
+     * @param filter the filter to apply, use {@link RegistrationFilter#ALL} to get all the registrations
+     * @param cursor the cursor of the page to get or <code>null</code> for the first page
+     * @param limit the maximum number of registrations in the page
+     * @return a page of registrations
+     */
+    RegistrationPage getRegistrations(RegistrationFilter filter, String cursor, int limit) throws RemoteException;
+
     /**
      * Adds a new listener to be notified with client registration events.
      * 
@@ -0,0 +1,383 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.request;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.eclipse.leshan.core.request.DownlinkRequest;
+import org.eclipse.leshan.core.response.ErrorCallback;
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.core.response.LwM2mResponseFuture;
+import org.eclipse.leshan.core.response.ResponseCallback;
+import org.eclipse.leshan.server.LwM2mServer;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationFilter;
+import org.eclipse.leshan.util.NamedThreadFactory;
+import org.eclipse.leshan.util.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sends the same request to many clients.
+ * <p>
+ * The requests are sent asynchronously by a single thread, which reads the destinations lazily: at most
+ * <code>maxInFlight</code> requests are waiting for a response at any time, and at most <code>maxRate</code> requests
+ * are sent per second. The result of each request is given to a {@link BulkResultListener} and the aggregated progress
+ * is available with {@link #getProgress()}.
+ * <p>
+ * The request is shared by all the destinations. Its payload is encoded for each destination by the encoder of the
+ * server, unless the server is built with a caching encoder (see
+ * {@link org.eclipse.leshan.core.node.codec.CachingLwM2mNodeEncoder}, not used by default): then it is only encoded
+ * once per model.
+ * <p>
+ * Usage:
+ *
+ * <pre>
+ * BulkOperation&lt;WriteResponse&gt; operation = new BulkOperation.Builder&lt;&gt;(server, writeRequest)
+ *         .filter(filter).maxInFlight(200).maxRate(1000).listener(listener).build().start();
+ * operation.awaitCompletion(1, TimeUnit.HOURS);
+ * </pre>
+ *
+ * @param <T> the type of response
+ */
+public class BulkOperation<T extends LwM2mResponse> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(BulkOperation.class);
+
+    private static final NamedThreadFactory THREAD_FACTORY = new NamedThreadFactory("Bulk operation #%d");
+
+    private final LwM2mServer server;
+    private final DownlinkRequest<T> request;
+    private final Iterator<Registration> destinations;
+    private final int maxInFlight;
+    private final long sendInterval; // ns, 0 for no rate limit
+    private final long timeout;
+    private final BulkResultListener<T> listener;
+
+    private final Semaphore inFlight;
+    private final Set<LwM2mResponseFuture<T>> pending = Collections
+            .newSetFromMap(new ConcurrentHashMap<LwM2mResponseFuture<T>, Boolean>());
+    private final CountDownLatch completion = new CountDownLatch(1);
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong succeeded = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    private volatile boolean started;
+    private volatile boolean cancelled;
+    private volatile long startTime; // ns
+    private volatile long endTime; // ns, 0 until done
+    private Thread thread;
+
+    private BulkOperation(Builder<T> builder) {
+        this.server = builder.server;
+        this.request = builder.request;
+        Iterator<Registration> destinations = builder.destinations != null ? builder.destinations
+                : server.getRegistrationService().getAllRegistrations();
+        this.destinations = builder.filter != null ? new FilteredIterator(destinations, builder.filter)
+                : destinations;
+        this.maxInFlight = builder.maxInFlight;
+        this.sendInterval = builder.maxRate > 0 ? TimeUnit.SECONDS.toNanos(1) / builder.maxRate : 0;
+        this.timeout = builder.timeout;
+        this.listener = builder.listener;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * Starts sending the requests.
+     *
+     * @return this operation
+     */
+    public synchronized BulkOperation<T> start() {
+        if (started) {
+            throw new IllegalStateException("Bulk operation already started");
+        }
+        started = true;
+        startTime = System.nanoTime();
+        thread = THREAD_FACTORY.newThread(new Runnable() {
+            @Override
+            public void run() {
+                dispatch();
+            }
+        });
+        thread.start();
+        return this;
+    }
+
+    /**
+     * Stops sending new requests and cancels the requests waiting for a response.
+     */
+    public void cancel() {
+        cancelled = true;
+        for (LwM2mResponseFuture<T> future : pending) {
+            future.cancel(false);
+        }
+    }
+
+    /**
+     * Waits until all the requests are done.
+     *
+     * @return <code>false</code> if the timeout expired before the end of the operation
+     */
+    public boolean awaitCompletion(long timeout, TimeUnit unit) throws InterruptedException {
+        return completion.await(timeout, unit);
+    }
+
+    /**
+     * @return the current progress of the operation
+     */
+    public BulkProgress getProgress() {
+        long end = endTime;
+        boolean done = end != 0;
+        long elapsed = started ? TimeUnit.NANOSECONDS.toMillis((done ? end : System.nanoTime()) - startTime) : 0;
+        return new BulkProgress(sent.get(), succeeded.get(), failed.get(), errors.get(), elapsed, done);
+    }
+
+    private void dispatch() {
+        try {
+            long nextSendTime = System.nanoTime();
+            while (!cancelled && destinations.hasNext()) {
+                inFlight.acquire();
+
+                // the permit is released by the response of the request, or here if no request is sent
+                Registration destination = null;
+                try {
+                    // pace the requests
+                    if (sendInterval > 0) {
+                        long wait = nextSendTime - System.nanoTime();
+                        if (wait > 0) {
+                            TimeUnit.NANOSECONDS.sleep(wait);
+                        }
+                        nextSendTime = Math.max(nextSendTime, System.nanoTime() - sendInterval) + sendInterval;
+                    }
+
+                    if (!cancelled) {
+                        destination = destinations.next();
+                    }
+                } finally {
+                    if (destination == null) {
+                        inFlight.release();
+                    }
+                }
+
+                if (destination == null) {
+                    break;
+                }
+                send(destination);
+            }
+        } catch (InterruptedException e) {
+            LOG.warn("Bulk operation interrupted");
+            cancel();
+        } catch (RuntimeException e) {
+            LOG.error("Unable to read the destinations of the bulk operation", e);
+            cancel();
+        }
+
+        // wait for the pending requests
+        inFlight.acquireUninterruptibly(maxInFlight);
+        endTime = System.nanoTime();
+        BulkProgress progress = getProgress();
+        LOG.debug("Bulk operation done: {}", progress);
+        if (listener != null) {
+            try {
+                listener.onCompleted(progress);
+            } catch (RuntimeException e) {
+                LOG.warn("Unexpected exception in bulk operation listener", e);
+            }
+        }
+        completion.countDown();
+    }
+
+    private void send(final Registration destination) {
+        sent.incrementAndGet();
+        final LwM2mResponseFuture<T> future;
+        try {
+            future = server.sendAsync(destination, request, timeout);
+        } catch (RuntimeException e) {
+            onError(destination, e);
+            return;
+        }
+        pending.add(future);
+        future.addCallback(new ResponseCallback<T>() {
+            @Override
+            public void onResponse(T response) {
+                pending.remove(future);
+                BulkOperation.this.onResponse(destination, response);
+            }
+        }, new ErrorCallback() {
+            @Override
+            public void onError(Exception e) {
+                pending.remove(future);
+                BulkOperation.this.onError(destination, e);
+            }
+        });
+        // the future was not pending yet if the operation has just been cancelled
+        if (cancelled) {
+            future.cancel(false);
+        }
+    }
+
+    private void onResponse(Registration destination, T response) {
+        try {
+            if (response.isSuccess()) {
+                succeeded.incrementAndGet();
+            } else {
+                failed.incrementAndGet();
+            }
+            if (listener != null) {
+                listener.onResponse(destination, response);
+            }
+        } finally {
+            inFlight.release();
+        }
+    }
+
+    private void onError(Registration destination, Exception e) {
+        try {
+            errors.incrementAndGet();
+            if (listener != null) {
+                listener.onError(destination, e);
+            }
+        } finally {
+            inFlight.release();
+        }
+    }
+
+    private static class FilteredIterator implements Iterator<Registration> {
+
+        private final Iterator<Registration> iterator;
+        private final RegistrationFilter filter;
+        private Registration next;
+
+        private FilteredIterator(Iterator<Registration> iterator, RegistrationFilter filter) {
+            this.iterator = iterator;
+            this.filter = filter;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && iterator.hasNext()) {
+                Registration registration = iterator.next();
+                if (registration != null && filter.matches(registration)) {
+                    next = registration;
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public Registration next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Registration registration = next;
+            next = null;
+            return registration;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    public static class Builder<T extends LwM2mResponse> {
+
+        private static final int DEFAULT_MAX_IN_FLIGHT = 100;
+        private static final long DEFAULT_TIMEOUT = 60000; // ms
+
+        private final LwM2mServer server;
+        private final DownlinkRequest<T> request;
+        private Iterator<Registration> destinations;
+        private RegistrationFilter filter;
+        private int maxInFlight = DEFAULT_MAX_IN_FLIGHT;
+        private int maxRate;
+        private long timeout = DEFAULT_TIMEOUT;
+        private BulkResultListener<T> listener;
+
+        /**
+         * @param server the server which sends the requests
+         * @param request the request sent to all the destinations
+         */
+        public Builder(LwM2mServer server, DownlinkRequest<T> request) {
+            Validate.notNull(server);
+            Validate.notNull(request);
+            this.server = server;
+            this.request = request;
+        }
+
+        /**
+         * Sets the clients to send the request to. All the registered clients by default.
+         */
+        public Builder<T> destinations(Iterator<Registration> destinations) {
+            this.destinations = destinations;
+            return this;
+        }
+
+        /**
+         * Only sends the request to the destinations matching the given filter.
+         */
+        public Builder<T> filter(RegistrationFilter filter) {
+            this.filter = filter;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of requests waiting for a response (100 by default).
+         */
+        public Builder<T> maxInFlight(int maxInFlight) {
+            Validate.isTrue(maxInFlight > 0, "maximum number of requests in flight must be positive");
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        /**
+         * Sets the maximum number of requests sent per second, 0 (the default) for no limit.
+         */
+        public Builder<T> maxRate(int maxRate) {
+            Validate.isTrue(maxRate >= 0, "maximum rate must not be negative");
+            this.maxRate = maxRate;
+            return this;
+        }
+
+        /**
+         * Sets the timeout in ms of each request (60s by default).
+         */
+        public Builder<T> timeout(long timeout) {
+            Validate.isTrue(timeout > 0, "timeout must be positive");
+            this.timeout = timeout;
+            return this;
+        }
+
+        public Builder<T> listener(BulkResultListener<T> listener) {
+            this.listener = listener;
+            return this;
+        }
+
+        public BulkOperation<T> build() {
+            return new BulkOperation<>(this);
+        }
+    }
+}
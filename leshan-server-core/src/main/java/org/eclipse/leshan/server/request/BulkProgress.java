@@ -0,0 +1,101 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.request;
+
+/**
+ * A snapshot of the progress of a {@link BulkOperation}.
+ */
+public class BulkProgress {
+
+    private final long sent;
+    private final long succeeded;
+    private final long failed;
+    private final long errors;
+    private final long elapsed;
+    private final boolean done;
+
+    public BulkProgress(long sent, long succeeded, long failed, long errors, long elapsed, boolean done) {
+        this.sent = sent;
+        this.succeeded = succeeded;
+        this.failed = failed;
+        this.errors = errors;
+        this.elapsed = elapsed;
+        this.done = done;
+    }
+
+    /**
+     * @return the number of requests sent
+     */
+    public long getSent() {
+        return sent;
+    }
+
+    /**
+     * @return the number of successful responses
+     */
+    public long getSucceeded() {
+        return succeeded;
+    }
+
+    /**
+     * @return the number of error responses
+     */
+    public long getFailed() {
+        return failed;
+    }
+
+    /**
+     * @return the number of requests without response (timeout, rejection, encoding error...)
+     */
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return the number of requests sent and not completed yet
+     */
+    public long getInFlight() {
+        return sent - succeeded - failed - errors;
+    }
+
+    /**
+     * @return the time in ms since the operation started
+     */
+    public long getElapsed() {
+        return elapsed;
+    }
+
+    /**
+     * @return the number of completed requests per second since the operation started
+     */
+    public double getThroughput() {
+        return elapsed == 0 ? 0 : (succeeded + failed + errors) * 1000d / elapsed;
+    }
+
+    /**
+     * @return <code>true</code> if all the requests are done or the operation was cancelled
+     */
+    public boolean isDone() {
+        return done;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "BulkProgress [sent=%s, succeeded=%s, failed=%s, errors=%s, inFlight=%s, elapsed=%sms, throughput=%.1f/s, done=%s]",
+                sent, succeeded, failed, errors, getInFlight(), elapsed, getThroughput(), done);
+    }
+}
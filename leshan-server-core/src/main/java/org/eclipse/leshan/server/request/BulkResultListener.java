@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.request;
+
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.server.registration.Registration;
+
+/**
+ * Receives the result of each request of a {@link BulkOperation}, as soon as it is known.
+ * <p>
+ * The methods are called by the threads which complete the requests, they must not block.
+ *
+ * @param <T> the type of response
+ */
+public interface BulkResultListener<T extends LwM2mResponse> {
+
+    /**
+     * Called when a client answered (successful or error response).
+     */
+    void onResponse(Registration destination, T response);
+
+    /**
+     * Called when a request failed without response (timeout, rejection, encoding error...).
+     */
+    void onError(Registration destination, Exception error);
+
+    /**
+     * Called once, when all the requests are done or the operation is cancelled.
+     */
+    void onCompleted(BulkProgress progress);
+}
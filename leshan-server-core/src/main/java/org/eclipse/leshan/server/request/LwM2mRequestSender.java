@@ -21,6 +21,7 @@ import org.eclipse.leshan.core.request.DownlinkRequest;
 import org.eclipse.leshan.core.request.exception.RequestCanceledException;
 import org.eclipse.leshan.core.response.ErrorCallback;
 import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.core.response.LwM2mResponseFuture;
 import org.eclipse.leshan.core.response.ResponseCallback;
 import org.eclipse.leshan.server.registration.Registration;
 
@@ -53,6 +54,19 @@ public interface LwM2mRequestSender {
     <T extends LwM2mResponse> void send(Registration destination, DownlinkRequest<T> request,
             ResponseCallback<T> responseCallback, ErrorCallback errorCallback);
 
+    /**
+     * Sends a Lightweight M2M request asynchronously and returns its pending response.
+     * 
+     * @param destination the remote client
+     * @param request the request to send to the client
+     * @param timeout the request timeout in millisecond, handled by a scheduler shared between requests
+     * @return the pending response, cancelling it cancels the CoAP request
+     * 
+     * @throws CodecException if request payload can not be encoded.
+     */
+    <T extends LwM2mResponse> LwM2mResponseFuture<T> sendAsync(Registration destination, DownlinkRequest<T> request,
+            long timeout);
+
     /**
      * cancel all pending messages for a LWM2M client identified by the registration identifier. In case a client
      * de-registers, the consumer can use this method to cancel all messages pending for the given client.
@@ -16,6 +16,7 @@
 package org.eclipse.leshan.server.security;
 
 import java.util.Collection;
+import java.util.Iterator;
 
 public interface EditableSecurityStore extends SecurityStore {
 
@@ -26,6 +27,16 @@ public interface EditableSecurityStore extends SecurityStore {
      */
     Collection<SecurityInfo> getAll();
 
+    /**
+     * Returns an iterator over the {@link SecurityInfo} of all end-points.
+     * <p>
+     * Unlike {@link #getAll()}, the content of the store may be read while iterating, so a large store is not loaded
+     * in memory at once. A security info added or removed during the iteration may or may not be returned.
+     * 
+     * @return an <tt>Iterator</tt> over the security info in this store
+     */
+    Iterator<SecurityInfo> iterateAll();
+
     /**
      * Registers new security information for a client end-point.
      * 
@@ -44,4 +55,27 @@ public interface EditableSecurityStore extends SecurityStore {
      * @return the removed {@link SecurityInfo} or <code>null</code> if no info for the end-point.
      */
     SecurityInfo remove(String endpoint);
+
+    /**
+     * Registers the security information of several client end-points at once. This is the same as calling
+     * {@link #add(SecurityInfo)} for each of them, but much cheaper for a large batch.
+     * <p>
+     * All the identifiers are checked before the store is modified: if one of them is not unique, no security info is
+     * added.
+     * 
+     * @param infos the new security information, at most one per end-point
+     * @return the {@link SecurityInfo} previously stored for the end-points of the batch
+     * @throws NonUniqueSecurityInfoException if some identifiers (PSK identity, RPK public key...) are not unique among
+     *         all end-points.
+     * @throws IllegalArgumentException if the batch contains several security info for the same end-point.
+     */
+    Collection<SecurityInfo> addAll(Collection<SecurityInfo> infos) throws NonUniqueSecurityInfoException;
+
+    /**
+     * Removes the security information of several client end-points at once.
+     * 
+     * @param endpoints the client end-points
+     * @return the removed {@link SecurityInfo}, there is no entry for the end-points without info.
+     */
+    Collection<SecurityInfo> removeAll(Collection<String> endpoints);
 }
@@ -0,0 +1,185 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.leshan.server.security.NonUniqueSecurityInfoException;
+import org.eclipse.leshan.server.security.SecurityInfo;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CachingSecurityStoreTest {
+
+    private static final SecurityInfo INFO = SecurityInfo.newPreSharedKeyInfo("endpoint", "identity",
+            new byte[] { 1, 2, 3 });
+
+    private CountingSecurityStore store;
+
+    private static class CountingSecurityStore extends InMemorySecurityStore {
+
+        private final AtomicInteger lookups = new AtomicInteger();
+        private volatile CountDownLatch blocker;
+
+        @Override
+        public SecurityInfo getByEndpoint(String endpoint) {
+            lookup();
+            return super.getByEndpoint(endpoint);
+        }
+
+        @Override
+        public SecurityInfo getByIdentity(String identity) {
+            lookup();
+            return super.getByIdentity(identity);
+        }
+
+        private void lookup() {
+            lookups.incrementAndGet();
+            CountDownLatch latch = blocker;
+            if (latch != null) {
+                try {
+                    latch.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    @Before
+    public void setUp() throws NonUniqueSecurityInfoException {
+        store = new CountingSecurityStore();
+        store.add(INFO);
+    }
+
+    @Test
+    public void security_info_is_read_once() {
+        CachingSecurityStore cache = new CachingSecurityStore(store);
+
+        assertSame(INFO, cache.getByIdentity("identity"));
+        assertSame(INFO, cache.getByIdentity("identity"));
+        // the handshake lookup also caches the security info by endpoint
+        assertSame(INFO, cache.getByEndpoint("endpoint"));
+
+        assertEquals(1, store.lookups.get());
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getLoadCount());
+    }
+
+    @Test
+    public void missing_security_info_is_cached() throws NonUniqueSecurityInfoException {
+        EditableCachingSecurityStore cache = new EditableCachingSecurityStore(store);
+
+        assertNull(cache.getByEndpoint("unknown"));
+        assertNull(cache.getByEndpoint("unknown"));
+        assertNull(cache.getByIdentity("unknown"));
+        assertNull(cache.getByIdentity("unknown"));
+        assertEquals(2, store.lookups.get());
+
+        // adding a security info invalidates the missing endpoint and identity
+        SecurityInfo info = SecurityInfo.newPreSharedKeyInfo("unknown", "unknown", new byte[] { 4 });
+        cache.add(info);
+        assertSame(info, cache.getByEndpoint("unknown"));
+        assertSame(info, cache.getByIdentity("unknown"));
+    }
+
+    @Test
+    public void removed_security_info_is_invalidated() {
+        EditableCachingSecurityStore cache = new EditableCachingSecurityStore(store);
+        cache.getByIdentity("identity");
+
+        cache.remove("endpoint");
+
+        assertNull(cache.getByIdentity("identity"));
+        assertNull(cache.getByEndpoint("endpoint"));
+    }
+
+    @Test
+    public void external_modification_is_visible_after_invalidation() throws NonUniqueSecurityInfoException {
+        CachingSecurityStore cache = new CachingSecurityStore(store);
+        cache.getByEndpoint("endpoint");
+
+        SecurityInfo info = SecurityInfo.newPreSharedKeyInfo("endpoint", "other", new byte[] { 4 });
+        store.add(info);
+        assertSame(INFO, cache.getByEndpoint("endpoint"));
+
+        cache.invalidate("endpoint");
+        assertSame(info, cache.getByEndpoint("endpoint"));
+        assertNull(cache.getByIdentity("identity"));
+    }
+
+    @Test
+    public void entries_expire() throws InterruptedException {
+        CachingSecurityStore cache = new CachingSecurityStore(store, 10, 50, 50);
+        cache.getByEndpoint("endpoint");
+        cache.getByEndpoint("unknown");
+
+        Thread.sleep(100);
+        cache.getByEndpoint("endpoint");
+        cache.getByEndpoint("unknown");
+
+        assertEquals(4, store.lookups.get());
+    }
+
+    @Test
+    public void least_recently_used_entries_are_evicted() {
+        CachingSecurityStore cache = new CachingSecurityStore(store, 2, 60000, 60000);
+        cache.getByEndpoint("endpoint");
+        cache.getByEndpoint("unknown1");
+        cache.getByEndpoint("endpoint");
+        cache.getByEndpoint("unknown2");
+
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+        cache.getByEndpoint("endpoint");
+        assertEquals(3, store.lookups.get());
+    }
+
+    @Test
+    public void concurrent_lookups_share_the_same_load() throws InterruptedException {
+        final CachingSecurityStore cache = new CachingSecurityStore(store);
+        store.blocker = new CountDownLatch(1);
+
+        final CountDownLatch done = new CountDownLatch(5);
+        for (int i = 0; i < 5; i++) {
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    if (cache.getByIdentity("identity") == INFO) {
+                        done.countDown();
+                    }
+                }
+            }).start();
+        }
+        // let all the threads reach the cache
+        while (cache.getMissCount() < 5) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(100);
+        store.blocker.countDown();
+
+        assertEquals(true, done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, store.lookups.get());
+        assertEquals(1, cache.getLoadCount());
+    }
+}
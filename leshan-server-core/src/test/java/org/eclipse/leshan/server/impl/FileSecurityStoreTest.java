@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.eclipse.leshan.server.security.NonUniqueSecurityInfoException;
+import org.eclipse.leshan.server.security.SecurityInfo;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FileSecurityStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static SecurityInfo psk(int i) {
+        return SecurityInfo.newPreSharedKeyInfo("endpoint" + i, "identity" + i, new byte[] { (byte) i, 1, 2 });
+    }
+
+    private String file() {
+        return new File(folder.getRoot(), "data/security.data").getPath();
+    }
+
+    @Test
+    public void modifications_are_reloaded() throws Exception {
+        PublicKey key = KeyPairGenerator.getInstance("EC").generateKeyPair().getPublic();
+
+        FileSecurityStore store = new FileSecurityStore(file());
+        store.add(psk(1));
+        store.add(psk(2));
+        store.add(SecurityInfo.newRawPublicKeyInfo("rpk", key));
+        store.add(SecurityInfo.newX509CertInfo("x509"));
+        store.remove("endpoint1");
+        store.add(SecurityInfo.newPreSharedKeyInfo("endpoint2", "identity2bis", new byte[] { 3 }));
+        store.destroy();
+
+        FileSecurityStore reloaded = new FileSecurityStore(file());
+        assertEquals(3, reloaded.getAll().size());
+        assertNull(reloaded.getByEndpoint("endpoint1"));
+        assertNull(reloaded.getByIdentity("identity2"));
+        assertEquals("endpoint2", reloaded.getByIdentity("identity2bis").getEndpoint());
+        assertEquals(key, reloaded.getByEndpoint("rpk").getRawPublicKey());
+        assertTrue(reloaded.getByEndpoint("x509").useX509Cert());
+        reloaded.destroy();
+    }
+
+    @Test
+    public void incomplete_record_is_ignored() throws Exception {
+        FileSecurityStore store = new FileSecurityStore(file(), 0, 1024 * 1024);
+        store.add(psk(1));
+        store.add(psk(2));
+        // crash while writing a record
+        try (FileOutputStream journal = new FileOutputStream(file() + ".journal", true)) {
+            journal.write(new byte[] { 0, 0, 0, 42, 1, 0 });
+        }
+
+        FileSecurityStore reloaded = new FileSecurityStore(file(), 0, 1024 * 1024);
+        assertEquals(2, reloaded.getAll().size());
+        reloaded.add(psk(3));
+        reloaded.destroy();
+
+        reloaded = new FileSecurityStore(file(), 0, 1024 * 1024);
+        assertEquals(3, reloaded.getAll().size());
+        reloaded.destroy();
+    }
+
+    @Test
+    public void journal_is_compacted() throws Exception {
+        FileSecurityStore store = new FileSecurityStore(file(), 100, 512);
+        for (int i = 0; i < 200; i++) {
+            store.add(psk(i % 10));
+        }
+        // wait for the background compaction
+        File journal = new File(file() + ".journal");
+        File compactedJournal = new File(file() + ".journal.old");
+        long end = System.currentTimeMillis() + 5000;
+        while ((journal.length() > 512 || compactedJournal.exists()) && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertTrue(journal.length() <= 512);
+        assertFalse(compactedJournal.exists());
+        assertTrue(new File(file()).exists());
+        store.destroy();
+
+        FileSecurityStore reloaded = new FileSecurityStore(file());
+        assertEquals(10, reloaded.getAll().size());
+        reloaded.destroy();
+    }
+
+    @Test
+    public void batch_modifications_are_reloaded() throws Exception {
+        FileSecurityStore store = new FileSecurityStore(file());
+        store.add(psk(0));
+        List<SecurityInfo> batch = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            batch.add(psk(i));
+        }
+        assertEquals(Arrays.asList(psk(0)), store.addAll(batch));
+        assertEquals(2, store.removeAll(Arrays.asList("endpoint1", "endpoint2", "unknown")).size());
+        store.destroy();
+
+        FileSecurityStore reloaded = new FileSecurityStore(file());
+        assertEquals(98, reloaded.getAll().size());
+        assertNull(reloaded.getByEndpoint("endpoint1"));
+        assertEquals("endpoint99", reloaded.getByIdentity("identity99").getEndpoint());
+        reloaded.destroy();
+    }
+
+    @Test
+    public void batch_with_used_identity_is_rejected() throws Exception {
+        FileSecurityStore store = new FileSecurityStore(file());
+        store.addAll(Arrays.asList(psk(1), psk(2)));
+
+        // identity1 is still used by endpoint1
+        try {
+            store.addAll(Arrays.asList(psk(3), SecurityInfo.newPreSharedKeyInfo("endpoint4", "identity1", new byte[1])));
+            fail("identity1 is already used");
+        } catch (NonUniqueSecurityInfoException e) {
+            assertNull(store.getByEndpoint("endpoint3"));
+        }
+
+        // identities can be swapped in a single batch
+        store.addAll(Arrays.asList(SecurityInfo.newPreSharedKeyInfo("endpoint1", "identity2", new byte[1]),
+                SecurityInfo.newPreSharedKeyInfo("endpoint2", "identity1", new byte[1])));
+        store.destroy();
+
+        FileSecurityStore reloaded = new FileSecurityStore(file());
+        assertEquals("endpoint2", reloaded.getByIdentity("identity1").getEndpoint());
+        assertEquals("endpoint1", reloaded.getByIdentity("identity2").getEndpoint());
+        reloaded.destroy();
+    }
+
+    @Test
+    public void serialized_file_is_converted() throws IOException, NonUniqueSecurityInfoException {
+        File file = new File(file());
+        file.getParentFile().mkdirs();
+        try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(file))) {
+            out.writeObject(new SecurityInfo[] { psk(1), psk(2) });
+        }
+
+        FileSecurityStore store = new FileSecurityStore(file());
+        assertEquals(2, store.getAll().size());
+        store.add(psk(3));
+        store.destroy();
+
+        FileSecurityStore reloaded = new FileSecurityStore(file());
+        assertEquals(3, reloaded.getAll().size());
+        reloaded.destroy();
+    }
+}
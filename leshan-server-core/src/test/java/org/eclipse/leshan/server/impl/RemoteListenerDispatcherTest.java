@@ -0,0 +1,207 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.impl;
+
+import static org.junit.Assert.*;
+
+import java.rmi.NoSuchObjectException;
+import java.rmi.Remote;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.leshan.server.impl.RemoteListenerDispatcher.BatchSender;
+import org.eclipse.leshan.server.impl.RemoteListenerDispatcher.ListenerMetrics;
+import org.eclipse.leshan.server.impl.RemoteListenerDispatcher.OverflowPolicy;
+import org.eclipse.leshan.server.impl.RemoteListenerDispatcher.RemovalListener;
+import org.junit.After;
+import org.junit.Test;
+
+public class RemoteListenerDispatcherTest {
+
+    private static class TestListener implements Remote {
+        private final List<List<Integer>> batches = new ArrayList<>();
+        private final CountDownLatch received;
+        private CountDownLatch blocked;
+        private RemoteException error;
+
+        private TestListener(int expectedEvents) {
+            this.received = new CountDownLatch(expectedEvents);
+        }
+
+        private void receive(List<Integer> events) throws RemoteException {
+            if (blocked != null) {
+                try {
+                    blocked.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            if (error != null) {
+                throw error;
+            }
+            synchronized (batches) {
+                batches.add(events);
+            }
+            for (int i = 0; i < events.size(); i++) {
+                received.countDown();
+            }
+        }
+
+        private List<Integer> events() {
+            List<Integer> events = new ArrayList<>();
+            synchronized (batches) {
+                for (List<Integer> batch : batches) {
+                    events.addAll(batch);
+                }
+            }
+            return events;
+        }
+    }
+
+    private RemoteListenerDispatcher<TestListener, Integer> dispatcher;
+
+    private RemoteListenerDispatcher<TestListener, Integer> newDispatcher(int capacity, OverflowPolicy policy) {
+        dispatcher = new RemoteListenerDispatcher<>("test", new BatchSender<TestListener, Integer>() {
+            @Override
+            public void send(TestListener listener, List<Integer> events) throws RemoteException {
+                listener.receive(events);
+            }
+        }, capacity, 10, policy, 0);
+        return dispatcher;
+    }
+
+    @After
+    public void tearDown() {
+        dispatcher.stop();
+    }
+
+    @Test
+    public void events_are_delivered_in_order_and_in_batches() throws InterruptedException {
+        newDispatcher(100, OverflowPolicy.DROP_NEWEST);
+        TestListener listener = new TestListener(20);
+        listener.blocked = new CountDownLatch(1);
+        dispatcher.addListener(listener);
+
+        for (int i = 0; i < 20; i++) {
+            dispatcher.dispatch(i);
+        }
+        listener.blocked.countDown();
+
+        assertTrue(listener.received.await(1, TimeUnit.SECONDS));
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            expected.add(i);
+        }
+        assertEquals(expected, listener.events());
+        // the first event is sent alone, the others are queued while it is delivered
+        assertTrue(listener.batches.size() < 20);
+    }
+
+    @Test
+    public void blocked_listener_does_not_delay_other_listeners() throws InterruptedException {
+        newDispatcher(100, OverflowPolicy.DROP_NEWEST);
+        TestListener slow = new TestListener(1);
+        slow.blocked = new CountDownLatch(1);
+        TestListener fast = new TestListener(3);
+        dispatcher.addListener(slow);
+        dispatcher.addListener(fast);
+
+        dispatcher.dispatch(1);
+        dispatcher.dispatch(2);
+        dispatcher.dispatch(3);
+
+        assertTrue(fast.received.await(1, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(1, 2, 3), fast.events());
+        slow.blocked.countDown();
+    }
+
+    @Test
+    public void oldest_events_are_dropped_when_queue_is_full() throws InterruptedException {
+        newDispatcher(2, OverflowPolicy.DROP_OLDEST);
+        TestListener listener = new TestListener(3);
+        listener.blocked = new CountDownLatch(1);
+        dispatcher.addListener(listener);
+
+        dispatcher.dispatch(1);
+        // wait for the first event to be in delivery
+        Thread.sleep(100);
+        for (int i = 2; i <= 5; i++) {
+            dispatcher.dispatch(i);
+        }
+        ListenerMetrics metrics = dispatcher.getMetrics().iterator().next();
+        assertEquals(2, metrics.getPending());
+        assertEquals(2, metrics.getDropped());
+
+        listener.blocked.countDown();
+        assertTrue(listener.received.await(1, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(1, 4, 5), listener.events());
+    }
+
+    @Test
+    public void failing_listener_does_not_prevent_delivery_to_other_listeners() throws InterruptedException {
+        newDispatcher(100, OverflowPolicy.DROP_NEWEST);
+        TestListener failing = new TestListener(1);
+        failing.error = new RemoteException("unreachable");
+        TestListener listener = new TestListener(1);
+        dispatcher.addListener(failing);
+        dispatcher.addListener(listener);
+
+        dispatcher.dispatch(1);
+
+        assertTrue(listener.received.await(1, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(1), listener.events());
+    }
+
+    @Test
+    public void listener_which_does_not_exist_anymore_is_removed() throws InterruptedException {
+        newDispatcher(100, OverflowPolicy.DROP_NEWEST);
+        TestListener listener = new TestListener(1);
+        listener.error = new NoSuchObjectException("no such object");
+        dispatcher.addListener(listener);
+
+        dispatcher.dispatch(1);
+
+        for (int i = 0; i < 100 && dispatcher.hasListeners(); i++) {
+            Thread.sleep(10);
+        }
+        assertFalse(dispatcher.hasListeners());
+    }
+
+    @Test
+    public void removal_of_listener_which_does_not_exist_anymore_is_notified() throws InterruptedException {
+        newDispatcher(100, OverflowPolicy.DROP_NEWEST);
+        final TestListener listener = new TestListener(1);
+        listener.error = new NoSuchObjectException("no such object");
+        final CountDownLatch removed = new CountDownLatch(1);
+        dispatcher.setRemovalListener(new RemovalListener<TestListener>() {
+            @Override
+            public void listenerRemoved(TestListener removedListener) {
+                if (removedListener == listener) {
+                    removed.countDown();
+                }
+            }
+        });
+        dispatcher.addListener(listener);
+
+        dispatcher.dispatch(1);
+
+        assertTrue(removed.await(1, TimeUnit.SECONDS));
+    }
+}
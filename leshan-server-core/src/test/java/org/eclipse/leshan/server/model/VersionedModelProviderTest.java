@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.model;
+
+import static org.junit.Assert.*;
+
+import java.net.Inet4Address;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import org.eclipse.leshan.Link;
+import org.eclipse.leshan.core.model.LwM2mModel;
+import org.eclipse.leshan.core.model.ObjectModel;
+import org.eclipse.leshan.core.model.ResourceModel;
+import org.eclipse.leshan.core.model.ResourceModel.Operations;
+import org.eclipse.leshan.core.model.ResourceModel.Type;
+import org.eclipse.leshan.server.registration.Registration;
+import org.junit.Before;
+import org.junit.Test;
+
+public class VersionedModelProviderTest {
+
+    private VersionedModelProvider provider;
+
+    @Before
+    public void setUp() {
+        LwM2mModelRepository repository = new LwM2mModelRepository(Arrays.asList(objectModel(Type.INTEGER)));
+        repository.addObjectModel("2.0", objectModel(Type.STRING));
+        provider = new VersionedModelProvider(repository, 2);
+    }
+
+    private static ObjectModel objectModel(Type type) {
+        return new ObjectModel(1024, "custom", "", false, false,
+                new ResourceModel(0, "value", Operations.R, false, false, type, "", "", ""));
+    }
+
+    private static Registration registration(String id, String objectLinks) throws UnknownHostException {
+        Link[] links = Link.parse(objectLinks.getBytes(StandardCharsets.UTF_8));
+        return new Registration.Builder(id, "endpoint" + id, Inet4Address.getByName("127.0.0.1"), 5683,
+                new InetSocketAddress(5683)).objectLinks(links).build();
+    }
+
+    @Test
+    public void use_version_of_object_links() throws UnknownHostException {
+        LwM2mModel defaultModel = provider.getObjectModel(registration("1", "</1024/0>,</3/0>"));
+        LwM2mModel versionedModel = provider.getObjectModel(registration("2", "</1024>;ver=\"2.0\",</1024/0>"));
+        LwM2mModel unknownVersionModel = provider.getObjectModel(registration("3", "</1024>;ver=\"3.0\""));
+
+        assertEquals(Type.INTEGER, defaultModel.getResourceModel(1024, 0).type);
+        assertEquals(Type.STRING, versionedModel.getResourceModel(1024, 0).type);
+        assertEquals(Type.INTEGER, unknownVersionModel.getResourceModel(1024, 0).type);
+    }
+
+    @Test
+    public void share_model_between_registrations_with_same_signature() throws UnknownHostException {
+        LwM2mModel model1 = provider.getObjectModel(registration("1", "</lwm2m>;rt=\"oma.lwm2m\",</lwm2m/1024>;ver=2.0"));
+        LwM2mModel model2 = provider.getObjectModel(registration("2", "</1024>;ver=2.0,</1024/1>"));
+
+        assertSame(model1, model2);
+        assertEquals(1, provider.size());
+        assertEquals(1, provider.getMissCount());
+        assertEquals(1, provider.getHitCount());
+    }
+
+    @Test
+    public void reuse_model_of_same_object_links() throws UnknownHostException {
+        Registration registration = registration("1", "</1024>;ver=2.0");
+        LwM2mModel model = provider.getObjectModel(registration);
+
+        assertSame(model, provider.getObjectModel(registration));
+        assertEquals(1, provider.getMissCount());
+        assertEquals(1, provider.getHitCount());
+    }
+
+    @Test
+    public void evict_least_recently_used_model() throws UnknownHostException {
+        provider.getObjectModel(registration("1", "</1024>;ver=1.0"));
+        provider.getObjectModel(registration("2", "</1024>;ver=2.0"));
+        provider.getObjectModel(registration("3", "</1024>;ver=3.0"));
+
+        assertEquals(2, provider.size());
+        assertEquals(1, provider.getEvictionCount());
+    }
+}
@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.registration;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.net.Inet4Address;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+
+import org.eclipse.leshan.Link;
+import org.junit.Test;
+
+public class ObjectLinkSetTest {
+
+    private static final String LINKS = "</lwm2m>;rt=\"oma.lwm2m\", </lwm2m/1/101>, </lwm2m/3/0>, </lwm2m/1024>;ver=\"2.0\"";
+
+    private static Registration newRegistration(String endpoint, Link[] links) throws Exception {
+        return new Registration.Builder(endpoint + "-id", endpoint, Inet4Address.getByName("127.0.0.1"), 5683,
+                new InetSocketAddress(5683)).objectLinks(links).build();
+    }
+
+    @Test
+    public void registrations_with_same_links_share_the_same_set() throws Exception {
+        Registration r1 = newRegistration("ep1", Link.parse(LINKS.getBytes(StandardCharsets.UTF_8)));
+        Registration r2 = newRegistration("ep2", Link.parse(LINKS.getBytes(StandardCharsets.UTF_8)));
+
+        assertSame(r1.getObjectLinkSet(), r2.getObjectLinkSet());
+        assertSame(r1.getObjectLinks(), r2.getObjectLinks());
+        assertEquals("/lwm2m", r1.getRootPath());
+    }
+
+    @Test
+    public void set_does_not_keep_the_given_array() {
+        Link[] links = Link.parse(LINKS.getBytes(StandardCharsets.UTF_8));
+        ObjectLinkSet set = ObjectLinkSet.intern(links);
+        links[0] = null;
+
+        assertNotNull(set.getLinks()[0]);
+        assertNotSame(set, ObjectLinkSet.intern(links));
+    }
+
+    @Test
+    public void supported_objects_with_version() throws Exception {
+        Registration r = newRegistration("ep", Link.parse(LINKS.getBytes(StandardCharsets.UTF_8)));
+
+        Map<Integer, String> expected = new TreeMap<>();
+        expected.put(1, null);
+        expected.put(3, null);
+        expected.put(1024, "2.0");
+        assertEquals(expected, r.getSupportedObjects());
+    }
+
+    @Test
+    public void registration_without_links() throws Exception {
+        Registration r = newRegistration("ep", null);
+
+        assertNull(r.getObjectLinks());
+        assertEquals("/", r.getRootPath());
+        assertTrue(r.getSupportedObjects().isEmpty());
+    }
+
+    @Test
+    public void deserialized_set_is_interned() throws Exception {
+        ObjectLinkSet set = ObjectLinkSet.intern(Link.parse(LINKS.getBytes(StandardCharsets.UTF_8)));
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(set);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            assertSame(set, in.readObject());
+        }
+    }
+
+    @Test
+    public void concurrent_interns_return_the_same_set() throws Exception {
+        final Link[] links = Link.parse("</1/0>, </3/0>, </5/0>".getBytes(StandardCharsets.UTF_8));
+        final ObjectLinkSet[] sets = new ObjectLinkSet[8];
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[sets.length];
+        for (int i = 0; i < threads.length; i++) {
+            final int index = i;
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    sets[index] = ObjectLinkSet.intern(links.clone());
+                }
+            });
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join(5000);
+        }
+
+        for (ObjectLinkSet set : sets) {
+            assertSame(sets[0], set);
+        }
+    }
+}
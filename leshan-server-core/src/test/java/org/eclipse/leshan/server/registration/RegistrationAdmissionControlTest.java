@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.registration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+public class RegistrationAdmissionControlTest {
+
+    private static final Runnable NOTHING = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    private static InetAddress address(String address) throws UnknownHostException {
+        return InetAddress.getByName(address);
+    }
+
+    @Test
+    public void subnet_rate_is_limited() throws UnknownHostException {
+        RegistrationAdmissionControl admissionControl = new RegistrationAdmissionControl.Builder().subnetRate(1, 2)
+                .build();
+
+        assertTrue(admissionControl.tryAcquire(address("10.0.0.1")));
+        assertTrue(admissionControl.tryAcquire(address("10.0.0.2")));
+        assertFalse(admissionControl.tryAcquire(address("10.0.0.3")));
+        // another subnet
+        assertTrue(admissionControl.tryAcquire(address("10.0.1.1")));
+        assertTrue(admissionControl.tryAcquire(address("2001:db8::1")));
+        assertTrue(admissionControl.tryAcquire(address("2001:db8::2")));
+        assertFalse(admissionControl.tryAcquire(address("2001:db8::3")));
+        assertTrue(admissionControl.tryAcquire(address("2001:db8:0:1::1")));
+
+        assertEquals(2, admissionControl.getSubnetRejectedCount());
+        assertEquals(0, admissionControl.getGlobalRejectedCount());
+        admissionControl.destroy();
+    }
+
+    @Test
+    public void global_rate_is_limited_and_refilled() throws Exception {
+        RegistrationAdmissionControl admissionControl = new RegistrationAdmissionControl.Builder().globalRate(10, 2)
+                .build();
+
+        assertTrue(admissionControl.tryAcquire(address("10.0.0.1")));
+        assertTrue(admissionControl.tryAcquire(address("10.0.1.1")));
+        assertFalse(admissionControl.tryAcquire(address("10.0.2.1")));
+        assertEquals(1, admissionControl.getGlobalRejectedCount());
+
+        // a token every 100ms
+        Thread.sleep(150);
+        assertTrue(admissionControl.tryAcquire(address("10.0.2.1")));
+        admissionControl.destroy();
+    }
+
+    @Test
+    public void full_queue_is_rejected() throws Exception {
+        RegistrationAdmissionControl admissionControl = new RegistrationAdmissionControl.Builder().threads(1)
+                .maxQueueSize(1).build();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        assertTrue(admissionControl.tryAcquire(address("10.0.0.1")));
+        assertTrue(admissionControl.execute(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }));
+        started.await();
+        assertTrue(admissionControl.tryAcquire(address("10.0.0.1")));
+        assertTrue(admissionControl.execute(NOTHING));
+        assertFalse(admissionControl.tryAcquire(address("10.0.0.1")));
+
+        assertEquals(1, admissionControl.getQueueSize());
+        assertEquals(2, admissionControl.getAdmittedCount());
+        assertEquals(1, admissionControl.getQueueRejectedCount());
+        assertEquals(1, admissionControl.getRejectedCount());
+
+        release.countDown();
+        waitForEmptyQueue(admissionControl);
+        assertTrue(admissionControl.tryAcquire(address("10.0.0.1")));
+        admissionControl.destroy();
+    }
+
+    @Test
+    public void subnet_token_is_given_back_when_global_rate_is_exceeded() throws Exception {
+        RegistrationAdmissionControl admissionControl = new RegistrationAdmissionControl.Builder().globalRate(10, 1)
+                .subnetRate(1, 1).build();
+
+        assertTrue(admissionControl.tryAcquire(address("10.0.0.1")));
+        assertFalse(admissionControl.tryAcquire(address("10.0.1.1")));
+        assertEquals(1, admissionControl.getGlobalRejectedCount());
+
+        // the global bucket is refilled first, the subnet bucket still has its token
+        Thread.sleep(150);
+        assertTrue(admissionControl.tryAcquire(address("10.0.1.1")));
+        admissionControl.destroy();
+    }
+
+    @Test
+    public void no_token_is_taken_when_queue_is_full() throws Exception {
+        RegistrationAdmissionControl admissionControl = new RegistrationAdmissionControl.Builder().subnetRate(1, 3)
+                .threads(1).maxQueueSize(1).build();
+
+        assertTrue(admissionControl.tryAcquire(address("10.0.0.1")));
+        assertTrue(admissionControl.tryAcquire(address("10.0.0.2")));
+        assertFalse(admissionControl.tryAcquire(address("10.0.0.3")));
+        assertEquals(1, admissionControl.getQueueRejectedCount());
+
+        // once the registrations are handled, the last token of the subnet is still available
+        assertTrue(admissionControl.execute(NOTHING));
+        assertTrue(admissionControl.execute(NOTHING));
+        waitForEmptyQueue(admissionControl);
+        assertTrue(admissionControl.tryAcquire(address("10.0.0.3")));
+        assertEquals(0, admissionControl.getSubnetRejectedCount());
+        admissionControl.destroy();
+    }
+
+    private static void waitForEmptyQueue(RegistrationAdmissionControl admissionControl) throws InterruptedException {
+        // the place of a registration is given back once it is handled
+        for (int i = 0; i < 50 && admissionControl.getQueueSize() > 0; i++) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(50);
+    }
+
+    @Test
+    public void retry_delay_is_spread() {
+        RegistrationAdmissionControl admissionControl = new RegistrationAdmissionControl.Builder().retryAfter(10)
+                .build();
+        for (int i = 0; i < 100; i++) {
+            int retryAfter = admissionControl.getRetryAfter();
+            assertTrue(retryAfter >= 10 && retryAfter <= 20);
+        }
+        admissionControl.destroy();
+    }
+}
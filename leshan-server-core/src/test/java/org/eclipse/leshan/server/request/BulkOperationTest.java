@@ -0,0 +1,349 @@
+/*******************************************************************************
+ * Copyright (c) 2017 Sierra Wireless and others.
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * and Eclipse Distribution License v1.0 which accompany this distribution.
+ *
+ * The Eclipse Public License is available at
+ *    http://www.eclipse.org/legal/epl-v10.html
+ * and the Eclipse Distribution License is available at
+ *    http://www.eclipse.org/org/documents/edl-v10.html.
+ *
+ * Contributors:
+ *     Sierra Wireless - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.leshan.server.request;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.net.Inet4Address;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.eclipse.leshan.core.request.DownlinkRequest;
+import org.eclipse.leshan.core.request.ReadRequest;
+import org.eclipse.leshan.core.request.exception.TimeoutException;
+import org.eclipse.leshan.core.response.ErrorCallback;
+import org.eclipse.leshan.core.response.LwM2mResponse;
+import org.eclipse.leshan.core.response.LwM2mResponseFuture;
+import org.eclipse.leshan.core.response.ReadResponse;
+import org.eclipse.leshan.core.response.ResponseCallback;
+import org.eclipse.leshan.server.LwM2mServer;
+import org.eclipse.leshan.server.model.LwM2mModelProvider;
+import org.eclipse.leshan.server.observation.ObservationService;
+import org.eclipse.leshan.server.registration.Registration;
+import org.eclipse.leshan.server.registration.RegistrationFilter;
+import org.eclipse.leshan.server.registration.RegistrationListener;
+import org.eclipse.leshan.server.registration.RegistrationService;
+import org.eclipse.leshan.server.security.SecurityStore;
+import org.junit.Test;
+
+public class BulkOperationTest {
+
+    private static final ReadRequest REQUEST = new ReadRequest(3, 0, 1);
+
+    private static List<Registration> registrations(int count) throws UnknownHostException {
+        List<Registration> registrations = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            registrations.add(new Registration.Builder("id" + i, "endpoint" + i, Inet4Address.getByName("127.0.0.1"),
+                    5683, new InetSocketAddress(5683)).build());
+        }
+        return registrations;
+    }
+
+    @Test
+    public void sends_request_to_all_registrations() throws Exception {
+        // endpoints with an odd number answer an error
+        StubServer server = new StubServer(registrations(10)) {
+            @Override
+            void onRequest(Registration destination, LwM2mResponseFuture<ReadResponse> future) {
+                int index = Integer.parseInt(destination.getEndpoint().substring("endpoint".length()));
+                if (index == 9) {
+                    future.completeExceptionally(new TimeoutException("timeout"));
+                } else {
+                    future.complete(index % 2 == 0 ? ReadResponse.success(1, "value") : ReadResponse.notFound());
+                }
+            }
+        };
+        RecordingListener listener = new RecordingListener();
+
+        BulkOperation<ReadResponse> operation = new BulkOperation.Builder<>(server, REQUEST).maxInFlight(3)
+                .listener(listener).build().start();
+
+        assertTrue(operation.awaitCompletion(5, TimeUnit.SECONDS));
+        BulkProgress progress = operation.getProgress();
+        assertTrue(progress.isDone());
+        assertEquals(10, progress.getSent());
+        assertEquals(5, progress.getSucceeded());
+        assertEquals(4, progress.getFailed());
+        assertEquals(1, progress.getErrors());
+        assertEquals(0, progress.getInFlight());
+        assertEquals(9, listener.responses.size());
+        assertEquals(1, listener.errors.size());
+        assertEquals(progress.toString(), listener.completed.get().toString());
+    }
+
+    @Test
+    public void sends_request_to_filtered_registrations() throws Exception {
+        StubServer server = new StubServer(registrations(10));
+        RecordingListener listener = new RecordingListener();
+
+        BulkOperation<ReadResponse> operation = new BulkOperation.Builder<>(server, REQUEST)
+                .filter(new RegistrationFilter.Builder().endpointPrefix("endpoint3").build()).listener(listener)
+                .build().start();
+
+        assertTrue(operation.awaitCompletion(5, TimeUnit.SECONDS));
+        assertEquals(1, operation.getProgress().getSent());
+        assertEquals("endpoint3", listener.responses.get(0).getEndpoint());
+    }
+
+    @Test
+    public void limits_requests_in_flight() throws Exception {
+        final List<LwM2mResponseFuture<ReadResponse>> pending = new CopyOnWriteArrayList<>();
+        StubServer server = new StubServer(registrations(10)) {
+            @Override
+            void onRequest(Registration destination, LwM2mResponseFuture<ReadResponse> future) {
+                pending.add(future);
+            }
+        };
+
+        BulkOperation<ReadResponse> operation = new BulkOperation.Builder<>(server, REQUEST).maxInFlight(4).build()
+                .start();
+
+        // only the first requests are sent until a response is received
+        assertFalse(operation.awaitCompletion(200, TimeUnit.MILLISECONDS));
+        assertEquals(4, pending.size());
+        assertEquals(4, operation.getProgress().getInFlight());
+
+        // each response lets a new request go
+        int completed = 0;
+        while (completed < 10) {
+            waitForRequests(pending, completed + 1);
+            pending.get(completed++).complete(ReadResponse.success(1, "value"));
+        }
+        assertTrue(operation.awaitCompletion(5, TimeUnit.SECONDS));
+        assertEquals(10, operation.getProgress().getSucceeded());
+    }
+
+    @Test
+    public void cancel_stops_the_operation() throws Exception {
+        StubServer server = new StubServer(registrations(10));
+        server.respond = false;
+
+        BulkOperation<ReadResponse> operation = new BulkOperation.Builder<>(server, REQUEST).maxInFlight(2).build()
+                .start();
+        assertFalse(operation.awaitCompletion(200, TimeUnit.MILLISECONDS));
+        operation.cancel();
+
+        assertTrue(operation.awaitCompletion(5, TimeUnit.SECONDS));
+        BulkProgress progress = operation.getProgress();
+        assertEquals(2, progress.getSent());
+        assertEquals(2, progress.getErrors());
+    }
+
+    @Test
+    public void cancel_during_send_cancels_the_request() throws Exception {
+        final AtomicReference<BulkOperation<ReadResponse>> operation = new AtomicReference<>();
+        StubServer server = new StubServer(registrations(10)) {
+            @Override
+            void onRequest(Registration destination, LwM2mResponseFuture<ReadResponse> future) {
+                // the operation is cancelled before the future is returned to it
+                operation.get().cancel();
+            }
+        };
+        operation.set(new BulkOperation.Builder<>(server, REQUEST).maxInFlight(2).build());
+        operation.get().start();
+
+        assertTrue(operation.get().awaitCompletion(5, TimeUnit.SECONDS));
+        BulkProgress progress = operation.get().getProgress();
+        assertEquals(1, progress.getSent());
+        assertEquals(1, progress.getErrors());
+    }
+
+    @Test
+    public void completes_when_destinations_cannot_be_read() throws Exception {
+        final Iterator<Registration> registrations = registrations(3).iterator();
+        Iterator<Registration> destinations = new Iterator<Registration>() {
+            private int read;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public Registration next() {
+                if (read++ == 3) {
+                    throw new IllegalStateException("store unavailable");
+                }
+                return registrations.next();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+
+        BulkOperation<ReadResponse> operation = new BulkOperation.Builder<>(new StubServer(registrations(0)), REQUEST)
+                .destinations(destinations).maxInFlight(2).build().start();
+
+        assertTrue(operation.awaitCompletion(5, TimeUnit.SECONDS));
+        BulkProgress progress = operation.getProgress();
+        assertEquals(3, progress.getSent());
+        assertEquals(3, progress.getSucceeded());
+        assertEquals(0, progress.getInFlight());
+    }
+
+    @Test
+    public void limits_request_rate() throws Exception {
+        StubServer server = new StubServer(registrations(5));
+
+        long start = System.nanoTime();
+        BulkOperation<ReadResponse> operation = new BulkOperation.Builder<>(server, REQUEST).maxRate(20).build()
+                .start();
+
+        assertTrue(operation.awaitCompletion(5, TimeUnit.SECONDS));
+        // 5 requests at 20 requests per second: at least 4 intervals of 50ms
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 200);
+        assertEquals(5, operation.getProgress().getSucceeded());
+    }
+
+    private static void waitForRequests(List<?> requests, int count) throws InterruptedException {
+        long end = System.currentTimeMillis() + 5000;
+        while (requests.size() < count && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        assertTrue(requests.size() >= count);
+    }
+
+    private static class RecordingListener implements BulkResultListener<ReadResponse> {
+
+        private final List<Registration> responses = new CopyOnWriteArrayList<>();
+        private final List<Registration> errors = new CopyOnWriteArrayList<>();
+        private final AtomicReference<BulkProgress> completed = new AtomicReference<>();
+
+        @Override
+        public void onResponse(Registration destination, ReadResponse response) {
+            responses.add(destination);
+        }
+
+        @Override
+        public void onError(Registration destination, Exception e) {
+            errors.add(destination);
+        }
+
+        @Override
+        public void onCompleted(BulkProgress progress) {
+            completed.set(progress);
+        }
+    }
+
+    /**
+     * A server which answers a successful response to all the read requests.
+     */
+    private static class StubServer implements LwM2mServer, RegistrationService {
+
+        private final List<Registration> registrations;
+        private boolean respond = true;
+
+        private StubServer(List<Registration> registrations) {
+            this.registrations = registrations;
+        }
+
+        void onRequest(Registration destination, LwM2mResponseFuture<ReadResponse> future) {
+            if (respond) {
+                future.complete(ReadResponse.success(1, "value"));
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        public <T extends LwM2mResponse> LwM2mResponseFuture<T> sendAsync(Registration destination,
+                DownlinkRequest<T> request, long timeout) {
+            LwM2mResponseFuture<ReadResponse> future = new LwM2mResponseFuture<>();
+            onRequest(destination, future);
+            return (LwM2mResponseFuture<T>) future;
+        }
+
+        @Override
+        public Iterator<Registration> getAllRegistrations() {
+            return registrations.iterator();
+        }
+
+        @Override
+        public RegistrationService getRegistrationService() {
+            return this;
+        }
+
+        @Override
+        public void start() {
+        }
+
+        @Override
+        public void stop() {
+        }
+
+        @Override
+        public void destroy() {
+        }
+
+        @Override
+        public <T extends LwM2mResponse> T send(Registration destination, DownlinkRequest<T> request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <T extends LwM2mResponse> T send(Registration destination, DownlinkRequest<T> request, long timeout) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <T extends LwM2mResponse> void send(Registration destination, DownlinkRequest<T> request,
+                ResponseCallback<T> responseCallback, ErrorCallback errorCallback) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ObservationService getObservationService() {
+            return null;
+        }
+
+        @Override
+        public SecurityStore getSecurityStore() {
+            return null;
+        }
+
+        @Override
+        public LwM2mModelProvider getModelProvider() {
+            return null;
+        }
+
+        @Override
+        public Registration getById(String id) {
+            return null;
+        }
+
+        @Override
+        public Registration getByEndpoint(String endpoint) {
+            return null;
+        }
+
+        @Override
+        public void addListener(RegistrationListener listener) {
+        }
+
+        @Override
+        public void removeListener(RegistrationListener listener) {
+        }
+    }
+}